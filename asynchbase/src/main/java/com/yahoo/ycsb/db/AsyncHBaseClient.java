@@ -25,6 +25,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.hbase.async.Bytes;
 import org.hbase.async.Config;
@@ -35,6 +37,9 @@ import org.hbase.async.KeyValue;
 import org.hbase.async.PutRequest;
 import org.hbase.async.Scanner;
 
+import com.stumbleupon.async.Callback;
+import com.stumbleupon.async.Deferred;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
@@ -49,8 +54,12 @@ import static com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT;
  * This client provides a subset of the main HBase client and uses a completely
  * asynchronous pipeline for all calls. It is particularly useful for write heavy
  * workloads. It is also compatible with all production versions of HBase. 
+ * 
+ * The asynchronous operations hand the {@link Deferred} results back to YCSB
+ * so the client can run open loop. With client side buffering enabled, writes
+ * complete when their batch is flushed.
  */
-public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
+public class AsyncHBaseClient extends AsyncDB {
   public static final Charset UTF8_CHARSET = Charset.forName("UTF8");
   private static final String CLIENT_SIDE_BUFFERING_PROPERTY = "clientbuffering";
   private static final String DURABILITY_PROPERTY = "durability";
@@ -385,6 +394,180 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
     return Status.OK;
   }
 
+  @Override
+  public CompletionStage<Status> readAsync(String table, final String key,
+      Set<String> fields, final Map<String, ByteIterator> result) {
+    setTable(table);
+    
+    final GetRequest get = new GetRequest(
+        lastTableBytes, key.getBytes(), columnFamilyBytes);
+    if (fields != null) {
+      get.qualifiers(getQualifierList(fields));
+    }
+    
+    return toFuture(client.get(get)).handle((row, error) -> {
+        if (error != null) {
+          System.err.println("Failure reading from row with key " + key + 
+              ": " + error.getMessage());
+          return Status.ERROR;
+        }
+        if (row == null || row.isEmpty()) {
+          return Status.NOT_FOUND;
+        }
+        for (final KeyValue column : row) {
+          result.put(new String(column.qualifier()), 
+              new ByteArrayByteIterator(column.value()));
+        }
+        return Status.OK;
+      });
+  }
+
+  @Override
+  public CompletionStage<Status> scanAsync(String table, String startkey,
+      int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    setTable(table);
+    
+    final Scanner scanner = client.newScanner(lastTableBytes);
+    scanner.setFamily(columnFamilyBytes);
+    scanner.setStartKey(startkey.getBytes(UTF8_CHARSET));
+    if (fields != null) {
+      scanner.setQualifiers(getQualifierList(fields));
+    }
+    
+    final CompletableFuture<Status> done = new CompletableFuture<Status>();
+    nextScanBatch(scanner, startkey, recordcount, 0, result, done);
+    return done;
+  }
+
+  /**
+   * Fetches the next batch of rows for an asynchronous scan, and chains the
+   * following fetch from its callback until enough rows have been read or the
+   * scanner is exhausted.
+   */
+  private void nextScanBatch(final Scanner scanner, final String startkey,
+      final int recordcount, final int numResults,
+      final Vector<HashMap<String, ByteIterator>> result,
+      final CompletableFuture<Status> done) {
+    toFuture(scanner.nextRows()).whenComplete((rows, error) -> {
+        if (error != null) {
+          System.err.println("Failure reading from row with key " + startkey + 
+              ": " + error.getMessage());
+          scanner.close();
+          done.complete(Status.ERROR);
+          return;
+        }
+        int count = numResults;
+        if (rows != null) {
+          for (final ArrayList<KeyValue> row : rows) {
+            final HashMap<String, ByteIterator> rowResult =
+                new HashMap<String, ByteIterator>(row.size());
+            for (final KeyValue column : row) {
+              rowResult.put(new String(column.qualifier()), 
+                  new ByteArrayByteIterator(column.value()));
+            }
+            result.add(rowResult);
+            if (++count >= recordcount) {
+              break;
+            }
+          }
+        }
+        if (rows == null || count >= recordcount) {
+          scanner.close();
+          done.complete(Status.OK);
+        } else {
+          nextScanBatch(scanner, startkey, recordcount, count, result, done);
+        }
+      });
+  }
+
+  @Override
+  public CompletionStage<Status> updateAsync(String table, final String key,
+      Map<String, ByteIterator> values) {
+    setTable(table);
+    
+    final byte[][] qualifiers = new byte[values.size()][];
+    final byte[][] byteValues = new byte[values.size()][];
+    
+    int idx = 0;
+    for (final Entry<String, ByteIterator> entry : values.entrySet()) {
+      qualifiers[idx] = entry.getKey().getBytes();
+      byteValues[idx++] = entry.getValue().toArray();
+    }
+    
+    final PutRequest put = new PutRequest(lastTableBytes, key.getBytes(), 
+        columnFamilyBytes, qualifiers, byteValues);
+    if (!durability) {
+      put.setDurable(false);
+    }
+    if (!clientSideBuffering) {
+      put.setBufferable(false);
+    }
+    return toStatus(client.put(put), key);
+  }
+
+  @Override
+  public CompletionStage<Status> insertAsync(String table, String key,
+      Map<String, ByteIterator> values) {
+    return updateAsync(table, key, values);
+  }
+
+  @Override
+  public CompletionStage<Status> deleteAsync(String table, String key) {
+    setTable(table);
+    
+    final DeleteRequest delete = new DeleteRequest(
+        lastTableBytes, key.getBytes(), columnFamilyBytes);
+    if (!durability) {
+      delete.setDurable(false);
+    }
+    if (!clientSideBuffering) {
+      delete.setBufferable(false);
+    }
+    return toStatus(client.delete(delete), key);
+  }
+
+  /**
+   * Little helper to map the result of a mutation to a status.
+   * @param deferred The pending mutation.
+   * @param key The row key, for error reporting.
+   * @return A stage that completes with OK or ERROR.
+   */
+  private static CompletionStage<Status> toStatus(final Deferred<Object> deferred,
+      final String key) {
+    return toFuture(deferred).handle((ignored, error) -> {
+        if (error != null) {
+          System.err.println("Failure writing row with key " + key + 
+              ": " + error.getMessage());
+          return Status.ERROR;
+        }
+        return Status.OK;
+      });
+  }
+
+  /**
+   * Little helper to bridge a {@link Deferred} to a {@link CompletableFuture}.
+   * @param deferred The deferred to wait on.
+   * @return A future that completes when the deferred calls back or errs back.
+   */
+  private static <T> CompletableFuture<T> toFuture(final Deferred<T> deferred) {
+    final CompletableFuture<T> future = new CompletableFuture<T>();
+    deferred.addCallbacks(new Callback<Object, T>() {
+        @Override
+        public Object call(final T arg) {
+          future.complete(arg);
+          return null;
+        }
+      }, new Callback<Object, Exception>() {
+        @Override
+        public Object call(final Exception e) {
+          future.completeExceptionally(e);
+          return null;
+        }
+      });
+    return future;
+  }
+
   /**
    * Little helper to set the table byte array. If it's different than the last
    * table we reset the byte array. Otherwise we just use the existing array.
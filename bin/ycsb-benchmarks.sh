@@ -0,0 +1,79 @@
+#!/bin/sh
+#
+# Copyright (c) 2018 YCSB contributors. All rights reserved.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you
+# may not use this file except in compliance with the License. You
+# may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+# implied. See the License for the specific language governing
+# permissions and limitations under the License. See accompanying
+# LICENSE file.
+#
+# -----------------------------------------------------------------------------
+# Runs the JMH microbenchmarks of the YCSB core once per thread count, with
+# allocation profiling, and writes one JSON result file per thread count.
+#
+# Any arguments are passed on to JMH, e.g. a benchmark regex:
+#
+#   bin/ycsb-benchmarks.sh Zipfian -f 3
+#
+# Environment Variable Prerequisites
+#
+#   YCSB_HOME       (Optional) YCSB installation directory.  If not set
+#                   this script will use the parent directory of where this
+#                   script is run from.
+#
+#   JAVA_HOME       (Optional) Must point at your Java Development Kit
+#                   installation.  If empty, this script tries use the
+#                   available java executable.
+#
+#   BENCH_THREADS   (Optional) Space separated thread counts to run every
+#                   benchmark with. Defaults to "1 2 4 8".
+#
+#   BENCH_RESULTS   (Optional) Directory the JSON results are written to.
+#                   Defaults to "benchmark-results" in the current directory.
+#
+#        www.shellcheck.net was used to validate this script
+
+# Get script path
+SCRIPT_DIR=$(dirname "$0" 2>/dev/null)
+
+# Only set YCSB_HOME if not already set
+[ -z "$YCSB_HOME" ] && YCSB_HOME=$(cd "$SCRIPT_DIR/.." || exit; pwd)
+
+# Attempt to find the available JAVA, if JAVA_HOME not set
+if [ -z "$JAVA_HOME" ]; then
+  JAVA_PATH=$(which java 2>/dev/null)
+  if [ "x$JAVA_PATH" != "x" ]; then
+    JAVA_HOME=$(dirname "$(dirname "$JAVA_PATH" 2>/dev/null)")
+  fi
+fi
+
+# If JAVA_HOME still not set, error
+if [ -z "$JAVA_HOME" ]; then
+  echo "[ERROR] Java executable not found. Exiting."
+  exit 1;
+fi
+
+BENCH_JAR="$YCSB_HOME/core-benchmarks/target/benchmarks.jar"
+if [ ! -f "$BENCH_JAR" ]; then
+  echo "[ERROR] $BENCH_JAR not found. Build it with:"
+  echo "  mvn -pl core-benchmarks -am package -DskipTests"
+  exit 1;
+fi
+
+[ -z "$BENCH_THREADS" ] && BENCH_THREADS="1 2 4 8"
+[ -z "$BENCH_RESULTS" ] && BENCH_RESULTS="benchmark-results"
+mkdir -p "$BENCH_RESULTS" || exit 1
+
+for THREADS in $BENCH_THREADS; do
+  echo "[INFO] Running benchmarks with $THREADS thread(s)"
+  "$JAVA_HOME/bin/java" -jar "$BENCH_JAR" -t "$THREADS" -prof gc \
+    -rf json -rff "$BENCH_RESULTS/jmh-t$THREADS.json" "$@" || exit 1
+done
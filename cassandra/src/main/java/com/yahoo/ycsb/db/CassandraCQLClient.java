@@ -17,6 +17,7 @@
  */
 package com.yahoo.ycsb.db;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.ConsistencyLevel;
@@ -24,30 +25,44 @@ import com.datastax.driver.core.Host;
 import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import com.datastax.driver.core.querybuilder.Update;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,29 +71,52 @@ import org.slf4j.helpers.MessageFormatter;
 /**
  * Cassandra 2.x CQL client.
  *
+ * Operations are executed asynchronously, so that a client thread running open
+ * loop can have many in flight; the synchronous methods wait for them.
+ *
  * See {@code cassandra2/README.md} for details.
  *
  * @author cmatser
  */
-public class CassandraCQLClient extends DB {
+public class CassandraCQLClient extends AsyncDB {
 
   private static Logger logger = LoggerFactory.getLogger(CassandraCQLClient.class);
 
   private static Cluster cluster = null;
   private static Session session = null;
+  private static String keyspace = null;
+  private static DriverMetricsReporter metricsReporter = null;
 
-  private static ConcurrentMap<Set<String>, PreparedStatement> readStmts =
-      new ConcurrentHashMap<Set<String>, PreparedStatement>();
-  private static ConcurrentMap<Set<String>, PreparedStatement> scanStmts =
-      new ConcurrentHashMap<Set<String>, PreparedStatement>();
-  private static ConcurrentMap<Set<String>, PreparedStatement> insertStmts =
-      new ConcurrentHashMap<Set<String>, PreparedStatement>();
-  private static ConcurrentMap<Set<String>, PreparedStatement> updateStmts =
-      new ConcurrentHashMap<Set<String>, PreparedStatement>();
-  private static AtomicReference<PreparedStatement> readAllStmt =
-      new AtomicReference<PreparedStatement>();
-  private static AtomicReference<PreparedStatement> scanAllStmt =
-      new AtomicReference<PreparedStatement>();
+  /**
+   * The bit each field has in the ids of the sets of fields statements are
+   * prepared for. See {@link #fieldSetId}.
+   */
+  private static final ConcurrentMap<String, Integer> FIELD_BITS =
+      new ConcurrentHashMap<String, Integer>();
+  private static final AtomicInteger NEXT_FIELD_BIT = new AtomicInteger(0);
+
+  /**
+   * Ids for sets with fields beyond the 63 that fit in a bit mask that is never
+   * negative. They count down from -2, so they are not taken for masks or
+   * {@link #ALL_FIELDS}.
+   */
+  private static final ConcurrentMap<Set<String>, Long> WIDE_FIELD_SETS =
+      new ConcurrentHashMap<Set<String>, Long>();
+  private static final AtomicLong NEXT_WIDE_FIELD_SET = new AtomicLong(-2);
+
+  /**
+   * The id of all fields, for reads and scans of whole records.
+   */
+  private static final long ALL_FIELDS = -1;
+
+  private static ConcurrentMap<Long, PreparedStatement> readStmts =
+      new ConcurrentHashMap<Long, PreparedStatement>();
+  private static ConcurrentMap<Long, PreparedStatement> scanStmts =
+      new ConcurrentHashMap<Long, PreparedStatement>();
+  private static ConcurrentMap<Long, PreparedStatement> insertStmts =
+      new ConcurrentHashMap<Long, PreparedStatement>();
+  private static ConcurrentMap<Long, PreparedStatement> updateStmts =
+      new ConcurrentHashMap<Long, PreparedStatement>();
   private static AtomicReference<PreparedStatement> deleteStmt =
       new AtomicReference<PreparedStatement>();
 
@@ -113,6 +151,22 @@ public class CassandraCQLClient extends DB {
 
   public static final String TRACING_PROPERTY = "cassandra.tracing";
   public static final String TRACING_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The most operations a client thread may have executing at once. Issuing
+   * another waits for one of them to complete.
+   */
+  public static final String MAX_IN_FLIGHT_PROPERTY = "cassandra.maxinflight";
+  public static final String MAX_IN_FLIGHT_PROPERTY_DEFAULT = "128";
+
+  /**
+   * Whether to add the driver's connection pool and in-flight request counts to
+   * the measurements. See {@link DriverMetricsReporter}.
+   */
+  public static final String METRICS_PROPERTY = "cassandra.metrics";
+  public static final String METRICS_PROPERTY_DEFAULT = "false";
+  public static final String METRICS_INTERVAL_PROPERTY = "cassandra.metricsinterval";
+  public static final String METRICS_INTERVAL_PROPERTY_DEFAULT = "10";
   
   /**
    * Count the number of times initialized to teardown on the last
@@ -120,10 +174,19 @@ public class CassandraCQLClient extends DB {
    */
   private static final AtomicInteger INIT_COUNT = new AtomicInteger(0);
 
+  /**
+   * Guards creation and teardown of the shared cluster/session. A lock rather
+   * than a monitor, so that client threads running as virtual threads do not
+   * pin their carrier while the session connects.
+   */
+  private static final ReentrantLock INIT_LOCK = new ReentrantLock();
+
   private static boolean debug = false;
 
   private static boolean trace = false;
-  
+
+  private Semaphore inFlight;
+
   /**
    * Initialize any state for this DB. Called once per DB instance; there is one
    * DB instance per client thread.
@@ -134,9 +197,13 @@ public class CassandraCQLClient extends DB {
     // Keep track of number of calls to init (for later cleanup)
     INIT_COUNT.incrementAndGet();
 
-    // Synchronized so that we only have a single
+    inFlight = new Semaphore(Integer.parseInt(getProperties().getProperty(
+        MAX_IN_FLIGHT_PROPERTY, MAX_IN_FLIGHT_PROPERTY_DEFAULT)));
+
+    // Locked so that we only have a single
     // cluster/session instance for all the threads.
-    synchronized (INIT_COUNT) {
+    INIT_LOCK.lock();
+    try {
 
       // Check if the cluster has already been initialized
       if (cluster != null) {
@@ -161,7 +228,7 @@ public class CassandraCQLClient extends DB {
         String username = getProperties().getProperty(USERNAME_PROPERTY);
         String password = getProperties().getProperty(PASSWORD_PROPERTY);
 
-        String keyspace = getProperties().getProperty(KEYSPACE_PROPERTY,
+        keyspace = getProperties().getProperty(KEYSPACE_PROPERTY,
             KEYSPACE_PROPERTY_DEFAULT);
 
         readConsistencyLevel = ConsistencyLevel.valueOf(
@@ -221,10 +288,19 @@ public class CassandraCQLClient extends DB {
 
         session = cluster.connect(keyspace);
 
+        if (Boolean.parseBoolean(getProperties().getProperty(METRICS_PROPERTY,
+            METRICS_PROPERTY_DEFAULT))) {
+          metricsReporter = new DriverMetricsReporter(session,
+              Long.parseLong(getProperties().getProperty(METRICS_INTERVAL_PROPERTY,
+                  METRICS_INTERVAL_PROPERTY_DEFAULT)));
+        }
+
       } catch (Exception e) {
         throw new DBException(e);
       }
-    } // synchronized
+    } finally {
+      INIT_LOCK.unlock();
+    }
   }
 
   /**
@@ -233,15 +309,18 @@ public class CassandraCQLClient extends DB {
    */
   @Override
   public void cleanup() throws DBException {
-    synchronized (INIT_COUNT) {
+    INIT_LOCK.lock();
+    try {
       final int curInitCount = INIT_COUNT.decrementAndGet();
       if (curInitCount <= 0) {
+        if (metricsReporter != null) {
+          metricsReporter.close();
+          metricsReporter = null;
+        }
         readStmts.clear();
         scanStmts.clear();
         insertStmts.clear();
         updateStmts.clear();
-        readAllStmt.set(null);
-        scanAllStmt.set(null);
         deleteStmt.set(null);
         session.close();
         cluster.close();
@@ -253,6 +332,8 @@ public class CassandraCQLClient extends DB {
         throw new DBException(
             String.format("initCount is negative: %d", curInitCount));
       }
+    } finally {
+      INIT_LOCK.unlock();
     }
   }
 
@@ -268,72 +349,34 @@ public class CassandraCQLClient extends DB {
    *          The list of fields to read, or null for all of them
    * @param result
    *          A HashMap of field/value pairs for the result
-   * @return Zero on success, a non-zero error code on error
+   * @return A stage that completes with OK, NOT_FOUND or ERROR
    */
   @Override
-  public Status read(String table, String key, Set<String> fields,
-      Map<String, ByteIterator> result) {
+  public CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+      final Map<String, ByteIterator> result) {
     try {
-      PreparedStatement stmt = (fields == null) ? readAllStmt.get() : readStmts.get(fields);
-
-      // Prepare statement on demand
-      if (stmt == null) {
-        Select.Builder selectBuilder;
-
-        if (fields == null) {
-          selectBuilder = QueryBuilder.select().all();
-        } else {
-          selectBuilder = QueryBuilder.select();
-          for (String col : fields) {
-            ((Select.Selection) selectBuilder).column(col);
-          }
-        }
-
-        stmt = session.prepare(selectBuilder.from(table)
-                               .where(QueryBuilder.eq(YCSB_KEY, QueryBuilder.bindMarker()))
-                               .limit(1));
-        stmt.setConsistencyLevel(readConsistencyLevel);
-        if (trace) {
-          stmt.enableTracing();
-        }
-
-        PreparedStatement prevStmt = (fields == null) ?
-                                     readAllStmt.getAndSet(stmt) :
-                                     readStmts.putIfAbsent(new HashSet(fields), stmt);
-        if (prevStmt != null) {
-          stmt = prevStmt;
-        }
-      }
+      PreparedStatement stmt = readStatement(table, fields);
 
       logger.debug(stmt.getQueryString());
       logger.debug("key = {}", key);
 
-      ResultSet rs = session.execute(stmt.bind(key));
-
-      if (rs.isExhausted()) {
-        return Status.NOT_FOUND;
-      }
-
-      // Should be only 1 row
-      Row row = rs.one();
-      ColumnDefinitions cd = row.getColumnDefinitions();
-
-      for (ColumnDefinitions.Definition def : cd) {
-        ByteBuffer val = row.getBytesUnsafe(def.getName());
-        if (val != null) {
-          result.put(def.getName(), new ByteArrayByteIterator(val.array()));
-        } else {
-          result.put(def.getName(), null);
-        }
-      }
-
-      return Status.OK;
-
+      return execute(stmt.bind(key), "Error reading key: {}", key,
+          new Function<ResultSet, Status>() {
+            @Override
+            public Status apply(ResultSet rs) {
+              Row row = rs.one();
+              if (row == null) {
+                return Status.NOT_FOUND;
+              }
+
+              // Should be only 1 row
+              fillResult(row, result);
+              return Status.OK;
+            }
+          });
     } catch (Exception e) {
-      logger.error(MessageFormatter.format("Error reading key: {}", key).getMessage(), e);
-      return Status.ERROR;
+      return failed(e, "Error reading key: {}", key);
     }
-
   }
 
   /**
@@ -354,90 +397,37 @@ public class CassandraCQLClient extends DB {
    * @param result
    *          A Vector of HashMaps, where each HashMap is a set field/value
    *          pairs for one record
-   * @return Zero on success, a non-zero error code on error
+   * @return A stage that completes with OK or ERROR
    */
   @Override
-  public Status scan(String table, String startkey, int recordcount,
-      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
-
+  public CompletionStage<Status> scanAsync(String table, String startkey, int recordcount,
+      Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) {
     try {
-      PreparedStatement stmt = (fields == null) ? scanAllStmt.get() : scanStmts.get(fields);
-
-      // Prepare statement on demand
-      if (stmt == null) {
-        Select.Builder selectBuilder;
-
-        if (fields == null) {
-          selectBuilder = QueryBuilder.select().all();
-        } else {
-          selectBuilder = QueryBuilder.select();
-          for (String col : fields) {
-            ((Select.Selection) selectBuilder).column(col);
-          }
-        }
-
-        Select selectStmt = selectBuilder.from(table);
-
-        // The statement builder is not setup right for tokens.
-        // So, we need to build it manually.
-        String initialStmt = selectStmt.toString();
-        StringBuilder scanStmt = new StringBuilder();
-        scanStmt.append(initialStmt.substring(0, initialStmt.length() - 1));
-        scanStmt.append(" WHERE ");
-        scanStmt.append(QueryBuilder.token(YCSB_KEY));
-        scanStmt.append(" >= ");
-        scanStmt.append("token(");
-        scanStmt.append(QueryBuilder.bindMarker());
-        scanStmt.append(")");
-        scanStmt.append(" LIMIT ");
-        scanStmt.append(QueryBuilder.bindMarker());
-
-        stmt = session.prepare(scanStmt.toString());
-        stmt.setConsistencyLevel(readConsistencyLevel);
-        if (trace) {
-          stmt.enableTracing();
-        }
-
-        PreparedStatement prevStmt = (fields == null) ?
-                                     scanAllStmt.getAndSet(stmt) :
-                                     scanStmts.putIfAbsent(new HashSet(fields), stmt);
-        if (prevStmt != null) {
-          stmt = prevStmt;
-        }
-      }
+      PreparedStatement stmt = scanStatement(table, fields);
 
       logger.debug(stmt.getQueryString());
       logger.debug("startKey = {}, recordcount = {}", startkey, recordcount);
 
-      ResultSet rs = session.execute(stmt.bind(startkey, Integer.valueOf(recordcount)));
-
-      HashMap<String, ByteIterator> tuple;
-      while (!rs.isExhausted()) {
-        Row row = rs.one();
-        tuple = new HashMap<String, ByteIterator>();
-
-        ColumnDefinitions cd = row.getColumnDefinitions();
-
-        for (ColumnDefinitions.Definition def : cd) {
-          ByteBuffer val = row.getBytesUnsafe(def.getName());
-          if (val != null) {
-            tuple.put(def.getName(), new ByteArrayByteIterator(val.array()));
-          } else {
-            tuple.put(def.getName(), null);
-          }
-        }
-
-        result.add(tuple);
-      }
-
-      return Status.OK;
-
+      // Fetch all the rows in the first page, as the result is read on a driver
+      // thread, which must not wait for another.
+      BoundStatement boundStmt = stmt.bind(startkey, Integer.valueOf(recordcount));
+      boundStmt.setFetchSize(Math.max(recordcount, 1));
+
+      return execute(boundStmt, "Error scanning with startkey: {}", startkey,
+          new Function<ResultSet, Status>() {
+            @Override
+            public Status apply(ResultSet rs) {
+              for (int i = rs.getAvailableWithoutFetching(); i > 0; i--) {
+                HashMap<String, ByteIterator> tuple = new HashMap<String, ByteIterator>();
+                fillResult(rs.one(), tuple);
+                result.add(tuple);
+              }
+              return Status.OK;
+            }
+          });
     } catch (Exception e) {
-      logger.error(
-          MessageFormatter.format("Error scanning with startkey: {}", startkey).getMessage(), e);
-      return Status.ERROR;
+      return failed(e, "Error scanning with startkey: {}", startkey);
     }
-
   }
 
   /**
@@ -451,179 +441,573 @@ public class CassandraCQLClient extends DB {
    *          The record key of the record to write.
    * @param values
    *          A HashMap of field/value pairs to update in the record
-   * @return Zero on success, a non-zero error code on error
+   * @return A stage that completes with OK or ERROR
    */
   @Override
-  public Status update(String table, String key, Map<String, ByteIterator> values) {
-
+  public CompletionStage<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
     try {
-      Set<String> fields = values.keySet();
-      PreparedStatement stmt = updateStmts.get(fields);
+      return execute(bindUpdate(updateStatement(table, values.keySet()), key, values),
+          "Error updating key: {}", key, WRITTEN);
+    } catch (Exception e) {
+      return failed(e, "Error updating key: {}", key);
+    }
+  }
 
-      // Prepare statement on demand
-      if (stmt == null) {
-        Update updateStmt = QueryBuilder.update(table);
+  /**
+   * Insert a record in the database. Any field/value pairs in the specified
+   * values HashMap will be written into the record with the specified record
+   * key.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to insert.
+   * @param values
+   *          A HashMap of field/value pairs to insert in the record
+   * @return A stage that completes with OK or ERROR
+   */
+  @Override
+  public CompletionStage<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+    try {
+      return execute(bindInsert(insertStatement(table, values.keySet()), key, values),
+          "Error inserting key: {}", key, WRITTEN);
+    } catch (Exception e) {
+      return failed(e, "Error inserting key: {}", key);
+    }
+  }
 
-        // Add fields
-        for (String field : fields) {
-          updateStmt.with(QueryBuilder.set(field, QueryBuilder.bindMarker()));
-        }
+  /**
+   * Delete a record from the database.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to delete.
+   * @return A stage that completes with OK or ERROR
+   */
+  @Override
+  public CompletionStage<Status> deleteAsync(String table, String key) {
+    try {
+      PreparedStatement stmt = deleteStatement(table);
 
-        // Add key
-        updateStmt.where(QueryBuilder.eq(YCSB_KEY, QueryBuilder.bindMarker()));
+      logger.debug(stmt.getQueryString());
+      logger.debug("key = {}", key);
 
-        stmt = session.prepare(updateStmt);
-        stmt.setConsistencyLevel(writeConsistencyLevel);
-        if (trace) {
-          stmt.enableTracing();
-        }
+      return execute(stmt.bind(key), "Error deleting key: {}", key, WRITTEN);
+    } catch (Exception e) {
+      return failed(e, "Error deleting key: {}", key);
+    }
+  }
 
-        PreparedStatement prevStmt = updateStmts.putIfAbsent(new HashSet(fields), stmt);
-        if (prevStmt != null) {
-          stmt = prevStmt;
-        }
+  /**
+   * The status of a write, which is OK once the driver has its result.
+   */
+  private static final Function<ResultSet, Status> WRITTEN = new Function<ResultSet, Status>() {
+      @Override
+      public Status apply(ResultSet rs) {
+        return Status.OK;
       }
+    };
+
+  /**
+   * Executes a statement asynchronously, once this thread has fewer than
+   * {@code cassandra.maxinflight} statements executing.
+   *
+   * @param stmt
+   *          The statement to execute
+   * @param error
+   *          The message to log, with the key, if the statement fails
+   * @param key
+   *          The record key the statement is for
+   * @param handler
+   *          Gives the status of the operation from its result. It is called on
+   *          a driver thread, so it must not wait.
+   * @return A stage that completes with the status, or ERROR if the statement
+   *         failed
+   */
+  private CompletionStage<Status> execute(Statement stmt, final String error, final String key,
+      final Function<ResultSet, Status> handler) {
+    inFlight.acquireUninterruptibly();
+    ResultSetFuture future;
+    try {
+      future = session.executeAsync(stmt);
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
 
-      if (logger.isDebugEnabled()) {
-        logger.debug(stmt.getQueryString());
-        logger.debug("key = {}", key);
-        for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-          logger.debug("{} = {}", entry.getKey(), entry.getValue());
+    final CompletableFuture<Status> status = new CompletableFuture<Status>();
+    Futures.addCallback(future, new FutureCallback<ResultSet>() {
+        @Override
+        public void onSuccess(ResultSet rs) {
+          inFlight.release();
+          try {
+            status.complete(handler.apply(rs));
+          } catch (RuntimeException e) {
+            logger.error(MessageFormatter.format(error, key).getMessage(), e);
+            status.complete(Status.ERROR);
+          }
         }
-      }
 
-      // Add fields
-      ColumnDefinitions vars = stmt.getVariables();
-      BoundStatement boundStmt = stmt.bind();
-      for (int i = 0; i < vars.size() - 1; i++) {
-        boundStmt.setString(i, values.get(vars.getName(i)).toString());
-      }
+        @Override
+        public void onFailure(Throwable t) {
+          inFlight.release();
+          logger.error(MessageFormatter.format(error, key).getMessage(), t);
+          status.complete(Status.ERROR);
+        }
+      });
+    return status;
+  }
 
-      // Add key
-      boundStmt.setString(vars.size() - 1, key);
+  private static CompletionStage<Status> failed(Exception e, String error, String key) {
+    logger.error(MessageFormatter.format(error, key).getMessage(), e);
+    return CompletableFuture.completedFuture(Status.ERROR);
+  }
 
-      session.execute(boundStmt);
+  /**
+   * Read a batch of records from the database. The reads are sent
+   * asynchronously, as {@link #readAsync} sends them, so the whole batch costs
+   * about one round trip while no more than "cassandra.maxinflight" are in
+   * flight, and their results are collected in the order of the keys.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          A List to add a HashMap of field/value pairs to for each record
+   * @return Zero on success, a non-zero error code on error or "not found"
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<HashMap<String, ByteIterator>> results) {
+    try {
+      List<CompletionStage<Status>> stages = new ArrayList<CompletionStage<Status>>(keys.size());
+      for (String key : keys) {
+        HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+        results.add(result);
+        stages.add(readAsync(table, key, fields, result));
+      }
+      return awaitAll(stages);
+    } catch (Exception e) {
+      logger.error(MessageFormatter.format("Error reading batch of {} keys", keys.size()).getMessage(), e);
+      return Status.ERROR;
+    }
+  }
 
-      return Status.OK;
+  /**
+   * Update a batch of records in the database with unlogged batches, one for
+   * each set of replicas. See {@link #executeByReplicas}.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to write.
+   * @param values
+   *          A HashMap of field/value pairs to update for each of the keys
+   * @return Zero on success, a non-zero error code on error
+   */
+  @Override
+  public Status batchUpdate(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    try {
+      List<Statement> stmts = new ArrayList<Statement>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        Map<String, ByteIterator> record = values.get(i);
+        stmts.add(bindUpdate(updateStatement(table, record.keySet()), keys.get(i), record));
+      }
+      return executeByReplicas(keys, stmts);
     } catch (Exception e) {
-      logger.error(MessageFormatter.format("Error updating key: {}", key).getMessage(), e);
+      logger.error(MessageFormatter.format("Error updating batch of {} keys", keys.size()).getMessage(), e);
     }
 
     return Status.ERROR;
   }
 
   /**
-   * Insert a record in the database. Any field/value pairs in the specified
-   * values HashMap will be written into the record with the specified record
-   * key.
+   * Insert a batch of records in the database with unlogged batches, one for
+   * each set of replicas. See {@link #executeByReplicas}.
    *
    * @param table
    *          The name of the table
-   * @param key
-   *          The record key of the record to insert.
+   * @param keys
+   *          The record keys of the records to insert.
    * @param values
-   *          A HashMap of field/value pairs to insert in the record
+   *          A HashMap of field/value pairs to insert for each of the keys
    * @return Zero on success, a non-zero error code on error
    */
   @Override
-  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+  public Status batchInsert(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    try {
+      List<Statement> stmts = new ArrayList<Statement>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        Map<String, ByteIterator> record = values.get(i);
+        stmts.add(bindInsert(insertStatement(table, record.keySet()), keys.get(i), record));
+      }
+      return executeByReplicas(keys, stmts);
+    } catch (Exception e) {
+      logger.error(MessageFormatter.format("Error inserting batch of {} keys", keys.size()).getMessage(), e);
+    }
 
+    return Status.ERROR;
+  }
+
+  /**
+   * Delete a batch of records from the database with unlogged batches, one for
+   * each set of replicas. See {@link #executeByReplicas}.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to delete.
+   * @return Zero on success, a non-zero error code on error
+   */
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
     try {
-      Set<String> fields = values.keySet();
-      PreparedStatement stmt = insertStmts.get(fields);
+      PreparedStatement stmt = deleteStatement(table);
+      List<Statement> stmts = new ArrayList<Statement>(keys.size());
+      for (String key : keys) {
+        stmts.add(stmt.bind(key));
+      }
+      return executeByReplicas(keys, stmts);
+    } catch (Exception e) {
+      logger.error(MessageFormatter.format("Error deleting batch of {} keys", keys.size()).getMessage(), e);
+    }
 
-      // Prepare statement on demand
-      if (stmt == null) {
-        Insert insertStmt = QueryBuilder.insertInto(table);
+    return Status.ERROR;
+  }
 
-        // Add key
-        insertStmt.value(YCSB_KEY, QueryBuilder.bindMarker());
+  /**
+   * Executes the statements for the keys in unlogged batches, one for each set
+   * of replicas the keys' partitions are on. A batch of partitions that are
+   * spread over the cluster makes its coordinator forward each of them, so
+   * instead each batch only has partitions its token-aware coordinator owns.
+   * The batches are executed at once, within the "cassandra.maxinflight"
+   * window, and this waits for all of them.
+   *
+   * @return OK if every batch succeeded, otherwise ERROR
+   */
+  private Status executeByReplicas(List<String> keys, List<Statement> stmts) {
+    Metadata metadata = cluster.getMetadata();
+    Map<Set<Host>, BatchStatement> batches = new LinkedHashMap<Set<Host>, BatchStatement>();
+    for (int i = 0; i < keys.size(); i++) {
+      Set<Host> replicas = metadata.getReplicas(keyspace,
+          ByteBuffer.wrap(keys.get(i).getBytes(StandardCharsets.UTF_8)));
+      BatchStatement batch = batches.get(replicas);
+      if (batch == null) {
+        batch = newBatch();
+        batches.put(replicas, batch);
+      }
+      batch.add(stmts.get(i));
+    }
 
-        // Add fields
-        for (String field : fields) {
-          insertStmt.value(field, QueryBuilder.bindMarker());
-        }
+    List<CompletionStage<Status>> stages = new ArrayList<CompletionStage<Status>>(batches.size());
+    for (BatchStatement batch : batches.values()) {
+      stages.add(execute(batch, "Error writing a batch of {} keys", String.valueOf(batch.size()), WRITTEN));
+    }
+    return awaitAll(stages);
+  }
 
-        stmt = session.prepare(insertStmt);
-        stmt.setConsistencyLevel(writeConsistencyLevel);
-        if (trace) {
-          stmt.enableTracing();
-        }
+  /**
+   * Waits for all the stages.
+   *
+   * @return OK if every stage completed with OK, otherwise the status of the
+   *         first that did not
+   */
+  private static Status awaitAll(List<CompletionStage<Status>> stages) {
+    Status status = Status.OK;
+    for (CompletionStage<Status> stage : stages) {
+      status = firstFailure(status, stage.toCompletableFuture().join());
+    }
+    return status;
+  }
 
-        PreparedStatement prevStmt = insertStmts.putIfAbsent(new HashSet(fields), stmt);
-        if (prevStmt != null) {
-          stmt = prevStmt;
-        }
+  /**
+   * An unlogged batch: the records of a YCSB batch are independent, so there is
+   * no point in paying for the batch log.
+   */
+  private static BatchStatement newBatch() {
+    BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+    batch.setConsistencyLevel(writeConsistencyLevel);
+    if (trace) {
+      batch.enableTracing();
+    }
+    return batch;
+  }
+
+  /**
+   * Copies the columns of a row into a result map.
+   */
+  private static void fillResult(Row row, Map<String, ByteIterator> result) {
+    ColumnDefinitions cd = row.getColumnDefinitions();
+
+    for (ColumnDefinitions.Definition def : cd) {
+      ByteBuffer val = row.getBytesUnsafe(def.getName());
+      if (val != null) {
+        result.put(def.getName(), new ByteArrayByteIterator(val.array()));
+      } else {
+        result.put(def.getName(), null);
       }
+    }
+  }
 
-      if (logger.isDebugEnabled()) {
-        logger.debug(stmt.getQueryString());
-        logger.debug("key = {}", key);
-        for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-          logger.debug("{} = {}", entry.getKey(), entry.getValue());
+  /**
+   * @return the id of a set of fields, that the statements prepared for it are
+   *         cached by, so an operation looks its statement up by a number
+   *         instead of by hashing and comparing sets of strings. Each field is
+   *         given a bit when it is first seen, and the id of a set is the mask
+   *         of its fields' bits; a set with a field beyond the 63rd is given an
+   *         id of its own, so that masks never use the sign bit and are never
+   *         taken for the negative ids. null, for all fields, has the id
+   *         {@link #ALL_FIELDS}.
+   */
+  private static long fieldSetId(Set<String> fields) {
+    if (fields == null) {
+      return ALL_FIELDS;
+    }
+
+    long id = 0;
+    for (String field : fields) {
+      Integer bit = FIELD_BITS.get(field);
+      if (bit == null) {
+        Integer newBit = NEXT_FIELD_BIT.getAndIncrement();
+        bit = FIELD_BITS.putIfAbsent(field, newBit);
+        if (bit == null) {
+          bit = newBit;
         }
       }
+      if (bit >= Long.SIZE - 1) {
+        return wideFieldSetId(fields);
+      }
+      id |= 1L << bit;
+    }
+    return id;
+  }
 
-      // Add key
-      BoundStatement boundStmt = stmt.bind().setString(0, key);
+  private static long wideFieldSetId(Set<String> fields) {
+    Long id = WIDE_FIELD_SETS.get(fields);
+    if (id == null) {
+      Long newId = NEXT_WIDE_FIELD_SET.getAndDecrement();
+      id = WIDE_FIELD_SETS.putIfAbsent(new HashSet<String>(fields), newId);
+      if (id == null) {
+        id = newId;
+      }
+    }
+    return id;
+  }
 
-      // Add fields
-      ColumnDefinitions vars = stmt.getVariables();
-      for (int i = 1; i < vars.size(); i++) {
-        boundStmt.setString(i, values.get(vars.getName(i)).toString());
+  /**
+   * @return the select clause for the fields.
+   */
+  private static Select select(String table, Set<String> fields) {
+    Select.Builder selectBuilder;
+
+    if (fields == null) {
+      selectBuilder = QueryBuilder.select().all();
+    } else {
+      selectBuilder = QueryBuilder.select();
+      for (String col : fields) {
+        ((Select.Selection) selectBuilder).column(col);
       }
+    }
 
-      session.execute(boundStmt);
+    return selectBuilder.from(table);
+  }
 
-      return Status.OK;
-    } catch (Exception e) {
-      logger.error(MessageFormatter.format("Error inserting key: {}", key).getMessage(), e);
+  /**
+   * @return the read statement for the fields, prepared on demand.
+   */
+  private static PreparedStatement readStatement(String table, Set<String> fields) {
+    long id = fieldSetId(fields);
+    PreparedStatement stmt = readStmts.get(id);
+
+    // Prepare statement on demand
+    if (stmt == null) {
+      stmt = session.prepare(select(table, fields)
+                             .where(QueryBuilder.eq(YCSB_KEY, QueryBuilder.bindMarker()))
+                             .limit(1));
+      stmt.setConsistencyLevel(readConsistencyLevel);
+      if (trace) {
+        stmt.enableTracing();
+      }
+
+      PreparedStatement prevStmt = readStmts.putIfAbsent(id, stmt);
+      if (prevStmt != null) {
+        stmt = prevStmt;
+      }
     }
+    return stmt;
+  }
 
-    return Status.ERROR;
+  /**
+   * @return the scan statement for the fields, prepared on demand.
+   */
+  private static PreparedStatement scanStatement(String table, Set<String> fields) {
+    long id = fieldSetId(fields);
+    PreparedStatement stmt = scanStmts.get(id);
+
+    // Prepare statement on demand
+    if (stmt == null) {
+      // The statement builder is not setup right for tokens.
+      // So, we need to build it manually.
+      String initialStmt = select(table, fields).toString();
+      StringBuilder scanStmt = new StringBuilder();
+      scanStmt.append(initialStmt.substring(0, initialStmt.length() - 1));
+      scanStmt.append(" WHERE ");
+      scanStmt.append(QueryBuilder.token(YCSB_KEY));
+      scanStmt.append(" >= ");
+      scanStmt.append("token(");
+      scanStmt.append(QueryBuilder.bindMarker());
+      scanStmt.append(")");
+      scanStmt.append(" LIMIT ");
+      scanStmt.append(QueryBuilder.bindMarker());
+
+      stmt = session.prepare(scanStmt.toString());
+      stmt.setConsistencyLevel(readConsistencyLevel);
+      if (trace) {
+        stmt.enableTracing();
+      }
+
+      PreparedStatement prevStmt = scanStmts.putIfAbsent(id, stmt);
+      if (prevStmt != null) {
+        stmt = prevStmt;
+      }
+    }
+    return stmt;
   }
 
   /**
-   * Delete a record from the database.
-   *
-   * @param table
-   *          The name of the table
-   * @param key
-   *          The record key of the record to delete.
-   * @return Zero on success, a non-zero error code on error
+   * @return the update statement for the fields, prepared on demand.
    */
-  @Override
-  public Status delete(String table, String key) {
+  private static PreparedStatement updateStatement(String table, Set<String> fields) {
+    long id = fieldSetId(fields);
+    PreparedStatement stmt = updateStmts.get(id);
 
-    try {
-      PreparedStatement stmt = deleteStmt.get();
-
-      // Prepare statement on demand
-      if (stmt == null) {
-        stmt = session.prepare(QueryBuilder.delete().from(table)
-                               .where(QueryBuilder.eq(YCSB_KEY, QueryBuilder.bindMarker())));
-        stmt.setConsistencyLevel(writeConsistencyLevel);
-        if (trace) {
-          stmt.enableTracing();
-        }
+    // Prepare statement on demand
+    if (stmt == null) {
+      Update updateStmt = QueryBuilder.update(table);
 
-        PreparedStatement prevStmt = deleteStmt.getAndSet(stmt);
-        if (prevStmt != null) {
-          stmt = prevStmt;
-        }
+      // Add fields
+      for (String field : fields) {
+        updateStmt.with(QueryBuilder.set(field, QueryBuilder.bindMarker()));
       }
 
-      logger.debug(stmt.getQueryString());
-      logger.debug("key = {}", key);
+      // Add key
+      updateStmt.where(QueryBuilder.eq(YCSB_KEY, QueryBuilder.bindMarker()));
 
-      session.execute(stmt.bind(key));
+      stmt = session.prepare(updateStmt);
+      stmt.setConsistencyLevel(writeConsistencyLevel);
+      if (trace) {
+        stmt.enableTracing();
+      }
 
-      return Status.OK;
-    } catch (Exception e) {
-      logger.error(MessageFormatter.format("Error deleting key: {}", key).getMessage(), e);
+      PreparedStatement prevStmt = updateStmts.putIfAbsent(id, stmt);
+      if (prevStmt != null) {
+        stmt = prevStmt;
+      }
     }
+    return stmt;
+  }
 
-    return Status.ERROR;
+  /**
+   * @return the insert statement for the fields, prepared on demand.
+   */
+  private static PreparedStatement insertStatement(String table, Set<String> fields) {
+    long id = fieldSetId(fields);
+    PreparedStatement stmt = insertStmts.get(id);
+
+    // Prepare statement on demand
+    if (stmt == null) {
+      Insert insertStmt = QueryBuilder.insertInto(table);
+
+      // Add key
+      insertStmt.value(YCSB_KEY, QueryBuilder.bindMarker());
+
+      // Add fields
+      for (String field : fields) {
+        insertStmt.value(field, QueryBuilder.bindMarker());
+      }
+
+      stmt = session.prepare(insertStmt);
+      stmt.setConsistencyLevel(writeConsistencyLevel);
+      if (trace) {
+        stmt.enableTracing();
+      }
+
+      PreparedStatement prevStmt = insertStmts.putIfAbsent(id, stmt);
+      if (prevStmt != null) {
+        stmt = prevStmt;
+      }
+    }
+    return stmt;
+  }
+
+  /**
+   * @return the delete statement, prepared on demand.
+   */
+  private static PreparedStatement deleteStatement(String table) {
+    PreparedStatement stmt = deleteStmt.get();
+
+    // Prepare statement on demand
+    if (stmt == null) {
+      stmt = session.prepare(QueryBuilder.delete().from(table)
+                             .where(QueryBuilder.eq(YCSB_KEY, QueryBuilder.bindMarker())));
+      stmt.setConsistencyLevel(writeConsistencyLevel);
+      if (trace) {
+        stmt.enableTracing();
+      }
+
+      PreparedStatement prevStmt = deleteStmt.getAndSet(stmt);
+      if (prevStmt != null) {
+        stmt = prevStmt;
+      }
+    }
+    return stmt;
+  }
+
+  private static BoundStatement bindUpdate(PreparedStatement stmt, String key,
+      Map<String, ByteIterator> values) {
+    logWrite(stmt, key, values);
+
+    // Add fields
+    ColumnDefinitions vars = stmt.getVariables();
+    BoundStatement boundStmt = stmt.bind();
+    for (int i = 0; i < vars.size() - 1; i++) {
+      boundStmt.setString(i, values.get(vars.getName(i)).toString());
+    }
+
+    // Add key
+    boundStmt.setString(vars.size() - 1, key);
+    return boundStmt;
+  }
+
+  private static BoundStatement bindInsert(PreparedStatement stmt, String key,
+      Map<String, ByteIterator> values) {
+    logWrite(stmt, key, values);
+
+    // Add key
+    BoundStatement boundStmt = stmt.bind().setString(0, key);
+
+    // Add fields
+    ColumnDefinitions vars = stmt.getVariables();
+    for (int i = 1; i < vars.size(); i++) {
+      boundStmt.setString(i, values.get(vars.getName(i)).toString());
+    }
+    return boundStmt;
+  }
+
+  private static void logWrite(PreparedStatement stmt, String key, Map<String, ByteIterator> values) {
+    if (logger.isDebugEnabled()) {
+      logger.debug(stmt.getQueryString());
+      logger.debug("key = {}", key);
+      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        logger.debug("{} = {}", entry.getKey(), entry.getValue());
+      }
+    }
   }
 
 }
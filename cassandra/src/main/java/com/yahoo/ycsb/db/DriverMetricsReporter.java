@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Session;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the state of the driver's connection pools into the YCSB
+ * measurements, the way the status thread does for the JVM with
+ * {@code measurement.trackjvm}, so that they are exported next to the client's
+ * latencies. Each measurement gets one value per interval:
+ * <ul>
+ * <li>CASSANDRA_CONNECTED_HOSTS: the hosts the session has connections to.</li>
+ * <li>CASSANDRA_OPEN_CONNECTIONS: the connections open to them.</li>
+ * <li>CASSANDRA_IN_FLIGHT: the requests sent on the connections that have not
+ * been answered yet.</li>
+ * <li>CASSANDRA_TRASHED_CONNECTIONS: the connections that were idle and are
+ * about to be closed.</li>
+ * </ul>
+ */
+final class DriverMetricsReporter implements AutoCloseable {
+
+  private final Session session;
+  private final Measurements measurements;
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Starts sampling every intervalSeconds.
+   */
+  DriverMetricsReporter(Session session, long intervalSeconds) {
+    this.session = session;
+    this.measurements = Measurements.getMeasurements();
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "Cassandra driver metrics");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    executor.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          sample();
+        }
+      }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Measures the state of the connection pools.
+   */
+  void sample() {
+    Session.State state = session.getState();
+    Collection<Host> hosts = state.getConnectedHosts();
+    int connections = 0;
+    int inFlight = 0;
+    int trashed = 0;
+    for (Host host : hosts) {
+      connections += state.getOpenConnections(host);
+      inFlight += state.getInFlightQueries(host);
+      trashed += state.getTrashedConnections(host);
+    }
+
+    measurements.measure("CASSANDRA_CONNECTED_HOSTS", hosts.size());
+    measurements.measure("CASSANDRA_OPEN_CONNECTIONS", connections);
+    measurements.measure("CASSANDRA_IN_FLIGHT", inFlight);
+    measurements.measure("CASSANDRA_TRASHED_CONNECTIONS", trashed);
+  }
+
+  /**
+   * Stops sampling. Should be called before the session is closed.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
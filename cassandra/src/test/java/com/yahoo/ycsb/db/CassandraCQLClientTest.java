@@ -46,10 +46,15 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Integration tests for the Cassandra client
@@ -226,6 +231,100 @@ public class CassandraCQLClientTest {
     assertThat(row, nullValue());
   }
 
+  @Test
+  public void testBatch() throws Exception {
+    final List<String> keys = Arrays.asList("key0", "key1", "key2");
+    final List<Map<String, ByteIterator>> values = new ArrayList<Map<String, ByteIterator>>();
+    for (String key : keys) {
+      final Map<String, String> input = new HashMap<String, String>();
+      input.put("field0", key + "-value");
+      values.add(StringByteIterator.getByteIteratorMap(input));
+    }
+    assertThat(client.batchInsert(TABLE, keys, values), is(Status.OK));
+
+    final Map<String, String> update = new HashMap<String, String>();
+    update.put("field0", "updated");
+    assertThat(client.batchUpdate(TABLE, keys.subList(0, 1),
+                                  Arrays.asList(StringByteIterator.getByteIteratorMap(update))),
+               is(Status.OK));
+
+    final List<HashMap<String, ByteIterator>> results = new ArrayList<HashMap<String, ByteIterator>>();
+    final Set<String> fields = Sets.newHashSet("field0");
+    assertThat(client.batchRead(TABLE, Arrays.asList("key0", "missing", "key2"), fields, results),
+               is(Status.NOT_FOUND));
+    assertThat(results, hasSize(3));
+    assertThat(results.get(0).get("field0").toString(), is("updated"));
+    assertThat(results.get(1).size(), is(0));
+    assertThat(results.get(2).get("field0").toString(), is("key2-value"));
+
+    assertThat(client.batchDelete(TABLE, keys), is(Status.OK));
+    final ResultSet rs = session.execute(QueryBuilder.select().all().from(TABLE));
+    assertThat(rs.one(), nullValue());
+  }
+
+  @Test
+  public void testBatchWithinInFlightWindow() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("hosts", HOST);
+    p.setProperty("port", Integer.toString(PORT));
+    p.setProperty("table", TABLE);
+    p.setProperty(CassandraCQLClient.MAX_IN_FLIGHT_PROPERTY, "1");
+    final CassandraCQLClient narrow = new CassandraCQLClient();
+    narrow.setProperties(p);
+    narrow.init();
+    try {
+      final List<String> keys = new ArrayList<String>();
+      final List<Map<String, ByteIterator>> values = new ArrayList<Map<String, ByteIterator>>();
+      for (int i = 0; i < 20; i++) {
+        keys.add("key" + i);
+        final Map<String, String> input = new HashMap<String, String>();
+        input.put("field0", "value" + i);
+        values.add(StringByteIterator.getByteIteratorMap(input));
+      }
+      assertThat(narrow.batchInsert(TABLE, keys, values), is(Status.OK));
+
+      final List<HashMap<String, ByteIterator>> results = new ArrayList<HashMap<String, ByteIterator>>();
+      assertThat(narrow.batchRead(TABLE, keys, null, results), is(Status.OK));
+      assertThat(results, hasSize(20));
+      for (int i = 0; i < 20; i++) {
+        assertThat(results.get(i).get("field0").toString(), is("value" + i));
+      }
+      assertThat(narrow.batchDelete(TABLE, keys), is(Status.OK));
+    } finally {
+      narrow.cleanup();
+    }
+  }
+
+  @Test
+  public void testAsync() throws Exception {
+    final List<CompletableFuture<Status>> inserts = new ArrayList<CompletableFuture<Status>>();
+    for (int i = 0; i < 10; i++) {
+      final Map<String, String> input = new HashMap<String, String>();
+      input.put("field0", "value" + i);
+      inserts.add(client.insertAsync(TABLE, "key" + i, StringByteIterator.getByteIteratorMap(input))
+                  .toCompletableFuture());
+    }
+    for (CompletableFuture<Status> insert : inserts) {
+      assertThat(insert.get(), is(Status.OK));
+    }
+
+    final HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertThat(client.readAsync(TABLE, "key3", Sets.newHashSet("field0"), result)
+               .toCompletableFuture().get(), is(Status.OK));
+    assertThat(result.get("field0").toString(), is("value3"));
+    assertThat(client.readAsync(TABLE, "missing", null, new HashMap<String, ByteIterator>())
+               .toCompletableFuture().get(), is(Status.NOT_FOUND));
+
+    final Vector<HashMap<String, ByteIterator>> scanned = new Vector<HashMap<String, ByteIterator>>();
+    assertThat(client.scanAsync(TABLE, "key0", 10, null, scanned).toCompletableFuture().get(),
+               is(Status.OK));
+    assertThat(scanned.size() > 0, is(true));
+
+    assertThat(client.deleteAsync(TABLE, "key3").toCompletableFuture().get(), is(Status.OK));
+    assertThat(client.read(TABLE, "key3", null, new HashMap<String, ByteIterator>()),
+               is(Status.NOT_FOUND));
+  }
+
   @Test
   public void testPreparedStatements() throws Exception {
     final int LOOP_COUNT = 3;
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handing out an insert key and acknowledging it, the way transaction
+ * inserts do. All benchmark threads share one counter, so with more than one
+ * thread this measures the contention on the acknowledgement window;
+ * {@link #nextAndAcknowledgeContended} always runs with eight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AcknowledgedCounterBenchmark {
+  private AcknowledgedCounterGenerator counter;
+
+  @Setup
+  public void setup() {
+    counter = new AcknowledgedCounterGenerator(0);
+  }
+
+  @Benchmark
+  public long nextAndAcknowledge() {
+    long value = counter.nextLong();
+    counter.acknowledge(value);
+    return counter.lastLong();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long nextAndAcknowledgeContended() {
+    return nextAndAcknowledge();
+  }
+}
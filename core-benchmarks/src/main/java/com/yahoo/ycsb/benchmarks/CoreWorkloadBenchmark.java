@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the work {@link CoreWorkload} does around each operation: building the
+ * key, building and consuming the field values, and choosing the operation. The
+ * database does nothing but read the values it is handed, so the numbers are the
+ * client's own overhead per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreWorkloadBenchmark {
+  @Param({"10"})
+  protected int fieldcount;
+
+  @Param({"100"})
+  protected int fieldlength;
+
+  private KeyNameWorkload workload;
+
+  @Setup
+  public void setup() throws WorkloadException {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000000");
+    p.setProperty(Client.OPERATION_COUNT_PROPERTY, "1000000");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, Integer.toString(fieldcount));
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, Integer.toString(fieldlength));
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "zipfian");
+    Measurements.setProperties(p);
+    workload = new KeyNameWorkload();
+    workload.init(p);
+  }
+
+  /**
+   * Per-thread workload state and database, as each client thread has its own.
+   */
+  @State(Scope.Thread)
+  public static class ThreadContext {
+    private Object threadstate;
+    private final ConsumingDB db = new ConsumingDB();
+    private long keynum;
+
+    @Setup
+    public void setup(CoreWorkloadBenchmark benchmark) throws WorkloadException {
+      threadstate = benchmark.workload.initThread(new Properties(), 0, 1);
+    }
+  }
+
+  @Benchmark
+  public String buildKeyName(ThreadContext context) {
+    return workload.keyName(context.keynum++);
+  }
+
+  @Benchmark
+  public long insert(ThreadContext context) {
+    workload.doInsert(context.db, context.threadstate);
+    return context.db.consumed;
+  }
+
+  @Benchmark
+  public long transaction(ThreadContext context) {
+    workload.doTransaction(context.db, context.threadstate);
+    return context.db.consumed;
+  }
+
+  /**
+   * Exposes the key construction of {@link CoreWorkload}.
+   */
+  private static class KeyNameWorkload extends CoreWorkload {
+    String keyName(long keynum) {
+      return buildKeyName(keynum);
+    }
+  }
+
+  /**
+   * A database that only consumes the values written to it, into a reused buffer.
+   */
+  private static class ConsumingDB extends DB {
+    private final byte[] buffer = new byte[4096];
+    private long consumed;
+
+    private Status consume(Map<String, ByteIterator> values) {
+      for (ByteIterator value : values.values()) {
+        while (value.hasNext()) {
+          consumed += value.nextBuf(buffer, 0);
+        }
+      }
+      return Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return consume(values);
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return consume(values);
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+}
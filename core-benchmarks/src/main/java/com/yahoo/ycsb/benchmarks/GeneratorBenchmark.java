@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of choosing the next key and the next operation. The generators are shared
+ * by all benchmark threads, as they are by the client threads of a run. The *Long
+ * variants draw the same values as primitives, to compare against the boxed nextValue().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+  @Param({"100000", "10000000"})
+  protected long items;
+
+  private ZipfianGenerator zipfian;
+  private ScrambledZipfianGenerator scrambledZipfian;
+  private UniformLongGenerator uniform;
+  private DiscreteGenerator operations;
+
+  @Setup
+  public void setup() {
+    zipfian = new ZipfianGenerator(items);
+    scrambledZipfian = new ScrambledZipfianGenerator(items);
+    uniform = new UniformLongGenerator(0, items - 1);
+    operations = new DiscreteGenerator();
+    operations.addValue(0.5, "READ");
+    operations.addValue(0.3, "UPDATE");
+    operations.addValue(0.1, "INSERT");
+    operations.addValue(0.05, "SCAN");
+    operations.addValue(0.05, "READMODIFYWRITE");
+  }
+
+  @Benchmark
+  public Long zipfian() {
+    return zipfian.nextValue();
+  }
+
+  @Benchmark
+  public Long scrambledZipfian() {
+    return scrambledZipfian.nextValue();
+  }
+
+  @Benchmark
+  public long zipfianLong() {
+    return zipfian.nextLong();
+  }
+
+  @Benchmark
+  public long scrambledZipfianLong() {
+    return scrambledZipfian.nextLong();
+  }
+
+  @Benchmark
+  public Long uniform() {
+    return uniform.nextValue();
+  }
+
+  @Benchmark
+  public long uniformLong() {
+    return uniform.nextLong();
+  }
+
+  @Benchmark
+  public String discrete() {
+    return operations.nextValue();
+  }
+
+  @Benchmark
+  public int discreteIndex() {
+    return operations.nextIndex();
+  }
+}
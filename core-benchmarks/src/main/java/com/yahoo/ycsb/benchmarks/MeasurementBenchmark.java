@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one latency through {@link Measurements}, by operation id as
+ * the DB wrappers do and by name. The measurements are shared by all benchmark
+ * threads, as they are by the client threads of a run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasurementBenchmark {
+  @Param({"hdrhistogram", "histogram", "timeseries"})
+  protected String type;
+
+  @Param({"thread", "shared"})
+  protected String shards;
+
+  private Measurements measurements;
+  private int readId;
+
+  @Setup
+  public void setup() {
+    Properties p = new Properties();
+    p.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    p.setProperty(Measurements.MEASUREMENT_SHARDS_PROPERTY, shards);
+    measurements = new Measurements(p);
+    readId = measurements.getOperationId("READ");
+  }
+
+  /**
+   * Latencies cycling through a small range, so the cost doesn't depend on how
+   * the value is produced.
+   */
+  @State(Scope.Thread)
+  public static class Latency {
+    private int latency;
+
+    int next() {
+      latency = (latency + 7) & 1023;
+      return latency;
+    }
+  }
+
+  @Benchmark
+  public void measureById(Latency latency) {
+    measurements.measure(readId, latency.next());
+  }
+
+  @Benchmark
+  public void measureByName(Latency latency) {
+    measurements.measure("READ", latency.next());
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.RandomByteIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing a random field value: into a reused buffer, as a freshly allocated array as
+ * most bindings consume it, and as the iterator's own reusable ByteBuffer. The iterator is reused
+ * across values as {@link com.yahoo.ycsb.workloads.FieldValues} does, except for toArray.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomByteIteratorBenchmark {
+  @Param({"100", "4096", "1048576"})
+  protected int length;
+
+  private byte[] buffer;
+  private RandomByteIterator iterator;
+
+  @Setup
+  public void setup() {
+    buffer = new byte[length];
+    iterator = new RandomByteIterator(length);
+  }
+
+  @Benchmark
+  public byte[] nextBuf() {
+    iterator.reset(length);
+    iterator.nextBuf(buffer, 0);
+    return buffer;
+  }
+
+  @Benchmark
+  public byte[] toArray() {
+    return new RandomByteIterator(length).toArray();
+  }
+
+  @Benchmark
+  public ByteBuffer toByteBuffer() {
+    iterator.reset(length);
+    return iterator.toByteBuffer();
+  }
+}
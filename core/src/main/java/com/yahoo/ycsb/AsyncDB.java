@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link DB} whose operations complete asynchronously. Bindings with a native
+ * asynchronous driver extend this class so the client can keep many operations
+ * in flight from a single thread (see the "openloop" client property).
+ *
+ * The synchronous methods inherited from {@link DB} default to issuing the
+ * asynchronous call and waiting for it, so an AsyncDB can still be driven by the
+ * regular closed-loop client. Bindings are free to override them with a
+ * cheaper blocking implementation.
+ *
+ * Result containers passed to {@link #readAsync} and {@link #scanAsync} are
+ * filled in before the returned stage completes; the caller must not touch them
+ * until then.
+ */
+public abstract class AsyncDB extends DB {
+
+  /**
+   * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap of field/value pairs for the result
+   * @return A stage that completes with the result of the operation.
+   */
+  public abstract CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+                                                    Map<String, ByteIterator> result);
+
+  /**
+   * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored
+   * in a HashMap.
+   *
+   * @param table The name of the table
+   * @param startkey The record key of the first record to read.
+   * @param recordcount The number of records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return A stage that completes with the result of the operation.
+   */
+  public abstract CompletionStage<Status> scanAsync(String table, String startkey, int recordcount,
+                                                    Set<String> fields,
+                                                    Vector<HashMap<String, ByteIterator>> result);
+
+  /**
+   * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
+   * record with the specified record key, overwriting any existing values with the same field name.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to update in the record
+   * @return A stage that completes with the result of the operation.
+   */
+  public abstract CompletionStage<Status> updateAsync(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the
+   * record with the specified record key.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @return A stage that completes with the result of the operation.
+   */
+  public abstract CompletionStage<Status> insertAsync(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Delete a record from the database.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to delete.
+   * @return A stage that completes with the result of the operation.
+   */
+  public abstract CompletionStage<Status> deleteAsync(String table, String key);
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return await(readAsync(table, key, fields, result));
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    return await(scanAsync(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    return await(updateAsync(table, key, values));
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    return await(insertAsync(table, key, values));
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    return await(deleteAsync(table, key));
+  }
+
+  /**
+   * Blocks until the stage completes. A stage that completes exceptionally is
+   * reported as {@link Status#ERROR}.
+   *
+   * @param stage The stage to wait for.
+   * @return The status the stage completed with.
+   */
+  protected static Status await(CompletionStage<Status> stage) {
+    try {
+      Status status = stage.toCompletableFuture().join();
+      return status == null ? Status.ERROR : status;
+    } catch (CompletionException | CancellationException e) {
+      return Status.ERROR;
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.TraceScope;
+import org.apache.htrace.core.Tracer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Wrapper around a "real" {@link AsyncDB} that measures latencies and counts return codes.
+ *
+ * Both start times are captured on the issuing thread, and the latency is recorded when the
+ * operation completes, on whatever thread the driver completes it on. The intended start time
+ * comes from {@link Measurements#setIntendedStartTimeNs(long)}, so when the client runs open loop
+ * the intended latency includes any time the operation spent queued behind the schedule.
+ * Blocking calls go through a regular {@link DBWrapper}.
+ */
+public class AsyncDBWrapper extends AsyncDB {
+  private final AsyncDB db;
+  private final DBWrapper syncWrapper;
+  private final Measurements measurements;
+  private final Tracer tracer;
+
+  private final String scopeStringDelete;
+  private final String scopeStringInsert;
+  private final String scopeStringRead;
+  private final String scopeStringScan;
+  private final String scopeStringUpdate;
+
+  private final int deleteId;
+  private final int insertId;
+  private final int readId;
+  private final int scanId;
+  private final int updateId;
+
+  public AsyncDBWrapper(final AsyncDB db, final Tracer tracer) {
+    this.db = db;
+    this.syncWrapper = new DBWrapper(db, tracer);
+    measurements = Measurements.getMeasurements();
+    this.tracer = tracer;
+    deleteId = measurements.getOperationId("DELETE");
+    insertId = measurements.getOperationId("INSERT");
+    readId = measurements.getOperationId("READ");
+    scanId = measurements.getOperationId("SCAN");
+    updateId = measurements.getOperationId("UPDATE");
+    final String simple = db.getClass().getSimpleName();
+    scopeStringDelete = simple + "#deleteAsync";
+    scopeStringInsert = simple + "#insertAsync";
+    scopeStringRead = simple + "#readAsync";
+    scopeStringScan = simple + "#scanAsync";
+    scopeStringUpdate = simple + "#updateAsync";
+  }
+
+  /**
+   * Set the properties for this DB.
+   */
+  public void setProperties(Properties p) {
+    db.setProperties(p);
+  }
+
+  /**
+   * Get the set of properties for this DB.
+   */
+  public Properties getProperties() {
+    return db.getProperties();
+  }
+
+  /**
+   * Initialize any state for this DB.
+   * Called once per DB instance; there is one DB instance per client thread.
+   */
+  public void init() throws DBException {
+    syncWrapper.init();
+  }
+
+  /**
+   * Cleanup any state for this DB.
+   * Called once per DB instance; there is one DB instance per client thread.
+   */
+  public void cleanup() throws DBException {
+    syncWrapper.cleanup();
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return syncWrapper.read(table, key, fields, result);
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    return syncWrapper.scan(table, startkey, recordcount, fields, result);
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    return syncWrapper.update(table, key, values);
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    return syncWrapper.insert(table, key, values);
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    return syncWrapper.delete(table, key);
+  }
+
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<HashMap<String, ByteIterator>> results) {
+    return syncWrapper.batchRead(table, keys, fields, results);
+  }
+
+  @Override
+  public Status batchUpdate(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    return syncWrapper.batchUpdate(table, keys, values);
+  }
+
+  @Override
+  public Status batchInsert(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    return syncWrapper.batchInsert(table, keys, values);
+  }
+
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    return syncWrapper.batchDelete(table, keys);
+  }
+
+  /**
+   * Bulk loads a chunk through the blocking wrapper, so it is measured as {@link DBWrapper} measures it.
+   */
+  Status bulkLoad(BulkLoadable loader, String table, List<String> keys,
+                  List<? extends Map<String, ByteIterator>> values) {
+    return syncWrapper.bulkLoad(loader, table, keys, values);
+  }
+
+  @Override
+  public CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+                                           Map<String, ByteIterator> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measured("READ", readId, ist, st, db.readAsync(table, key, fields, result));
+    }
+  }
+
+  @Override
+  public CompletionStage<Status> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+                                           Vector<HashMap<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringScan)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measured("SCAN", scanId, ist, st, db.scanAsync(table, startkey, recordcount, fields, result));
+    }
+  }
+
+  @Override
+  public CompletionStage<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measured("UPDATE", updateId, ist, st, db.updateAsync(table, key, values));
+    }
+  }
+
+  @Override
+  public CompletionStage<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measured("INSERT", insertId, ist, st, db.insertAsync(table, key, values));
+    }
+  }
+
+  @Override
+  public CompletionStage<Status> deleteAsync(String table, String key) {
+    try (final TraceScope span = tracer.newScope(scopeStringDelete)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measured("DELETE", deleteId, ist, st, db.deleteAsync(table, key));
+    }
+  }
+
+  /**
+   * Records the latency and return code of the operation once it completes. An operation that
+   * completes exceptionally, or that the binding failed to even issue, is counted as
+   * {@link Status#ERROR}.
+   */
+  private CompletionStage<Status> measured(final String op, final int opId, final long ist, final long st,
+                                           final CompletionStage<Status> stage) {
+    if (stage == null) {
+      long en = System.nanoTime();
+      syncWrapper.measure(op, opId, Status.ERROR, ist, st, en);
+      measurements.reportStatus(opId, Status.ERROR);
+      return CompletableFuture.completedFuture(Status.ERROR);
+    }
+    return stage.handle((status, error) -> {
+        long en = System.nanoTime();
+        Status res = (error != null || status == null) ? Status.ERROR : status;
+        syncWrapper.measure(op, opId, res, ist, st, en);
+        measurements.reportStatus(opId, res);
+        return res;
+      });
+  }
+}
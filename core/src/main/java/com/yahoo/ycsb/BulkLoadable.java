@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implemented by a {@link DB} that can take in sorted records faster than it can insert them, e.g. by writing
+ * them out in the store's own file format and handing it the files. With bulkload=true, the core workload loads
+ * each thread's share of the records in chunks sorted by key, through {@link #bulkLoad} if the DB implements this
+ * interface, and through {@link DB#batchInsert} otherwise.
+ */
+public interface BulkLoadable {
+  /**
+   * Load a chunk of records, as if each had been inserted with {@link DB#insert}. The keys are distinct and in
+   * ascending order, by {@link String#compareTo}, which for the ASCII keys YCSB generates is also the order of
+   * their bytes. The key ranges of chunks may overlap, both those of one thread and those of different threads.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to load, in ascending order.
+   * @param values A HashMap of field/value pairs to insert for each of the keys, in the same order
+   * @return The result of the operation.
+   */
+  Status bulkLoad(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values);
+}
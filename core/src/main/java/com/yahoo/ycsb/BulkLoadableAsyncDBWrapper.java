@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.apache.htrace.core.Tracer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link AsyncDBWrapper} counterpart of {@link BulkLoadableDBWrapper}, for an {@link AsyncDB} that is also
+ * {@link BulkLoadable}. Chunks are measured the same way.
+ */
+public class BulkLoadableAsyncDBWrapper extends AsyncDBWrapper implements BulkLoadable {
+  private final BulkLoadable db;
+
+  /**
+   * @param db An AsyncDB that implements {@link BulkLoadable}.
+   */
+  public BulkLoadableAsyncDBWrapper(final AsyncDB db, final Tracer tracer) {
+    super(db, tracer);
+    this.db = (BulkLoadable) db;
+  }
+
+  @Override
+  public Status bulkLoad(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    return bulkLoad(db, table, keys, values);
+  }
+}
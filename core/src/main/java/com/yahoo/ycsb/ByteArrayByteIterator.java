@@ -16,6 +16,8 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 /**
  *  A ByteIterator that iterates through a byte array.
  */
@@ -60,5 +62,15 @@ public class ByteArrayByteIterator extends ByteIterator {
   public void reset() {
     off = originalOffset;
   }
+
+  /**
+   * Wraps the remaining bytes of the array without copying them.
+   */
+  @Override
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer ret = ByteBuffer.wrap(str, off, len - off).slice();
+    off = len;
+    return ret;
+  }
   
 }
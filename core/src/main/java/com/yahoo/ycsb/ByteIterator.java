@@ -85,10 +85,20 @@ public abstract class ByteIterator implements Iterator<Byte> {
   /** Consumes remaining contents of this object, and returns them as a string. */
   public String toString() {
     Charset cset = Charset.forName("UTF-8");
-    CharBuffer cb = cset.decode(ByteBuffer.wrap(this.toArray()));
+    CharBuffer cb = cset.decode(this.toByteBuffer());
     return cb.toString();
   }
 
+  /**
+   * Consumes remaining contents of this object, and returns them as a ByteBuffer holding
+   * exactly those bytes. Implementations may return a view of their own storage instead of a
+   * copy, so drivers that accept a ByteBuffer can send it as is; the caller must not write to
+   * it, and it is only valid until the iterator is reset.
+   */
+  public ByteBuffer toByteBuffer() {
+    return ByteBuffer.wrap(toArray());
+  }
+
   /** Consumes remaining contents of this object, and returns them as a byte array. */
   public byte[] toArray() {
     long left = bytesLeft();
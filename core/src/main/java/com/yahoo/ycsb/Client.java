@@ -30,7 +30,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.Map.Entry;
+import java.lang.reflect.Method;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -124,6 +126,11 @@ public final class Client {
    */
   public static final String INSERT_COUNT_PROPERTY = "insertcount";
 
+  /**
+   * The first record to insert, for workloads that support it.
+   */
+  public static final String INSERT_START_PROPERTY = "insertstart";
+
   /**
    * Target number of operations per second.
    */
@@ -149,6 +156,36 @@ public final class Client {
    */
   public static final String LABEL_PROPERTY = "label";
 
+  /**
+   * Whether to issue operations on a fixed schedule without waiting for earlier ones to complete. Requires a
+   * target throughput and a DB that extends {@link AsyncDB}.
+   */
+  public static final String OPEN_LOOP_PROPERTY = "openloop";
+
+  /**
+   * The maximum number of operations each client thread may have in flight when running open loop. Once it is
+   * reached the thread stops issuing until an operation completes, and the delay shows up in the intended
+   * latencies.
+   */
+  public static final String OPEN_LOOP_MAX_OUTSTANDING_PROPERTY = "openloop.maxoutstanding";
+
+  /**
+   * Default value of the maximum number of in-flight operations per client thread.
+   */
+  public static final String OPEN_LOOP_MAX_OUTSTANDING_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * What kind of thread to run each client thread on: "platform" (the default) or "virtual". Virtual threads
+   * require Java 21 and make a threadcount in the hundreds of thousands practical, at the cost of one DB
+   * instance per thread.
+   */
+  public static final String CLIENT_EXECUTOR_PROPERTY = "clientexecutor";
+
+  /**
+   * Default value of the client executor.
+   */
+  public static final String CLIENT_EXECUTOR_PROPERTY_DEFAULT = "platform";
+
   /**
    * An optional thread used to track progress and measure JVM stats.
    */
@@ -189,14 +226,45 @@ public final class Client {
     System.out.println("  " + WORKLOAD_PROPERTY + ": the name of the workload class to use (e.g. " +
         "com.yahoo.ycsb.workloads.CoreWorkload)");
     System.out.println("");
+    System.out.println("Optional properties:");
+    System.out.println("  " + CLIENT_EXECUTOR_PROPERTY + "=virtual: run client threads on virtual threads " +
+        "(requires Java 21)");
+    System.out.println("  " + OPEN_LOOP_PROPERTY + "=true: issue operations at the target rate without waiting for " +
+        "earlier ones");
+    System.out.println("          to complete; requires -target and an asynchronous DB binding");
+    System.out.println("  " + Measurements.MEASUREMENT_INTERVAL_LOG_PROPERTY + "=file: write throughput and " +
+        "latency percentiles of every");
+    System.out.println("          operation for every status.interval (seconds) to file as JSON lines");
+    System.out.println("  " + ThroughputSearch.SEARCH_PROPERTY + "=true: search for the highest throughput " +
+        "at which the " + ThroughputSearch.PERCENTILE_PROPERTY + " (default 99)");
+    System.out.println("          latency stays under " + ThroughputSearch.MAX_LATENCY_PROPERTY + " (us, default " +
+        "10000) and errors under " + ThroughputSearch.MAX_ERROR_RATE_PROPERTY);
+    System.out.println("          (default 0.001), in steps of " + ThroughputSearch.STEP_TIME_PROPERTY +
+        " seconds (default 10)");
+    System.out.println("  " + PhaseSchedule.PHASES_PROPERTY + "=name:duration,...: run in timed phases, e.g. " +
+        "warmup:60s,steady:10m; a phase");
+    System.out.println("          overrides any property given as " + PhaseSchedule.PHASE_PROPERTY_PREFIX +
+        "name.property, such as the target or readproportion");
+    System.out.println("  " + Coordinator.WORKERS_PROPERTY + "=n: lead a run on n worker clients and report their " +
+        "merged measurements");
+    System.out.println("  " + Coordinator.PORT_PROPERTY + "=port: the port the leader listens on (default: any " +
+        "free port)");
+    System.out.println("  " + Coordinator.SPAWN_PROPERTY + "=true: have the leader start the workers on this host");
+    System.out.println("  " + Coordinator.COORDINATOR_PROPERTY + "=host:port: run as a worker of the leader at " +
+        "host:port");
+    System.out.println("");
     System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
     System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
     System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records " +
-        "to be inserted");
+        "to be inserted.");
+    System.out.println("Alternatively, start a leader with \"" + Coordinator.WORKERS_PROPERTY + "\" and a worker " +
+        "on each server, which divides");
+    System.out.println("the work, starts all workers together and merges their measurements.");
   }
 
   public static boolean checkRequiredProperties(Properties props) {
-    if (props.getProperty(WORKLOAD_PROPERTY) == null) {
+    // A worker gets the workload from its leader.
+    if (props.getProperty(WORKLOAD_PROPERTY) == null && props.getProperty(Coordinator.COORDINATOR_PROPERTY) == null) {
       System.out.println("Missing property: " + WORKLOAD_PROPERTY);
       return false;
     }
@@ -211,31 +279,11 @@ public final class Client {
    *
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
-      throws IOException {
+  private static void exportMeasurements(Properties props, int opcount, long runtime, ThroughputSearch search,
+                                         PhaseSchedule phases) throws IOException {
     MeasurementsExporter exporter = null;
     try {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null) {
-        out = System.out;
-      } else {
-        out = new FileOutputStream(exportFile);
-      }
-
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY,
-          "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
-            .newInstance(out);
-      } catch (Exception e) {
-        System.err.println("Could not find exporter " + exporterStr
-            + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+      exporter = newExporter(props);
 
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       double throughput = 1000.0 * (opcount) / (runtime);
@@ -265,6 +313,13 @@ public final class Client {
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
 
+      if (search != null) {
+        search.exportMeasurements(exporter);
+      }
+      if (phases != null) {
+        phases.exportMeasurements(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally {
       if (exporter != null) {
@@ -273,10 +328,45 @@ public final class Client {
     }
   }
 
+  /**
+   * Creates the exporter configured in props, writing to the export file or to stdout.
+   */
+  static MeasurementsExporter newExporter(Properties props) throws IOException {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      out = System.out;
+    } else {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY,
+        "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not find exporter " + exporterStr
+          + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static void main(String[] args) {
     Properties props = parseArguments(args);
 
+    if (props.getProperty(Coordinator.WORKERS_PROPERTY) != null) {
+      System.exit(Coordinator.lead(props));
+    }
+    Coordinator.Worker worker = null;
+    if (props.getProperty(Coordinator.COORDINATOR_PROPERTY) != null) {
+      worker = joinCoordinator(props);
+    }
+
     boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
     String label = props.getProperty(LABEL_PROPERTY, "");
 
@@ -294,9 +384,28 @@ public final class Client {
       targetperthreadperms = targetperthread / 1000.0;
     }
 
+    boolean openloop = Boolean.valueOf(props.getProperty(OPEN_LOOP_PROPERTY, String.valueOf(false)));
+    if (openloop) {
+      if (target <= 0) {
+        System.out.println("Open-loop mode requires a target throughput; specify -target or the \""
+            + TARGET_PROPERTY + "\" property.");
+        System.exit(0);
+      }
+      // Service time alone hides queueing behind the schedule, so report intended latencies too
+      // unless the user asked for something specific.
+      if (props.getProperty(Measurements.MEASUREMENT_INTERVAL) == null) {
+        props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+      }
+    }
+
+    final ThreadFactory clientThreadFactory = getClientThreadFactory(props);
+
     Thread warningthread = setupWarningThread();
     warningthread.start();
 
+    final ThroughputSearch search = getSearch(props, threadcount);
+    final PhaseSchedule phases = getPhases(props, threadcount, search);
+
     Measurements.setProperties(props);
 
     Workload workload = getWorkload(props);
@@ -311,17 +420,13 @@ public final class Client {
     final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
         workload, tracer, completeLatch);
 
-    if (status) {
-      boolean standardstatus = false;
-      if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
-        standardstatus = true;
-      }
-      int statusIntervalSeconds = Integer.parseInt(props.getProperty("status.interval", "10"));
-      boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY,
-          Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
-      statusthread = new StatusThread(completeLatch, clients, label, standardstatus, statusIntervalSeconds,
-          trackJVMStats);
-      statusthread.start();
+    if (worker != null) {
+      awaitStart(worker);
+    }
+
+    // a search reports each of its steps itself
+    if (search == null && (status || props.getProperty(Measurements.MEASUREMENT_INTERVAL_LOG_PROPERTY) != null)) {
+      startStatusThread(props, completeLatch, clients, label, status);
     }
 
     Thread terminator = null;
@@ -333,9 +438,13 @@ public final class Client {
 
       final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        client.setSearch(search);
+        client.setPhases(phases);
+        threads.put(clientThreadFactory.newThread(tracer.wrap(client, "ClientThread")), client);
       }
 
+      startPhases(phases, workload);
+
       st = System.currentTimeMillis();
 
       for (Thread t : threads.keySet()) {
@@ -347,6 +456,8 @@ public final class Client {
         terminator.start();
       }
 
+      runSearchOrPhases(search, phases, workload, clients, completeLatch);
+
       opsDone = 0;
 
       for (Map.Entry<Thread, ClientThread> entry : threads.entrySet()) {
@@ -368,16 +479,7 @@ public final class Client {
           terminator.interrupt();
         }
 
-        if (status) {
-          // wake up status thread if it's asleep
-          statusthread.interrupt();
-          // at this point we assume all the monitored threads are already gone as per above join loop.
-          try {
-            statusthread.join();
-          } catch (InterruptedException ignored) {
-            // ignored
-          }
-        }
+        stopStatusThread();
 
         workload.cleanup();
       }
@@ -389,7 +491,11 @@ public final class Client {
 
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
+        if (worker != null) {
+          worker.sendResults(opsDone, st, en);
+        } else {
+          exportMeasurements(props, opsDone, en - st, search, phases);
+        }
       }
     } catch (IOException e) {
       System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -400,6 +506,117 @@ public final class Client {
     System.exit(0);
   }
 
+  private static Coordinator.Worker joinCoordinator(Properties props) {
+    try {
+      return Coordinator.Worker.join(props);
+    } catch (IOException e) {
+      System.err.println("Could not join the leader at " + props.getProperty(Coordinator.COORDINATOR_PROPERTY)
+          + ": " + e);
+      System.exit(1);
+      return null;
+    }
+  }
+
+  /**
+   * Runs the search or the phases, if either was asked for, while the client threads run.
+   */
+  private static void runSearchOrPhases(ThroughputSearch search, PhaseSchedule phases, Workload workload,
+                                        List<ClientThread> clients, CountDownLatch completeLatch) {
+    try {
+      if (search != null) {
+        search.run(clients);
+      } else if (phases != null) {
+        phases.run(workload, clients, completeLatch);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      workload.requestStop();
+    }
+  }
+
+  /**
+   * Returns the search the properties ask for, or null. Exits if it is malformed.
+   */
+  private static ThroughputSearch getSearch(Properties props, int threadcount) {
+    try {
+      return ThroughputSearch.fromProperties(props, threadcount);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the phases the properties divide the run into, or null. Exits if they are malformed.
+   */
+  private static PhaseSchedule getPhases(Properties props, int threadcount, ThroughputSearch search) {
+    try {
+      PhaseSchedule phases = PhaseSchedule.fromProperties(props, threadcount);
+      if (phases != null && search != null) {
+        System.err.println("WARNING: " + PhaseSchedule.PHASES_PROPERTY + " is ignored when searching.");
+        return null;
+      }
+      return phases;
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+      return null;
+    }
+  }
+
+  private static void startPhases(PhaseSchedule phases, Workload workload) {
+    if (phases == null) {
+      return;
+    }
+    try {
+      phases.start(workload);
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+  }
+
+  private static void stopStatusThread() {
+    if (statusthread != null) {
+      // wake up status thread if it's asleep
+      statusthread.interrupt();
+      // at this point we assume all the monitored threads are already gone as per above join loop.
+      try {
+        statusthread.join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+  }
+
+  private static void awaitStart(Coordinator.Worker worker) {
+    try {
+      worker.awaitStart();
+    } catch (IOException e) {
+      System.err.println("Lost the leader before the start: " + e);
+      System.exit(1);
+    }
+  }
+
+  private static void startStatusThread(Properties props, CountDownLatch completeLatch, List<ClientThread> clients,
+                                        String label, boolean status) {
+    boolean standardstatus = false;
+    if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
+      standardstatus = true;
+    }
+    int statusIntervalSeconds = Integer.parseInt(props.getProperty("status.interval", "10"));
+    boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY,
+        Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
+    statusthread = new StatusThread(completeLatch, clients, label, status, standardstatus, statusIntervalSeconds,
+        trackJVMStats);
+    statusthread.start();
+  }
+
   private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
                                            double targetperthreadperms, Workload workload, Tracer tracer,
                                            CountDownLatch completeLatch) {
@@ -429,6 +646,14 @@ public final class Client {
           break;
         }
 
+        if (Boolean.valueOf(props.getProperty(OPEN_LOOP_PROPERTY, String.valueOf(false)))
+            && !(db instanceof AsyncDB)) {
+          System.out.println("Open-loop mode requires an asynchronous DB binding, but " + dbname
+              + " does not extend " + AsyncDB.class.getName());
+          initFailed = true;
+          break;
+        }
+
         int threadopcount = opcount / threadcount;
 
         // ensure correct number of operations, in case opcount is not a multiple of threadcount
@@ -451,6 +676,52 @@ public final class Client {
     return clients;
   }
 
+  /**
+   * Returns the factory for the threads that run each {@link ClientThread}, according to the
+   * "clientexecutor" property. Exits if virtual threads are requested but not available.
+   */
+  private static ThreadFactory getClientThreadFactory(Properties props) {
+    String executor = props.getProperty(CLIENT_EXECUTOR_PROPERTY, CLIENT_EXECUTOR_PROPERTY_DEFAULT);
+    if (executor.equals("platform")) {
+      return new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          return new Thread(r);
+        }
+      };
+    }
+    if (!executor.equals("virtual")) {
+      System.out.println("Unknown " + CLIENT_EXECUTOR_PROPERTY + " \"" + executor
+          + "\"; expected \"platform\" or \"virtual\".");
+      System.exit(0);
+    }
+
+    // One measurement shard per virtual thread would cost far more memory than the shards save in contention.
+    if (props.getProperty(Measurements.MEASUREMENT_SHARDS_PROPERTY) == null) {
+      props.setProperty(Measurements.MEASUREMENT_SHARDS_PROPERTY, "shared");
+    }
+
+    // Spinning would hold on to the carrier thread, so virtual threads always park.
+    if (Boolean.valueOf(props.getProperty("spin.sleep", "false"))) {
+      System.err.println("WARNING: spin.sleep is ignored when running on virtual threads.");
+      props.setProperty("spin.sleep", "false");
+    }
+
+    // Looked up reflectively so the client still builds and runs on older JVMs.
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "ClientThread-", 0L);
+      Method factory = builderClass.getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      System.out.println(CLIENT_EXECUTOR_PROPERTY + "=virtual requires Java 21 or later; this JVM is "
+          + System.getProperty("java.version") + ".");
+      System.exit(0);
+      return null;
+    }
+  }
+
   private static Tracer getTracer(Properties props, Workload workload) {
     return new Tracer.Builder("YCSB " + workload.getClass().getSimpleName())
         .conf(getHTraceConfiguration(props))
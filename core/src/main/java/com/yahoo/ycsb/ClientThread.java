@@ -2,8 +2,12 @@ package com.yahoo.ycsb;
 
 import com.yahoo.ycsb.measurements.Measurements;
 import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
 
 /**
@@ -28,6 +32,20 @@ public class ClientThread implements Runnable {
   private long targetOpsTickNs;
   private final Measurements measurements;
 
+  // Open-loop state: operations are issued on schedule and complete on driver threads.
+  private final boolean openLoop;
+  private final int maxOutstanding;
+  private final AtomicInteger opsCompleted = new AtomicInteger();
+  private volatile boolean workloadDone;
+
+  // Set when searching for the highest sustainable throughput; the thread then runs the search's steps.
+  private ThroughputSearch search;
+  private int stepStartOps;
+
+  // Set when the run is divided into phases; the thread follows the target of the phase the run is in.
+  private PhaseSchedule phases;
+  private PhaseSchedule.Phase phase;
+
   /**
    * Constructor.
    *
@@ -53,6 +71,10 @@ public class ClientThread implements Runnable {
     this.props = props;
     measurements = Measurements.getMeasurements();
     spinSleep = Boolean.valueOf(this.props.getProperty("spin.sleep", "false"));
+    openLoop = Boolean.valueOf(this.props.getProperty(Client.OPEN_LOOP_PROPERTY, "false"))
+        && db instanceof AsyncDB && targetOpsTickNs > 0;
+    maxOutstanding = Integer.parseInt(this.props.getProperty(Client.OPEN_LOOP_MAX_OUTSTANDING_PROPERTY,
+        Client.OPEN_LOOP_MAX_OUTSTANDING_PROPERTY_DEFAULT));
     this.completeLatch = completeLatch;
   }
 
@@ -64,8 +86,16 @@ public class ClientThread implements Runnable {
     threadcount = threadCount;
   }
 
+  public void setSearch(final ThroughputSearch throughputSearch) {
+    search = throughputSearch;
+  }
+
+  public void setPhases(final PhaseSchedule phaseSchedule) {
+    phases = phaseSchedule;
+  }
+
   public int getOpsDone() {
-    return opsdone;
+    return openLoop ? opsCompleted.get() : opsdone;
   }
 
   @Override
@@ -75,6 +105,7 @@ public class ClientThread implements Runnable {
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
+      abortSearch();
       return;
     }
 
@@ -83,6 +114,7 @@ public class ClientThread implements Runnable {
     } catch (WorkloadException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
+      abortSearch();
       return;
     }
 
@@ -97,10 +129,15 @@ public class ClientThread implements Runnable {
       sleepUntil(System.nanoTime() + randomMinorDelay);
     }
     try {
-      if (dotransactions) {
+      if (search != null) {
+        runSearchSteps();
+      } else if (openLoop) {
+        runOpenLoop();
+      } else if (dotransactions) {
         long startTimeNanos = System.nanoTime();
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+          startTimeNanos = followPhase(startTimeNanos);
 
           if (!workload.doTransaction(db, workloadstate)) {
             break;
@@ -114,6 +151,7 @@ public class ClientThread implements Runnable {
         long startTimeNanos = System.nanoTime();
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+          startTimeNanos = followPhase(startTimeNanos);
 
           if (!workload.doInsert(db, workloadstate)) {
             break;
@@ -141,6 +179,122 @@ public class ClientThread implements Runnable {
     }
   }
 
+  /**
+   * Issues operations at the target rate regardless of how long earlier ones take to complete, so that a
+   * slow server builds up a queue of in-flight operations instead of slowing the client down. Each operation's
+   * intended start time is its slot in the schedule. At most {@link #maxOutstanding} operations are in flight;
+   * once that is reached the thread waits for a completion, and that wait is visible in the intended latencies.
+   * An operation whose stage fails is not counted as done, and is reported as an ERROR under ASYNC; failures of
+   * the DB itself are already reported under the operation by the {@link AsyncDBWrapper}.
+   */
+  private void runOpenLoop() throws InterruptedException {
+    final AsyncDB asyncDb = (AsyncDB) db;
+    final Semaphore inFlight = new Semaphore(maxOutstanding);
+    final int asyncId = measurements.getOperationId("ASYNC");
+    long startTimeNanos = System.nanoTime();
+    measurements.setIntendedStartTimeNs(startTimeNanos);
+
+    while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested() && !workloadDone) {
+      startTimeNanos = followPhase(startTimeNanos);
+      inFlight.acquire();
+
+      CompletionStage<Boolean> stage;
+      try {
+        stage = dotransactions ? workload.doTransactionAsync(asyncDb, workloadstate)
+            : workload.doInsertAsync(asyncDb, workloadstate);
+      } catch (RuntimeException e) {
+        inFlight.release();
+        throw e;
+      }
+
+      stage.whenComplete((more, error) -> {
+          if (error != null) {
+            measurements.reportStatus(asyncId, Status.ERROR);
+          } else if (Boolean.FALSE.equals(more)) {
+            workloadDone = true;
+          } else {
+            opsCompleted.incrementAndGet();
+          }
+          inFlight.release();
+        });
+
+      opsdone++;
+
+      throttleNanos(startTimeNanos);
+    }
+
+    // wait for everything still in flight before cleaning up the DB
+    inFlight.acquire(maxOutstanding);
+  }
+
+  /**
+   * Tells the search, if there is one, that this thread will not run its steps, so that it does not wait for it.
+   */
+  private void abortSearch() {
+    if (search != null) {
+      search.abort();
+    }
+  }
+
+  /**
+   * Runs the steps of the search, each at its own target until its end time, with the same DB and workload
+   * state throughout. Returns early if the search is aborted.
+   */
+  private void runSearchSteps() throws Exception {
+    try {
+      runSearchStepsUntilDone();
+    } catch (BrokenBarrierException e) {
+      // another thread failed or fell behind, and the search reports it
+    }
+  }
+
+  private void runSearchStepsUntilDone() throws Exception {
+    ThroughputSearch.Step step = search.awaitStep();
+    while (step != null) {
+      targetOpsPerMs = step.getTargetPerThreadPerMs();
+      targetOpsTickNs = (long) (1000000 / targetOpsPerMs);
+      stepStartOps = opsdone;
+      long startTimeNanos = System.nanoTime();
+      measurements.setIntendedStartTimeNs(startTimeNanos);
+
+      while (System.nanoTime() < step.getEndNanos() && !workload.isStopRequested()) {
+        boolean more = dotransactions ? workload.doTransaction(db, workloadstate)
+            : workload.doInsert(db, workloadstate);
+        if (!more) {
+          break;
+        }
+
+        opsdone++;
+
+        throttleNanos(startTimeNanos);
+      }
+
+      search.endStep();
+      step = search.awaitStep();
+    }
+  }
+
+  /**
+   * Moves the thread into the phase the run is in, if that has changed since the last operation: the thread takes
+   * on the phase's target, and throttles from the start of the phase on, so that all threads keep to the new
+   * schedule. Returns the time throttling counts from.
+   */
+  private long followPhase(long startTimeNanos) {
+    PhaseSchedule.Phase current = phases == null ? null : phases.current();
+    if (current == phase) {
+      return startTimeNanos;
+    }
+    phase = current;
+    targetOpsPerMs = phase.getTargetPerThreadPerMs();
+    targetOpsTickNs = targetOpsPerMs > 0 ? (long) (1000000 / targetOpsPerMs) : 0;
+    stepStartOps = opsdone;
+    long phaseStartNanos = phases.startNanos(phase);
+    measurements.setIntendedStartTimeNs(targetOpsPerMs > 0 ? phaseStartNanos : 0);
+    return phaseStartNanos;
+  }
+
+  // parkNanos unmounts a virtual thread from its carrier, so throttling cooperates with the scheduler when
+  // running with clientexecutor=virtual; the client disables spin.sleep in that mode.
   private static void sleepUntil(long deadline) {
     while (System.nanoTime() < deadline) {
       if (!spinSleep) {
@@ -153,7 +307,7 @@ public class ClientThread implements Runnable {
     //throttle the operations
     if (targetOpsPerMs > 0) {
       // delay until next tick
-      long deadline = startTimeNanos + opsdone * targetOpsTickNs;
+      long deadline = startTimeNanos + (opsdone - stepStartOps) * targetOpsTickNs;
       sleepUntil(deadline);
       measurements.setIntendedStartTimeNs(deadline);
     }
@@ -0,0 +1,463 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.DataFormatException;
+
+/**
+ * Runs one benchmark on several client processes, on one host or many, and reports their
+ * measurements as one.
+ * <p>
+ * A leader, started with the "coordinator.workers" property, waits on "coordinator.port" for that
+ * many workers, which are started with "coordinator=host:port"; with "coordinator.spawn=true" the
+ * leader starts them itself as local JVMs. The leader does not run any operations. It sends each
+ * worker its properties, with the records to insert, the operation count and the target divided
+ * between the workers, and once every worker has initialized it tells them all when to start.
+ * When they are done, the workers send back their HdrHistograms and return codes, which the
+ * leader merges into exact totals and exports like a single client would.
+ */
+public final class Coordinator {
+  /**
+   * The address of the leader, as host:port. Makes the client a worker.
+   */
+  public static final String COORDINATOR_PROPERTY = "coordinator";
+
+  /**
+   * The number of workers to wait for. Makes the client the leader.
+   */
+  public static final String WORKERS_PROPERTY = "coordinator.workers";
+
+  /**
+   * The port the leader listens on. The default picks any free port.
+   */
+  public static final String PORT_PROPERTY = "coordinator.port";
+  public static final String PORT_PROPERTY_DEFAULT = "0";
+
+  /**
+   * Whether the leader starts the workers itself, as JVMs on the local host.
+   */
+  public static final String SPAWN_PROPERTY = "coordinator.spawn";
+
+  /**
+   * How long, in seconds, the leader waits for workers to connect and initialize.
+   */
+  public static final String TIMEOUT_PROPERTY = "coordinator.timeout";
+  public static final String TIMEOUT_PROPERTY_DEFAULT = "300";
+
+  /**
+   * How far ahead the leader schedules the start, so that every worker has heard of it in time.
+   */
+  private static final long START_DELAY_MS = 1000;
+
+  private static final byte READY = 1;
+  private static final byte RESULTS = 2;
+
+  /**
+   * Leader properties that only concern the leader.
+   */
+  private static final List<String> LEADER_ONLY_PROPERTIES = Arrays.asList(
+      WORKERS_PROPERTY, PORT_PROPERTY, SPAWN_PROPERTY, Client.EXPORT_FILE_PROPERTY);
+
+  /**
+   * Properties that hold a worker's share of the work; the leader's values win over the worker's.
+   */
+  private static final List<String> ASSIGNED_PROPERTIES = Arrays.asList(
+      Client.INSERT_START_PROPERTY, Client.INSERT_COUNT_PROPERTY, Client.OPERATION_COUNT_PROPERTY,
+      Client.TARGET_PROPERTY);
+
+  private Coordinator() {
+    // utility class
+  }
+
+  /**
+   * Runs the leader: waits for the workers, runs the benchmark on them and exports the merged
+   * measurements.
+   *
+   * @param props The properties of the benchmark.
+   * @return The exit code for the process.
+   */
+  public static int lead(Properties props) {
+    int count = Integer.parseInt(props.getProperty(WORKERS_PROPERTY));
+    String type = props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    if (!type.equals("hdrhistogram")) {
+      System.err.println("Only hdrhistogram measurements can be merged, not " + type);
+      return 1;
+    }
+    long target = Long.parseLong(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target > 0 && target < count) {
+      // A worker with a target of 0 would run unthrottled.
+      System.err.println("The target, " + target + " operations per second, is below one per worker for "
+          + count + " workers");
+      return 1;
+    }
+    int timeoutMs = Integer.parseInt(props.getProperty(TIMEOUT_PROPERTY, TIMEOUT_PROPERTY_DEFAULT)) * 1000;
+    int port = Integer.parseInt(props.getProperty(PORT_PROPERTY, PORT_PROPERTY_DEFAULT));
+
+    List<Process> spawned = new ArrayList<>();
+    List<Link> workers = new ArrayList<>();
+    try (ServerSocket server = new ServerSocket(port)) {
+      server.setSoTimeout(timeoutMs);
+      System.err.println("Waiting for " + count + " workers on port " + server.getLocalPort());
+      if (Boolean.parseBoolean(props.getProperty(SPAWN_PROPERTY, "false"))) {
+        for (int i = 0; i < count; i++) {
+          spawned.add(spawnWorker(server.getLocalPort()));
+        }
+      }
+
+      for (int i = 0; i < count; i++) {
+        Link worker = new Link(server.accept());
+        workers.add(worker);
+        worker.socket.setSoTimeout(timeoutMs);
+        writeProperties(worker.out, workerProperties(props, i, count));
+        worker.out.flush();
+        System.err.println("Worker " + i + " connected from " + worker.socket.getRemoteSocketAddress());
+      }
+
+      for (Link worker : workers) {
+        worker.expect(READY);
+        // The run itself may take any amount of time.
+        worker.socket.setSoTimeout(0);
+      }
+      long startAt = System.currentTimeMillis() + START_DELAY_MS;
+      for (Link worker : workers) {
+        worker.out.writeLong(startAt);
+        worker.out.flush();
+      }
+      System.err.println("Starting " + count + " workers.");
+
+      Report report = new Report(props);
+      for (int i = 0; i < count; i++) {
+        workers.get(i).expect(RESULTS);
+        report.read(i, workers.get(i).in);
+      }
+      report.export();
+
+      for (Process process : spawned) {
+        process.waitFor();
+      }
+      return 0;
+    } catch (IOException | DataFormatException | InterruptedException e) {
+      System.err.println("Coordinated run failed: " + e);
+      for (Process process : spawned) {
+        process.destroy();
+      }
+      return 1;
+    } finally {
+      for (Link worker : workers) {
+        worker.close();
+      }
+    }
+  }
+
+  /**
+   * The properties for one worker: the leader's, with the records to insert, the operations and
+   * the target divided evenly between the workers, so that the shares add up to the totals. In both
+   * phases each worker gets its own part of the insert range, like parallel clients started by hand.
+   * The target must be at least one operation per second per worker.
+   */
+  static Properties workerProperties(Properties props, int index, int count) {
+    Properties worker = new Properties();
+    for (String name : props.stringPropertyNames()) {
+      if (!LEADER_ONLY_PROPERTIES.contains(name)) {
+        worker.setProperty(name, props.getProperty(name));
+      }
+    }
+
+    boolean dotransactions = Boolean.valueOf(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, "true"));
+    if (dotransactions) {
+      long operationcount = Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+      worker.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(share(operationcount, index, count)));
+    }
+
+    long recordcount = Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY,
+        Client.DEFAULT_RECORD_COUNT));
+    if (recordcount == 0) {
+      // As in CoreWorkload, no recordcount means as many records as there can be.
+      recordcount = Integer.MAX_VALUE;
+    }
+    long insertstart = Long.parseLong(props.getProperty(Client.INSERT_START_PROPERTY, "0"));
+    long insertcount = Long.parseLong(props.getProperty(Client.INSERT_COUNT_PROPERTY,
+        String.valueOf(recordcount - insertstart)));
+    long first = insertstart + index * (insertcount / count) + Math.min(index, insertcount % count);
+    worker.setProperty(Client.INSERT_START_PROPERTY, String.valueOf(first));
+    worker.setProperty(Client.INSERT_COUNT_PROPERTY, String.valueOf(share(insertcount, index, count)));
+
+    long target = Long.parseLong(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target > 0) {
+      worker.setProperty(Client.TARGET_PROPERTY, String.valueOf(share(target, index, count)));
+    }
+    return worker;
+  }
+
+  /**
+   * Worker index's part of total, when dividing it as evenly as possible between count workers.
+   */
+  private static long share(long total, int index, int count) {
+    return total / count + (index < total % count ? 1 : 0);
+  }
+
+  private static Process spawnWorker(int port) throws IOException {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Client.class.getName(),
+        "-p", COORDINATOR_PROPERTY + "=localhost:" + port).inheritIO().start();
+  }
+
+  private static void writeProperties(DataOutputStream out, Properties props) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    props.store(bytes, null);
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+
+  private static Properties readProperties(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    Properties props = new Properties();
+    props.load(new ByteArrayInputStream(bytes));
+    return props;
+  }
+
+  /**
+   * A connection between the leader and a worker.
+   */
+  private static class Link {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    Link(Socket socket) throws IOException {
+      this.socket = socket;
+      socket.setTcpNoDelay(true);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    void expect(byte message) throws IOException {
+      byte received = in.readByte();
+      if (received != message) {
+        throw new IOException("Expected message " + message + " from " + socket.getRemoteSocketAddress()
+            + " but got " + received);
+      }
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // nothing left to do with it
+      }
+    }
+  }
+
+  /**
+   * The worker's side of a coordinated run.
+   */
+  public static final class Worker {
+    private final Link leader;
+
+    private Worker(Link leader) {
+      this.leader = leader;
+    }
+
+    /**
+     * Connects to the leader named by the "coordinator" property, and replaces props with the
+     * properties the leader sends. Properties given to the worker itself are kept, except for its
+     * share of the work, which the leader decides.
+     *
+     * @param props The worker's own properties, updated in place.
+     * @return The connection to the leader.
+     */
+    public static Worker join(Properties props) throws IOException {
+      String address = props.getProperty(COORDINATOR_PROPERTY);
+      int colon = address.lastIndexOf(':');
+      if (colon < 0) {
+        throw new IOException("Expected " + COORDINATOR_PROPERTY + "=host:port, got " + address);
+      }
+      Link leader = new Link(new Socket(address.substring(0, colon),
+          Integer.parseInt(address.substring(colon + 1))));
+      Properties assigned = readProperties(leader.in);
+
+      Properties own = new Properties();
+      own.putAll(props);
+      props.clear();
+      props.putAll(assigned);
+      for (String name : own.stringPropertyNames()) {
+        if (!ASSIGNED_PROPERTIES.contains(name)) {
+          props.setProperty(name, own.getProperty(name));
+        }
+      }
+      return new Worker(leader);
+    }
+
+    /**
+     * Tells the leader this worker is ready, and waits for the time the leader gives for all
+     * workers to start.
+     */
+    public void awaitStart() throws IOException {
+      leader.out.writeByte(READY);
+      leader.out.flush();
+      long startAt = leader.in.readLong();
+      long delay = startAt - System.currentTimeMillis();
+      if (delay > 0) {
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Sends the results of the run to the leader, in place of exporting them.
+     *
+     * @param opsDone The number of operations done.
+     * @param start When the run started, in milliseconds since the epoch.
+     * @param end When the run ended, in milliseconds since the epoch.
+     */
+    public void sendResults(long opsDone, long start, long end) throws IOException {
+      List<OneMeasurementHdrHistogram> histograms = new ArrayList<>();
+      for (OneMeasurement measurement : Measurements.getMeasurements().getOneMeasurements()) {
+        if (measurement instanceof OneMeasurementHdrHistogram) {
+          histograms.add((OneMeasurementHdrHistogram) measurement);
+        } else {
+          System.err.println("Not sending " + measurement.getName() + " to the leader, only hdrhistogram "
+              + "measurements can be merged");
+        }
+      }
+
+      DataOutputStream out = leader.out;
+      out.writeByte(RESULTS);
+      out.writeLong(opsDone);
+      out.writeLong(start);
+      out.writeLong(end);
+      out.writeInt(histograms.size());
+      for (OneMeasurementHdrHistogram measurement : histograms) {
+        out.writeUTF(measurement.getName());
+        Histogram histogram = measurement.getTotalHistogram();
+        ByteBuffer encoded = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(encoded);
+        out.writeInt(length);
+        out.write(encoded.array(), 0, length);
+
+        Map<Status, Long> statuses = measurement.getStatusCounts();
+        out.writeInt(statuses.size());
+        for (Map.Entry<Status, Long> entry : statuses.entrySet()) {
+          out.writeUTF(entry.getKey().getName());
+          out.writeUTF(entry.getKey().getDescription());
+          out.writeLong(entry.getValue());
+        }
+      }
+      out.flush();
+      leader.close();
+    }
+  }
+
+  /**
+   * The leader's merge of the workers' results.
+   */
+  private static class Report {
+    private final Properties props;
+    private final Properties measurementProps;
+    private final Map<String, OneMeasurementHdrHistogram> measurements = new LinkedHashMap<>();
+    private final Map<Integer, long[]> workers = new LinkedHashMap<>();
+
+    Report(Properties props) {
+      this.props = props;
+      // The leader only reports; the workers log their own histograms if asked to.
+      measurementProps = new Properties();
+      measurementProps.putAll(props);
+      measurementProps.setProperty("hdrhistogram.fileoutput", "false");
+    }
+
+    void read(int worker, DataInputStream in) throws IOException, DataFormatException {
+      workers.put(worker, new long[] {in.readLong(), in.readLong(), in.readLong()});
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        OneMeasurementHdrHistogram measurement = measurements.get(name);
+        if (measurement == null) {
+          measurement = new OneMeasurementHdrHistogram(name, measurementProps);
+          measurements.put(name, measurement);
+        }
+        measurement.add(Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0));
+
+        Map<Status, Long> statuses = new HashMap<>();
+        int statusCount = in.readInt();
+        for (int j = 0; j < statusCount; j++) {
+          statuses.put(new Status(in.readUTF(), in.readUTF()), in.readLong());
+        }
+        measurement.addStatusCounts(statuses);
+      }
+    }
+
+    void export() throws IOException {
+      long opsDone = 0;
+      long start = Long.MAX_VALUE;
+      long end = Long.MIN_VALUE;
+      for (long[] worker : workers.values()) {
+        opsDone += worker[0];
+        start = Math.min(start, worker[1]);
+        end = Math.max(end, worker[2]);
+      }
+
+      MeasurementsExporter exporter = Client.newExporter(props);
+      try {
+        long runtime = end - start;
+        exporter.write("OVERALL", "RunTime(ms)", runtime);
+        exporter.write("OVERALL", "Throughput(ops/sec)", 1000.0 * opsDone / runtime);
+        for (Map.Entry<Integer, long[]> worker : workers.entrySet()) {
+          long[] result = worker.getValue();
+          exporter.write("WORKER-" + worker.getKey(), "RunTime(ms)", result[2] - result[1]);
+          exporter.write("WORKER-" + worker.getKey(), "Throughput(ops/sec)",
+              1000.0 * result[0] / (result[2] - result[1]));
+        }
+        for (OneMeasurementHdrHistogram measurement : measurements.values()) {
+          measurement.exportMeasurements(exporter);
+        }
+      } finally {
+        exporter.close();
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -41,6 +42,13 @@ import java.util.Vector;
  * to match the database's default semantics, or the semantics of your 
  * target application.  For the sake of comparison between experiments we also 
  * recommend you explain the semantics you chose when presenting performance results.
+ *
+ * The field sets, value maps and result containers passed to these methods belong to the
+ * caller, which reuses them for its next operation. Do not modify the field sets or value
+ * maps, and do not hold on to any of them after the call returns.
+ *
+ * The batch methods operate on many records in one call. By default they loop over the single-record methods;
+ * bindings whose database can read or write many records in one request override them.
  */
 public abstract class DB {
   /**
@@ -132,4 +140,82 @@ public abstract class DB {
    * @return The result of the operation.
    */
   public abstract Status delete(String table, String key);
+
+  /**
+   * Read a batch of records from the database. One HashMap of field/value pairs is added to the results for
+   * each key, in the order of the keys; the map of a record that could not be read is left empty.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param results A List to add a HashMap of field/value pairs to for each record
+   * @return OK if every record was read, otherwise the result of the first record that failed.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<HashMap<String, ByteIterator>> results) {
+    Status res = Status.OK;
+    for (String key : keys) {
+      HashMap<String, ByteIterator> result = new HashMap<>();
+      res = firstFailure(res, read(table, key, fields, result));
+      results.add(result);
+    }
+    return res;
+  }
+
+  /**
+   * Update a batch of records in the database, as {@link #update} would update each of them.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to write.
+   * @param values A HashMap of field/value pairs to update for each of the keys, in the same order
+   * @return OK if every record was updated, otherwise the result of the first record that failed.
+   */
+  public Status batchUpdate(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    Status res = Status.OK;
+    for (int i = 0; i < keys.size(); i++) {
+      res = firstFailure(res, update(table, keys.get(i), values.get(i)));
+    }
+    return res;
+  }
+
+  /**
+   * Insert a batch of records in the database, as {@link #insert} would insert each of them.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to insert.
+   * @param values A HashMap of field/value pairs to insert for each of the keys, in the same order
+   * @return OK if every record was inserted, otherwise the result of the first record that failed.
+   */
+  public Status batchInsert(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    Status res = Status.OK;
+    for (int i = 0; i < keys.size(); i++) {
+      res = firstFailure(res, insert(table, keys.get(i), values.get(i)));
+    }
+    return res;
+  }
+
+  /**
+   * Delete a batch of records from the database.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to delete.
+   * @return OK if every record was deleted, otherwise the result of the first record that failed.
+   */
+  public Status batchDelete(String table, List<String> keys) {
+    Status res = Status.OK;
+    for (String key : keys) {
+      res = firstFailure(res, delete(table, key));
+    }
+    return res;
+  }
+
+  /**
+   * The result of a batch so far, given its result before and the result of its next record.
+   */
+  protected static Status firstFailure(Status batch, Status record) {
+    if (!batch.isOk()) {
+      return batch;
+    }
+    return record == null ? Status.ERROR : record;
+  }
 }
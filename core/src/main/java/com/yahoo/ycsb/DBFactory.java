@@ -45,6 +45,15 @@ public final class DBFactory {
 
     ret.setProperties(properties);
 
+    if (ret instanceof AsyncDB) {
+      if (ret instanceof BulkLoadable) {
+        return new BulkLoadableAsyncDBWrapper((AsyncDB) ret, tracer);
+      }
+      return new AsyncDBWrapper((AsyncDB) ret, tracer);
+    }
+    if (ret instanceof BulkLoadable) {
+      return new BulkLoadableDBWrapper(ret, tracer);
+    }
     return new DBWrapper(ret, tracer);
   }
 
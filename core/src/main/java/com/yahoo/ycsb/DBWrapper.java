@@ -27,6 +27,13 @@ import java.util.*;
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ *
+ * A batch is measured once as a whole, under BATCH-READ, BATCH-UPDATE and so on, and once for each of its
+ * records under the operation's own name. Each record is given an equal share of the batch's latency, the batch
+ * latency divided by the number of records, so that the per-record latencies add up to the time spent on the
+ * batch; its intended latency also counts the whole time the batch waited to start. Each record is given the
+ * result of the batch. Chunks of a bulk load (see {@link BulkLoadable}) are
+ * measured the same way, under BULK-INSERT and INSERT.
  */
 public class DBWrapper extends DB {
   private final DB db;
@@ -48,11 +55,39 @@ public class DBWrapper extends DB {
   private final String scopeStringRead;
   private final String scopeStringScan;
   private final String scopeStringUpdate;
+  private final String scopeStringBatchDelete;
+  private final String scopeStringBatchInsert;
+  private final String scopeStringBatchRead;
+  private final String scopeStringBatchUpdate;
+  private final String scopeStringBulkLoad;
+
+  private final int cleanupId;
+  private final int deleteId;
+  private final int insertId;
+  private final int readId;
+  private final int scanId;
+  private final int updateId;
+  private final int batchDeleteId;
+  private final int batchInsertId;
+  private final int batchReadId;
+  private final int batchUpdateId;
+  private final int bulkInsertId;
 
   public DBWrapper(final DB db, final Tracer tracer) {
     this.db = db;
     measurements = Measurements.getMeasurements();
     this.tracer = tracer;
+    cleanupId = measurements.getOperationId("CLEANUP");
+    deleteId = measurements.getOperationId("DELETE");
+    insertId = measurements.getOperationId("INSERT");
+    readId = measurements.getOperationId("READ");
+    scanId = measurements.getOperationId("SCAN");
+    updateId = measurements.getOperationId("UPDATE");
+    batchDeleteId = measurements.getOperationId("BATCH-DELETE");
+    batchInsertId = measurements.getOperationId("BATCH-INSERT");
+    batchReadId = measurements.getOperationId("BATCH-READ");
+    batchUpdateId = measurements.getOperationId("BATCH-UPDATE");
+    bulkInsertId = measurements.getOperationId("BULK-INSERT");
     final String simple = db.getClass().getSimpleName();
     scopeStringCleanup = simple + "#cleanup";
     scopeStringDelete = simple + "#delete";
@@ -61,6 +96,11 @@ public class DBWrapper extends DB {
     scopeStringRead = simple + "#read";
     scopeStringScan = simple + "#scan";
     scopeStringUpdate = simple + "#update";
+    scopeStringBatchDelete = simple + "#batchDelete";
+    scopeStringBatchInsert = simple + "#batchInsert";
+    scopeStringBatchRead = simple + "#batchRead";
+    scopeStringBatchUpdate = simple + "#batchUpdate";
+    scopeStringBulkLoad = simple + "#bulkLoad";
   }
 
   /**
@@ -113,7 +153,7 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       db.cleanup();
       long en = System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      measure("CLEANUP", cleanupId, Status.OK, ist, st, en);
     }
   }
 
@@ -134,8 +174,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
-      measure("READ", res, ist, st, en);
-      measurements.reportStatus("READ", res);
+      measure("READ", readId, res, ist, st, en);
+      measurements.reportStatus(readId, res);
       return res;
     }
   }
@@ -158,26 +198,32 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      measurements.reportStatus("SCAN", res);
+      measure("SCAN", scanId, res, ist, st, en);
+      measurements.reportStatus(scanId, res);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
-                       long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
+  /**
+   * Records the latencies of one operation. Successful operations are recorded under the operation id; failed
+   * ones under a name derived from the return code, which is looked up by name.
+   */
+  void measure(String op, int opId, Status result, long intendedStartTimeNanos,
+               long startTimeNanos, long endTimeNanos) {
+    int measurementId = opId;
     if (result == null || !result.isOk()) {
+      String measurementName;
       if (this.reportLatencyForEachError ||
           this.latencyTrackedErrors.contains(result.getName())) {
         measurementName = op + "-" + result.getName();
       } else {
         measurementName = op + "-FAILED";
       }
+      measurementId = measurements.getOperationId(measurementName);
     }
-    measurements.measure(measurementName,
+    measurements.measure(measurementId,
         (int) ((endTimeNanos - startTimeNanos) / 1000));
-    measurements.measureIntended(measurementName,
+    measurements.measureIntended(measurementId,
         (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
   }
 
@@ -197,8 +243,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      measurements.reportStatus("UPDATE", res);
+      measure("UPDATE", updateId, res, ist, st, en);
+      measurements.reportStatus(updateId, res);
       return res;
     }
   }
@@ -220,8 +266,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      measurements.reportStatus("INSERT", res);
+      measure("INSERT", insertId, res, ist, st, en);
+      measurements.reportStatus(insertId, res);
       return res;
     }
   }
@@ -239,9 +285,131 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      measurements.reportStatus("DELETE", res);
+      measure("DELETE", deleteId, res, ist, st, en);
+      measurements.reportStatus(deleteId, res);
+      return res;
+    }
+  }
+
+  /**
+   * Read a batch of records from the database.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param results A List to add a HashMap of field/value pairs to for each record
+   * @return The result of the operation.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<HashMap<String, ByteIterator>> results) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchRead(table, keys, fields, results);
+      measureBatch("READ", readId, batchReadId, keys.size(), res, ist, st);
+      return res;
+    }
+  }
+
+  /**
+   * Update a batch of records in the database.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to write.
+   * @param values A HashMap of field/value pairs to update for each of the keys, in the same order
+   * @return The result of the operation.
+   */
+  public Status batchUpdate(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchUpdate)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchUpdate(table, keys, values);
+      measureBatch("UPDATE", updateId, batchUpdateId, keys.size(), res, ist, st);
+      return res;
+    }
+  }
+
+  /**
+   * Insert a batch of records in the database.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to insert.
+   * @param values A HashMap of field/value pairs to insert for each of the keys, in the same order
+   * @return The result of the operation.
+   */
+  public Status batchInsert(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchInsert)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchInsert(table, keys, values);
+      measureBatch("INSERT", insertId, batchInsertId, keys.size(), res, ist, st);
+      return res;
+    }
+  }
+
+  /**
+   * Delete a batch of records from the database.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to delete.
+   * @return The result of the operation.
+   */
+  public Status batchDelete(String table, List<String> keys) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchDelete)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchDelete(table, keys);
+      measureBatch("DELETE", deleteId, batchDeleteId, keys.size(), res, ist, st);
+      return res;
+    }
+  }
+
+  /**
+   * Bulk load a chunk of sorted records into the database through the wrapped DB.
+   *
+   * @param loader The wrapped DB.
+   * @param table The name of the table
+   * @param keys The record keys of the records to load, in ascending order.
+   * @param values A HashMap of field/value pairs to insert for each of the keys, in the same order
+   * @return The result of the operation.
+   */
+  Status bulkLoad(BulkLoadable loader, String table, List<String> keys,
+                  List<? extends Map<String, ByteIterator>> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringBulkLoad)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = loader.bulkLoad(table, keys, values);
+      long en = System.nanoTime();
+      measure("BULK-INSERT", bulkInsertId, res, ist, st, en);
+      measurements.reportStatus(bulkInsertId, res);
+      measureRecords("INSERT", insertId, keys.size(), res, ist, st, en);
       return res;
     }
   }
+
+  /**
+   * Records the latencies and return code of a batch that has just completed, and of each of its records.
+   */
+  private void measureBatch(String op, int opId, int batchId, int records, Status result,
+                            long intendedStartTimeNanos, long startTimeNanos) {
+    long endTimeNanos = System.nanoTime();
+    measure("BATCH-" + op, batchId, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+    measurements.reportStatus(batchId, result);
+    measureRecords(op, opId, records, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+  }
+
+  /**
+   * Records the return code of a batch or chunk for each of its records, and its latency divided between them.
+   */
+  private void measureRecords(String op, int opId, int records, Status result,
+                              long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+    if (records == 0) {
+      return;
+    }
+    long recordEndTimeNanos = startTimeNanos + (endTimeNanos - startTimeNanos) / records;
+    for (int i = 0; i < records; i++) {
+      measure(op, opId, result, intendedStartTimeNanos, startTimeNanos, recordEndTimeNanos);
+      measurements.reportStatus(opId, result);
+    }
+  }
 }
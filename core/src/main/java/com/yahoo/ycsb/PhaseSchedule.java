@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Divides a run into timed phases, each with its own settings, such as a warmup, a steady state and a spike.
+ * <p>
+ * The phases are listed in the "phases" property as name:duration pairs, e.g.
+ * {@code phases=warmup:60s,steady:600s,spike:30s}, with durations in ms, s, m or h (seconds if no unit is
+ * given). A phase overrides any property with "phase.name." in front of it: {@code phase.spike.target=20000}
+ * sets the target throughput of the spike phase, and workloads read their other settings, such as
+ * {@code phase.spike.readproportion} or {@code phase.spike.requestdistribution}, through
+ * {@link Workload#startPhase(int)}.
+ * <p>
+ * At each boundary, the schedule switches the workload and the measurements to the new phase and then
+ * publishes it to the client threads in one volatile write; every thread picks it up with its next operation
+ * and throttles to the new target from the start of the phase. Every phase is measured separately, and the run
+ * ends with the last phase.
+ */
+public final class PhaseSchedule {
+  /**
+   * The phases of the run, as a comma separated list of name:duration pairs.
+   */
+  public static final String PHASES_PROPERTY = "phases";
+
+  /**
+   * Prefix of the properties a phase overrides, followed by the phase name and a dot.
+   */
+  public static final String PHASE_PROPERTY_PREFIX = "phase.";
+
+  private final List<Phase> phases;
+  private final long[] opsAtEnd;
+  private final long[] runtimeNanos;
+  private long startNanos;
+  private volatile Phase current;
+
+  private PhaseSchedule(List<Phase> phases) {
+    this.phases = phases;
+    opsAtEnd = new long[phases.size()];
+    runtimeNanos = new long[phases.size()];
+  }
+
+  /**
+   * Returns the schedule the properties ask for, or null if they list no phases.
+   */
+  public static PhaseSchedule fromProperties(Properties props, int threadcount) {
+    List<Phase> phases = parse(props, threadcount);
+    return phases.isEmpty() ? null : new PhaseSchedule(phases);
+  }
+
+  /**
+   * Returns the phases the properties list, in order, or an empty list if they list none.
+   *
+   * @throws IllegalArgumentException if the list is malformed.
+   */
+  public static List<Phase> parse(Properties props) {
+    return parse(props, 1);
+  }
+
+  private static List<Phase> parse(Properties props, int threadcount) {
+    String list = props.getProperty(PHASES_PROPERTY, "").trim();
+    if (list.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Phase> phases = new ArrayList<>();
+    long offsetNanos = 0;
+    for (String entry : list.split(",")) {
+      String[] parts = entry.trim().split(":");
+      if (parts.length != 2 || parts[0].isEmpty()) {
+        throw new IllegalArgumentException("Phase \"" + entry + "\" in " + PHASES_PROPERTY + " is not name:duration");
+      }
+      for (Phase phase : phases) {
+        if (phase.name.equals(parts[0])) {
+          throw new IllegalArgumentException("Phase " + parts[0] + " is listed twice in " + PHASES_PROPERTY);
+        }
+      }
+      long durationNanos = parseDuration(parts[1].trim());
+      Phase phase = new Phase(parts[0], phases.size(), offsetNanos, durationNanos,
+          overrides(props, PHASE_PROPERTY_PREFIX + parts[0] + "."), threadcount);
+      phases.add(phase);
+      offsetNanos += durationNanos;
+    }
+    return Collections.unmodifiableList(phases);
+  }
+
+  private static long parseDuration(String duration) {
+    TimeUnit unit = TimeUnit.SECONDS;
+    long scale = 1;
+    String number = duration;
+    if (duration.endsWith("ms")) {
+      unit = TimeUnit.MILLISECONDS;
+      number = duration.substring(0, duration.length() - 2);
+    } else if (duration.endsWith("s")) {
+      number = duration.substring(0, duration.length() - 1);
+    } else if (duration.endsWith("m")) {
+      scale = 60;
+      number = duration.substring(0, duration.length() - 1);
+    } else if (duration.endsWith("h")) {
+      scale = 3600;
+      number = duration.substring(0, duration.length() - 1);
+    }
+    try {
+      long value = Long.parseLong(number.trim());
+      if (value <= 0) {
+        throw new IllegalArgumentException("Phase duration " + duration + " is not positive");
+      }
+      return unit.toNanos(value * scale);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Phase duration " + duration + " is not a number with a unit", e);
+    }
+  }
+
+  /**
+   * The properties with those starting with prefix overriding the ones they name without it.
+   */
+  private static Properties overrides(Properties props, String prefix) {
+    Properties phaseProps = new Properties();
+    for (String name : props.stringPropertyNames()) {
+      phaseProps.setProperty(name, props.getProperty(name));
+    }
+    for (String name : props.stringPropertyNames()) {
+      if (name.startsWith(prefix)) {
+        phaseProps.setProperty(name.substring(prefix.length()), props.getProperty(name));
+      }
+    }
+    return phaseProps;
+  }
+
+  public List<Phase> getPhases() {
+    return phases;
+  }
+
+  /**
+   * The phase the run is in, or null before it starts.
+   */
+  Phase current() {
+    return current;
+  }
+
+  /**
+   * The time, in System.nanoTime(), the given phase started at.
+   */
+  long startNanos(Phase phase) {
+    return startNanos + phase.offsetNanos;
+  }
+
+  /**
+   * Switches the workload and the measurements to the first phase, and publishes it. Called before the client
+   * threads start, so that they all begin in it.
+   */
+  public void start(Workload workload) throws WorkloadException {
+    startNanos = System.nanoTime();
+    enter(phases.get(0), workload);
+  }
+
+  /**
+   * Moves the run through the remaining phases on the schedule, then asks the workload to stop. Returns early
+   * if the client threads finish first. Prints each phase to stderr as it starts.
+   */
+  public void run(Workload workload, List<ClientThread> clients, CountDownLatch completeLatch)
+      throws InterruptedException, WorkloadException {
+    for (int i = 0; i < phases.size(); i++) {
+      Phase phase = phases.get(i);
+      long end = startNanos(phase) + phase.durationNanos;
+      boolean done = completeLatch.await(end - System.nanoTime(), TimeUnit.NANOSECONDS);
+      for (ClientThread client : clients) {
+        opsAtEnd[i] += client.getOpsDone();
+      }
+      runtimeNanos[i] = Math.min(System.nanoTime(), end) - startNanos(phase);
+      if (done) {
+        return;
+      }
+      if (i + 1 < phases.size()) {
+        enter(phases.get(i + 1), workload);
+      }
+    }
+    workload.requestStop();
+  }
+
+  private void enter(Phase phase, Workload workload) throws WorkloadException {
+    System.err.println("Starting phase " + phase.name + " for " + TimeUnit.NANOSECONDS.toMillis(phase.durationNanos)
+        + " ms" + (phase.target > 0 ? " at " + phase.target + " ops/sec" : ""));
+    Measurements.getMeasurements().startSection("PHASE-" + phase.name);
+    workload.startPhase(phase.index);
+    current = phase;
+  }
+
+  /**
+   * Exports the target and the throughput of every phase that ran.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    for (int i = 0; i < phases.size() && runtimeNanos[i] > 0; i++) {
+      Phase phase = phases.get(i);
+      long ops = opsAtEnd[i] - (i == 0 ? 0 : opsAtEnd[i - 1]);
+      String name = "PHASE-" + phase.name;
+      exporter.write(name, "RunTime(ms)", TimeUnit.NANOSECONDS.toMillis(runtimeNanos[i]));
+      exporter.write(name, "Target(ops/sec)", phase.target);
+      exporter.write(name, "Throughput(ops/sec)", ops * 1e9 / runtimeNanos[i]);
+    }
+  }
+
+  /**
+   * One phase of the run: its place in the schedule and its settings.
+   */
+  public static final class Phase {
+    private final String name;
+    private final int index;
+    private final long offsetNanos;
+    private final long durationNanos;
+    private final Properties properties;
+    private final int target;
+    private final double targetPerThreadPerMs;
+
+    private Phase(String name, int index, long offsetNanos, long durationNanos, Properties properties,
+                  int threadcount) {
+      this.name = name;
+      this.index = index;
+      this.offsetNanos = offsetNanos;
+      this.durationNanos = durationNanos;
+      this.properties = properties;
+      target = Integer.parseInt(properties.getProperty(Client.TARGET_PROPERTY, "0"));
+      targetPerThreadPerMs = target / (double) threadcount / 1000.0;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public long getDurationNanos() {
+      return durationNanos;
+    }
+
+    /**
+     * All properties of the run, with those the phase overrides replaced.
+     */
+    public Properties getProperties() {
+      return properties;
+    }
+
+    double getTargetPerThreadPerMs() {
+      return targetPerThreadPerMs;
+    }
+  }
+}
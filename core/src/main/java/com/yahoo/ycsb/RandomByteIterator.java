@@ -16,89 +16,166 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
- *  A ByteIterator that generates a random sequence of bytes.
+ *  A ByteIterator that generates a random sequence of printable bytes.
+ *  <p>
+ *  The bytes come from a xoroshiro128+ generator private to the iterator, eight at a time: each
+ *  64-bit output is mapped onto the characters ' ' to '_' with one mask and one add, and written
+ *  to the destination array as a single word. A value is fully determined by its seed, so
+ *  {@link #reset()} replays the same bytes, and {@link #reset(long)} starts a new value.
  */
 public class RandomByteIterator extends ByteIterator {
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  /** Keeps the low six bits of every byte. */
+  private static final long PRINTABLE_MASK = 0x3f3f3f3f3f3f3f3fL;
+  /** Adds ' ' to every byte. */
+  private static final long PRINTABLE_BASE = 0x2020202020202020L;
+
   private long len;
   private long off;
-  private int bufOff;
-  private byte[] buf;
+  private long seed;
+  private long state0;
+  private long state1;
+  /** Bytes of the last random word not handed out yet, lowest byte first. */
+  private long pending;
+  private int pendingBytes;
+  /** Reused by {@link #toByteBuffer()}. */
+  private ByteBuffer buffer;
 
-  @Override
-  public boolean hasNext() {
-    return (off + bufOff) < len;
+  public RandomByteIterator(long len) {
+    reset(len);
   }
 
-  private void fillBytesImpl(byte[] buffer, int base) {
-    int bytes = ThreadLocalRandom.current().nextInt();
-
-    switch (buffer.length - base) {
-    default:
-      buffer[base + 5] = (byte) (((bytes >> 25) & 95) + ' ');
-    case 5:
-      buffer[base + 4] = (byte) (((bytes >> 20) & 63) + ' ');
-    case 4:
-      buffer[base + 3] = (byte) (((bytes >> 15) & 31) + ' ');
-    case 3:
-      buffer[base + 2] = (byte) (((bytes >> 10) & 95) + ' ');
-    case 2:
-      buffer[base + 1] = (byte) (((bytes >> 5) & 63) + ' ');
-    case 1:
-      buffer[base + 0] = (byte) (((bytes) & 31) + ' ');
-    case 0:
-      break;
-    }
+  /**
+   * Starts a new random value of the given length, so that a single instance can be
+   * reused for many values instead of allocating one iterator per value.
+   *
+   * @param newLen The length of the new value.
+   */
+  public void reset(long newLen) {
+    this.len = newLen;
+    this.seed = ThreadLocalRandom.current().nextLong();
+    reset();
   }
 
-  private void fillBytes() {
-    if (bufOff == buf.length) {
-      fillBytesImpl(buf, 0);
-      bufOff = 0;
-      off += buf.length;
-    }
+  /**
+   * Rewinds to the start of the current value; the same bytes are generated again.
+   */
+  @Override
+  public void reset() {
+    off = 0;
+    state0 = mix(seed);
+    state1 = mix(seed + GOLDEN_GAMMA);
+    pendingBytes = 0;
   }
 
-  public RandomByteIterator(long len) {
-    this.len = len;
-    this.buf = new byte[6];
-    this.bufOff = buf.length;
-    fillBytes();
-    this.off = 0;
+  @Override
+  public boolean hasNext() {
+    return off < len;
   }
 
+  @Override
   public byte nextByte() {
-    fillBytes();
-    bufOff++;
-    return buf[bufOff - 1];
+    if (pendingBytes == 0) {
+      pending = nextPrintable();
+      pendingBytes = 8;
+    }
+    byte ret = (byte) pending;
+    pending >>>= 8;
+    pendingBytes--;
+    off++;
+    return ret;
   }
 
   @Override
-  public int nextBuf(byte[] buffer, int bufOffset) {
-    int ret;
-    if (len - off < buffer.length - bufOffset) {
-      ret = (int) (len - off);
-    } else {
-      ret = buffer.length - bufOffset;
-    }
-    int i;
-    for (i = 0; i < ret; i += 6) {
-      fillBytesImpl(buffer, i + bufOffset);
-    }
-    off += ret;
-    return ret + bufOffset;
+  public int nextBuf(byte[] buf, int bufOff) {
+    int count = (int) Math.min(len - off, buf.length - bufOff);
+    fill(buf, bufOff, count);
+    off += count;
+    return bufOff + count;
   }
 
   @Override
   public long bytesLeft() {
-    return len - off - bufOff;
+    return len - off;
   }
 
+  /**
+   * Generates the remaining bytes straight into a buffer owned by this iterator, which is
+   * reused for the next value. The buffer is only valid until this iterator is reset.
+   */
   @Override
-  public void reset() {
-    off = 0;
+  public ByteBuffer toByteBuffer() {
+    long left = bytesLeft();
+    if (left != (int) left) {
+      throw new ArrayIndexOutOfBoundsException("Too much data to fit in one buffer!");
+    }
+    if (buffer == null || buffer.capacity() < left) {
+      buffer = ByteBuffer.allocate((int) left);
+    }
+    fill(buffer.array(), 0, (int) left);
+    off = len;
+    // Go through Buffer so the calls link against Java 8, where ByteBuffer doesn't override them.
+    ((Buffer) buffer).clear();
+    ((Buffer) buffer).limit((int) left);
+    return buffer;
+  }
+
+  /**
+   * Writes the next count bytes of the value to buf, starting with any bytes left over from the
+   * last random word.
+   */
+  private void fill(byte[] buf, int bufOff, int count) {
+    int i = bufOff;
+    int end = bufOff + count;
+    while (pendingBytes > 0 && i < end) {
+      buf[i] = (byte) pending;
+      pending >>>= 8;
+      pendingBytes--;
+      i++;
+    }
+    if (end - i >= 8) {
+      ByteBuffer words = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+      for (; i + 8 <= end; i += 8) {
+        words.putLong(i, nextPrintable());
+      }
+    }
+    if (i < end) {
+      pending = nextPrintable();
+      pendingBytes = 8;
+      while (i < end) {
+        buf[i] = (byte) pending;
+        pending >>>= 8;
+        pendingBytes--;
+        i++;
+      }
+    }
+  }
+
+  /**
+   * Eight random printable bytes.
+   */
+  private long nextPrintable() {
+    long s0 = state0;
+    long s1 = state1;
+    long z = s0 + s1;
+    s1 ^= s0;
+    state0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+    state1 = Long.rotateLeft(s1, 37);
+    return (z & PRINTABLE_MASK) + PRINTABLE_BASE;
+  }
+
+  /**
+   * SplitMix64, used to expand a seed into generator state.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
   }
-  
 }
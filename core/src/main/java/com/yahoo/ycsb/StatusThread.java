@@ -26,6 +26,7 @@ public class StatusThread extends Thread {
 
   private final String label;
   private final boolean standardstatus;
+  private final boolean showstatus;
 
   // The interval for reporting status.
   private long sleeptimeNs;
@@ -69,9 +70,29 @@ public class StatusThread extends Thread {
   public StatusThread(CountDownLatch completeLatch, List<ClientThread> clients,
                       String label, boolean standardstatus, int statusIntervalSeconds,
                       boolean trackJVMStats) {
+    this(completeLatch, clients, label, true, standardstatus, statusIntervalSeconds, trackJVMStats);
+  }
+
+  /**
+   * Creates a new StatusThread.
+   *
+   * @param completeLatch         The latch that each client thread will {@link CountDownLatch#countDown()}
+   *                              as they complete.
+   * @param clients               The clients to collect metrics from.
+   * @param label                 The label for the status.
+   * @param showstatus            If false the status is not printed, and the thread only keeps the
+   *                              measurements' interval log.
+   * @param standardstatus        If true the status is printed to stdout in addition to stderr.
+   * @param statusIntervalSeconds The number of seconds between status updates.
+   * @param trackJVMStats         Whether or not to track JVM stats.
+   */
+  public StatusThread(CountDownLatch completeLatch, List<ClientThread> clients,
+                      String label, boolean showstatus, boolean standardstatus, int statusIntervalSeconds,
+                      boolean trackJVMStats) {
     this.completeLatch = completeLatch;
     this.clients = clients;
     this.label = label;
+    this.showstatus = showstatus;
     this.standardstatus = standardstatus;
     sleeptimeNs = TimeUnit.SECONDS.toNanos(statusIntervalSeconds);
     measurements = Measurements.getMeasurements();
@@ -159,9 +180,11 @@ public class StatusThread extends Thread {
 
     msg.append(Measurements.getMeasurements().getSummary());
 
-    System.err.println(msg);
+    if (showstatus) {
+      System.err.println(msg);
+    }
 
-    if (standardstatus) {
+    if (showstatus && standardstatus) {
       System.out.println(msg);
     }
     return totalops;
@@ -0,0 +1,452 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.IntervalStats;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Searches for the highest throughput the DB sustains within a latency and error objective.
+ * <p>
+ * The client threads run a series of timed steps, each throttled to a target rate. A step passes if the
+ * chosen percentile of every operation's latency stays under the maximum, the share of failed operations
+ * stays under the maximum error rate, and the threads achieve nearly the target. The target doubles until
+ * a step fails, then the search bisects between the highest passing and the lowest failing target. The
+ * threads keep their DB connections and workload state between steps, and latencies are measured from the
+ * intended start of each operation, so a DB that falls behind shows it in its latencies.
+ */
+public final class ThroughputSearch {
+  /**
+   * Whether to search for the highest sustainable throughput instead of running the workload once.
+   */
+  public static final String SEARCH_PROPERTY = "search";
+
+  /**
+   * The latency percentile to hold under the maximum: 50, 99 or 99.9.
+   */
+  public static final String PERCENTILE_PROPERTY = "search.percentile";
+  public static final String PERCENTILE_PROPERTY_DEFAULT = "99";
+
+  /**
+   * The maximum latency, in microseconds, at the percentile.
+   */
+  public static final String MAX_LATENCY_PROPERTY = "search.maxlatency";
+  public static final String MAX_LATENCY_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * The maximum fraction of operations that may fail.
+   */
+  public static final String MAX_ERROR_RATE_PROPERTY = "search.maxerrorrate";
+  public static final String MAX_ERROR_RATE_PROPERTY_DEFAULT = "0.001";
+
+  /**
+   * How long each step runs, in seconds.
+   */
+  public static final String STEP_TIME_PROPERTY = "search.steptime";
+  public static final String STEP_TIME_PROPERTY_DEFAULT = "10";
+
+  /**
+   * The target of the first step, in operations per second.
+   */
+  public static final String START_PROPERTY = "search.start";
+  public static final String START_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The highest target to try, in operations per second. The default is no limit.
+   */
+  public static final String MAX_PROPERTY = "search.max";
+
+  /**
+   * The search stops once the highest passing and lowest failing targets are within this fraction of each
+   * other.
+   */
+  public static final String PRECISION_PROPERTY = "search.precision";
+  public static final String PRECISION_PROPERTY_DEFAULT = "0.05";
+
+  /**
+   * The most steps to run.
+   */
+  public static final String MAX_STEPS_PROPERTY = "search.maxsteps";
+  public static final String MAX_STEPS_PROPERTY_DEFAULT = "20";
+
+  /**
+   * The least fraction of the target a step must achieve to pass.
+   */
+  private static final double MIN_ACHIEVED = 0.95;
+
+  /**
+   * How long past the end of a step to wait for the client threads before giving up on them.
+   */
+  private static final long STRAGGLER_TIMEOUT_MS = 60000;
+
+  private final int threadcount;
+  private final String percentile;
+  private final long maxLatency;
+  private final double maxErrorRate;
+  private final long stepNanos;
+  private final double start;
+  private final double max;
+  private final double precision;
+  private final int maxSteps;
+
+  private final CyclicBarrier barrier;
+  private final List<Step> steps = new ArrayList<>();
+  private final Map<String, Map<Status, Long>> lastStatusCounts = new HashMap<>();
+  private volatile Step current;
+
+  private ThroughputSearch(Properties props, int threadcount) {
+    this.threadcount = threadcount;
+    percentile = props.getProperty(PERCENTILE_PROPERTY, PERCENTILE_PROPERTY_DEFAULT);
+    if (!percentile.equals("50") && !percentile.equals("99") && !percentile.equals("99.9")) {
+      throw new IllegalArgumentException("unknown " + PERCENTILE_PROPERTY + "=" + percentile);
+    }
+    maxLatency = Long.parseLong(props.getProperty(MAX_LATENCY_PROPERTY, MAX_LATENCY_PROPERTY_DEFAULT));
+    maxErrorRate = Double.parseDouble(props.getProperty(MAX_ERROR_RATE_PROPERTY, MAX_ERROR_RATE_PROPERTY_DEFAULT));
+    stepNanos = TimeUnit.MILLISECONDS.toNanos(
+        (long) (1000 * Double.parseDouble(props.getProperty(STEP_TIME_PROPERTY, STEP_TIME_PROPERTY_DEFAULT))));
+    start = Double.parseDouble(props.getProperty(START_PROPERTY, START_PROPERTY_DEFAULT));
+    max = Double.parseDouble(props.getProperty(MAX_PROPERTY, "0"));
+    precision = Double.parseDouble(props.getProperty(PRECISION_PROPERTY, PRECISION_PROPERTY_DEFAULT));
+    maxSteps = Integer.parseInt(props.getProperty(MAX_STEPS_PROPERTY, MAX_STEPS_PROPERTY_DEFAULT));
+    barrier = new CyclicBarrier(threadcount + 1);
+  }
+
+  /**
+   * Returns the search the properties ask for, or null. Unless told otherwise, latencies are then measured
+   * from the intended start of each operation.
+   *
+   * @throws IllegalArgumentException if the search is malformed, or the measurement type does not report the
+   *     latency percentiles it needs.
+   */
+  public static ThroughputSearch fromProperties(Properties props, int threadcount) {
+    if (!Boolean.parseBoolean(props.getProperty(SEARCH_PROPERTY, "false"))) {
+      return null;
+    }
+    String type = props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    if (type.equals("raw") || type.equals("timeseries")) {
+      throw new IllegalArgumentException("The search needs latency percentiles, which "
+          + Measurements.MEASUREMENT_TYPE_PROPERTY + "=" + type + " does not report; use hdrhistogram");
+    }
+    if (props.getProperty(Measurements.MEASUREMENT_INTERVAL) == null) {
+      props.setProperty(Measurements.MEASUREMENT_INTERVAL, "intended");
+    }
+    return new ThroughputSearch(props, threadcount);
+  }
+
+  /**
+   * Called by each client thread: waits for the next step to start, and returns it, or null once the search
+   * is over.
+   */
+  Step awaitStep() throws InterruptedException, BrokenBarrierException {
+    barrier.await();
+    return current;
+  }
+
+  /**
+   * Called by each client thread once it has finished a step.
+   */
+  void endStep() throws InterruptedException, BrokenBarrierException {
+    barrier.await();
+  }
+
+  /**
+   * Called by a client thread that cannot run the steps, e.g. because its DB failed to initialize. Breaks the
+   * barrier, so that the search and the other threads stop waiting for it.
+   */
+  void abort() {
+    while (!barrier.isBroken()) {
+      try {
+        // A wait that has already timed out breaks the barrier, unless it was the last one the barrier
+        // waited for; the loop then breaks the next step's.
+        barrier.await(0, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (BrokenBarrierException | TimeoutException e) {
+        // broken now
+      }
+    }
+  }
+
+  /**
+   * Runs the search on the given client threads, which must already be running. Prints each step to
+   * stderr as it completes.
+   */
+  public void run(List<ClientThread> clients) throws InterruptedException {
+    Measurements measurements = Measurements.getMeasurements();
+    double passed = 0;
+    // 0 until a step fails
+    double failed = 0;
+    double target = max > 0 ? Math.min(start, max) : start;
+    try {
+      for (int i = 0; i < maxSteps; i++) {
+        Step step = runStep(target, clients, measurements);
+        steps.add(step);
+        System.err.println("Search step " + steps.size() + ": " + step);
+        if (step.passed) {
+          passed = target;
+        } else {
+          failed = target;
+        }
+
+        if (step.passed && max > 0 && target >= max) {
+          break;
+        }
+        if (failed == 0) {
+          target = max > 0 ? Math.min(target * 2, max) : target * 2;
+        } else if (failed - passed <= precision * failed) {
+          break;
+        } else {
+          target = (passed + failed) / 2;
+        }
+      }
+    } catch (BrokenBarrierException | TimeoutException e) {
+      System.err.println("Search aborted, a client thread failed or did not finish its step: " + e);
+    } finally {
+      current = null;
+      try {
+        barrier.await(STRAGGLER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      } catch (BrokenBarrierException | TimeoutException e) {
+        // the threads are gone already
+      }
+    }
+  }
+
+  private Step runStep(double target, List<ClientThread> clients, Measurements measurements)
+      throws InterruptedException, BrokenBarrierException, TimeoutException {
+    // start fresh intervals, so the step's statistics cover only the step
+    measurements.getSummary();
+    statusCountsSinceLastStep(measurements);
+    long opsBefore = 0;
+    for (ClientThread client : clients) {
+      opsBefore += client.getOpsDone();
+    }
+
+    long begin = System.nanoTime();
+    current = new Step(target, target / threadcount / 1000.0, begin + stepNanos);
+    barrier.await(STRAGGLER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    barrier.await(TimeUnit.NANOSECONDS.toMillis(stepNanos) + STRAGGLER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    long elapsed = System.nanoTime() - begin;
+
+    long ops = -opsBefore;
+    for (ClientThread client : clients) {
+      ops += client.getOpsDone();
+    }
+    measurements.getSummary();
+    Step step = current;
+    step.throughput = ops * 1e9 / elapsed;
+    for (OneMeasurement measurement : measurements.getOneMeasurements()) {
+      IntervalStats stats = measurement.getLastInterval();
+      if (stats == null || stats.getCount() == 0 || measurement.getName().equals("CLEANUP")) {
+        continue;
+      }
+      long latency = latencyAtPercentile(stats);
+      if (latency == IntervalStats.UNKNOWN) {
+        throw new IllegalStateException("The search needs latency percentiles; use measurementtype=hdrhistogram");
+      }
+      step.latency = Math.max(step.latency, latency);
+    }
+
+    long total = 0;
+    long errors = 0;
+    for (Map.Entry<Status, Long> entry : statusCountsSinceLastStep(measurements).entrySet()) {
+      total += entry.getValue();
+      if (!entry.getKey().isOk()) {
+        errors += entry.getValue();
+      }
+    }
+    step.errorRate = total == 0 ? 0 : (double) errors / total;
+    step.passed = step.latency < maxLatency && step.errorRate <= maxErrorRate
+        && step.throughput >= MIN_ACHIEVED * target;
+    return step;
+  }
+
+  private long latencyAtPercentile(IntervalStats stats) {
+    if (percentile.equals("50")) {
+      return stats.getP50();
+    } else if (percentile.equals("99")) {
+      return stats.getP99();
+    } else {
+      return stats.getP999();
+    }
+  }
+
+  /**
+   * The return codes counted since the last call, over all operations.
+   */
+  private Map<Status, Long> statusCountsSinceLastStep(Measurements measurements) {
+    Map<Status, Long> counts = new HashMap<>();
+    for (OneMeasurement measurement : measurements.getOneMeasurements()) {
+      Map<Status, Long> now = measurement.getStatusCounts();
+      Map<Status, Long> last = lastStatusCounts.put(measurement.getName(), now);
+      for (Map.Entry<Status, Long> entry : now.entrySet()) {
+        Long before = last == null ? null : last.get(entry.getKey());
+        Long sum = counts.get(entry.getKey());
+        counts.put(entry.getKey(), (sum == null ? 0 : sum) + entry.getValue() - (before == null ? 0 : before));
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * The highest passing step, or null if none passed.
+   */
+  private Step best() {
+    Step best = null;
+    for (Step step : steps) {
+      if (step.passed && (best == null || step.target > best.target)) {
+        best = step;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The throughput at the knee of the latency/throughput curve: with both scaled to the range the steps
+   * cover, the step whose latency lies furthest below the straight line from the lowest to the highest
+   * throughput. Beyond it, latency grows faster than throughput.
+   */
+  double knee() {
+    List<Step> sorted = new ArrayList<>(steps);
+    Collections.sort(sorted, new Comparator<Step>() {
+      @Override
+      public int compare(Step a, Step b) {
+        return Double.compare(a.throughput, b.throughput);
+      }
+    });
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    Step first = sorted.get(0);
+    Step last = sorted.get(sorted.size() - 1);
+    double minLatency = Long.MAX_VALUE;
+    double maxLatencySeen = 0;
+    for (Step step : sorted) {
+      minLatency = Math.min(minLatency, step.latency);
+      maxLatencySeen = Math.max(maxLatencySeen, step.latency);
+    }
+    double throughputRange = last.throughput - first.throughput;
+    double latencyRange = maxLatencySeen - minLatency;
+    if (sorted.size() < 3 || throughputRange <= 0 || latencyRange <= 0) {
+      Step best = best();
+      return best == null ? 0 : best.throughput;
+    }
+
+    Step knee = first;
+    double furthest = Double.NEGATIVE_INFINITY;
+    for (Step step : sorted) {
+      double x = (step.throughput - first.throughput) / throughputRange;
+      double y = (step.latency - minLatency) / latencyRange;
+      if (x - y > furthest) {
+        furthest = x - y;
+        knee = step;
+      }
+    }
+    return knee.throughput;
+  }
+
+  /**
+   * Exports every step and the result of the search.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    String latencyName = "p" + percentile + "Latency(us)";
+    for (int i = 0; i < steps.size(); i++) {
+      Step step = steps.get(i);
+      String name = "SEARCH-STEP-" + (i + 1);
+      exporter.write(name, "Target(ops/sec)", step.target);
+      exporter.write(name, "Throughput(ops/sec)", step.throughput);
+      exporter.write(name, latencyName, step.latency);
+      exporter.write(name, "ErrorRate", step.errorRate);
+      exporter.write(name, "Passed", step.passed ? 1 : 0);
+    }
+    Step best = best();
+    exporter.write("SEARCH", "MaxTarget(ops/sec)", best == null ? 0 : best.target);
+    exporter.write("SEARCH", "MaxThroughput(ops/sec)", best == null ? 0 : best.throughput);
+    exporter.write("SEARCH", "KneeThroughput(ops/sec)", knee());
+  }
+
+  List<Step> getSteps() {
+    return steps;
+  }
+
+  /**
+   * One step of the search: a target and what came of it.
+   */
+  static final class Step {
+    private final double target;
+    private final double targetPerThreadPerMs;
+    private final long endNanos;
+    private double throughput;
+    private long latency;
+    private double errorRate;
+    private boolean passed;
+
+    Step(double target, double targetPerThreadPerMs, long endNanos) {
+      this.target = target;
+      this.targetPerThreadPerMs = targetPerThreadPerMs;
+      this.endNanos = endNanos;
+    }
+
+    /**
+     * A step that has run, for testing.
+     */
+    Step(double target, double throughput, long latency, boolean passed) {
+      this(target, 0, 0);
+      this.throughput = throughput;
+      this.latency = latency;
+      this.passed = passed;
+    }
+
+    double getTarget() {
+      return target;
+    }
+
+    double getTargetPerThreadPerMs() {
+      return targetPerThreadPerMs;
+    }
+
+    long getEndNanos() {
+      return endNanos;
+    }
+
+    boolean isPassed() {
+      return passed;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("target %.0f ops/sec, achieved %.1f ops/sec, latency %d us, errors %.3f%%: %s",
+          target, throughput, latency, 100 * errorRate, passed ? "passed" : "failed");
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.Workload.Operation;
+import com.yahoo.ycsb.workloads.TraceRecord;
+import com.yahoo.ycsb.workloads.TraceWriter;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A DB that passes every operation on to another DB binding and records it in a trace, which
+ * {@link com.yahoo.ycsb.workloads.TraceReplayWorkload} can replay later. Run any workload with
+ * -db com.yahoo.ycsb.TraceRecorderDB and the binding to capture in tracerecorder.db; the client wraps this DB
+ * in a {@link DBWrapper} as usual, so the run is measured as if the binding were used directly.
+ * <p>
+ * Properties:
+ * <UL>
+ * <LI><b>tracerecorder.db</b>: the class of the DB binding to pass operations to (required)
+ * <LI><b>tracerecorder.file</b>: the trace file to write (required)
+ * </ul>
+ * <p>
+ * The DB instances of all client threads write to the same trace, which is closed when the last of them is
+ * cleaned up. The time of a record is when the operation was issued, before the binding sees it.
+ */
+public class TraceRecorderDB extends DB {
+  public static final String DB_PROPERTY = "tracerecorder.db";
+  public static final String FILE_PROPERTY = "tracerecorder.file";
+
+  private static final Object LOCK = new Object();
+  private static TraceWriter writer;
+  private static int users;
+  private static long startNanos;
+
+  private DB db;
+  private TraceWriter trace;
+  private long traceStartNanos;
+
+  @Override
+  public void init() throws DBException {
+    Properties p = getProperties();
+    String dbname = p.getProperty(DB_PROPERTY);
+    String file = p.getProperty(FILE_PROPERTY);
+    if (dbname == null || file == null) {
+      throw new DBException("TraceRecorderDB needs " + DB_PROPERTY + " and " + FILE_PROPERTY);
+    }
+    try {
+      db = (DB) TraceRecorderDB.class.getClassLoader().loadClass(dbname).newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new DBException("Can't create " + dbname, e);
+    }
+    db.setProperties(p);
+
+    synchronized (LOCK) {
+      if (users == 0) {
+        try {
+          writer = new TraceWriter(new FileOutputStream(file));
+        } catch (IOException e) {
+          throw new DBException("Can't write trace " + file, e);
+        }
+        startNanos = System.nanoTime();
+      }
+      users++;
+      trace = writer;
+      traceStartNanos = startNanos;
+    }
+    db.init();
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    try {
+      db.cleanup();
+    } finally {
+      synchronized (LOCK) {
+        users--;
+        if (users == 0) {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            throw new DBException("Can't write trace", e);
+          } finally {
+            writer = null;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    record(Operation.READ, key, fields == null ? null : new ArrayList<>(fields), null, 0);
+    return db.read(table, key, fields, result);
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    record(Operation.SCAN, startkey, fields == null ? null : new ArrayList<>(fields), null, recordcount);
+    return db.scan(table, startkey, recordcount, fields, result);
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    recordWrite(Operation.UPDATE, key, values);
+    return db.update(table, key, values);
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    recordWrite(Operation.INSERT, key, values);
+    return db.insert(table, key, values);
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    record(Operation.DELETE, key, null, null, 0);
+    return db.delete(table, key);
+  }
+
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<HashMap<String, ByteIterator>> results) {
+    List<String> fieldList = fields == null ? null : new ArrayList<>(fields);
+    for (String key : keys) {
+      record(Operation.READ, key, fieldList, null, 0);
+    }
+    return db.batchRead(table, keys, fields, results);
+  }
+
+  @Override
+  public Status batchUpdate(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    for (int i = 0; i < keys.size(); i++) {
+      recordWrite(Operation.UPDATE, keys.get(i), values.get(i));
+    }
+    return db.batchUpdate(table, keys, values);
+  }
+
+  @Override
+  public Status batchInsert(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+    for (int i = 0; i < keys.size(); i++) {
+      recordWrite(Operation.INSERT, keys.get(i), values.get(i));
+    }
+    return db.batchInsert(table, keys, values);
+  }
+
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    for (String key : keys) {
+      record(Operation.DELETE, key, null, null, 0);
+    }
+    return db.batchDelete(table, keys);
+  }
+
+  private void recordWrite(Operation op, String key, Map<String, ByteIterator> values) {
+    List<String> fields = new ArrayList<>(values.size());
+    int[] sizes = new int[values.size()];
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      sizes[fields.size()] = (int) entry.getValue().bytesLeft();
+      fields.add(entry.getKey());
+    }
+    record(op, key, fields, sizes, 0);
+  }
+
+  private void record(Operation op, String key, List<String> fields, int[] sizes, int recordcount) {
+    long timeMicros = (System.nanoTime() - traceStartNanos) / 1000;
+    try {
+      trace.write(new TraceRecord(timeMicros, op, key, fields, sizes, recordcount));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
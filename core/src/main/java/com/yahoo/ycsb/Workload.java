@@ -17,6 +17,10 @@
 
 package com.yahoo.ycsb;
 
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Properties;
 
@@ -49,7 +53,24 @@ public abstract class Workload {
     UPDATE,
     INSERT,
     SCAN,
-    DELETE
+    DELETE,
+    READMODIFYWRITE;
+
+    /**
+     * Maps the positions of an operation chooser's values to operations, so that a transaction can dispatch on
+     * {@code ops[chooser.nextIndex()]} instead of on the chosen string.
+     *
+     * @param chooser A generator whose values are operation names.
+     * @return The operation for each of the chooser's values, in order.
+     * @throws IllegalArgumentException if a value does not name an operation.
+     */
+    public static Operation[] of(DiscreteGenerator chooser) {
+      Operation[] ops = new Operation[chooser.size()];
+      for (int i = 0; i < ops.length; i++) {
+        ops[i] = valueOf(chooser.getValue(i));
+      }
+      return ops;
+    }
   }
   
   /**
@@ -77,6 +98,15 @@ public abstract class Workload {
     return null;
   }
       
+  /**
+   * Switch to the settings of one phase of the run's {@link PhaseSchedule}, which the workload finds by index in
+   * {@link PhaseSchedule#parse(Properties)}. Called in the main client thread at the start of every phase, while
+   * other threads are running operations, so the switch must be a single volatile write of settings built in
+   * init(). Workloads without settings of their own per phase need not override this.
+   */
+  public void startPhase(int phase) throws WorkloadException {
+  }
+
   /**
    * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
    */
@@ -105,6 +135,32 @@ public abstract class Workload {
    */
   public abstract boolean doTransaction(DB db, Object threadstate);
 
+  /**
+   * Issue one insert operation without waiting for it to complete. Used by the client in open-loop mode,
+   * where operations are issued on a fixed schedule regardless of how long earlier ones take. The same
+   * thread safety rules as {@link #doInsert(DB, Object)} apply, except that the returned stage may complete
+   * on a driver thread, so any work done on completion must not touch threadstate.
+   *
+   * The default implementation performs the insert synchronously.
+   *
+   * @return A stage that completes with false if the operation failed, true otherwise.
+   */
+  public CompletionStage<Boolean> doInsertAsync(AsyncDB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doInsert(db, threadstate));
+  }
+
+  /**
+   * Issue one transaction operation without waiting for it to complete. See
+   * {@link #doInsertAsync(AsyncDB, Object)}.
+   *
+   * The default implementation performs the transaction synchronously.
+   *
+   * @return A stage that completes with false if the workload knows it is done for this thread, true otherwise.
+   */
+  public CompletionStage<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doTransaction(db, threadstate));
+  }
+
   /**
    * Allows scheduling a request to stop the workload.
    */
@@ -16,31 +16,58 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongBinaryOperator;
 
 /**
  * A CounterGenerator that reports generated integers via lastInt()
  * only after they have been acknowledged.
+ * <p>
+ * Acknowledged values are marked in a bitmap of longs, split into a list of segments of {@link #WINDOW_SIZE} values
+ * that grows as values are acknowledged and is dropped from the front once the limit has passed it, so any number of
+ * values may be outstanding. The limit advances by compare-and-set, a whole run of acknowledged values in a bitmap
+ * word at a time, by whichever thread finds the run; no thread ever waits for another.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator {
-  /** The size of the window of pending id ack's. 2^20 = {@value} */
-  static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
+  /** The number of values one segment of the bitmap covers. 2^16 = {@value} */
+  static final int WINDOW_SIZE = Integer.rotateLeft(1, 16);
+
+  private static final int SEGMENT_SHIFT = Integer.numberOfTrailingZeros(WINDOW_SIZE);
 
-  /** The mask to use to turn an id into a slot in {@link #window}. */
+  /** The mask to use to turn a value into its position in a segment. */
   private static final int WINDOW_MASK = WINDOW_SIZE - 1;
 
-  private final ReentrantLock lock;
-  private final boolean[] window;
-  private volatile long limit;
+  private static final LongBinaryOperator OR = (word, bit) -> word | bit;
+
+  private static final AtomicReferenceFieldUpdater<AcknowledgedCounterGenerator, Segment> HEAD =
+      AtomicReferenceFieldUpdater.newUpdater(AcknowledgedCounterGenerator.class, Segment.class, "head");
+
+  /**
+   * The limit is kept in the middle of an otherwise unused array, so that it shares its cache line with nothing
+   * that is written more often than it is.
+   */
+  private static final int LIMIT_INDEX = 8;
+
+  private final AtomicLongArray limit = new AtomicLongArray(2 * LIMIT_INDEX);
+
+  /**
+   * The segment holding limit + 1, or one before it while the limit crosses into the next segment. Only ever moves
+   * forward.
+   */
+  private volatile Segment head;
+
+  /** A recently used segment, to start from when acknowledging far ahead of the limit. */
+  private volatile Segment tail;
 
   /**
    * Create a counter that starts at countstart.
    */
   public AcknowledgedCounterGenerator(long countstart) {
     super(countstart);
-    lock = new ReentrantLock();
-    window = new boolean[WINDOW_SIZE];
-    limit = countstart - 1;
+    limit.set(LIMIT_INDEX, countstart - 1);
+    head = new Segment(countstart >> SEGMENT_SHIFT);
+    tail = head;
   }
 
   /**
@@ -49,40 +76,113 @@ public class AcknowledgedCounterGenerator extends CounterGenerator {
    */
   @Override
   public Long lastValue() {
-    return limit;
+    return lastLong();
+  }
+
+  @Override
+  public long lastLong() {
+    return limit.get(LIMIT_INDEX);
   }
 
   /**
    * Make a generated counter value available via lastInt().
    */
   public void acknowledge(long value) {
-    final int currentSlot = (int)(value & WINDOW_MASK);
-    if (window[currentSlot]) {
-      throw new RuntimeException("Too many unacknowledged insertion keys.");
+    if (value <= limit.get(LIMIT_INDEX)) {
+      throw new IllegalStateException("Value " + value + " was already acknowledged.");
+    }
+    // The limit is below value, so the head segment is at or before value's.
+    Segment segment = find(value >> SEGMENT_SHIFT);
+    int offset = (int) (value & WINDOW_MASK);
+    long bit = 1L << offset;
+    if ((segment.words.getAndAccumulate(offset >>> 6, bit, OR) & bit) != 0) {
+      throw new IllegalStateException("Value " + value + " was already acknowledged.");
+    }
+    advance();
+  }
+
+  /**
+   * Move the limit over the acknowledged values that follow it. A thread that loses a race to move it starts over
+   * from the new limit, so the values acknowledged by threads that gave up are always picked up by another.
+   */
+  private void advance() {
+    while (true) {
+      long last = limit.get(LIMIT_INDEX);
+      long next = last + 1;
+      Segment segment = find(next >> SEGMENT_SHIFT);
+      if (segment == null) {
+        // The limit has moved past next's segment since it was read.
+        continue;
+      }
+      int offset = (int) (next & WINDOW_MASK);
+      // The number of set bits from next's bit up, within its word.
+      int run = Long.numberOfTrailingZeros(~(segment.words.get(offset >>> 6) >>> offset));
+      if (run == 0) {
+        return;
+      }
+      long newLimit = last + run;
+      if (limit.compareAndSet(LIMIT_INDEX, last, newLimit) && ((newLimit + 1) & WINDOW_MASK) == 0) {
+        moveHead(segment.next());
+      }
+    }
+  }
+
+  /**
+   * Make segment the head, unless the head is already at or past it. The thread that moved the limit into a segment
+   * may get here after one that moved it into a later segment, and must not set the head back.
+   */
+  private void moveHead(Segment segment) {
+    while (true) {
+      Segment current = head;
+      if (current.number >= segment.number || HEAD.compareAndSet(this, current, segment)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the segment with the given number, adding segments to the list as needed, or null if the head has
+   *     already moved past it.
+   */
+  private Segment find(long number) {
+    Segment segment = tail;
+    if (segment.number > number) {
+      segment = head;
+      if (segment.number > number) {
+        return null;
+      }
+    }
+    while (segment.number < number) {
+      segment = segment.next();
+    }
+    if (segment != tail) {
+      tail = segment;
+    }
+    return segment;
+  }
+
+  /**
+   * WINDOW_SIZE consecutive bits of the bitmap, linked to the segment after them.
+   */
+  private static final class Segment {
+    private static final AtomicReferenceFieldUpdater<Segment, Segment> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Segment.class, Segment.class, "following");
+
+    private final long number;
+    private final AtomicLongArray words = new AtomicLongArray(WINDOW_SIZE / Long.SIZE);
+    private volatile Segment following;
+
+    private Segment(long number) {
+      this.number = number;
     }
 
-    window[currentSlot] = true;
-
-    if (lock.tryLock()) {
-      // move a contiguous sequence from the window
-      // over to the "limit" variable
-      try {
-        // Only loop through the entire window at most once.
-        long beforeFirstSlot = (limit & WINDOW_MASK);
-        long index;
-        for (index = limit + 1; index != beforeFirstSlot; ++index) {
-          int slot = (int)(index & WINDOW_MASK);
-          if (!window[slot]) {
-            break;
-          }
-
-          window[slot] = false;
-        }
-
-        limit = index - 1;
-      } finally {
-        lock.unlock();
+    private Segment next() {
+      Segment next = following;
+      if (next == null) {
+        NEXT.compareAndSet(this, null, new Segment(number + 1));
+        next = following;
       }
+      return next;
     }
   }
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An immutable table for choosing an index in [0, n) with given weights in constant time, by Walker's alias
+ * method as constructed by Vose ("A Linear Algorithm For Generating Random Numbers With a Given Distribution",
+ * IEEE Transactions on Software Engineering, 1991).
+ * <p>
+ * Each of the n columns holds its own index with some probability and an alias index otherwise. A draw picks a
+ * column uniformly and then one of the two entries, so the cost does not depend on n or on the weights, and the
+ * table can be shared by any number of threads.
+ */
+public final class AliasTable {
+  private final double[] probability;
+  private final int[] alias;
+
+  /**
+   * @param weights The relative weight of each index. Weights must be finite and non-negative, and at least one
+   *     must be positive.
+   * @throws IllegalArgumentException if the weights can't be normalized.
+   */
+  public AliasTable(double[] weights) {
+    int n = weights.length;
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight >= 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Invalid weight: " + weight);
+      }
+      sum += weight;
+    }
+    if (!(sum > 0)) {
+      throw new IllegalArgumentException("At least one weight must be positive");
+    }
+
+    probability = new double[n];
+    alias = new int[n];
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / sum;
+      if (scaled[i] < 1) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+
+    // Fill each underfull column with the excess of an overfull one.
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      probability[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = (scaled[more] + scaled[less]) - 1;
+      if (scaled[more] < 1) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+    // Whatever is left is full, up to rounding error.
+    while (largeCount > 0) {
+      int i = large[--largeCount];
+      probability[i] = 1;
+      alias[i] = i;
+    }
+    while (smallCount > 0) {
+      int i = small[--smallCount];
+      probability[i] = 1;
+      alias[i] = i;
+    }
+  }
+
+  /**
+   * @return The number of indexes to choose from.
+   */
+  public int size() {
+    return probability.length;
+  }
+
+  /**
+   * Choose the next index.
+   */
+  public int next() {
+    return next(ThreadLocalRandom.current().nextDouble());
+  }
+
+  /**
+   * Choose the index for a uniform random number in [0, 1). The integer part of u * n picks the column and the
+   * fraction picks between the column's own index and its alias, so a single random number is enough.
+   */
+  int next(double u) {
+    double scaledU = u * probability.length;
+    int column = Math.min((int) scaledU, probability.length - 1);
+    return scaledU - column < probability[column] ? column : alias[column];
+  }
+}
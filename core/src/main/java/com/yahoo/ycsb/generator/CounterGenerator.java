@@ -35,11 +35,21 @@ public class CounterGenerator extends NumberGenerator {
 
   @Override
   public Long nextValue() {
+    return nextLong();
+  }
+
+  @Override
+  public long nextLong() {
     return counter.getAndIncrement();
   }
 
   @Override
   public Long lastValue() {
+    return lastLong();
+  }
+
+  @Override
+  public long lastLong() {
     return counter.get() - 1;
   }
 
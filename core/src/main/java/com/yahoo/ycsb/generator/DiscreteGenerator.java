@@ -18,26 +18,34 @@
 package com.yahoo.ycsb.generator;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Generates a distribution by choosing from a discrete set of values.
+ * <p>
+ * The values are drawn from an {@link AliasTable}, which is rebuilt whenever a value is added, so choosing one costs
+ * the same however many values there are. {@link #nextIndex()} returns the position of the chosen value instead of
+ * the value itself, for callers that dispatch on it.
  */
 public class DiscreteGenerator extends Generator<String> {
-  private static class Pair {
-    private double weight;
-    private String value;
+  /**
+   * The values and the table to choose them with, replaced as a whole by {@link #addValue(double, String)}.
+   */
+  private static final class Choices {
+    private final String[] values;
+    private final AliasTable table;
 
-    Pair(double weight, String value) {
-      this.weight = weight;
-      this.value = requireNonNull(value);
+    Choices(String[] values, AliasTable table) {
+      this.values = values;
+      this.table = table;
     }
   }
 
-  private final Collection<Pair> values = new ArrayList<>();
+  private final List<Double> weights = new ArrayList<>();
+  private final List<String> values = new ArrayList<>();
+  private volatile Choices choices;
   private String lastvalue;
 
   public DiscreteGenerator() {
@@ -45,29 +53,22 @@ public class DiscreteGenerator extends Generator<String> {
   }
 
   /**
-   * Generate the next string in the distribution.
+   * Generate the next string in the distribution, or null if no value with a positive weight was added.
    */
   @Override
   public String nextValue() {
-    double sum = 0;
-
-    for (Pair p : values) {
-      sum += p.weight;
-    }
-
-    double val = ThreadLocalRandom.current().nextDouble();
-
-    for (Pair p : values) {
-      double pw = p.weight / sum;
-      if (val < pw) {
-        return p.value;
-      }
-
-      val -= pw;
-    }
-
-    throw new AssertionError("oops. should not get here.");
+    Choices current = choices;
+    return current == null ? null : current.values[current.table.next()];
+  }
 
+  /**
+   * Generate the next value in the distribution as its position among the values, in the order they were added.
+   *
+   * @return The index of the value, or -1 if no value with a positive weight was added.
+   */
+  public int nextIndex() {
+    Choices current = choices;
+    return current == null ? -1 : current.table.next();
   }
 
   /**
@@ -83,8 +84,32 @@ public class DiscreteGenerator extends Generator<String> {
     return lastvalue;
   }
 
-  public void addValue(double weight, String value) {
-    values.add(new Pair(weight, value));
+  public synchronized void addValue(double weight, String value) {
+    weights.add(weight);
+    values.add(requireNonNull(value));
+
+    double[] table = new double[weights.size()];
+    double sum = 0;
+    for (int i = 0; i < table.length; i++) {
+      table[i] = weights.get(i);
+      sum += table[i];
+    }
+    if (sum > 0) {
+      choices = new Choices(values.toArray(new String[0]), new AliasTable(table));
+    }
+  }
+
+  /**
+   * @return The number of values added.
+   */
+  public synchronized int size() {
+    return values.size();
   }
 
+  /**
+   * @return The value at the given position, in the order the values were added.
+   */
+  public synchronized String getValue(int index) {
+    return values.get(index);
+  }
 }
@@ -66,6 +66,22 @@ public class ExponentialGenerator extends NumberGenerator {
    */
   @Override
   public Double nextValue() {
+    Double ret = nextDouble();
+    setLastValue(ret);
+    return ret;
+  }
+
+  /**
+   * Generate the next item, truncated to a long.
+   */
+  @Override
+  public long nextLong() {
+    long ret = (long) nextDouble();
+    setLastValue(ret);
+    return ret;
+  }
+
+  private double nextDouble() {
     return -Math.log(ThreadLocalRandom.current().nextDouble()) / gamma;
   }
 
@@ -17,41 +17,64 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A generator, whose sequence is the lines of a file.
+ * <p>
+ * The file is read through a {@link TraceFile}, so it may be split into several comma separated, optionally gzipped
+ * segments. Threads claim lines with an atomic cursor, so they never wait for each other.
  */
 public class FileGenerator extends Generator<String> {
   private final String filename;
+  private final TraceFile trace;
+  private final boolean wrap;
+  private final AtomicLong cursor = new AtomicLong();
   private String current;
-  private BufferedReader reader;
 
   /**
    * Create a FileGenerator with the given file.
    * @param filename The file to read lines from.
    */
   public FileGenerator(String filename) {
-    this.filename = filename;
-    reloadFile();
+    this(filename, false);
   }
 
   /**
-   * Return the next string of the sequence, ie the next line of the file.
+   * Create a FileGenerator with the given file.
+   * @param filename The file to read lines from.
+   * @param wrap Whether to start over from the first line after the last one, instead of returning null.
    */
-  @Override
-  public synchronized String nextValue() {
+  public FileGenerator(String filename, boolean wrap) {
+    this.filename = filename;
+    this.wrap = wrap;
     try {
-      current = reader.readLine();
-      return current;
+      trace = new TraceFile(filename);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Return the next string of the sequence, ie the next line of the file, or null after the last line
+   * unless the generator wraps around.
+   */
+  @Override
+  public String nextValue() {
+    long index = cursor.getAndIncrement();
+    long lines = trace.lines();
+    if (index >= lines) {
+      if (!wrap || lines == 0) {
+        current = null;
+        return null;
+      }
+      index %= lines;
+    }
+    current = trace.line(index);
+    return current;
+  }
+
   /**
    * Return the previous read line.
    */
@@ -61,14 +84,10 @@ public class FileGenerator extends Generator<String> {
   }
 
   /**
-   * Reopen the file to reuse values.
+   * Start over from the first line to reuse values.
    */
-  public synchronized void reloadFile() {
-    try (Reader r = reader) {
-      System.err.println("Reload " + filename);
-      reader = new BufferedReader(new FileReader(filename));
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  public void reloadFile() {
+    System.err.println("Reload " + filename);
+    cursor.set(0);
   }
 }
@@ -88,6 +88,11 @@ public class HistogramGenerator extends NumberGenerator {
 
   @Override
   public Long nextValue() {
+    return nextLong();
+  }
+
+  @Override
+  public long nextLong() {
     int number = ThreadLocalRandom.current().nextInt((int) area);
     int i;
 
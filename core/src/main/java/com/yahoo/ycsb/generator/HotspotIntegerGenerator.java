@@ -23,9 +23,10 @@ import java.util.concurrent.ThreadLocalRandom;
  * Generate integers resembling a hotspot distribution where x% of operations
  * access y% of data items. The parameters specify the bounds for the numbers,
  * the percentage of the of the interval which comprises the hot set and
- * the percentage of operations that access the hot set. Numbers of the hot set are
- * always smaller than any number in the cold set. Elements from the hot set and
- * the cold set are chose using a uniform distribution.
+ * the percentage of operations that access the hot set. Unless an offset is given, numbers
+ * of the hot set are always smaller than any number in the cold set; an offset moves the
+ * hot set up by that fraction of the interval, wrapping around at the upper bound.
+ * Elements from the hot set and the cold set are chose using a uniform distribution.
  *
  */
 public class HotspotIntegerGenerator extends NumberGenerator {
@@ -36,6 +37,8 @@ public class HotspotIntegerGenerator extends NumberGenerator {
   private final long coldInterval;
   private final double hotsetFraction;
   private final double hotOpnFraction;
+  private final long interval;
+  private final long hotOffset;
 
   /**
    * Create a generator for Hotspot distributions.
@@ -47,6 +50,20 @@ public class HotspotIntegerGenerator extends NumberGenerator {
    */
   public HotspotIntegerGenerator(long lowerBound, long upperBound,
                                  double hotsetFraction, double hotOpnFraction) {
+    this(lowerBound, upperBound, hotsetFraction, hotOpnFraction, 0.0);
+  }
+
+  /**
+   * Create a generator for Hotspot distributions whose hot set starts part way into the interval.
+   *
+   * @param lowerBound lower bound of the distribution.
+   * @param upperBound upper bound of the distribution.
+   * @param hotsetFraction percentage of data item
+   * @param hotOpnFraction percentage of operations accessing the hot set.
+   * @param hotsetOffsetFraction where the hot set starts, as a percentage of the interval.
+   */
+  public HotspotIntegerGenerator(long lowerBound, long upperBound,
+                                 double hotsetFraction, double hotOpnFraction, double hotsetOffsetFraction) {
     if (hotsetFraction < 0.0 || hotsetFraction > 1.0) {
       System.err.println("Hotset fraction out of range. Setting to 0.0");
       hotsetFraction = 0.0;
@@ -55,6 +72,10 @@ public class HotspotIntegerGenerator extends NumberGenerator {
       System.err.println("Hot operation fraction out of range. Setting to 0.0");
       hotOpnFraction = 0.0;
     }
+    if (hotsetOffsetFraction < 0.0 || hotsetOffsetFraction >= 1.0) {
+      System.err.println("Hotset offset fraction out of range. Setting to 0.0");
+      hotsetOffsetFraction = 0.0;
+    }
     if (lowerBound > upperBound) {
       System.err.println("Upper bound of Hotspot generator smaller than the lower bound. " +
           "Swapping the values.");
@@ -65,23 +86,33 @@ public class HotspotIntegerGenerator extends NumberGenerator {
     this.lowerBound = lowerBound;
     this.upperBound = upperBound;
     this.hotsetFraction = hotsetFraction;
-    long interval = upperBound - lowerBound + 1;
+    this.interval = upperBound - lowerBound + 1;
     this.hotInterval = (int) (interval * hotsetFraction);
     this.coldInterval = interval - hotInterval;
     this.hotOpnFraction = hotOpnFraction;
+    this.hotOffset = (long) (interval * hotsetOffsetFraction);
   }
 
   @Override
   public Long nextValue() {
+    return nextLong();
+  }
+
+  @Override
+  public long nextLong() {
     long value = 0;
     Random random = ThreadLocalRandom.current();
     if (random.nextDouble() < hotOpnFraction) {
       // Choose a value from the hot set.
-      value = lowerBound + Math.abs(random.nextLong()) % hotInterval;
+      value = Math.abs(random.nextLong()) % hotInterval;
     } else {
       // Choose a value from the cold set.
-      value = lowerBound + hotInterval + Math.abs(random.nextLong()) % coldInterval;
+      value = hotInterval + Math.abs(random.nextLong()) % coldInterval;
+    }
+    if (hotOffset != 0) {
+      value = (value + hotOffset) % interval;
     }
+    value += lowerBound;
     setLastValue(value);
     return value;
   }
@@ -114,9 +145,27 @@ public class HotspotIntegerGenerator extends NumberGenerator {
     return hotOpnFraction;
   }
 
+  /**
+   * @return the first value of the hot set
+   */
+  public long getHotsetStart() {
+    return lowerBound + hotOffset;
+  }
+
   @Override
   public double mean() {
-    return hotOpnFraction * (lowerBound + hotInterval / 2.0)
-        + (1 - hotOpnFraction) * (lowerBound + hotInterval + coldInterval / 2.0);
+    return hotOpnFraction * mean(hotOffset, hotInterval)
+        + (1 - hotOpnFraction) * mean(hotOffset + hotInterval, coldInterval);
+  }
+
+  /**
+   * The mean of the values of a set that starts start values into the interval, wrapping around at its end.
+   */
+  private double mean(long start, long length) {
+    long first = start % interval;
+    long unwrapped = Math.min(length, interval - first);
+    long wrapped = length - unwrapped;
+    double sum = unwrapped * (first + unwrapped / 2.0) + wrapped * (wrapped / 2.0);
+    return lowerBound + (length == 0 ? first : sum / length);
   }
 }
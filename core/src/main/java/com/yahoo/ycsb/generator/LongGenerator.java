@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * A generator of long values that hands them out as primitives, so that drawing a value does not allocate.
+ * Every {@link NumberGenerator} is one; the generators on the workloads' hot paths implement it natively, while
+ * the others fall back to unboxing {@link NumberGenerator#nextValue()}.
+ */
+public interface LongGenerator {
+  /**
+   * Generate the next value in the distribution.
+   */
+  long nextLong();
+
+  /**
+   * Return the previous value generated by the distribution, as {@link Generator#lastValue()} does.
+   */
+  long lastLong();
+}
@@ -19,23 +19,85 @@ package com.yahoo.ycsb.generator;
 
 /**
  * A generator that is capable of generating numeric values.
- *
+ * <p>
+ * The last value is kept per thread: many client threads draw from the same generator, and a single field written
+ * on every call would bounce its cache line between all of them. A thread that has not generated a value yet sees
+ * the first value generated by any thread.
  */
-public abstract class NumberGenerator extends Generator<Number> {
-  private Number lastVal;
+public abstract class NumberGenerator extends Generator<Number> implements LongGenerator {
+  private final ThreadLocal<LastValue> lastVal = new ThreadLocal<>();
+  private volatile Number firstVal;
+
+  /**
+   * The last value generated by one thread.
+   */
+  private static final class LastValue {
+    private long value;
+    /**
+     * The value as it was set, or null if it was set as a long and is boxed on demand.
+     */
+    private Number number;
+  }
+
+  private LastValue slot(Number initial) {
+    LastValue slot = lastVal.get();
+    if (slot == null) {
+      slot = new LastValue();
+      lastVal.set(slot);
+      if (firstVal == null) {
+        firstVal = initial;
+      }
+    }
+    return slot;
+  }
 
   /**
    * Set the last value generated. NumberGenerator subclasses must use this call
    * to properly set the last value, or the {@link #lastValue()} calls won't work.
    */
   protected void setLastValue(Number last) {
-    lastVal = last;
+    LastValue slot = slot(last);
+    slot.number = last;
+    slot.value = last == null ? 0 : last.longValue();
   }
 
+  /**
+   * Set the last value generated, without boxing it.
+   */
+  protected void setLastValue(long last) {
+    LastValue slot = lastVal.get();
+    if (slot == null) {
+      slot = slot(last);
+    }
+    slot.number = null;
+    slot.value = last;
+  }
 
   @Override
   public Number lastValue() {
-    return lastVal;
+    LastValue slot = lastVal.get();
+    if (slot == null) {
+      return firstVal;
+    }
+    return slot.number != null ? slot.number : Long.valueOf(slot.value);
+  }
+
+  /**
+   * Subclasses that generate longs should override this to produce them without boxing.
+   */
+  @Override
+  public long nextLong() {
+    return nextValue().longValue();
+  }
+
+  @Override
+  public long lastLong() {
+    LastValue slot = lastVal.get();
+    if (slot != null) {
+      return slot.value;
+    }
+    Number first = firstVal;
+    return first == null ? 0 : first.longValue();
   }
 
   /**
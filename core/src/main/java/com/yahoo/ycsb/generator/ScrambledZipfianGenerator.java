@@ -75,7 +75,7 @@ zipfian constant
 
   /**
    * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you
-   * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+   * use a zipfian constant other than 0.99, zeta is computed for it instead of using the precomputed value.
    *
    * @param min             The smallest integer to generate in the sequence.
    * @param max             The largest integer to generate in the sequence.
@@ -99,8 +99,12 @@ zipfian constant
    */
   @Override
   public Long nextValue() {
-    long ret = gen.nextValue();
-    ret = min + Utils.fnvhash64(ret) % itemcount;
+    return nextLong();
+  }
+
+  @Override
+  public long nextLong() {
+    long ret = min + Utils.fnvhash64(gen.nextLong()) % itemcount;
     setLastValue(ret);
     return ret;
   }
@@ -26,7 +26,7 @@ public class SkewedLatestGenerator extends NumberGenerator {
 
   public SkewedLatestGenerator(CounterGenerator basis) {
     this.basis = basis;
-    zipfian = new ZipfianGenerator(this.basis.lastValue());
+    zipfian = new ZipfianGenerator(this.basis.lastLong());
     nextValue();
   }
 
@@ -36,7 +36,12 @@ public class SkewedLatestGenerator extends NumberGenerator {
    */
   @Override
   public Long nextValue() {
-    long max = basis.lastValue();
+    return nextLong();
+  }
+
+  @Override
+  public long nextLong() {
+    long max = basis.lastLong();
     long next = max - zipfian.nextLong(max);
     setLastValue(next);
     return next;
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The lines of one or more trace files, memory-mapped and indexed so that any line can be read by any number of
+ * threads at once without locking.
+ * <p>
+ * The files (segments) are concatenated in the order given. Each is mapped in windows of at most
+ * {@link #WINDOW_SIZE} bytes that end on a line boundary, and the index holds one int per line: its offset within
+ * its window. Lines end with '\n' or "\r\n" and are decoded as UTF-8. Segments whose name ends in ".gz" are
+ * decompressed to a temporary file first, which is deleted by {@link #close()}.
+ */
+public final class TraceFile implements Closeable {
+  /**
+   * The largest part of a file mapped at once, and so also the longest possible line.
+   */
+  static final int WINDOW_SIZE = 1 << 30;
+
+  private final int windowSize;
+  private final List<File> temporaryFiles = new ArrayList<>();
+  private MappedByteBuffer[] windows = new MappedByteBuffer[0];
+  /**
+   * For each window, the offset of each of its lines, followed by the offset just past its last line.
+   */
+  private int[][] offsets = new int[0][];
+  /**
+   * For each window, the index of its first line; one more entry holds the number of lines.
+   */
+  private long[] firstLine = {0};
+
+  /**
+   * Map and index the given trace files.
+   *
+   * @param paths The files to read, separated by commas.
+   * @throws IOException if a file can't be read, or has a line longer than {@link #WINDOW_SIZE}.
+   */
+  public TraceFile(String paths) throws IOException {
+    this(paths, WINDOW_SIZE);
+  }
+
+  TraceFile(String paths, int windowSize) throws IOException {
+    this.windowSize = windowSize;
+    try {
+      for (String path : paths.split(",")) {
+        File file = new File(path.trim());
+        if (file.getName().endsWith(".gz")) {
+          file = decompress(file);
+        }
+        map(file);
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return The number of lines in all the segments together.
+   */
+  public long lines() {
+    return firstLine[windows.length];
+  }
+
+  /**
+   * Read one line, without its line terminator.
+   *
+   * @param index The index of the line, from 0 to {@link #lines()} - 1.
+   */
+  public String line(long index) {
+    if (index < 0 || index >= lines()) {
+      throw new IndexOutOfBoundsException("Line " + index + " of " + lines());
+    }
+    int window = Arrays.binarySearch(firstLine, index);
+    if (window < 0) {
+      window = -window - 2;
+    }
+    int line = (int) (index - firstLine[window]);
+    MappedByteBuffer buffer = windows[window];
+    int start = offsets[window][line];
+    int end = offsets[window][line + 1];
+    if (end > start && buffer.get(end - 1) == '\n') {
+      end--;
+      if (end > start && buffer.get(end - 1) == '\r') {
+        end--;
+      }
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Delete the temporary files of decompressed segments. The mapped files are unmapped once this object is
+   * garbage collected.
+   */
+  @Override
+  public void close() {
+    for (File file : temporaryFiles) {
+      if (!file.delete()) {
+        file.deleteOnExit();
+      }
+    }
+    temporaryFiles.clear();
+  }
+
+  private File decompress(File file) throws IOException {
+    File decompressed = File.createTempFile("trace", ".txt");
+    decompressed.deleteOnExit();
+    temporaryFiles.add(decompressed);
+    try (InputStream in = new GZIPInputStream(new FileInputStream(file), 1 << 16)) {
+      Files.copy(in, decompressed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    return decompressed;
+  }
+
+  private void map(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        int length = (int) Math.min(size - position, windowSize);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        boolean last = position + length == size;
+        int[] lineOffsets = index(buffer, length, last);
+        int end = lineOffsets[lineOffsets.length - 1];
+        if (end == 0) {
+          throw new IOException("Line longer than " + windowSize + " bytes at offset " + position + " of " + file);
+        }
+        addWindow(buffer, lineOffsets);
+        position += end;
+      }
+    }
+  }
+
+  /**
+   * Find the lines of a window: the offset of each, then the offset just past the last one. Unless this is the
+   * last window of its file, a line without a terminator is left for the next window.
+   */
+  private static int[] index(MappedByteBuffer buffer, int length, boolean last) {
+    int[] lineOffsets = new int[1024];
+    int count = 0;
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(i) == '\n') {
+        if (count + 2 >= lineOffsets.length) {
+          lineOffsets = Arrays.copyOf(lineOffsets, lineOffsets.length * 2);
+        }
+        lineOffsets[count++] = start;
+        start = i + 1;
+      }
+    }
+    if (last && start < length) {
+      lineOffsets[count++] = start;
+      start = length;
+    }
+    lineOffsets[count] = start;
+    return Arrays.copyOf(lineOffsets, count + 1);
+  }
+
+  private void addWindow(MappedByteBuffer buffer, int[] lineOffsets) {
+    int n = windows.length;
+    windows = Arrays.copyOf(windows, n + 1);
+    windows[n] = buffer;
+    offsets = Arrays.copyOf(offsets, n + 1);
+    offsets[n] = lineOffsets;
+    firstLine = Arrays.copyOf(firstLine, n + 2);
+    firstLine[n + 1] = firstLine[n] + lineOffsets.length - 1;
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Computes partial sums of the zeta series, sum(1 / i^theta), in time that does not depend on the number of terms.
+ * <p>
+ * Terms below {@link #EXACT_TERMS} are added one by one. The rest of the range is summed with the Euler-Maclaurin
+ * formula: the integral of x^-theta, the mean of the end points and three Bernoulli correction terms. From
+ * {@link #EXACT_TERMS} on, the error of the formula is far below the rounding error of a double, so the result is
+ * as good as the plain loop (better, for billions of terms, since the loop accumulates rounding error) while
+ * costing a handful of Math.pow calls instead of one per item.
+ */
+final class Zeta {
+  /**
+   * Terms with an index below this, and ranges shorter than this, are summed exactly.
+   */
+  static final long EXACT_TERMS = 1000;
+
+  private Zeta() {
+    // utility class
+  }
+
+  /**
+   * @return zeta(n, theta), the sum of 1 / i^theta for i from 1 to n.
+   */
+  static double zeta(long n, double theta) {
+    return sum(1, n, theta);
+  }
+
+  /**
+   * @return initialsum plus the sum of 1 / i^theta for i from st + 1 to n, i.e. zeta(n, theta) given that
+   *     initialsum is zeta(st, theta).
+   */
+  static double zeta(long st, long n, double theta, double initialsum) {
+    return initialsum + sum(st + 1, n, theta);
+  }
+
+  /**
+   * @return the sum of 1 / i^theta for i from first to last inclusive, or 0 if the range is empty.
+   */
+  static double sum(long first, long last, double theta) {
+    if (last < first) {
+      return 0;
+    }
+    if (last - first < EXACT_TERMS) {
+      return exact(first, last, theta);
+    }
+    double sum = 0;
+    long from = first;
+    if (from < EXACT_TERMS) {
+      sum = exact(from, EXACT_TERMS - 1, theta);
+      from = EXACT_TERMS;
+    }
+    return sum + eulerMaclaurin(from, last, theta);
+  }
+
+  private static double exact(long first, long last, double theta) {
+    double sum = 0;
+    for (long i = first; i <= last; i++) {
+      sum += 1 / Math.pow(i, theta);
+    }
+    return sum;
+  }
+
+  /**
+   * The Euler-Maclaurin approximation of the sum of f(i) = i^-theta for i from a to b:
+   * <pre>
+   *   integral(a, b, f) + (f(a) + f(b)) / 2 + sum over k of B(2k) / (2k)! * (f'(2k-1)(b) - f'(2k-1)(a))
+   * </pre>
+   * with B(2) = 1/6, B(4) = -1/30 and B(6) = 1/42. The odd derivatives of f are
+   * -theta (theta+1) ... (theta+2k-2) x^(-theta-2k+1).
+   */
+  private static double eulerMaclaurin(long a, long b, double theta) {
+    double da = a;
+    double db = b;
+    double fa = Math.pow(da, -theta);
+    double fb = Math.pow(db, -theta);
+
+    double integral;
+    if (theta == 1) {
+      integral = Math.log(db / da);
+    } else {
+      integral = (db * fb - da * fa) / (1 - theta);
+    }
+
+    double c1 = -theta;
+    double c3 = c1 * (theta + 1) * (theta + 2);
+    double c5 = c3 * (theta + 3) * (theta + 4);
+    double a2 = da * da;
+    double b2 = db * db;
+    double d1 = c1 * (fb / db - fa / da);
+    double d3 = c3 * (fb / (db * b2) - fa / (da * a2));
+    double d5 = c5 * (fb / (db * b2 * b2) - fa / (da * a2 * a2));
+
+    return integral + (fa + fb) / 2 + d1 / 12 - d3 / 720 + d5 / 30240;
+  }
+}
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb.generator;
 
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A generator of a zipfian distribution. It produces a sequence of items, such that some items are more popular than
@@ -30,12 +31,10 @@ import java.util.concurrent.ThreadLocalRandom;
  * popular, and so on (or min is the most popular, min+1 the next most popular, etc.) If you don't want this clustering,
  * and instead want the popular items scattered throughout the item space, then use ScrambledZipfianGenerator instead.
  *
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a
- * minute for 100 million objects). This is because certain mathematical values need to be computed to properly
- * generate a zipfian skew, and one of those values (zeta) is a sum sequence from 1 to n, where n is the itemcount.
- * Note that if you increase the number of items in the set, we can compute a new zeta incrementally, so it should be
- * fast unless you have added millions of items. However, if you decrease the number of items, we recompute zeta from
- * scratch, so this can take a long time.
+ * Generating a zipfian skew needs zeta, a sum sequence from 1 to n where n is the itemcount. Only the first terms
+ * of it are summed one by one; the tail is computed in closed form (see {@link Zeta}), so creating a generator over
+ * billions of items is as cheap as over thousands. When the number of items changes, the thread that notices computes
+ * the new zeta and publishes it without a lock, so other threads never wait for it.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
@@ -60,17 +59,17 @@ public class ZipfianGenerator extends NumberGenerator {
   /**
    * Computed parameters for generating the distribution.
    */
-  private double alpha, zetan, eta, theta, zeta2theta;
+  private final double alpha, theta, zeta2theta;
 
   /**
-   * The number of items used to compute zetan the last time.
+   * The parameters that depend on the itemcount, replaced as a whole when the itemcount changes.
    */
-  private long countforzeta;
+  private final AtomicReference<ZetaState> state = new AtomicReference<>();
 
   /**
    * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from,
    * this code will incrementally compute a new zeta value for the larger itemcount. However, if you decrease the
-   * number of items, the code computes zeta from scratch; this is expensive for large itemsets.
+   * number of items, the code computes zeta from scratch.
    * Usually this is not intentional; e.g. one thread thinks the number of items is 1001 and calls "nextLong()" with
    * that item count; then another thread who thinks the number of items is 1000 calls nextLong() with itemcount=1000
    * triggering the expensive recomputation. (It is expensive for 100 million items, not really for 1000 items.) Why
@@ -137,12 +136,10 @@ public class ZipfianGenerator extends NumberGenerator {
 
     theta = this.zipfianconstant;
 
-    zeta2theta = zeta(2, theta);
+    zeta2theta = zetastatic(2, theta);
     
     alpha = 1.0 / (1.0 - theta);
-    this.zetan = zetan;
-    countforzeta = items;
-    eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / this.zetan);
+    state.set(new ZetaState(items, zetan));
 
     nextValue();
   }
@@ -150,61 +147,77 @@ public class ZipfianGenerator extends NumberGenerator {
   /**************************************************************************/
 
   /**
-   * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items,
-   * using the zipfian constant thetaVal. Remember the value of n, so if we change the itemcount, we can recompute zeta.
-   *
-   * @param n The number of items to compute zeta over.
-   * @param thetaVal The zipfian constant.
+   * The zeta constant for a distribution with n items and the eta derived from it. Immutable, so that a thread
+   * always generates a value from a matching pair even while another thread publishes a new one.
    */
-  double zeta(long n, double thetaVal) {
-    countforzeta = n;
-    return zetastatic(n, thetaVal);
+  private final class ZetaState {
+    /**
+     * The number of items zetan was computed for.
+     */
+    private final long countforzeta;
+    private final double zetan;
+    private final double eta;
+
+    private ZetaState(long countforzeta, double zetan) {
+      this.countforzeta = countforzeta;
+      this.zetan = zetan;
+      this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
+    }
   }
 
   /**
    * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items,
-   * using the zipfian constant theta. This is a static version of the function which will not remember n.
+   * using the zipfian constant theta.
    * @param n The number of items to compute zeta over.
    * @param theta The zipfian constant.
    */
   static double zetastatic(long n, double theta) {
-    return zetastatic(0, n, theta, 0);
+    return Zeta.zeta(n, theta);
   }
 
   /**
    * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-   * has n items now but used to have st items. Use the zipfian constant thetaVal. Remember the new value of
-   * n so that if we change the itemcount, we'll know to recompute zeta.
-   *
+   * has n items now but used to have st items. Use the zipfian constant theta.
    * @param st The number of items used to compute the last initialsum
    * @param n The number of items to compute zeta over.
-   * @param thetaVal The zipfian constant.
+   * @param theta The zipfian constant.
    * @param initialsum The value of zeta we are computing incrementally from.
    */
-  double zeta(long st, long n, double thetaVal, double initialsum) {
-    countforzeta = n;
-    return zetastatic(st, n, thetaVal, initialsum);
+  static double zetastatic(long st, long n, double theta, double initialsum) {
+    return Zeta.zeta(st, n, theta, initialsum);
   }
 
   /**
-   * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-   * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of
-   * n so that if we change the itemcount, we'll know to recompute zeta.
-   * @param st The number of items used to compute the last initialsum
-   * @param n The number of items to compute zeta over.
-   * @param theta The zipfian constant.
-   * @param initialsum The value of zeta we are computing incrementally from.
+   * Returns the state to generate the next value with for the given itemcount, computing and publishing a new one
+   * if the itemcount has grown (or shrunk, if allowed). If another thread publishes first, its state is used
+   * instead; a state for more items than asked for is fine, as only allowitemcountdecrease forces a recomputation.
    */
-  static double zetastatic(long st, long n, double theta, double initialsum) {
-    double sum = initialsum;
-    for (long i = st; i < n; i++) {
-
-      sum += 1 / (Math.pow(i + 1, theta));
+  private ZetaState stateFor(long itemcount) {
+    ZetaState current = state.get();
+    while (itemcount != current.countforzeta) {
+      ZetaState next;
+      if (itemcount > current.countforzeta) {
+        //we have added more items. can compute zetan incrementally, which is cheaper
+        next = new ZetaState(itemcount, zetastatic(current.countforzeta, itemcount, theta, current.zetan));
+      } else if (allowitemcountdecrease) {
+        //have to start over with zetan
+
+        //TODO: can also have a negative incremental computation, e.g. if you decrease the number of items,
+        // then just subtract the zeta sequence terms for the items that went away.
+
+        System.err.println("WARNING: Recomputing Zipfian distribtion. This should be avoided. " +
+            "(itemcount=" + itemcount + " countforzeta=" + current.countforzeta + ")");
+
+        next = new ZetaState(itemcount, zetastatic(itemcount, theta));
+      } else {
+        return current;
+      }
+      if (state.compareAndSet(current, next)) {
+        return next;
+      }
+      current = state.get();
     }
-
-    //System.out.println("countforzeta="+countforzeta);
-
-    return sum;
+    return current;
   }
 
   /****************************************************************************************/
@@ -219,46 +232,19 @@ public class ZipfianGenerator extends NumberGenerator {
   long nextLong(long itemcount) {
     //from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-    if (itemcount != countforzeta) {
-
-      //have to recompute zetan and eta, since they depend on itemcount
-      synchronized (this) {
-        if (itemcount > countforzeta) {
-          //System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+"
-          // countforzeta="+countforzeta+")");
-
-          //we have added more items. can compute zetan incrementally, which is cheaper
-          zetan = zeta(countforzeta, itemcount, theta, zetan);
-          eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
-        } else if ((itemcount < countforzeta) && (allowitemcountdecrease)) {
-          //have to start over with zetan
-          //note : for large itemsets, this is very slow. so don't do it!
-
-          //TODO: can also have a negative incremental computation, e.g. if you decrease the number of items,
-          // then just subtract the zeta sequence terms for the items that went away. This would be faster than
-          // recomputing from scratch when the number of items decreases
-
-          System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. " +
-              "(itemcount=" + itemcount + " countforzeta=" + countforzeta + ")");
-
-          zetan = zeta(itemcount, theta);
-          eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
-        }
-      }
-    }
+    ZetaState zeta = stateFor(itemcount);
 
     double u = ThreadLocalRandom.current().nextDouble();
-    double uz = u * zetan;
+    double uz = u * zeta.zetan;
 
+    long ret;
     if (uz < 1.0) {
-      return base;
-    }
-
-    if (uz < 1.0 + Math.pow(0.5, theta)) {
-      return base + 1;
+      ret = base;
+    } else if (uz < 1.0 + Math.pow(0.5, theta)) {
+      ret = base + 1;
+    } else {
+      ret = base + (long) ((itemcount) * Math.pow(zeta.eta * u - zeta.eta + 1, alpha));
     }
-
-    long ret = base + (long) ((itemcount) * Math.pow(eta * u - eta + 1, alpha));
     setLastValue(ret);
     return ret;
   }
@@ -274,6 +260,11 @@ public class ZipfianGenerator extends NumberGenerator {
     return nextLong(items);
   }
 
+  @Override
+  public long nextLong() {
+    return nextLong(items);
+  }
+
   public static void main(String[] args) {
     new ZipfianGenerator(ScrambledZipfianGenerator.ITEM_COUNT);
   }
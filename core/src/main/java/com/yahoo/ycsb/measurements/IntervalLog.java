@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the statistics of every metric for every status interval as JSON lines, one object per
+ * metric and interval, for example:
+ * <pre>
+ * {"time":1539860000000,"interval_ms":1000,"op":"READ","count":95012,"ops_per_sec":95012.0,
+ *  "mean_us":41.2,"min_us":9,"p50_us":35,"p99_us":130,"p999_us":410,"max_us":2980}
+ * </pre>
+ * (on one line). "time" is the end of the interval in milliseconds since the epoch. Latencies are
+ * left out when nothing was measured, or when the measurement type cannot tell them: raw only logs
+ * the mean, min and max, and timeseries only the mean. The log is flushed after every interval, so
+ * it can be followed while the benchmark runs.
+ */
+public class IntervalLog {
+  private final Writer out;
+  private final StringBuilder line = new StringBuilder();
+  private boolean failed = false;
+
+  public IntervalLog(String path) throws IOException {
+    out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes one metric's statistics for the interval of intervalMs that ended at timeMs.
+   */
+  public void write(long timeMs, long intervalMs, String name, IntervalStats stats) {
+    line.setLength(0);
+    line.append("{\"time\":").append(timeMs)
+        .append(",\"interval_ms\":").append(intervalMs)
+        .append(",\"op\":\"");
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c == '"' || c == '\\') {
+        line.append('\\');
+      }
+      line.append(c);
+    }
+    line.append("\",\"count\":").append(stats.getCount())
+        .append(",\"ops_per_sec\":").append(intervalMs > 0 ? 1000.0 * stats.getCount() / intervalMs : 0.0);
+    if (stats.getCount() > 0) {
+      line.append(",\"mean_us\":").append(stats.getMean());
+      append("min_us", stats.getMin());
+      append("p50_us", stats.getP50());
+      append("p99_us", stats.getP99());
+      append("p999_us", stats.getP999());
+      append("max_us", stats.getMax());
+    }
+    line.append("}\n");
+    write();
+  }
+
+  private void append(String field, long value) {
+    if (value != IntervalStats.UNKNOWN) {
+      line.append(",\"").append(field).append("\":").append(value);
+    }
+  }
+
+  private void write() {
+    if (failed) {
+      return;
+    }
+    try {
+      out.append(line);
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Ends the interval.
+   */
+  public void flush() {
+    if (failed) {
+      return;
+    }
+    try {
+      out.flush();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void fail(IOException e) {
+    // losing the log is no reason to stop the benchmark
+    System.err.println("Could not write the interval log, no longer logging: " + e);
+    failed = true;
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+/**
+ * The statistics of one metric over one status interval. Latencies are in microseconds; those the
+ * measurement type cannot tell are {@link #UNKNOWN}.
+ */
+public final class IntervalStats {
+  public static final long UNKNOWN = -1;
+
+  private final long count;
+  private final double mean;
+  private final long min;
+  private final long p50;
+  private final long p99;
+  private final long p999;
+  private final long max;
+
+  public IntervalStats(long count, double mean, long min, long p50, long p99, long p999, long max) {
+    this.count = count;
+    this.mean = mean;
+    this.min = min;
+    this.p50 = p50;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+  }
+
+  /**
+   * Statistics with only the count and mean known.
+   */
+  public IntervalStats(long count, double mean) {
+    this(count, mean, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public long getMin() {
+    return min;
+  }
+
+  public long getP50() {
+    return p50;
+  }
+
+  public long getP99() {
+    return p99;
+  }
+
+  public long getP999() {
+    return p999;
+  }
+
+  public long getMax() {
+    return max;
+  }
+}
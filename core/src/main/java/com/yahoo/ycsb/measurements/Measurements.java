@@ -21,11 +21,24 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Collects latency measurements, and reports them when requested.
+ *
+ * Each operation name is mapped to a dense id (see {@link #getOperationId(String)}), and each thread records
+ * into its own {@link OneMeasurement.Shard} of the operation's measurement, found by id in a thread local
+ * array. Recording therefore takes no locks and shares no cache lines with other threads; the shards are
+ * merged when a summary or the final measurements are reported.
+ *
+ * A run may be divided into sections (see {@link #startSection(String)}), such as the phases of a
+ * {@link com.yahoo.ycsb.PhaseSchedule}. Each section records into measurements of its own, so every section is
+ * reported separately. A thread may also tag what it records (see {@link #setThreadTag(int)}), such as the table an
+ * operation works on, to have it reported under the tag as well as in the totals.
  */
 public class Measurements {
   /**
@@ -46,9 +59,23 @@ public class Measurements {
   public static final String MEASUREMENT_INTERVAL = "measurement.interval";
   private static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
 
+  /**
+   * How measurements are recorded: "thread" gives every recording thread its own shard of each measurement,
+   * "shared" has all threads record into one synchronized shard, which uses far less memory when there are
+   * very many threads.
+   */
+  public static final String MEASUREMENT_SHARDS_PROPERTY = "measurement.shards";
+  public static final String MEASUREMENT_SHARDS_PROPERTY_DEFAULT = "thread";
+
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
+  /**
+   * A file to write the statistics of every metric for every status interval to, as JSON lines (see
+   * {@link IntervalLog}). The status interval is set with "status.interval".
+   */
+  public static final String MEASUREMENT_INTERVAL_LOG_PROPERTY = "measurement.intervallog";
+
   private static Measurements singleton = null;
   private static Properties measurementproperties = null;
 
@@ -66,18 +93,30 @@ public class Measurements {
     return singleton;
   }
 
-  private final ConcurrentHashMap<String, OneMeasurement> opToMesurementMap;
-  private final ConcurrentHashMap<String, OneMeasurement> opToIntendedMesurementMap;
+  private final ConcurrentHashMap<String, Integer> opToId;
+  // Indexed by operation id, and grown under the lock as ids are handed out.
+  private volatile String[] idToOp;
+  private final Object lock = new Object();
+  // Guarded by the lock; the last one is the one being recorded into.
+  private final List<Section> sections = new ArrayList<>();
+  private volatile Section section;
+  // Indexed by tag id, and copied on write under the lock.
+  private volatile Tag[] tags = new Tag[0];
   private final MeasurementType measurementType;
   private final int measurementInterval;
+  private final boolean sharedShards;
   private final Properties props;
+  private final IntervalLog intervalLog;
+  private long lastSummaryMs = System.currentTimeMillis();
 
   /**
    * Create a new object with the specified properties.
    */
   public Measurements(Properties props) {
-    opToMesurementMap = new ConcurrentHashMap<>();
-    opToIntendedMesurementMap = new ConcurrentHashMap<>();
+    opToId = new ConcurrentHashMap<>();
+    idToOp = new String[16];
+    section = new Section("");
+    sections.add(section);
 
     this.props = props;
 
@@ -119,6 +158,29 @@ public class Measurements {
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_INTERVAL + "=" + mIntervalString);
     }
+
+    String mShardsString = this.props.getProperty(MEASUREMENT_SHARDS_PROPERTY, MEASUREMENT_SHARDS_PROPERTY_DEFAULT);
+    switch (mShardsString) {
+    case "thread":
+      sharedShards = false;
+      break;
+    case "shared":
+      sharedShards = true;
+      break;
+    default:
+      throw new IllegalArgumentException("unknown " + MEASUREMENT_SHARDS_PROPERTY + "=" + mShardsString);
+    }
+
+    String intervalLogPath = this.props.getProperty(MEASUREMENT_INTERVAL_LOG_PROPERTY);
+    if (intervalLogPath == null) {
+      intervalLog = null;
+    } else {
+      try {
+        intervalLog = new IntervalLog(intervalLogPath);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to open interval log " + intervalLogPath, e);
+      }
+    }
   }
 
   private OneMeasurement constructOneMeasurement(String name) {
@@ -176,17 +238,170 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /**
+   * The measurements of one section of the run, indexed by operation id and grown under the lock. Measurements
+   * are created on first use, so operations that were never measured are not reported.
+   */
+  private static final class Section {
+    private final String prefix;
+    private OneMeasurement[] op = new OneMeasurement[16];
+    private OneMeasurement[] intended = new OneMeasurement[16];
+
+    private Section(String prefix) {
+      this.prefix = prefix;
+    }
+  }
+
+  /**
+   * A tag for measurements, with the ids of the tagged operations. Those are looked up on first use, and stored
+   * one up, so that 0 means not yet looked up.
+   */
+  private static final class Tag {
+    private final String prefix;
+    private volatile int[] ids = new int[0];
+
+    private Tag(String prefix) {
+      this.prefix = prefix;
+    }
+  }
+
+  /**
+   * The shards the current thread records into, indexed by operation id. They belong to {@link #section}, and are
+   * dropped when the thread finds that another section has started.
+   */
+  private static final class ThreadShards {
+    private Section section;
+    private Tag tag;
+    private OneMeasurement.Shard[] op = new OneMeasurement.Shard[16];
+    private OneMeasurement.Shard[] intended = new OneMeasurement.Shard[16];
+  }
+
+  private ThreadShards threadShards() {
+    ThreadShards shards = tlShards.get();
+    Section current = section;
+    if (shards.section != current) {
+      shards.section = current;
+      shards.op = new OneMeasurement.Shard[shards.op.length];
+      shards.intended = new OneMeasurement.Shard[shards.intended.length];
+    }
+    return shards;
+  }
+
+  /**
+   * Start a new section of the run: from now on, every thread records into new measurements, whose names are
+   * the operation names prefixed with name and a dash. The measurements of earlier sections are kept, and
+   * exported ahead of the new section's.
+   */
+  public void startSection(String name) {
+    synchronized (lock) {
+      Section started = new Section(name + "-");
+      sections.add(started);
+      section = started;
+    }
+  }
+
+  private final ThreadLocal<ThreadShards> tlShards = new ThreadLocal<ThreadShards>() {
+    protected ThreadShards initialValue() {
+      return new ThreadShards();
+    }
+  };
+
+  /**
+   * Value for {@link #setThreadTag(int)} to stop tagging.
+   */
+  public static final int NO_TAG = -1;
+
+  /**
+   * Return the id of a tag, allocating one on first use. Look tags up once, before the run.
+   */
+  public int getTagId(String tag) {
+    synchronized (lock) {
+      String prefix = tag + "-";
+      for (int i = 0; i < tags.length; i++) {
+        if (tags[i].prefix.equals(prefix)) {
+          return i;
+        }
+      }
+      Tag[] grown = Arrays.copyOf(tags, tags.length + 1);
+      grown[tags.length] = new Tag(prefix);
+      tags = grown;
+      return tags.length - 1;
+    }
+  }
+
+  /**
+   * Tag what the calling thread records from now on, until it sets another tag or {@link #NO_TAG}: every value
+   * and return code is recorded both under its operation and under the operation prefixed with the tag and a
+   * dash, e.g. READ and orders-READ.
+   */
+  public void setThreadTag(int tagId) {
+    tlShards.get().tag = tagId == NO_TAG ? null : tags[tagId];
+  }
+
+  private int taggedId(Tag tag, int operationId) {
+    int[] ids = tag.ids;
+    if (operationId < ids.length && ids[operationId] != 0) {
+      return ids[operationId] - 1;
+    }
+    int id = getOperationId(tag.prefix + idToOp[operationId]);
+    synchronized (lock) {
+      ids = tag.ids;
+      if (operationId >= ids.length) {
+        ids = Arrays.copyOf(ids, Math.max(operationId + 1, idToOp.length));
+      }
+      ids[operationId] = id + 1;
+      tag.ids = ids;
+    }
+    return id;
+  }
+
+  /**
+   * Return the dense id of an operation name, allocating one on first use. Callers on a hot path should look
+   * the id up once and use the id based methods.
+   */
+  public int getOperationId(String operation) {
+    Integer id = opToId.get(operation);
+    if (id != null) {
+      return id;
+    }
+    synchronized (lock) {
+      id = opToId.get(operation);
+      if (id == null) {
+        id = opToId.size();
+        if (id == idToOp.length) {
+          int length = idToOp.length * 2;
+          idToOp = Arrays.copyOf(idToOp, length);
+        }
+        idToOp[id] = operation;
+        opToId.put(operation, id);
+      }
+      return id;
+    }
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
    */
   public void measure(String operation, int latency) {
+    measure(getOperationId(operation), latency);
+  }
+
+  /**
+   * Report a single value of a single metric, by operation id.
+   *
+   * @see #getOperationId(String)
+   */
+  public void measure(int operationId, int latency) {
     if (measurementInterval == 1) {
       return;
     }
     try {
-      OneMeasurement m = getOpMeasurement(operation);
-      m.measure(latency);
+      ThreadShards shards = threadShards();
+      getOpShard(shards, operationId).measure(latency);
+      if (shards.tag != null) {
+        getOpShard(shards, taggedId(shards.tag, operationId)).measure(latency);
+      }
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
       System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
@@ -200,12 +415,24 @@ public class Measurements {
    * value.
    */
   public void measureIntended(String operation, int latency) {
+    measureIntended(getOperationId(operation), latency);
+  }
+
+  /**
+   * Report a single value of a single metric, by operation id.
+   *
+   * @see #getOperationId(String)
+   */
+  public void measureIntended(int operationId, int latency) {
     if (measurementInterval == 0) {
       return;
     }
     try {
-      OneMeasurement m = getOpIntendedMeasurement(operation);
-      m.measure(latency);
+      ThreadShards shards = threadShards();
+      getIntendedShard(shards, operationId).measure(latency);
+      if (shards.tag != null) {
+        getIntendedShard(shards, taggedId(shards.tag, operationId)).measure(latency);
+      }
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
       System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
@@ -214,39 +441,93 @@ public class Measurements {
     }
   }
 
-  private OneMeasurement getOpMeasurement(String operation) {
-    OneMeasurement m = opToMesurementMap.get(operation);
-    if (m == null) {
-      m = constructOneMeasurement(operation);
-      OneMeasurement oldM = opToMesurementMap.putIfAbsent(operation, m);
-      if (oldM != null) {
-        m = oldM;
+  private OneMeasurement.Shard getOpShard(ThreadShards shards, int operationId) {
+    if (operationId < shards.op.length) {
+      OneMeasurement.Shard shard = shards.op[operationId];
+      if (shard != null) {
+        return shard;
       }
+    } else {
+      shards.op = Arrays.copyOf(shards.op, Math.max(operationId + 1, shards.op.length * 2));
     }
-    return m;
+    OneMeasurement.Shard shard = newShard(getOpMeasurement(shards.section, operationId));
+    shards.op[operationId] = shard;
+    return shard;
   }
 
-  private OneMeasurement getOpIntendedMeasurement(String operation) {
-    OneMeasurement m = opToIntendedMesurementMap.get(operation);
-    if (m == null) {
-      final String name = measurementInterval == 1 ? operation : "Intended-" + operation;
-      m = constructOneMeasurement(name);
-      OneMeasurement oldM = opToIntendedMesurementMap.putIfAbsent(operation, m);
-      if (oldM != null) {
-        m = oldM;
+  private OneMeasurement.Shard getIntendedShard(ThreadShards shards, int operationId) {
+    if (operationId < shards.intended.length) {
+      OneMeasurement.Shard shard = shards.intended[operationId];
+      if (shard != null) {
+        return shard;
       }
+    } else {
+      shards.intended = Arrays.copyOf(shards.intended, Math.max(operationId + 1, shards.intended.length * 2));
+    }
+    OneMeasurement.Shard shard = newShard(getOpIntendedMeasurement(shards.section, operationId));
+    shards.intended[operationId] = shard;
+    return shard;
+  }
+
+  private OneMeasurement.Shard newShard(OneMeasurement m) {
+    return sharedShards ? m.sharedShard() : m.newShard();
+  }
+
+  private OneMeasurement getOpMeasurement(Section s, int operationId) {
+    synchronized (lock) {
+      if (operationId >= s.op.length) {
+        s.op = Arrays.copyOf(s.op, idToOp.length);
+      }
+      OneMeasurement m = s.op[operationId];
+      if (m == null) {
+        m = constructOneMeasurement(s.prefix + idToOp[operationId]);
+        s.op[operationId] = m;
+      }
+      return m;
+    }
+  }
+
+  private OneMeasurement getOpIntendedMeasurement(Section s, int operationId) {
+    synchronized (lock) {
+      if (operationId >= s.intended.length) {
+        s.intended = Arrays.copyOf(s.intended, idToOp.length);
+      }
+      OneMeasurement m = s.intended[operationId];
+      if (m == null) {
+        final String operation = idToOp[operationId];
+        final String name = measurementInterval == 1 ? operation : "Intended-" + operation;
+        m = constructOneMeasurement(s.prefix + name);
+        s.intended[operationId] = m;
+      }
+      return m;
     }
-    return m;
   }
 
   /**
    * Report a return code for a single DB operation.
    */
   public void reportStatus(final String operation, final Status status) {
-    OneMeasurement m = measurementInterval == 1 ?
-        getOpIntendedMeasurement(operation) :
-        getOpMeasurement(operation);
-    m.reportStatus(status);
+    reportStatus(getOperationId(operation), status);
+  }
+
+  /**
+   * Report a return code for a single DB operation, by operation id.
+   *
+   * @see #getOperationId(String)
+   */
+  public void reportStatus(final int operationId, final Status status) {
+    ThreadShards shards = threadShards();
+    reportStatus(shards, operationId, status);
+    if (shards.tag != null) {
+      reportStatus(shards, taggedId(shards.tag, operationId), status);
+    }
+  }
+
+  private void reportStatus(ThreadShards shards, int operationId, Status status) {
+    OneMeasurement.Shard shard = measurementInterval == 1 ?
+        getIntendedShard(shards, operationId) :
+        getOpShard(shards, operationId);
+    shard.reportStatus(status);
   }
 
   /**
@@ -256,26 +537,61 @@ public class Measurements {
    * @throws IOException Thrown if the export failed.
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    for (OneMeasurement measurement : opToMesurementMap.values()) {
+    for (OneMeasurement measurement : getOneMeasurements()) {
       measurement.exportMeasurements(exporter);
     }
-    for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
-      measurement.exportMeasurements(exporter);
+  }
+
+  /**
+   * All metrics measured so far, in the order they are exported: section by section, and within each section
+   * the measured latencies before the intended ones.
+   */
+  public List<OneMeasurement> getOneMeasurements() {
+    List<OneMeasurement> measurements = new ArrayList<>();
+    synchronized (lock) {
+      for (Section s : sections) {
+        for (OneMeasurement measurement : s.op) {
+          if (measurement != null) {
+            measurements.add(measurement);
+          }
+        }
+        for (OneMeasurement measurement : s.intended) {
+          if (measurement != null) {
+            measurements.add(measurement);
+          }
+        }
+      }
     }
+    return measurements;
   }
 
   /**
-   * Return a one line summary of the measurements.
+   * Return a one line summary of the measurements since the last call, and log their statistics if an
+   * interval log is configured.
    */
   public synchronized String getSummary() {
+    long now = System.currentTimeMillis();
     String ret = "";
-    for (OneMeasurement m : opToMesurementMap.values()) {
+    for (OneMeasurement m : getOneMeasurements()) {
       ret += m.getSummary() + " ";
+      IntervalStats stats = m.getLastInterval();
+      if (intervalLog != null && stats != null) {
+        intervalLog.write(now, now - lastSummaryMs, m.getName(), stats);
+      }
     }
-    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
-      ret += m.getSummary() + " ";
+    if (intervalLog != null) {
+      intervalLog.flush();
     }
+    lastSummaryMs = now;
     return ret;
   }
 
+  /**
+   * Whether the statistics of every status interval are logged, in which case the status thread should run
+   * even if status is not shown.
+   */
+  public boolean hasIntervalLog() {
+    return intervalLog != null;
+  }
+
 }
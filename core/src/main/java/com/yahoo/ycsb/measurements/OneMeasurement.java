@@ -21,17 +21,32 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A single measured metric (such as READ LATENCY).
+ *
+ * Values are recorded into {@link Shard}s, each of which is written by a single thread, so recording never
+ * contends with other client threads. {@link #getSummary()} and {@link #exportMeasurements(MeasurementsExporter)}
+ * merge all shards of the metric.
  */
 public abstract class OneMeasurement {
 
   private final String name;
-  private final ConcurrentHashMap<Status, AtomicInteger> returncodes;
+  private final List<Shard> shards = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<Shard> localShard = new ThreadLocal<Shard>() {
+    @Override
+    protected Shard initialValue() {
+      return newShard();
+    }
+  };
+  private volatile Shard sharedShard;
+  private volatile IntervalStats lastInterval;
 
   public String getName() {
     return name;
@@ -42,28 +57,81 @@ public abstract class OneMeasurement {
    */
   public OneMeasurement(String name) {
     this.name = name;
-    this.returncodes = new ConcurrentHashMap<>();
   }
 
-  public abstract void measure(int latency);
-
-  public abstract String getSummary();
+  /**
+   * Creates a shard of this metric. It is only ever written to by one thread at a time, and is read from
+   * the thread that calls {@link #getSummary()} or {@link #exportMeasurements(MeasurementsExporter)}.
+   */
+  protected abstract Shard createShard();
 
   /**
-   * No need for synchronization, using CHM to deal with that.
+   * Creates and registers a new shard of this metric, for the exclusive use of the calling thread.
    */
-  public void reportStatus(Status status) {
-    AtomicInteger counter = returncodes.get(status);
+  public final Shard newShard() {
+    Shard shard = createShard();
+    shards.add(shard);
+    return shard;
+  }
 
-    if (counter == null) {
-      counter = new AtomicInteger();
-      AtomicInteger other = returncodes.putIfAbsent(status, counter);
-      if (other != null) {
-        counter = other;
+  /**
+   * Returns a shard that may be written to by any number of threads, for when one shard per thread would
+   * use too much memory. Writers synchronize on it.
+   */
+  public final Shard sharedShard() {
+    Shard shard = sharedShard;
+    if (shard == null) {
+      synchronized (this) {
+        shard = sharedShard;
+        if (shard == null) {
+          shard = new SynchronizedShard(newShard());
+          sharedShard = shard;
+        }
       }
     }
+    return shard;
+  }
+
+  /**
+   * The shards registered so far, for merging.
+   */
+  protected final List<Shard> getShards() {
+    return shards;
+  }
 
-    counter.incrementAndGet();
+  /**
+   * Record a value into the calling thread's shard.
+   */
+  public void measure(int latency) {
+    localShard.get().measure(latency);
+  }
+
+  /**
+   * Returns a one line summary of the values recorded since the last call, and starts a new interval. This is
+   * called periodically from the StatusThread. Implementations also record the interval's statistics with
+   * {@link #endInterval(IntervalStats)}.
+   */
+  public abstract String getSummary();
+
+  /**
+   * The statistics of the interval ended by the last call to {@link #getSummary()}, or null before the first.
+   */
+  public IntervalStats getLastInterval() {
+    return lastInterval;
+  }
+
+  /**
+   * Records the statistics of the interval {@link #getSummary()} is ending.
+   */
+  protected final void endInterval(IntervalStats interval) {
+    lastInterval = interval;
+  }
+
+  /**
+   * Count a return code in the calling thread's shard.
+   */
+  public void reportStatus(Status status) {
+    localShard.get().reportStatus(status);
   }
 
   /**
@@ -75,8 +143,100 @@ public abstract class OneMeasurement {
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
-    for (Map.Entry<Status, AtomicInteger> entry : returncodes.entrySet()) {
-      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
+    for (Map.Entry<Status, Long> entry : getStatusCounts().entrySet()) {
+      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue());
+    }
+  }
+
+  /**
+   * The number of times each return code was reported, over all shards.
+   */
+  public final Map<Status, Long> getStatusCounts() {
+    Map<Status, Long> returncodes = new LinkedHashMap<>();
+    for (Shard shard : shards) {
+      for (Map.Entry<Status, AtomicLong> entry : shard.returncodes.entrySet()) {
+        Long count = returncodes.get(entry.getKey());
+        returncodes.put(entry.getKey(), (count == null ? 0 : count) + entry.getValue().get());
+      }
+    }
+    return returncodes;
+  }
+
+  /**
+   * Adds return codes counted elsewhere, such as by another client process.
+   */
+  public final void addStatusCounts(Map<Status, Long> counts) {
+    Shard shard = sharedShard();
+    for (Map.Entry<Status, Long> entry : counts.entrySet()) {
+      shard.reportStatus(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * The part of a metric recorded by one thread. Counters that are read while the writer is running are
+   * published with ordered writes, so the reader sees consistent values without the writer paying for a
+   * full fence.
+   */
+  public abstract static class Shard {
+    private final ConcurrentHashMap<Status, AtomicLong> returncodes = new ConcurrentHashMap<>();
+    private Status lastStatus;
+    private AtomicLong lastCounter;
+
+    /**
+     * Record one value. Latency is reported in micros.
+     */
+    public abstract void measure(int latency);
+
+    /**
+     * Count one return code.
+     */
+    public void reportStatus(Status status) {
+      reportStatus(status, 1);
+    }
+
+    /**
+     * Count a return code several times at once.
+     */
+    void reportStatus(Status status, long count) {
+      AtomicLong counter;
+      if (status == lastStatus) {
+        counter = lastCounter;
+      } else {
+        counter = returncodes.get(status);
+        if (counter == null) {
+          counter = new AtomicLong();
+          returncodes.put(status, counter);
+        }
+        lastStatus = status;
+        lastCounter = counter;
+      }
+      counter.lazySet(counter.get() + count);
+    }
+  }
+
+  /**
+   * Serializes writers to a shard that is shared between threads.
+   */
+  private static final class SynchronizedShard extends Shard {
+    private final Shard shard;
+
+    private SynchronizedShard(Shard shard) {
+      this.shard = shard;
+    }
+
+    @Override
+    public synchronized void measure(int latency) {
+      shard.measure(latency);
+    }
+
+    @Override
+    public synchronized void reportStatus(Status status) {
+      shard.reportStatus(status);
+    }
+
+    @Override
+    synchronized void reportStatus(Status status, long count) {
+      shard.reportStatus(status, count);
     }
   }
 }
@@ -21,7 +21,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramIterationValue;
 import org.HdrHistogram.HistogramLogWriter;
-import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -42,7 +42,6 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   private final PrintStream log;
   private final HistogramLogWriter histogramLogWriter;
 
-  private final Recorder histogram;
   private Histogram totalHistogram;
 
   /**
@@ -90,15 +89,11 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter.setBaseTime(now);
       histogramLogWriter.outputLegend();
     }
-    histogram = new Recorder(3);
   }
 
-  /**
-   * It appears latency is reported in micros.
-   * Using {@link Recorder} to support concurrent updates to histogram.
-   */
-  public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+  @Override
+  protected Shard createShard() {
+    return new HdrShard();
   }
 
   /**
@@ -140,6 +135,31 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
     }
   }
 
+  /**
+   * Returns a copy of all values recorded, for sending them elsewhere at the end of the run. Like
+   * {@link #exportMeasurements(MeasurementsExporter)}, this closes the histogram log.
+   */
+  public Histogram getTotalHistogram() {
+    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+    if (histogramLogWriter != null) {
+      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
+      log.close();
+    }
+    synchronized (this) {
+      return totalHistogram.copy();
+    }
+  }
+
+  /**
+   * Adds values recorded elsewhere, such as by another client process, to the total.
+   */
+  public synchronized void add(Histogram histogram) {
+    if (totalHistogram == null) {
+      totalHistogram = new Histogram(3);
+    }
+    totalHistogram.add(histogram);
+  }
+
   /**
    * This is called periodically from the StatusThread. There's a single
    * StatusThread per Client process. We optionally serialize the interval to
@@ -155,6 +175,11 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter.outputIntervalHistogram(intervalHistogram);
     }
 
+    endInterval(new IntervalStats(intervalHistogram.getTotalCount(), intervalHistogram.getMean(),
+        intervalHistogram.getMinValue(), intervalHistogram.getValueAtPercentile(50),
+        intervalHistogram.getValueAtPercentile(99), intervalHistogram.getValueAtPercentile(99.9),
+        intervalHistogram.getMaxValue()));
+
     DecimalFormat d = new DecimalFormat("#.##");
     return "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
         + intervalHistogram.getMaxValue() + ", Min=" + intervalHistogram.getMinValue() + ", Avg="
@@ -164,8 +189,23 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
         + d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
   }
 
-  private Histogram getIntervalHistogramAndAccumulate() {
-    Histogram intervalHistogram = histogram.getIntervalHistogram();
+  private synchronized Histogram getIntervalHistogramAndAccumulate() {
+    Histogram intervalHistogram = new Histogram(3);
+    long start = Long.MAX_VALUE;
+    long end = 0;
+    for (Shard s : getShards()) {
+      HdrShard shard = (HdrShard) s;
+      shard.interval = shard.recorder.getIntervalHistogram(shard.interval);
+      intervalHistogram.add(shard.interval);
+      start = Math.min(start, shard.interval.getStartTimeStamp());
+      end = Math.max(end, shard.interval.getEndTimeStamp());
+    }
+    if (end == 0) {
+      end = System.currentTimeMillis();
+      start = end;
+    }
+    intervalHistogram.setStartTimeStamp(start);
+    intervalHistogram.setEndTimeStamp(end);
     // add this to the total time histogram.
     if (totalHistogram == null) {
       totalHistogram = intervalHistogram;
@@ -175,6 +215,22 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
     return intervalHistogram;
   }
 
+  /**
+   * One thread's part of the histogram. It appears latency is reported in micros.
+   * Using {@link SingleWriterRecorder} so the reader can swap out the interval histogram while the
+   * owning thread keeps recording.
+   */
+  private static final class HdrShard extends Shard {
+    private final SingleWriterRecorder recorder = new SingleWriterRecorder(3);
+    // last interval histogram handed back by the recorder, recycled by the reader
+    private Histogram interval;
+
+    @Override
+    public void measure(int latencyInMicros) {
+      recorder.recordValue(latencyInMicros);
+    }
+  }
+
   /**
    * Helper method to parse the given percentile value string.
    *
@@ -22,6 +22,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
@@ -37,88 +38,61 @@ public class OneMeasurementHistogram extends OneMeasurement {
    */
   private final int buckets;
 
-  /**
-   * Groups operations in discrete blocks of 1ms width.
-   */
-  private long[] histogram;
-
-  /**
-   * Counts all operations outside the histogram's range.
-   */
-  private long histogramoverflow;
-
-  /**
-   * The total number of reported operations.
-   */
-  private long operations;
-
-  /**
-   * The sum of each latency measurement over all operations.
-   * Calculated in ms.
-   */
-  private long totallatency;
-
-  /**
-   * The sum of each latency measurement squared over all operations. 
-   * Used to calculate variance of latency.
-   * Calculated in ms. 
-   */
-  private double totalsquaredlatency;
-
   /**
    * Whether or not to emit the histogram buckets.
    */
   private final boolean verbose;
   
-  //keep a windowed version of these stats for printing status
-  private long windowoperations;
-  private long windowtotallatency;
-
-  private int min;
-  private int max;
+  //keep a windowed version of these stats for printing status, as of the last summary
+  private long lastoperations;
+  private long lasttotallatency;
+  private long[] lasthistogram;
+  private long lasthistogramoverflow;
 
   public OneMeasurementHistogram(String name, Properties props) {
     super(name);
     buckets = Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
     verbose = Boolean.valueOf(props.getProperty(VERBOSE_PROPERTY, String.valueOf(false)));
-    histogram = new long[buckets];
-    histogramoverflow = 0;
-    operations = 0;
-    totallatency = 0;
-    totalsquaredlatency = 0;
-    windowoperations = 0;
-    windowtotallatency = 0;
-    min = -1;
-    max = -1;
+    lastoperations = 0;
+    lasttotallatency = 0;
+    lasthistogram = new long[buckets];
   }
 
-  /* (non-Javadoc)
-   * @see com.yahoo.ycsb.OneMeasurement#measure(int)
-   */
-  public synchronized void measure(int latency) {
-    //latency reported in us and collected in bucket by ms.
-    if (latency / 1000 >= buckets) {
-      histogramoverflow++;
-    } else {
-      histogram[latency / 1000]++;
-    }
-    operations++;
-    totallatency += latency;
-    totalsquaredlatency += ((double) latency) * ((double) latency);
-    windowoperations++;
-    windowtotallatency += latency;
-
-    if ((min < 0) || (latency < min)) {
-      min = latency;
-    }
-
-    if ((max < 0) || (latency > max)) {
-      max = latency;
-    }
+  @Override
+  protected Shard createShard() {
+    return new HistogramShard(buckets);
   }
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    long[] histogram = new long[buckets];
+    long histogramoverflow = 0;
+    long operations = 0;
+    long totallatency = 0;
+    double totalsquaredlatency = 0;
+    int min = -1;
+    int max = -1;
+    for (Shard s : getShards()) {
+      HistogramShard shard = (HistogramShard) s;
+      long shardoperations = shard.operations.get();
+      if (shardoperations == 0) {
+        continue;
+      }
+      for (int i = 0; i < buckets; i++) {
+        histogram[i] += shard.histogram[i];
+      }
+      histogramoverflow += shard.histogramoverflow;
+      operations += shardoperations;
+      totallatency += shard.totallatency;
+      totalsquaredlatency += shard.totalsquaredlatency;
+      if ((min < 0) || (shard.min < min)) {
+        min = shard.min;
+      }
+      if ((max < 0) || (shard.max > max)) {
+        max = shard.max;
+      }
+    }
+
     double mean = totallatency / ((double) operations);
     double variance = totalsquaredlatency / ((double) operations) - (mean * mean);
     exporter.write(getName(), "Operations", operations);
@@ -153,14 +127,126 @@ public class OneMeasurementHistogram extends OneMeasurement {
   }
 
   @Override
-  public String getSummary() {
+  public synchronized String getSummary() {
+    long operations = 0;
+    long totallatency = 0;
+    long[] histogram = new long[buckets];
+    long histogramoverflow = 0;
+    for (Shard s : getShards()) {
+      HistogramShard shard = (HistogramShard) s;
+      // read the published count first, so the latency sum covers at least those operations
+      operations += shard.operations.get();
+      totallatency += shard.totallatency;
+      for (int i = 0; i < buckets; i++) {
+        histogram[i] += shard.histogram[i];
+      }
+      histogramoverflow += shard.histogramoverflow;
+    }
+    long windowoperations = operations - lastoperations;
+    long windowtotallatency = totallatency - lasttotallatency;
     if (windowoperations == 0) {
+      endInterval(new IntervalStats(0, 0));
       return "";
     }
+    lastoperations = operations;
+    lasttotallatency = totallatency;
     DecimalFormat d = new DecimalFormat("#.##");
     double report = ((double) windowtotallatency) / ((double) windowoperations);
-    windowtotallatency = 0;
-    windowoperations = 0;
+    endInterval(windowStats(histogram, histogramoverflow, windowoperations, report));
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
+
+  /**
+   * The statistics of the buckets filled since the last summary. Like the exported percentiles, latencies are
+   * the lower bounds of 1ms buckets; those in the overflow bucket are unknown.
+   */
+  private IntervalStats windowStats(long[] histogram, long histogramoverflow, long windowoperations,
+                                    double mean) {
+    long[] window = new long[buckets];
+    long count = histogramoverflow - lasthistogramoverflow;
+    for (int i = 0; i < buckets; i++) {
+      window[i] = histogram[i] - lasthistogram[i];
+      count += window[i];
+    }
+    lasthistogram = histogram;
+    lasthistogramoverflow = histogramoverflow;
+
+    long[] latencies = {IntervalStats.UNKNOWN, IntervalStats.UNKNOWN, IntervalStats.UNKNOWN,
+        IntervalStats.UNKNOWN, IntervalStats.UNKNOWN};
+    double[] fractions = {0, 0.5, 0.99, 0.999, 1};
+    int next = 0;
+    long opcounter = 0;
+    for (int i = 0; i < buckets && next < fractions.length; i++) {
+      opcounter += window[i];
+      while (next < fractions.length && window[i] > 0 && opcounter >= Math.max(1, fractions[next] * count)) {
+        latencies[next++] = i * 1000L;
+      }
+    }
+    return new IntervalStats(windowoperations, mean, latencies[0], latencies[1], latencies[2], latencies[3],
+        latencies[4]);
+  }
+
+  /**
+   * One thread's part of the histogram.
+   */
+  private static final class HistogramShard extends Shard {
+    /**
+     * Groups operations in discrete blocks of 1ms width.
+     */
+    private final long[] histogram;
+
+    /**
+     * Counts all operations outside the histogram's range.
+     */
+    private long histogramoverflow;
+
+    /**
+     * The total number of reported operations. Written last, so it publishes the other fields.
+     */
+    private final AtomicLong operations = new AtomicLong();
+
+    /**
+     * The sum of each latency measurement over all operations.
+     * Calculated in ms.
+     */
+    private long totallatency;
+
+    /**
+     * The sum of each latency measurement squared over all operations. 
+     * Used to calculate variance of latency.
+     * Calculated in ms. 
+     */
+    private double totalsquaredlatency;
+
+    private int min = -1;
+    private int max = -1;
+
+    private HistogramShard(int buckets) {
+      histogram = new long[buckets];
+    }
+
+    /* (non-Javadoc)
+     * @see com.yahoo.ycsb.OneMeasurement.Shard#measure(int)
+     */
+    @Override
+    public void measure(int latency) {
+      //latency reported in us and collected in bucket by ms.
+      if (latency / 1000 >= histogram.length) {
+        histogramoverflow++;
+      } else {
+        histogram[latency / 1000]++;
+      }
+      totallatency += latency;
+      totalsquaredlatency += ((double) latency) * ((double) latency);
+
+      if ((min < 0) || (latency < min)) {
+        min = latency;
+      }
+
+      if ((max < 0) || (latency > max)) {
+        max = latency;
+      }
+      operations.lazySet(operations.get() + 1);
+    }
+  }
 }
@@ -19,56 +19,42 @@ package com.yahoo.ycsb.measurements;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Record a series of measurements as raw data points without down sampling,
  * optionally write to an output file when configured.
- *
+ * <p>
+ * Each thread appends its data points, a timestamp (ms) and a latency (us), to
+ * memory-mapped segments of its own temporary file, so the heap stays the same
+ * size however long the run. On export, the threads' data points are merged
+ * back into time order while they are written out, and the percentiles are
+ * found exactly by radix selection over the mapped segments instead of by
+ * sorting; then the segments are unmapped and the temporary files are deleted.
+ * The status line of each interval only has the count, average, min and max,
+ * which are kept as the data points are recorded; there are no percentiles per
+ * interval, in the status line or in the interval log.
  */
 public class OneMeasurementRaw extends OneMeasurement {
-  /**
-   * One raw data point, two fields: timestamp (ms) when the datapoint is
-   * inserted, and the value.
-   */
-  class RawDataPoint {
-    private final long timestamp;
-    private final int value;
-
-    public RawDataPoint(int value) {
-      this.timestamp = System.currentTimeMillis();
-      this.value = value;
-    }
-
-    public long timeStamp() {
-      return timestamp;
-    }
-
-    public int value() {
-      return value;
-    }
-  }
-
-  class RawDataPointComparator implements Comparator<RawDataPoint> {
-    @Override
-    public int compare(RawDataPoint p1, RawDataPoint p2) {
-      if (p1.value() < p2.value()) {
-        return -1;
-      } else if (p1.value() == p2.value()) {
-        return 0;
-      } else {
-        return 1;
-      }
-    }
-  }
-
   /**
    * Optionally, user can configure an output file to save the raw data points.
    * Default is none, raw results will be written to stdout.
@@ -77,6 +63,30 @@ public class OneMeasurementRaw extends OneMeasurement {
   public static final String OUTPUT_FILE_PATH = "measurement.raw.output_file";
   public static final String OUTPUT_FILE_PATH_DEFAULT = "";
 
+  /**
+   * How the raw data points are written: "text", one line per data point, or
+   * "binary", which needs an output file. The binary output of each metric is
+   * the bytes "YCSBRAW1", the metric name (as by
+   * {@link DataOutputStream#writeUTF(String)}), the number of data points as a
+   * long, then for each data point, in time order, the timestamp (ms) as a long
+   * and the latency (us) as an int, all big-endian.
+   */
+  public static final String OUTPUT_FORMAT = "measurement.raw.output_format";
+  public static final String OUTPUT_FORMAT_DEFAULT = "text";
+
+  /**
+   * The directory for the files that hold the data points during the run.
+   * Default is the system's temporary directory.
+   */
+  public static final String SEGMENT_DIR = "measurement.raw.segment_dir";
+
+  /**
+   * How many bytes of a thread's file are mapped at a time. Each data point
+   * takes 12 bytes.
+   */
+  public static final String SEGMENT_SIZE = "measurement.raw.segment_size";
+  public static final String SEGMENT_SIZE_DEFAULT = String.valueOf(64 * 1024 * 1024);
+
   /**
    * Optionally, user can request to not output summary stats. This is useful
    * if the user chains the raw measurement type behind the HdrHistogram type
@@ -88,120 +98,447 @@ public class OneMeasurementRaw extends OneMeasurement {
   public static final String NO_SUMMARY_STATS = "measurement.raw.no_summary";
   public static final String NO_SUMMARY_STATS_DEFAULT = "false";
 
-  private final PrintStream outputStream;
+  static final byte[] BINARY_MAGIC = "YCSBRAW1".getBytes(StandardCharsets.US_ASCII);
+
+  /** A timestamp (long) and a latency (int). */
+  private static final int RECORD_SIZE = 12;
+
+  private static final double[] PERCENTILES = {0.01, 0.05, 0.5, 0.9, 0.95, 0.99, 0.999, 0.9999};
+  private static final String[] PERCENTILE_NAMES = {"p1", "p5", "p50", "p90", "p95", "p99", "p99.9", "p99.99"};
+
+  private final String outputFilePath;
+  private final boolean binary;
+  private final File segmentDir;
+  private final int segmentSize;
 
   private boolean noSummaryStats = false;
 
-  private LinkedList<RawDataPoint> measurements;
-  private long totalLatency = 0;
+  // Totals as of the last getSummary() call, to compute the window of stats
+  // to print. It's supposed to be a one line summary, so we will just print
+  // count and average.
+  private long lastOperations = 0;
+  private long lastTotalLatency = 0;
+  // The status interval the shards keep their min and max for; getSummary()
+  // moves it on, and each shard starts over when it sees that it has.
+  private volatile int interval = 0;
 
-  // A window of stats to print summary for at the next getSummary() call.
-  // It's supposed to be a one line summary, so we will just print count and
-  // average.
-  private int windowOperations = 0;
-  private long windowTotalLatency = 0;
+  // set once the data points have been exported and released
+  private boolean exported = false;
 
   public OneMeasurementRaw(String name, Properties props) {
     super(name);
 
-    String outputFilePath = props.getProperty(OUTPUT_FILE_PATH, OUTPUT_FILE_PATH_DEFAULT);
+    outputFilePath = props.getProperty(OUTPUT_FILE_PATH, OUTPUT_FILE_PATH_DEFAULT);
+    String format = props.getProperty(OUTPUT_FORMAT, OUTPUT_FORMAT_DEFAULT);
+    if (format.equals("binary")) {
+      if (outputFilePath.isEmpty()) {
+        throw new IllegalArgumentException(OUTPUT_FORMAT + "=binary requires " + OUTPUT_FILE_PATH);
+      }
+      binary = true;
+    } else if (format.equals("text")) {
+      binary = false;
+    } else {
+      throw new IllegalArgumentException("unknown " + OUTPUT_FORMAT + "=" + format);
+    }
+
     if (!outputFilePath.isEmpty()) {
       System.out.println("Raw data measurement: will output to result file: " +
           outputFilePath);
-
-      try {
-        outputStream = new PrintStream(
-            new FileOutputStream(outputFilePath, true),
-            true);
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException("Failed to open raw data output file", e);
-      }
-
     } else {
       System.out.println("Raw data measurement: will output to stdout.");
-      outputStream = System.out;
-
     }
 
+    segmentDir = new File(props.getProperty(SEGMENT_DIR, System.getProperty("java.io.tmpdir")));
+    int size = Integer.parseInt(props.getProperty(SEGMENT_SIZE, SEGMENT_SIZE_DEFAULT));
+    segmentSize = Math.max(1, size / RECORD_SIZE) * RECORD_SIZE;
+
     noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
         NO_SUMMARY_STATS_DEFAULT));
-
-    measurements = new LinkedList<>();
   }
 
   @Override
-  public synchronized void measure(int latency) {
-    totalLatency += latency;
-    windowTotalLatency += latency;
-    windowOperations++;
-
-    measurements.add(new RawDataPoint(latency));
+  protected Shard createShard() {
+    return new RawShard();
   }
 
+  /**
+   * Writes the raw data points and the summary. The data points are released
+   * afterwards, so exporting again only gives the totals.
+   */
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter)
+  public synchronized void exportMeasurements(MeasurementsExporter exporter)
       throws IOException {
     // Output raw data points first then print out a summary of percentiles to
     // stdout.
 
-    outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
-    for (RawDataPoint point : measurements) {
-      outputStream.println(
-          String.format("%s,%d,%d", getName(), point.timeStamp(),
-              point.value()));
+    long totalOps = 0;
+    long totalLatency = 0;
+    for (Shard s : getShards()) {
+      RawShard shard = (RawShard) s;
+      totalOps += shard.operations.get();
+      totalLatency += shard.totalLatency;
     }
-    if (outputStream != System.out) {
-      outputStream.close();
+
+    if (!exported) {
+      if (binary) {
+        writeBinary(totalOps);
+      } else {
+        writeText();
+      }
     }
 
-    int totalOps = measurements.size();
     exporter.write(getName(), "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
           "Below is a summary of latency in microseconds:", -1);
       exporter.write(getName(), "Average",
           (double) totalLatency / (double) totalOps);
+    }
+    if (totalOps > 0 && !noSummaryStats && !exported) {
+      long[] ranks = new long[PERCENTILES.length + 2];
+      ranks[0] = 0;
+      ranks[1] = totalOps - 1;
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        ranks[i + 2] = (long) (totalOps * PERCENTILES[i]);
+      }
+      int[] latencies = select(ranks);
 
-      Collections.sort(measurements, new RawDataPointComparator());
-
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
-          getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
-          getName(), "p1", measurements.get((int) (totalOps * 0.01)).value());
-      exporter.write(
-          getName(), "p5", measurements.get((int) (totalOps * 0.05)).value());
-      exporter.write(
-          getName(), "p50", measurements.get((int) (totalOps * 0.5)).value());
-      exporter.write(
-          getName(), "p90", measurements.get((int) (totalOps * 0.9)).value());
-      exporter.write(
-          getName(), "p95", measurements.get((int) (totalOps * 0.95)).value());
-      exporter.write(
-          getName(), "p99", measurements.get((int) (totalOps * 0.99)).value());
-      exporter.write(getName(), "p99.9",
-          measurements.get((int) (totalOps * 0.999)).value());
-      exporter.write(getName(), "p99.99",
-          measurements.get((int) (totalOps * 0.9999)).value());
+      exporter.write(getName(), "Min", latencies[0]);
+      exporter.write(getName(), "Max", latencies[1]);
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        exporter.write(getName(), PERCENTILE_NAMES[i], latencies[i + 2]);
+      }
     }
 
     exportStatusCounts(exporter);
+
+    for (Shard s : getShards()) {
+      ((RawShard) s).release();
+    }
+    exported = true;
+  }
+
+  private void writeText() throws IOException {
+    PrintStream outputStream = outputFilePath.isEmpty() ? System.out :
+        new PrintStream(new BufferedOutputStream(new FileOutputStream(outputFilePath, true)), false);
+    try {
+      outputStream.println(getName() +
+          " latency raw data: op, timestamp(ms), latency(us)");
+      StringBuilder line = new StringBuilder();
+      // shards are recorded per thread; interleave them back into arrival order
+      PriorityQueue<Cursor> merge = mergeByTime();
+      while (!merge.isEmpty()) {
+        Cursor cursor = merge.poll();
+        line.setLength(0);
+        line.append(getName()).append(',').append(cursor.timestamp).append(',').append(cursor.latency);
+        outputStream.println(line);
+        if (cursor.next()) {
+          merge.add(cursor);
+        }
+      }
+    } finally {
+      if (outputStream != System.out) {
+        outputStream.close();
+      } else {
+        outputStream.flush();
+      }
+    }
+  }
+
+  private void writeBinary(long totalOps) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(outputFilePath, true)))) {
+      out.write(BINARY_MAGIC);
+      out.writeUTF(getName());
+      out.writeLong(totalOps);
+      PriorityQueue<Cursor> merge = mergeByTime();
+      while (!merge.isEmpty()) {
+        Cursor cursor = merge.poll();
+        out.writeLong(cursor.timestamp);
+        out.writeInt(cursor.latency);
+        if (cursor.next()) {
+          merge.add(cursor);
+        }
+      }
+    }
+  }
+
+  /**
+   * A queue of cursors over all shards, positioned on their first data point
+   * and ordered by its timestamp.
+   */
+  private PriorityQueue<Cursor> mergeByTime() {
+    PriorityQueue<Cursor> merge = new PriorityQueue<>(Math.max(1, getShards().size()));
+    for (Shard s : getShards()) {
+      Cursor cursor = new Cursor((RawShard) s);
+      if (cursor.next()) {
+        merge.add(cursor);
+      }
+    }
+    return merge;
   }
 
+  private List<Cursor> cursors() {
+    List<Cursor> cursors = new ArrayList<>();
+    for (Shard s : getShards()) {
+      cursors.add(new Cursor((RawShard) s));
+    }
+    return cursors;
+  }
+
+  /**
+   * Finds the latencies at the given ranks, counting from 0 in ascending order
+   * of latency, among all the data points. Two counting passes over the data
+   * points, on the high and then on the low 16 bits of each latency, give the
+   * exact values without sorting.
+   */
+  private int[] select(long[] ranks) {
+    long[] highCounts = new long[1 << 16];
+    for (Cursor cursor : cursors()) {
+      while (cursor.next()) {
+        highCounts[key(cursor.latency) >>> 16]++;
+      }
+    }
+
+    int[] high = new int[ranks.length];
+    long[] rankInHigh = new long[ranks.length];
+    for (int i = 0; i < ranks.length; i++) {
+      long rank = ranks[i];
+      int bucket = 0;
+      while (rank >= highCounts[bucket]) {
+        rank -= highCounts[bucket];
+        bucket++;
+      }
+      high[i] = bucket;
+      rankInHigh[i] = rank;
+    }
+
+    int[] buckets = distinct(high);
+    long[][] lowCounts = new long[buckets.length][1 << 16];
+    for (Cursor cursor : cursors()) {
+      while (cursor.next()) {
+        int key = key(cursor.latency);
+        int b = Arrays.binarySearch(buckets, key >>> 16);
+        if (b >= 0) {
+          lowCounts[b][key & 0xffff]++;
+        }
+      }
+    }
+
+    int[] latencies = new int[ranks.length];
+    for (int i = 0; i < ranks.length; i++) {
+      long[] counts = lowCounts[Arrays.binarySearch(buckets, high[i])];
+      long rank = rankInHigh[i];
+      int low = 0;
+      while (rank >= counts[low]) {
+        rank -= counts[low];
+        low++;
+      }
+      latencies[i] = ((high[i] << 16) | low) ^ Integer.MIN_VALUE;
+    }
+    return latencies;
+  }
+
+  /**
+   * Maps a latency to an int whose unsigned order is the latency's signed order.
+   */
+  private static int key(int latency) {
+    return latency ^ Integer.MIN_VALUE;
+  }
+
+  private static int[] distinct(int[] values) {
+    int[] sorted = values.clone();
+    Arrays.sort(sorted);
+    int count = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[count++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, count);
+  }
+
+  /**
+   * Summarizes the interval from the shards' running counters. The min and max
+   * are those each shard saw since it noticed the interval had moved on, so a
+   * data point recorded just as the interval ends may count in either.
+   */
   @Override
   public synchronized String getSummary() {
+    int current = interval;
+    long operations = 0;
+    long totalLatency = 0;
+    long min = IntervalStats.UNKNOWN;
+    long max = IntervalStats.UNKNOWN;
+    for (Shard s : getShards()) {
+      RawShard shard = (RawShard) s;
+      // read first, so the other counters cover at least those operations
+      operations += shard.operations.get();
+      totalLatency += shard.totalLatency;
+      if (shard.interval == current) {
+        min = min == IntervalStats.UNKNOWN ? shard.intervalMin : Math.min(min, shard.intervalMin);
+        max = Math.max(max, shard.intervalMax);
+      }
+    }
+    interval = current + 1;
+    long windowOperations = operations - lastOperations;
+    long windowTotalLatency = totalLatency - lastTotalLatency;
     if (windowOperations == 0) {
+      endInterval(new IntervalStats(0, 0));
       return "";
     }
 
+    double mean = (double) windowTotalLatency / (double) windowOperations;
+    endInterval(new IntervalStats(windowOperations, mean, min, IntervalStats.UNKNOWN, IntervalStats.UNKNOWN,
+        IntervalStats.UNKNOWN, max));
+
     String toReturn = String.format("%s count: %d, average latency(us): %.2f",
-        getName(), windowOperations,
-        (double) windowTotalLatency / (double) windowOperations);
+        getName(), windowOperations, mean);
 
-    windowTotalLatency = 0;
-    windowOperations = 0;
+    lastOperations = operations;
+    lastTotalLatency = totalLatency;
 
     return toReturn;
   }
+
+  /**
+   * One thread's raw data points, in mapped segments of a temporary file. The
+   * points themselves are only read on export, once the client threads are
+   * done.
+   */
+  private final class RawShard extends Shard {
+    // read by the status thread while the owner adds to it
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private File file;
+    private MappedByteBuffer current;
+    private long totalLatency = 0;
+    private int interval = -1;
+    private int intervalMin;
+    private int intervalMax;
+    // written last, so it publishes the other counters to getSummary()
+    private final AtomicLong operations = new AtomicLong();
+
+    @Override
+    public void measure(int latency) {
+      if (current == null || !current.hasRemaining()) {
+        nextSegment();
+      }
+      current.putLong(System.currentTimeMillis());
+      current.putInt(latency);
+      totalLatency += latency;
+      int currentInterval = OneMeasurementRaw.this.interval;
+      if (interval != currentInterval) {
+        interval = currentInterval;
+        intervalMin = latency;
+        intervalMax = latency;
+      } else if (latency < intervalMin) {
+        intervalMin = latency;
+      } else if (latency > intervalMax) {
+        intervalMax = latency;
+      }
+      operations.lazySet(operations.get() + 1);
+    }
+
+    private void nextSegment() {
+      try {
+        if (file == null) {
+          file = File.createTempFile("ycsb-raw-", ".dat", segmentDir);
+          file.deleteOnExit();
+        }
+        // A mapping outlives its channel, so no file stays open between segments.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+          current = raf.getChannel().map(FileChannel.MapMode.READ_WRITE,
+              (long) segments.size() * segmentSize, segmentSize);
+        }
+        segments.add(current);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to map raw data segment", e);
+      }
+    }
+
+    /**
+     * Unmaps the segments and deletes the file.
+     */
+    private void release() {
+      for (MappedByteBuffer segment : segments) {
+        unmap(segment);
+      }
+      segments.clear();
+      current = null;
+      if (file != null && file.delete()) {
+        file = null;
+      }
+    }
+  }
+
+  /**
+   * Unmaps a segment now rather than whenever it is garbage collected, which
+   * also lets its file be deleted on Windows. The buffer must not be used
+   * afterwards. If the JVM gives no way to do it, it is left to the collector.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      // Java 9 and later
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+    } catch (NoSuchMethodException e) {
+      try {
+        // Java 8
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      } catch (ReflectiveOperationException | RuntimeException ignored) {
+        // left to the garbage collector
+      }
+    } catch (ReflectiveOperationException | RuntimeException ignored) {
+      // left to the garbage collector
+    }
+  }
+
+  /**
+   * Reads back the data points of one shard, in the order they were recorded.
+   */
+  private final class Cursor implements Comparable<Cursor> {
+    private final RawShard shard;
+    private long left;
+    private int segment;
+    private int position;
+    private long timestamp;
+    private int latency;
+
+    private Cursor(RawShard shard) {
+      this.shard = shard;
+      left = shard.operations.get();
+    }
+
+    /**
+     * Moves to the next data point, if there is one.
+     */
+    boolean next() {
+      if (left == 0) {
+        return false;
+      }
+      if (position == segmentSize) {
+        segment++;
+        position = 0;
+      }
+      MappedByteBuffer buffer = shard.segments.get(segment);
+      timestamp = buffer.getLong(position);
+      latency = buffer.getInt(position + 8);
+      position += RECORD_SIZE;
+      left--;
+      return true;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      return Long.compare(timestamp, other.timestamp);
+    }
+  }
 }
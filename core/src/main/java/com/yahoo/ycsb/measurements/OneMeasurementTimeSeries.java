@@ -21,8 +21,10 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 class SeriesUnit {
   /**
@@ -50,73 +52,63 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
   public static final String GRANULARITY_DEFAULT = "1000";
 
   private final int granularity;
-  private final Vector<SeriesUnit> measurements;
+  private final long start;
 
-  private long start = -1;
-  private long currentunit = -1;
-  private long count = 0;
-  private long sum = 0;
-  private long operations = 0;
-  private long totallatency = 0;
-
-  //keep a windowed version of these stats for printing status
-  private int windowoperations = 0;
-  private long windowtotallatency = 0;
-
-  private int min = -1;
-  private int max = -1;
+  //keep a windowed version of these stats for printing status, as of the last summary
+  private long lastoperations = 0;
+  private long lasttotallatency = 0;
 
   public OneMeasurementTimeSeries(String name, Properties props) {
     super(name);
     granularity = Integer.parseInt(props.getProperty(GRANULARITY, GRANULARITY_DEFAULT));
-    measurements = new Vector<>();
+    start = System.currentTimeMillis();
   }
 
-  private synchronized void checkEndOfUnit(boolean forceend) {
-    long now = System.currentTimeMillis();
-
-    if (start < 0) {
-      currentunit = 0;
-      start = now;
-    }
-
-    long unit = ((now - start) / granularity) * granularity;
-
-    if ((unit > currentunit) || (forceend)) {
-      double avg = ((double) sum) / ((double) count);
-      measurements.add(new SeriesUnit(currentunit, avg));
-
-      currentunit = unit;
-
-      count = 0;
-      sum = 0;
-    }
+  @Override
+  protected Shard createShard() {
+    return new TimeSeriesShard();
   }
 
   @Override
-  public void measure(int latency) {
-    checkEndOfUnit(false);
-
-    count++;
-    sum += latency;
-    totallatency += latency;
-    operations++;
-    windowoperations++;
-    windowtotallatency += latency;
-
-    if (latency > max) {
-      max = latency;
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    long operations = 0;
+    long totallatency = 0;
+    int min = -1;
+    int max = -1;
+    int units = 0;
+    for (Shard s : getShards()) {
+      TimeSeriesShard shard = (TimeSeriesShard) s;
+      long shardoperations = shard.operations.get();
+      if (shardoperations == 0) {
+        continue;
+      }
+      operations += shardoperations;
+      totallatency += shard.totallatency;
+      if (shard.max > max) {
+        max = shard.max;
+      }
+      if ((shard.min < min) || (min < 0)) {
+        min = shard.min;
+      }
+      units = Math.max(units, shard.units);
     }
 
-    if ((latency < min) || (min < 0)) {
-      min = latency;
+    // merge the per-thread chunks, dropping those nobody recorded into
+    Vector<SeriesUnit> measurements = new Vector<>();
+    for (int unit = 0; unit < units; unit++) {
+      long count = 0;
+      long sum = 0;
+      for (Shard s : getShards()) {
+        TimeSeriesShard shard = (TimeSeriesShard) s;
+        if (unit < shard.units) {
+          count += shard.counts[unit];
+          sum += shard.sums[unit];
+        }
+      }
+      if (count > 0) {
+        measurements.add(new SeriesUnit(((long) unit) * granularity, ((double) sum) / ((double) count)));
+      }
     }
-  }
-
-
-  @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    checkEndOfUnit(true);
 
     exporter.write(getName(), "Operations", operations);
     exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
@@ -132,15 +124,67 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
   }
 
   @Override
-  public String getSummary() {
+  public synchronized String getSummary() {
+    long operations = 0;
+    long totallatency = 0;
+    for (Shard s : getShards()) {
+      TimeSeriesShard shard = (TimeSeriesShard) s;
+      // read the published count first, so the latency sum covers at least those operations
+      operations += shard.operations.get();
+      totallatency += shard.totallatency;
+    }
+    long windowoperations = operations - lastoperations;
+    long windowtotallatency = totallatency - lasttotallatency;
     if (windowoperations == 0) {
+      endInterval(new IntervalStats(0, 0));
       return "";
     }
+    lastoperations = operations;
+    lasttotallatency = totallatency;
     DecimalFormat d = new DecimalFormat("#.##");
     double report = ((double) windowtotallatency) / ((double) windowoperations);
-    windowtotallatency = 0;
-    windowoperations = 0;
+    // only averages are kept, so there are no percentiles to tell
+    endInterval(new IntervalStats(windowoperations, report));
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
 
+  /**
+   * One thread's part of the series: a count and latency sum for every chunk of the run so far.
+   */
+  private final class TimeSeriesShard extends Shard {
+    private long[] counts = new long[16];
+    private long[] sums = new long[16];
+    private int units = 0;
+    private long totallatency = 0;
+    private int min = -1;
+    private int max = -1;
+    // written last, so it publishes totallatency to getSummary()
+    private final AtomicLong operations = new AtomicLong();
+
+    @Override
+    public void measure(int latency) {
+      int unit = (int) ((System.currentTimeMillis() - start) / granularity);
+      if (unit >= counts.length) {
+        int length = Math.max(unit + 1, counts.length * 2);
+        counts = Arrays.copyOf(counts, length);
+        sums = Arrays.copyOf(sums, length);
+      }
+      counts[unit]++;
+      sums[unit] += latency;
+      if (unit >= units) {
+        units = unit + 1;
+      }
+
+      totallatency += latency;
+
+      if (latency > max) {
+        max = latency;
+      }
+
+      if ((latency < min) || (min < 0)) {
+        min = latency;
+      }
+      operations.lazySet(operations.get() + 1);
+    }
+  }
 }
@@ -35,22 +35,9 @@ public class TwoInOneMeasurement extends OneMeasurement {
     this.thing2 = thing2;
   }
 
-  /**
-   * No need for synchronization, using CHM to deal with that.
-   */
-  @Override
-  public void reportStatus(final Status status) {
-    thing1.reportStatus(status);
-  }
-
-  /**
-   * It appears latency is reported in micros.
-   * Using {@link org.HdrHistogram.Recorder} to support concurrent updates to histogram.
-   */
   @Override
-  public void measure(int latencyInMicros) {
-    thing1.measure(latencyInMicros);
-    thing2.measure(latencyInMicros);
+  protected Shard createShard() {
+    return new TwoInOneShard(thing1.newShard(), thing2.newShard());
   }
 
   /**
@@ -73,4 +60,41 @@ public class TwoInOneMeasurement extends OneMeasurement {
     return thing1.getSummary() + "\n" + thing2.getSummary();
   }
 
+  /**
+   * The first measurement's statistics.
+   */
+  @Override
+  public IntervalStats getLastInterval() {
+    return thing1.getLastInterval();
+  }
+
+  /**
+   * Records into one shard of each of the two measurements.
+   */
+  private static final class TwoInOneShard extends Shard {
+    private final Shard shard1, shard2;
+
+    private TwoInOneShard(Shard shard1, Shard shard2) {
+      this.shard1 = shard1;
+      this.shard2 = shard2;
+    }
+
+    /**
+     * Return codes are only counted by the first measurement.
+     */
+    @Override
+    public void reportStatus(final Status status) {
+      shard1.reportStatus(status);
+    }
+
+    /**
+     * It appears latency is reported in micros.
+     */
+    @Override
+    public void measure(int latencyInMicros) {
+      shard1.measure(latencyInMicros);
+      shard2.measure(latencyInMicros);
+    }
+  }
+
 }
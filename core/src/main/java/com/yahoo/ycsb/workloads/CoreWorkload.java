@@ -24,6 +24,9 @@ import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD operations. The
@@ -63,7 +66,31 @@ import java.util.*;
  * order ("hashed") (default: hashed)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
+ * <LI><b>hotspotoffsetfraction</b>: for the hotspot distribution, where the hot set starts, as a fraction of
+ * the records (default: 0)
+ * <LI><b>batchsize</b>: how many records each read, update and insert operates on; with more than one, the
+ * records go to the DB together, through batchRead, batchUpdate and batchInsert (default: 1)
+ * <LI><b>bulkload</b>: should the load split the records between the threads and load each thread's share in
+ * chunks sorted by key (default: false)
+ * <LI><b>bulkload.chunksize</b>: how many records each chunk of a bulk load holds (default: 10000)
  * </ul>
+ * <p>
+ * With a batchsize above one, each batch counts as one operation, so the target throughput and the operation
+ * count are in batches; the per-record latencies, each the batch latency divided by the batch size, are reported
+ * under the operation names as usual, and those of the batches under BATCH-READ, BATCH-UPDATE and
+ * BATCH-INSERT. The load inserts records in batches until insertcount records are in. Scans, read-modify-writes
+ * and operations issued through an AsyncDB are not batched.
+ * <p>
+ * A bulk load sorts the keys of all the records to load, gives each thread a contiguous range of them in key order,
+ * and loads the range one chunk at a time, so that no two chunks overlap in key range even with hashed keys. A
+ * chunk goes to the DB in one {@link BulkLoadable#bulkLoad} call if the DB implements it, e.g. as a file in the
+ * store's own format, and otherwise through batchInsert, batchsize records at a time, or the whole chunk at once if
+ * batchsize is one. Each chunk counts as one operation. The records and their values are those the load would
+ * insert otherwise, so a run with dataintegrity can verify them.
+ * <p>
+ * When the run is divided into phases (see {@link PhaseSchedule}), each phase may override the operation
+ * proportions, the request distribution and its parameters, e.g. {@code phase.spike.hotspotoffsetfraction=0.5}
+ * to move the hot set for the spike phase.
  */
 public class CoreWorkload extends Workload {
   /**
@@ -90,6 +117,13 @@ public class CoreWorkload extends Workload {
   
   private List<String> fieldnames;
 
+  /**
+   * Read-only field sets handed to reads and scans, so that choosing the fields to read does not
+   * allocate: one set per field, and one set of all fields.
+   */
+  private List<Set<String>> singlefieldsets;
+  private Set<String> allfieldsset;
+
   /**
    * The name of the property for the field length distribution. Options are "uniform", "zipfian"
    * (favouring short records), "constant", and "histogram".
@@ -319,6 +353,16 @@ public class CoreWorkload extends Workload {
    */
   public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
 
+  /**
+   * Where the hot set starts, as a fraction of the records.
+   */
+  public static final String HOTSPOT_OFFSET_FRACTION = "hotspotoffsetfraction";
+
+  /**
+   * Default value of where the hot set starts.
+   */
+  public static final String HOTSPOT_OFFSET_FRACTION_DEFAULT = "0";
+
   /**
    * How many times to retry when insertion of a single item to a DB fails.
    */
@@ -341,8 +385,43 @@ public class CoreWorkload extends Workload {
    */
   public static final String FIELD_NAME_PREFIX_DEFAULT = "field";
 
+  /**
+   * The name of the property for the number of records a read, update or insert operates on.
+   */
+  public static final String BATCH_SIZE_PROPERTY = "batchsize";
+
+  /**
+   * The default number of records a read, update or insert operates on.
+   */
+  public static final String BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The name of the property for loading the records in sorted chunks, through {@link BulkLoadable} where the DB
+   * supports it.
+   */
+  public static final String BULK_LOAD_PROPERTY = "bulkload";
+
+  /**
+   * The default is to load the records one insert (or batch) at a time.
+   */
+  public static final String BULK_LOAD_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The name of the property for the number of records in each sorted chunk of a bulk load.
+   */
+  public static final String BULK_LOAD_CHUNK_SIZE_PROPERTY = "bulkload.chunksize";
+
+  /**
+   * The default number of records in each sorted chunk of a bulk load.
+   */
+  public static final String BULK_LOAD_CHUNK_SIZE_PROPERTY_DEFAULT = "10000";
+
   protected NumberGenerator keysequence;
   protected DiscreteGenerator operationchooser;
+  /**
+   * The operation named by each of the operationchooser's values, indexed by {@link DiscreteGenerator#nextIndex()}.
+   */
+  protected Operation[] operations;
   protected NumberGenerator keychooser;
   protected NumberGenerator fieldchooser;
   protected AcknowledgedCounterGenerator transactioninsertkeysequence;
@@ -353,8 +432,32 @@ public class CoreWorkload extends Workload {
   protected int zeropadding;
   protected int insertionRetryLimit;
   protected int insertionRetryInterval;
+  protected int batchsize;
+  protected boolean bulkload;
+  protected int bulkloadchunksize;
+  /**
+   * The numbers of the records to load in a bulk load, sorted by their keys; built by the first thread to need it.
+   */
+  private long[] bulkorder;
+  /**
+   * The start of the range of records this instance loads.
+   */
+  protected long insertbegin;
+  /**
+   * The end of the range of records this instance loads, exclusive.
+   */
+  protected long insertend;
+
+  /**
+   * The operation mix and key chooser of each phase of the run, and of the phase it is in. Without phases,
+   * the settings are those of the fields above.
+   */
+  private PhaseSettings[] phases;
+  private volatile PhaseSettings settings;
 
   private Measurements measurements = Measurements.getMeasurements();
+  private final int verifyId = measurements.getOperationId("VERIFY");
+  private final int readModifyWriteId = measurements.getOperationId("READ-MODIFY-WRITE");
 
   protected static NumberGenerator getFieldLengthGenerator(Properties p) throws WorkloadException {
     NumberGenerator fieldlengthgenerator;
@@ -398,9 +501,12 @@ public class CoreWorkload extends Workload {
         Long.parseLong(p.getProperty(FIELD_COUNT_PROPERTY, FIELD_COUNT_PROPERTY_DEFAULT));
     final String fieldnameprefix = p.getProperty(FIELD_NAME_PREFIX, FIELD_NAME_PREFIX_DEFAULT);
     fieldnames = new ArrayList<>();
+    singlefieldsets = new ArrayList<>();
     for (int i = 0; i < fieldcount; i++) {
       fieldnames.add(fieldnameprefix + i);
+      singlefieldsets.add(Collections.singleton(fieldnameprefix + i));
     }
+    allfieldsset = Collections.unmodifiableSet(new HashSet<>(fieldnames));
     fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
 
     recordcount =
@@ -462,12 +568,68 @@ public class CoreWorkload extends Workload {
 
     keysequence = new CounterGenerator(insertstart);
     operationchooser = createOperationGenerator(p);
+    operations = Operation.of(operationchooser);
 
     transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount);
+    keychooser = createKeyChooser(p, insertstart, insertcount);
+    settings = new PhaseSettings(operationchooser, operations, keychooser);
+    List<PhaseSchedule.Phase> phaseList;
+    try {
+      phaseList = PhaseSchedule.parse(p);
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException(e.getMessage(), e);
+    }
+    phases = new PhaseSettings[phaseList.size()];
+    for (PhaseSchedule.Phase phase : phaseList) {
+      Properties pp = phase.getProperties();
+      DiscreteGenerator phasechooser = createOperationGenerator(pp);
+      phases[phase.getIndex()] = new PhaseSettings(phasechooser, Operation.of(phasechooser),
+          createKeyChooser(pp, insertstart, insertcount));
+    }
+
+    fieldchooser = new UniformLongGenerator(0, fieldcount - 1);
+
+    if (scanlengthdistrib.compareTo("uniform") == 0) {
+      scanlength = new UniformLongGenerator(minscanlength, maxscanlength);
+    } else if (scanlengthdistrib.compareTo("zipfian") == 0) {
+      scanlength = new ZipfianGenerator(minscanlength, maxscanlength);
+    } else {
+      throw new WorkloadException(
+          "Distribution \"" + scanlengthdistrib + "\" not allowed for scan length");
+    }
+
+    insertionRetryLimit = Integer.parseInt(p.getProperty(
+        INSERTION_RETRY_LIMIT, INSERTION_RETRY_LIMIT_DEFAULT));
+    insertionRetryInterval = Integer.parseInt(p.getProperty(
+        INSERTION_RETRY_INTERVAL, INSERTION_RETRY_INTERVAL_DEFAULT));
+
+    batchsize = Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_PROPERTY_DEFAULT));
+    if (batchsize < 1) {
+      throw new WorkloadException("Invalid " + BATCH_SIZE_PROPERTY + " " + batchsize);
+    }
+    bulkload = Boolean.parseBoolean(p.getProperty(BULK_LOAD_PROPERTY, BULK_LOAD_PROPERTY_DEFAULT));
+    bulkloadchunksize = Integer.parseInt(p.getProperty(BULK_LOAD_CHUNK_SIZE_PROPERTY,
+        BULK_LOAD_CHUNK_SIZE_PROPERTY_DEFAULT));
+    if (bulkloadchunksize < 1) {
+      throw new WorkloadException("Invalid " + BULK_LOAD_CHUNK_SIZE_PROPERTY + " " + bulkloadchunksize);
+    }
+    insertbegin = insertstart;
+    insertend = insertstart + insertcount;
+  }
+
+  /**
+   * Creates the generator that chooses the records to operate on, for any request distribution but
+   * exponential.
+   */
+  private NumberGenerator createKeyChooser(Properties p, long insertstart, long insertcount)
+      throws WorkloadException {
+    String requestdistrib =
+        p.getProperty(REQUEST_DISTRIBUTION_PROPERTY, REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
+    NumberGenerator chooser;
     if (requestdistrib.compareTo("uniform") == 0) {
-      keychooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
+      chooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
     } else if (requestdistrib.compareTo("sequential") == 0) {
-      keychooser = new SequentialGenerator(insertstart, insertstart + insertcount - 1);
+      chooser = new SequentialGenerator(insertstart, insertstart + insertcount - 1);
     } else if (requestdistrib.compareTo("zipfian") == 0) {
       // it does this by generating a random "next key" in part by taking the modulus over the
       // number of keys.
@@ -483,35 +645,110 @@ public class CoreWorkload extends Workload {
       int opcount = Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
       int expectednewkeys = (int) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
 
-      keychooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
+      chooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
     } else if (requestdistrib.compareTo("latest") == 0) {
-      keychooser = new SkewedLatestGenerator(transactioninsertkeysequence);
+      chooser = new SkewedLatestGenerator(transactioninsertkeysequence);
     } else if (requestdistrib.equals("hotspot")) {
       double hotsetfraction =
           Double.parseDouble(p.getProperty(HOTSPOT_DATA_FRACTION, HOTSPOT_DATA_FRACTION_DEFAULT));
       double hotopnfraction =
           Double.parseDouble(p.getProperty(HOTSPOT_OPN_FRACTION, HOTSPOT_OPN_FRACTION_DEFAULT));
-      keychooser = new HotspotIntegerGenerator(insertstart, insertstart + insertcount - 1,
-          hotsetfraction, hotopnfraction);
+      double hotoffsetfraction =
+          Double.parseDouble(p.getProperty(HOTSPOT_OFFSET_FRACTION, HOTSPOT_OFFSET_FRACTION_DEFAULT));
+      chooser = new HotspotIntegerGenerator(insertstart, insertstart + insertcount - 1,
+          hotsetfraction, hotopnfraction, hotoffsetfraction);
     } else {
       throw new WorkloadException("Unknown request distribution \"" + requestdistrib + "\"");
     }
+    return chooser;
+  }
 
-    fieldchooser = new UniformLongGenerator(0, fieldcount - 1);
+  @Override
+  public void startPhase(int phase) throws WorkloadException {
+    settings = phases[phase];
+  }
 
-    if (scanlengthdistrib.compareTo("uniform") == 0) {
-      scanlength = new UniformLongGenerator(minscanlength, maxscanlength);
-    } else if (scanlengthdistrib.compareTo("zipfian") == 0) {
-      scanlength = new ZipfianGenerator(minscanlength, maxscanlength);
-    } else {
-      throw new WorkloadException(
-          "Distribution \"" + scanlengthdistrib + "\" not allowed for scan length");
+  /**
+   * The settings that change from phase to phase, switched together by one volatile write.
+   */
+  private static final class PhaseSettings {
+    private final DiscreteGenerator operationchooser;
+    private final Operation[] operations;
+    private final NumberGenerator keychooser;
+
+    private PhaseSettings(DiscreteGenerator operationchooser, Operation[] operations, NumberGenerator keychooser) {
+      this.operationchooser = operationchooser;
+      this.operations = operations;
+      this.keychooser = keychooser;
     }
+  }
 
-    insertionRetryLimit = Integer.parseInt(p.getProperty(
-        INSERTION_RETRY_LIMIT, INSERTION_RETRY_LIMIT_DEFAULT));
-    insertionRetryInterval = Integer.parseInt(p.getProperty(
-        INSERTION_RETRY_INTERVAL, INSERTION_RETRY_INTERVAL_DEFAULT));
+  /**
+   * Per-thread state returned by {@link #initThread}. It holds the buffers that synchronous
+   * operations reuse rather than allocate for every operation: the field values to write (see
+   * {@link FieldValues}) and the containers reads and scans return their results in.
+   */
+  public static final class ThreadState {
+    private final FieldValues values;
+    private final HashMap<String, ByteIterator> cells = new HashMap<>();
+    private final Vector<HashMap<String, ByteIterator>> rows = new Vector<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<HashMap<String, ByteIterator>> records = new ArrayList<>();
+    /**
+     * The position in the bulk load's key order of the next record of the thread's share, and the end of that share.
+     */
+    private long bulknext;
+    private long bulkend;
+
+    ThreadState(List<String> fieldnames) {
+      values = new FieldValues(fieldnames);
+    }
+
+    private HashMap<String, ByteIterator> cells() {
+      cells.clear();
+      return cells;
+    }
+
+    private Vector<HashMap<String, ByteIterator>> rows() {
+      rows.clear();
+      return rows;
+    }
+
+    private List<String> keys() {
+      keys.clear();
+      return keys;
+    }
+
+    /**
+     * The values to write, or the results read, for the records of a batch.
+     */
+    private List<HashMap<String, ByteIterator>> records() {
+      records.clear();
+      return records;
+    }
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    ThreadState state = new ThreadState(fieldnames);
+    if (bulkload) {
+      // each thread loads a contiguous share of the keys, so that the threads' chunks do not overlap either
+      long count = insertend - insertbegin;
+      state.bulknext = count * mythreadid / threadcount;
+      state.bulkend = count * (mythreadid + 1) / threadcount;
+    }
+    return state;
+  }
+
+  /**
+   * Returns the state created by {@link #initThread}, or fresh state for callers that didn't
+   * create any.
+   */
+  private ThreadState threadState(Object threadstate) {
+    if (threadstate instanceof ThreadState) {
+      return (ThreadState) threadstate;
+    }
+    return new ThreadState(fieldnames);
   }
 
   protected String buildKeyName(long keynum) {
@@ -533,13 +770,13 @@ public class CoreWorkload extends Workload {
   private HashMap<String, ByteIterator> buildSingleValue(String key) {
     HashMap<String, ByteIterator> value = new HashMap<>();
 
-    String fieldkey = fieldnames.get(fieldchooser.nextValue().intValue());
+    String fieldkey = fieldnames.get((int) fieldchooser.nextLong());
     ByteIterator data;
     if (dataintegrity) {
       data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
     } else {
       // fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+      data = new RandomByteIterator(fieldlengthgenerator.nextLong());
     }
     value.put(fieldkey, data);
 
@@ -558,18 +795,40 @@ public class CoreWorkload extends Workload {
         data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
       } else {
         // fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+        data = new RandomByteIterator(fieldlengthgenerator.nextLong());
       }
       values.put(fieldkey, data);
     }
     return values;
   }
 
+  /**
+   * Builds a value for a randomly chosen field, reusing the thread's buffers unless the value
+   * must be deterministic.
+   */
+  private HashMap<String, ByteIterator> buildSingleValue(String key, ThreadState state) {
+    if (dataintegrity) {
+      return buildSingleValue(key);
+    }
+    return state.values.single((int) fieldchooser.nextLong(), fieldlengthgenerator);
+  }
+
+  /**
+   * Builds values for all fields, reusing the thread's buffers unless the values must be
+   * deterministic.
+   */
+  private HashMap<String, ByteIterator> buildValues(String key, ThreadState state) {
+    if (dataintegrity) {
+      return buildValues(key);
+    }
+    return state.values.all(fieldlengthgenerator);
+  }
+
   /**
    * Build a deterministic value given the key information.
    */
   private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextValue().intValue();
+    int size = (int) fieldlengthgenerator.nextLong();
     StringBuilder sb = new StringBuilder(size);
     sb.append(key);
     sb.append(':');
@@ -591,14 +850,159 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doInsert(DB db, Object threadstate) {
-    int keynum = keysequence.nextValue().intValue();
+    if (bulkload) {
+      return doBulkInsert(db, threadState(threadstate));
+    }
+    if (batchsize > 1) {
+      return doInsertBatch(db, threadState(threadstate));
+    }
+    return doSingleInsert(db, threadstate);
+  }
+
+  /**
+   * Inserts the next record on its own, whatever the batch size.
+   */
+  boolean doSingleInsert(DB db, Object threadstate) {
+    int keynum = (int) keysequence.nextLong();
     String dbkey = buildKeyName(keynum);
-    HashMap<String, ByteIterator> values = buildValues(dbkey);
+    HashMap<String, ByteIterator> values = buildValues(dbkey, threadState(threadstate));
+
+    return insertWithRetries(() -> db.insert(table, dbkey, values));
+  }
+
+  /**
+   * Inserts the next batch of records, stopping at the end of the range of records to load. Returns false
+   * once there are none left.
+   */
+  private boolean doInsertBatch(DB db, ThreadState state) {
+    List<String> keys = state.keys();
+    List<HashMap<String, ByteIterator>> values = state.records();
+    while (keys.size() < batchsize) {
+      int keynum = (int) keysequence.nextLong();
+      if (keynum >= insertend) {
+        break;
+      }
+      String dbkey = buildKeyName(keynum);
+      keys.add(dbkey);
+      values.add(buildValues(dbkey));
+    }
+    if (keys.isEmpty()) {
+      return false;
+    }
+
+    return insertWithRetries(() -> db.batchInsert(table, keys, values));
+  }
+
+  /**
+   * Loads the next chunk of the thread's share of the records, in key order. Returns false once there are none
+   * left. The records are the ones {@link #doSingleInsert} would insert, with the same values.
+   */
+  private boolean doBulkInsert(DB db, ThreadState state) {
+    int first = (int) state.bulknext;
+    int last = (int) Math.min((long) first + bulkloadchunksize, state.bulkend);
+    if (first >= last) {
+      return false;
+    }
+    state.bulknext = last;
+
+    long[] order = bulkOrder();
+    List<String> keys = state.keys();
+    for (int i = first; i < last; i++) {
+      keys.add(buildKeyName(order[i]));
+    }
+    List<HashMap<String, ByteIterator>> values = state.records();
+    for (String dbkey : keys) {
+      values.add(buildValues(dbkey));
+    }
+
+    if (db instanceof BulkLoadable) {
+      BulkLoadable loader = (BulkLoadable) db;
+      return insertWithRetries(() -> loader.bulkLoad(table, keys, values));
+    }
+
+    // otherwise in large batches, still in key order
+    int step = batchsize > 1 ? batchsize : keys.size();
+    for (int from = 0; from < keys.size(); from += step) {
+      List<String> batchkeys = keys.subList(from, Math.min(from + step, keys.size()));
+      List<HashMap<String, ByteIterator>> batchvalues = values.subList(from, from + batchkeys.size());
+      if (!insertWithRetries(() -> db.batchInsert(table, batchkeys, batchvalues))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The numbers of the records from insertbegin to insertend, sorted by their keys. Takes 16 bytes per record
+   * while sorting, and keeps 8.
+   */
+  private synchronized long[] bulkOrder() {
+    if (bulkorder == null) {
+      long[] keynums = new long[(int) (insertend - insertbegin)];
+      for (int i = 0; i < keynums.length; i++) {
+        keynums[i] = insertbegin + i;
+      }
+      long[] from = keynums;
+      long[] to = new long[keynums.length];
+      // a bottom-up merge sort, since the JDK has no way to sort primitives in an order of one's own
+      for (long width = 1; width < keynums.length; width *= 2) {
+        for (long lo = 0; lo < keynums.length; lo += 2 * width) {
+          int mid = (int) Math.min(lo + width, keynums.length);
+          int hi = (int) Math.min(lo + 2 * width, keynums.length);
+          int i = (int) lo;
+          int j = mid;
+          for (int k = (int) lo; k < hi; k++) {
+            to[k] = i < mid && (j >= hi || compareKeys(from[i], from[j]) <= 0) ? from[i++] : from[j++];
+          }
+        }
+        long[] merged = to;
+        to = from;
+        from = merged;
+      }
+      bulkorder = from;
+    }
+    return bulkorder;
+  }
+
+  /**
+   * Compares the keys {@link #buildKeyName} builds for two record numbers, without building them. The number in a
+   * key is padded with zeros to zeropadding digits; two such strings of digits compare as the unsigned values they
+   * have when padded with zeros on the right to 19 digits, and if those are equal, the shorter string comes first.
+   */
+  private int compareKeys(long keynum1, long keynum2) {
+    long number1 = orderedinserts ? keynum1 : Utils.hash(keynum1);
+    long number2 = orderedinserts ? keynum2 : Utils.hash(keynum2);
+    if (number1 < 0 || number2 < 0 || zeropadding > 19) {
+      return buildKeyName(keynum1).compareTo(buildKeyName(keynum2));
+    }
+    int length1 = Math.max(digits(number1), zeropadding);
+    int length2 = Math.max(digits(number2), zeropadding);
+    int compared = Long.compareUnsigned(number1 * POWERS_OF_TEN[19 - length1], number2 * POWERS_OF_TEN[19 - length2]);
+    return compared != 0 ? compared : Integer.compare(length1, length2);
+  }
+
+  private static final long[] POWERS_OF_TEN = new long[19];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private static int digits(long number) {
+    int digits = 1;
+    while (digits < 19 && number >= POWERS_OF_TEN[digits]) {
+      digits++;
+    }
+    return digits;
+  }
 
+  private boolean insertWithRetries(Supplier<Status> insert) {
     Status status;
     int numOfRetries = 0;
     do {
-      status = db.insert(table, dbkey, values);
+      status = insert.get();
       if (null != status && status.isOk()) {
         break;
       }
@@ -634,31 +1038,95 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doTransaction(DB db, Object threadstate) {
-    String operation = operationchooser.nextString();
-    if(operation == null) {
+    PhaseSettings current = settings;
+    int operation = current.operationchooser.nextIndex();
+    if (operation < 0) {
       return false;
     }
 
-    switch (operation) {
-    case "READ":
-      doTransactionRead(db);
+    ThreadState state = threadState(threadstate);
+    switch (current.operations[operation]) {
+    case READ:
+      if (batchsize > 1) {
+        doTransactionBatchRead(db, state);
+      } else {
+        doTransactionRead(db, state);
+      }
       break;
-    case "UPDATE":
-      doTransactionUpdate(db);
+    case UPDATE:
+      if (batchsize > 1) {
+        doTransactionBatchUpdate(db, state);
+      } else {
+        doTransactionUpdate(db, state);
+      }
       break;
-    case "INSERT":
-      doTransactionInsert(db);
+    case INSERT:
+      if (batchsize > 1) {
+        doTransactionBatchInsert(db, state);
+      } else {
+        doTransactionInsert(db, state);
+      }
       break;
-    case "SCAN":
-      doTransactionScan(db);
+    case SCAN:
+      doTransactionScan(db, state);
       break;
     default:
-      doTransactionReadModifyWrite(db);
+      doTransactionReadModifyWrite(db, state);
     }
 
     return true;
   }
 
+  /**
+   * Issue one insert operation without waiting for it. When insertion retries are configured the insert is
+   * performed synchronously, since retrying means backing off on the issuing thread.
+   */
+  @Override
+  public CompletionStage<Boolean> doInsertAsync(AsyncDB db, Object threadstate) {
+    if (insertionRetryLimit > 0) {
+      return super.doInsertAsync(db, threadstate);
+    }
+    int keynum = (int) keysequence.nextLong();
+    String dbkey = buildKeyName(keynum);
+    HashMap<String, ByteIterator> values = buildValues(dbkey);
+
+    return db.insertAsync(table, dbkey, values).thenApply(status -> null != status && status.isOk());
+  }
+
+  /**
+   * Issue one transaction operation without waiting for it. The operation mix is the same as
+   * {@link #doTransaction(DB, Object)}. Operations in flight can't share the buffers of the
+   * thread's {@link ThreadState}, so their values and results are allocated per operation.
+   */
+  @Override
+  public CompletionStage<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+    PhaseSettings current = settings;
+    int operation = current.operationchooser.nextIndex();
+    if (operation < 0) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    CompletionStage<?> stage;
+    switch (current.operations[operation]) {
+    case READ:
+      stage = doTransactionReadAsync(db);
+      break;
+    case UPDATE:
+      stage = doTransactionUpdateAsync(db);
+      break;
+    case INSERT:
+      stage = doTransactionInsertAsync(db);
+      break;
+    case SCAN:
+      stage = doTransactionScanAsync(db);
+      break;
+    default:
+      stage = doTransactionReadModifyWriteAsync(db);
+    }
+
+    return stage.handle((ignored, error) -> true);
+  }
+
   /**
    * Results are reported in the first three buckets of the histogram under
    * the label "VERIFY".
@@ -681,44 +1149,46 @@ public class CoreWorkload extends Workload {
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    measurements.reportStatus("VERIFY", verifyStatus);
+    measurements.measure(verifyId, (int) (endTime - startTime) / 1000);
+    measurements.reportStatus(verifyId, verifyStatus);
   }
 
   long nextKeynum() {
+    NumberGenerator chooser = settings.keychooser;
     long keynum;
-    if (keychooser instanceof ExponentialGenerator) {
+    if (chooser instanceof ExponentialGenerator) {
       do {
-        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().intValue();
+        keynum = transactioninsertkeysequence.lastLong() - chooser.nextLong();
       } while (keynum < 0);
     } else {
       do {
-        keynum = keychooser.nextValue().intValue();
-      } while (keynum > transactioninsertkeysequence.lastValue());
+        keynum = chooser.nextLong();
+      } while (keynum > transactioninsertkeysequence.lastLong());
     }
     return keynum;
   }
 
   public void doTransactionRead(DB db) {
+    doTransactionRead(db, new ThreadState(fieldnames));
+  }
+
+  public void doTransactionRead(DB db, ThreadState state) {
     // choose a random key
     long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
-    HashSet<String> fields = null;
+    Set<String> fields = null;
 
     if (!readallfields) {
       // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
     } else if (dataintegrity) {
       // pass the full field list if dataintegrity is on for verification
-      fields = new HashSet<String>(fieldnames);
+      fields = allfieldsset;
     }
 
-    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    HashMap<String, ByteIterator> cells = state.cells();
     db.read(table, keyname, fields, cells);
 
     if (dataintegrity) {
@@ -727,34 +1197,35 @@ public class CoreWorkload extends Workload {
   }
 
   public void doTransactionReadModifyWrite(DB db) {
+    doTransactionReadModifyWrite(db, new ThreadState(fieldnames));
+  }
+
+  public void doTransactionReadModifyWrite(DB db, ThreadState state) {
     // choose a random key
     long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
-    HashSet<String> fields = null;
+    Set<String> fields = null;
 
     if (!readallfields) {
       // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
     }
 
     HashMap<String, ByteIterator> values;
 
     if (writeallfields) {
       // new data for all the fields
-      values = buildValues(keyname);
+      values = buildValues(keyname, state);
     } else {
       // update a random field
-      values = buildSingleValue(keyname);
+      values = buildSingleValue(keyname, state);
     }
 
     // do the transaction
 
-    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    HashMap<String, ByteIterator> cells = state.cells();
 
 
     long ist = measurements.getIntendedtartTimeNs();
@@ -769,33 +1240,38 @@ public class CoreWorkload extends Workload {
       verifyRow(keyname, cells);
     }
 
-    measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
-    measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    measurements.measure(readModifyWriteId, (int) ((en - st) / 1000));
+    measurements.measureIntended(readModifyWriteId, (int) ((en - ist) / 1000));
   }
 
   public void doTransactionScan(DB db) {
+    doTransactionScan(db, new ThreadState(fieldnames));
+  }
+
+  public void doTransactionScan(DB db, ThreadState state) {
     // choose a random key
     long keynum = nextKeynum();
 
     String startkeyname = buildKeyName(keynum);
 
     // choose a random scan length
-    int len = scanlength.nextValue().intValue();
+    int len = (int) scanlength.nextLong();
 
-    HashSet<String> fields = null;
+    Set<String> fields = null;
 
     if (!readallfields) {
       // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
     }
 
-    db.scan(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
+    db.scan(table, startkeyname, len, fields, state.rows());
   }
 
   public void doTransactionUpdate(DB db) {
+    doTransactionUpdate(db, new ThreadState(fieldnames));
+  }
+
+  public void doTransactionUpdate(DB db, ThreadState state) {
     // choose a random key
     long keynum = nextKeynum();
 
@@ -805,29 +1281,228 @@ public class CoreWorkload extends Workload {
 
     if (writeallfields) {
       // new data for all the fields
-      values = buildValues(keyname);
+      values = buildValues(keyname, state);
     } else {
       // update a random field
-      values = buildSingleValue(keyname);
+      values = buildSingleValue(keyname, state);
     }
 
     db.update(table, keyname, values);
   }
 
   public void doTransactionInsert(DB db) {
+    doTransactionInsert(db, new ThreadState(fieldnames));
+  }
+
+  public void doTransactionInsert(DB db, ThreadState state) {
     // choose the next key
-    long keynum = transactioninsertkeysequence.nextValue();
+    long keynum = transactioninsertkeysequence.nextLong();
 
     try {
       String dbkey = buildKeyName(keynum);
 
-      HashMap<String, ByteIterator> values = buildValues(dbkey);
+      HashMap<String, ByteIterator> values = buildValues(dbkey, state);
       db.insert(table, dbkey, values);
     } finally {
       transactioninsertkeysequence.acknowledge(keynum);
     }
   }
 
+  public void doTransactionBatchRead(DB db, ThreadState state) {
+    // choose batchsize random keys
+    List<String> keys = state.keys();
+    for (int i = 0; i < batchsize; i++) {
+      keys.add(buildKeyName(nextKeynum()));
+    }
+
+    Set<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
+    } else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = allfieldsset;
+    }
+
+    List<HashMap<String, ByteIterator>> results = state.records();
+    db.batchRead(table, keys, fields, results);
+
+    if (dataintegrity) {
+      for (int i = 0; i < results.size(); i++) {
+        verifyRow(keys.get(i), results.get(i));
+      }
+    }
+  }
+
+  public void doTransactionBatchUpdate(DB db, ThreadState state) {
+    // choose batchsize random keys; the records of a batch can't share the thread's value buffers
+    List<String> keys = state.keys();
+    List<HashMap<String, ByteIterator>> values = state.records();
+    for (int i = 0; i < batchsize; i++) {
+      String keyname = buildKeyName(nextKeynum());
+      keys.add(keyname);
+      values.add(writeallfields ? buildValues(keyname) : buildSingleValue(keyname));
+    }
+
+    db.batchUpdate(table, keys, values);
+  }
+
+  public void doTransactionBatchInsert(DB db, ThreadState state) {
+    List<String> keys = state.keys();
+    List<HashMap<String, ByteIterator>> values = state.records();
+    long[] keynums = new long[batchsize];
+    int count = 0;
+    try {
+      while (count < batchsize) {
+        // choose the next key
+        long keynum = transactioninsertkeysequence.nextLong();
+        keynums[count++] = keynum;
+        String dbkey = buildKeyName(keynum);
+        keys.add(dbkey);
+        values.add(buildValues(dbkey));
+      }
+      db.batchInsert(table, keys, values);
+    } finally {
+      for (int i = 0; i < count; i++) {
+        transactioninsertkeysequence.acknowledge(keynums[i]);
+      }
+    }
+  }
+
+  public CompletionStage<Status> doTransactionReadAsync(AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    final String keyname = buildKeyName(keynum);
+
+    Set<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
+    } else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = allfieldsset;
+    }
+
+    final HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    CompletionStage<Status> stage = db.readAsync(table, keyname, fields, cells);
+
+    if (dataintegrity) {
+      stage = stage.thenApply(status -> {
+          verifyRow(keyname, cells);
+          return status;
+        });
+    }
+    return stage;
+  }
+
+  public CompletionStage<Status> doTransactionReadModifyWriteAsync(final AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    final String keyname = buildKeyName(keynum);
+
+    Set<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
+    }
+
+    final HashMap<String, ByteIterator> values;
+
+    if (writeallfields) {
+      // new data for all the fields
+      values = buildValues(keyname);
+    } else {
+      // update a random field
+      values = buildSingleValue(keyname);
+    }
+
+    // do the transaction
+
+    final HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+
+    final long ist = measurements.getIntendedtartTimeNs();
+    final long st = System.nanoTime();
+    return db.readAsync(table, keyname, fields, cells)
+        .thenCompose(readStatus -> {
+            // The update is issued from whichever thread completed the read, so carry the
+            // intended start time of the whole transaction over to it.
+            measurements.setIntendedStartTimeNs(ist);
+            return db.updateAsync(table, keyname, values);
+          })
+        .whenComplete((status, error) -> {
+            long en = System.nanoTime();
+
+            if (dataintegrity) {
+              verifyRow(keyname, cells);
+            }
+
+            measurements.measure(readModifyWriteId, (int) ((en - st) / 1000));
+            measurements.measureIntended(readModifyWriteId, (int) ((en - ist) / 1000));
+          });
+  }
+
+  public CompletionStage<Status> doTransactionScanAsync(AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    String startkeyname = buildKeyName(keynum);
+
+    // choose a random scan length
+    int len = (int) scanlength.nextLong();
+
+    Set<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      fields = singlefieldsets.get((int) fieldchooser.nextLong());
+    }
+
+    return db.scanAsync(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
+  }
+
+  public CompletionStage<Status> doTransactionUpdateAsync(AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    String keyname = buildKeyName(keynum);
+
+    HashMap<String, ByteIterator> values;
+
+    if (writeallfields) {
+      // new data for all the fields
+      values = buildValues(keyname);
+    } else {
+      // update a random field
+      values = buildSingleValue(keyname);
+    }
+
+    return db.updateAsync(table, keyname, values);
+  }
+
+  public CompletionStage<Status> doTransactionInsertAsync(AsyncDB db) {
+    // choose the next key
+    final long keynum = transactioninsertkeysequence.nextLong();
+
+    CompletionStage<Status> stage;
+    try {
+      String dbkey = buildKeyName(keynum);
+
+      HashMap<String, ByteIterator> values = buildValues(dbkey);
+      stage = db.insertAsync(table, dbkey, values);
+    } catch (RuntimeException e) {
+      transactioninsertkeysequence.acknowledge(keynum);
+      throw e;
+    }
+    // Only acknowledge once the record is actually there, so that reads chasing the
+    // insert key sequence do not go looking for records that are still in flight.
+    return stage.whenComplete((status, error) -> transactioninsertkeysequence.acknowledge(keynum));
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.generator.NumberGenerator;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Reusable random field values for one client thread. Every map handed out is backed by the same
+ * pooled {@link RandomByteIterator}s, which are reset with a new random value each time, so
+ * building the values of a record allocates nothing.
+ *
+ * A map is only valid until the next call on the same instance: it must be passed to a single
+ * synchronous operation, and the database must not keep it or its values once the call returns.
+ */
+public final class FieldValues {
+  private final RandomByteIterator[] data;
+  private final HashMap<String, ByteIterator> all;
+  private final HashMap<String, ByteIterator>[] single;
+
+  @SuppressWarnings("unchecked")
+  public FieldValues(List<String> fieldnames) {
+    int fieldcount = fieldnames.size();
+    data = new RandomByteIterator[fieldcount];
+    all = new HashMap<>();
+    single = new HashMap[fieldcount];
+    for (int i = 0; i < fieldcount; i++) {
+      String fieldkey = fieldnames.get(i);
+      data[i] = new RandomByteIterator(0);
+      all.put(fieldkey, data[i]);
+      single[i] = new HashMap<>();
+      single[i].put(fieldkey, data[i]);
+    }
+  }
+
+  /**
+   * Returns new random values for all fields.
+   *
+   * @param fieldlengthgenerator The generator for the length of each value.
+   */
+  public HashMap<String, ByteIterator> all(NumberGenerator fieldlengthgenerator) {
+    for (RandomByteIterator value : data) {
+      value.reset(fieldlengthgenerator.nextLong());
+    }
+    return all;
+  }
+
+  /**
+   * Returns a new random value for a single field.
+   *
+   * @param field The index of the field.
+   * @param fieldlengthgenerator The generator for the length of the value.
+   */
+  public HashMap<String, ByteIterator> single(int field, NumberGenerator fieldlengthgenerator) {
+    data[field].reset(fieldlengthgenerator.nextLong());
+    return single[field];
+  }
+}
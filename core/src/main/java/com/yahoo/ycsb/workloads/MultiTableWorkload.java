@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.AliasTable;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A workload over many tables, such as those of the tenants of a shared cluster. Each table is a
+ * {@link CoreWorkload} of its own, with its own records, fields, request distribution and operation mix, and every
+ * operation first chooses a table.
+ * <p>
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>tables</b>: the names of the tables, comma separated (default: tablecount tables named after table)
+ * <LI><b>tablecount</b>: the number of tables, if they are not named (default: 1)
+ * <LI><b>tenantdistribution</b>: how to choose the table of each operation - uniform, zipfian (the first table
+ * most often) or weighted (by the weight of each table) (default: uniform)
+ * <LI><b>table.name.property</b>: overrides any {@link CoreWorkload} property, such as recordcount, fieldcount,
+ * fieldlength, requestdistribution or readproportion, for the table name; table.name.weight sets its weight
+ * (default: 1)
+ * </ul>
+ * <p>
+ * Every table is loaded in full, one after the other, so the load inserts the sum of the tables' record counts.
+ * The load inserts one record at a time; a table's batchsize applies to its reads, updates and inserts in the run.
+ * Each operation is measured both in the totals (e.g. [READ]) and under its table (e.g. [orders-READ]).
+ */
+public class MultiTableWorkload extends Workload {
+  /**
+   * The names of the tables, comma separated.
+   */
+  public static final String TABLES_PROPERTY = "tables";
+
+  /**
+   * The number of tables, named after the table property, if they are not listed.
+   */
+  public static final String TABLE_COUNT_PROPERTY = "tablecount";
+  public static final String TABLE_COUNT_PROPERTY_DEFAULT = "1";
+
+  /**
+   * Prefix of the properties a table overrides, followed by the table name and a dot.
+   */
+  public static final String TABLE_PROPERTY_PREFIX = "table.";
+
+  /**
+   * How to choose the table of each operation: uniform, zipfian or weighted.
+   */
+  public static final String TENANT_DISTRIBUTION_PROPERTY = "tenantdistribution";
+  public static final String TENANT_DISTRIBUTION_PROPERTY_DEFAULT = "uniform";
+
+  /**
+   * The weight of a table, as table.name.weight, for the weighted tenant distribution.
+   */
+  public static final String WEIGHT_PROPERTY = "weight";
+  public static final String WEIGHT_PROPERTY_DEFAULT = "1";
+
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  private String[] names;
+  private CoreWorkload[] tables;
+  private int[] tagIds;
+  private AliasTable tablechooser;
+
+  /**
+   * The number of records loaded into each table and all tables before it, and the number of inserts done.
+   */
+  private long[] loadEnds;
+  private final AtomicLong loaded = new AtomicLong();
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    String list = p.getProperty(TABLES_PROPERTY);
+    if (list != null) {
+      names = list.trim().split("\\s*,\\s*");
+    } else {
+      int count = Integer.parseInt(p.getProperty(TABLE_COUNT_PROPERTY, TABLE_COUNT_PROPERTY_DEFAULT));
+      String prefix = p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+      names = new String[count];
+      for (int i = 0; i < count; i++) {
+        names[i] = prefix + i;
+      }
+    }
+    if (names.length == 0 || names[0].isEmpty()) {
+      throw new WorkloadException("No tables given in " + TABLES_PROPERTY);
+    }
+
+    String distribution = p.getProperty(TENANT_DISTRIBUTION_PROPERTY, TENANT_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (!distribution.equals("uniform") && !distribution.equals("zipfian") && !distribution.equals("weighted")) {
+      throw new WorkloadException("Unknown tenant distribution \"" + distribution + "\"");
+    }
+
+    tables = new CoreWorkload[names.length];
+    tagIds = new int[names.length];
+    loadEnds = new long[names.length];
+    double[] weights = new double[names.length];
+    long records = 0;
+    for (int i = 0; i < names.length; i++) {
+      Properties tableProps = tableProperties(p, names[i]);
+      tables[i] = new CoreWorkload();
+      tables[i].init(tableProps);
+      tagIds[i] = measurements.getTagId(names[i]);
+
+      long recordcount = Long.parseLong(
+          tableProps.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+      long insertstart = Long.parseLong(
+          tableProps.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+      records += Long.parseLong(
+          tableProps.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
+      loadEnds[i] = records;
+
+      if (distribution.equals("zipfian")) {
+        weights[i] = 1 / Math.pow(i + 1, ZipfianGenerator.ZIPFIAN_CONSTANT);
+      } else if (distribution.equals("weighted")) {
+        weights[i] = Double.parseDouble(tableProps.getProperty(WEIGHT_PROPERTY, WEIGHT_PROPERTY_DEFAULT));
+      } else {
+        weights[i] = 1;
+      }
+    }
+    try {
+      tablechooser = new AliasTable(weights);
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException("Bad table weights: " + e.getMessage(), e);
+    }
+
+    // the client loads as many records as there are in all tables together
+    p.setProperty(INSERT_COUNT_PROPERTY, String.valueOf(records));
+  }
+
+  /**
+   * The properties with the table name set, and those starting with the table's prefix overriding the ones they
+   * name without it.
+   */
+  private static Properties tableProperties(Properties p, String name) {
+    String prefix = TABLE_PROPERTY_PREFIX + name + ".";
+    Properties tableProps = new Properties();
+    for (String key : p.stringPropertyNames()) {
+      tableProps.setProperty(key, p.getProperty(key));
+    }
+    for (String key : p.stringPropertyNames()) {
+      if (key.startsWith(prefix)) {
+        tableProps.setProperty(key.substring(prefix.length()), p.getProperty(key));
+      }
+    }
+    tableProps.setProperty(CoreWorkload.TABLENAME_PROPERTY, name);
+    return tableProps;
+  }
+
+  /**
+   * The state of the thread in each table.
+   */
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    Object[] states = new Object[tables.length];
+    for (int i = 0; i < tables.length; i++) {
+      states[i] = tables[i].initThread(p, mythreadid, threadcount);
+    }
+    return states;
+  }
+
+  @Override
+  public void startPhase(int phase) throws WorkloadException {
+    for (CoreWorkload table : tables) {
+      table.startPhase(phase);
+    }
+  }
+
+  @Override
+  public void cleanup() throws WorkloadException {
+    for (CoreWorkload table : tables) {
+      table.cleanup();
+    }
+  }
+
+  /**
+   * Inserts the next record of the first table that is not fully loaded yet.
+   */
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    long records = loadEnds[loadEnds.length - 1];
+    if (records == 0) {
+      return false;
+    }
+    long n = loaded.getAndIncrement() % records;
+    int table = Arrays.binarySearch(loadEnds, n + 1);
+    if (table < 0) {
+      table = -table - 1;
+    }
+    // skip back over tables without records
+    while (table > 0 && loadEnds[table - 1] == n + 1) {
+      table--;
+    }
+    measurements.setThreadTag(tagIds[table]);
+    try {
+      return tables[table].doSingleInsert(db, ((Object[]) threadstate)[table]);
+    } finally {
+      measurements.setThreadTag(Measurements.NO_TAG);
+    }
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    int table = tablechooser.next();
+    measurements.setThreadTag(tagIds[table]);
+    try {
+      return tables[table].doTransaction(db, ((Object[]) threadstate)[table]);
+    } finally {
+      measurements.setThreadTag(Measurements.NO_TAG);
+    }
+  }
+
+  /**
+   * @return the names of the tables, in order
+   */
+  public String[] getTableNames() {
+    return names.clone();
+  }
+}
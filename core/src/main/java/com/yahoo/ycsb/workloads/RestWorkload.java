@@ -23,11 +23,8 @@ import com.yahoo.ycsb.RandomByteIterator;
 import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.generator.*;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 
 import com.yahoo.ycsb.generator.UniformLongGenerator;
@@ -96,10 +93,10 @@ public class RestWorkload extends CoreWorkload {
   private static final String UPDATE_ZIPFIAN_CONSTANT_DEAFULT = "0.99";
   private static final String UPDATE_RECORD_COUNT_PROPERTY = "updaterecordcount";
 
-  private Map<Integer, String> readUrlMap;
-  private Map<Integer, String> insertUrlMap;
-  private Map<Integer, String> deleteUrlMap;
-  private Map<Integer, String> updateUrlMap;
+  private TraceFile readTrace;
+  private TraceFile insertTrace;
+  private TraceFile deleteTrace;
+  private TraceFile updateTrace;
   private int readRecordCount;
   private int insertRecordCount;
   private int deleteRecordCount;
@@ -110,6 +107,7 @@ public class RestWorkload extends CoreWorkload {
   private NumberGenerator updateKeyChooser;
   private NumberGenerator fieldlengthgenerator;
   private DiscreteGenerator operationchooser;
+  private Operation[] operations;
 
   @Override
   public void init(Properties p) throws WorkloadException {
@@ -122,27 +120,32 @@ public class RestWorkload extends CoreWorkload {
     updateRecordCount = Integer
       .parseInt(p.getProperty(UPDATE_RECORD_COUNT_PROPERTY, String.valueOf(Integer.MAX_VALUE)));
 
-    readUrlMap = getTrace(p.getProperty(READ_TRACE_FILE, READ_TRACE_FILE_DEFAULT), readRecordCount);
-    insertUrlMap = getTrace(p.getProperty(INSERT_TRACE_FILE, INSERT_TRACE_FILE_DEFAULT), insertRecordCount);
-    deleteUrlMap = getTrace(p.getProperty(DELETE_TRACE_FILE, DELETE_TRACE_FILE_DEFAULT), deleteRecordCount);
-    updateUrlMap = getTrace(p.getProperty(UPDATE_TRACE_FILE, UPDATE_TRACE_FILE_DEFAULT), updateRecordCount);
+    readTrace = getTrace(p.getProperty(READ_TRACE_FILE, READ_TRACE_FILE_DEFAULT));
+    insertTrace = getTrace(p.getProperty(INSERT_TRACE_FILE, INSERT_TRACE_FILE_DEFAULT));
+    deleteTrace = getTrace(p.getProperty(DELETE_TRACE_FILE, DELETE_TRACE_FILE_DEFAULT));
+    updateTrace = getTrace(p.getProperty(UPDATE_TRACE_FILE, UPDATE_TRACE_FILE_DEFAULT));
+    readRecordCount = traceSize(readTrace, readRecordCount);
+    insertRecordCount = traceSize(insertTrace, insertRecordCount);
+    deleteRecordCount = traceSize(deleteTrace, deleteRecordCount);
+    updateRecordCount = traceSize(updateTrace, updateRecordCount);
 
     operationchooser = createOperationGenerator(p);
+    operations = Operation.of(operationchooser);
 
     // Common distribution for all operations.
     String requestDistrib = p.getProperty(REQUEST_DISTRIBUTION_PROPERTY, REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 
     double readZipfconstant = Double.parseDouble(p.getProperty(READ_ZIPFIAN_CONSTANT, READ_ZIPFIAN_CONSTANT_DEAFULT));
-    readKeyChooser = getKeyChooser(requestDistrib, readUrlMap.size(), readZipfconstant, p);
+    readKeyChooser = getKeyChooser(requestDistrib, readRecordCount, readZipfconstant, p);
     double updateZipfconstant = Double
         .parseDouble(p.getProperty(UPDATE_ZIPFIAN_CONSTANT, UPDATE_ZIPFIAN_CONSTANT_DEAFULT));
-    updateKeyChooser = getKeyChooser(requestDistrib, updateUrlMap.size(), updateZipfconstant, p);
+    updateKeyChooser = getKeyChooser(requestDistrib, updateRecordCount, updateZipfconstant, p);
     double insertZipfconstant = Double
         .parseDouble(p.getProperty(INSERT_ZIPFIAN_CONSTANT, INSERT_ZIPFIAN_CONSTANT_DEAFULT));
-    insertKeyChooser = getKeyChooser(requestDistrib, insertUrlMap.size(), insertZipfconstant, p);
+    insertKeyChooser = getKeyChooser(requestDistrib, insertRecordCount, insertZipfconstant, p);
     double deleteZipfconstant = Double
         .parseDouble(p.getProperty(DELETE_ZIPFIAN_CONSTANT, DELETE_ZIPFIAN_CONSTANT_DEAFULT));
-    deleteKeyChooser = getKeyChooser(requestDistrib, deleteUrlMap.size(), deleteZipfconstant, p);
+    deleteKeyChooser = getKeyChooser(requestDistrib, deleteRecordCount, deleteZipfconstant, p);
 
     fieldlengthgenerator = getFieldLengthGenerator(p);
   }
@@ -206,29 +209,39 @@ public class RestWorkload extends CoreWorkload {
   }
 
   /**
-   * Reads the trace file and returns a URL map.
+   * Maps the trace file. Its lines are read on demand, so the trace does not have to fit in memory.
    */
-  private static Map<Integer, String> getTrace(String filePath, int recordCount)
-    throws WorkloadException {
-    Map<Integer, String> urlMap = new HashMap<Integer, String>();
-    int count = 0;
-    String line;
+  private static TraceFile getTrace(String filePath) throws WorkloadException {
     try {
-      FileReader inputFile = new FileReader(filePath);
-      BufferedReader bufferReader = new BufferedReader(inputFile);
-      while ((line = bufferReader.readLine()) != null) {
-        urlMap.put(count++, line.trim());
-        if (count >= recordCount) {
-          break;
-        }
-      }
-      bufferReader.close();
+      return new TraceFile(filePath);
     } catch (IOException e) {
       throw new WorkloadException(
         "Error while reading the trace. Please make sure the trace file path is correct. "
           + e.getLocalizedMessage());
     }
-    return urlMap;
+  }
+
+  /**
+   * The number of URLs to use from a trace: all of its lines, up to recordCount.
+   */
+  private static int traceSize(TraceFile trace, int recordCount) {
+    return (int) Math.min(trace.lines(), recordCount);
+  }
+
+  @Override
+  public void cleanup() throws WorkloadException {
+    readTrace.close();
+    insertTrace.close();
+    deleteTrace.close();
+    updateTrace.close();
+  }
+
+  /**
+   * Rest operations don't use the buffers of {@link CoreWorkload.ThreadState}.
+   */
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) {
+    return null;
   }
 
   /**
@@ -241,19 +254,19 @@ public class RestWorkload extends CoreWorkload {
 
   @Override
   public boolean doTransaction(DB db, Object threadstate) {
-    String operation = operationchooser.nextString();
-    if (operation == null) {
+    int operation = operationchooser.nextIndex();
+    if (operation < 0) {
       return false;
     }
 
-    switch (operation) {
-    case "UPDATE":
+    switch (operations[operation]) {
+    case UPDATE:
       doTransactionUpdate(db);
       break;
-    case "INSERT":
+    case INSERT:
       doTransactionInsert(db);
       break;
-    case "DELETE":
+    case DELETE:
       doTransactionDelete(db);
       break;
     default:
@@ -267,16 +280,23 @@ public class RestWorkload extends CoreWorkload {
    */
   private String getNextURL(int opType) {
     if (opType == 1) {
-      return readUrlMap.get(readKeyChooser.nextValue().intValue());
+      return getURL(readTrace, readRecordCount, readKeyChooser.nextLong());
     } else if (opType == 2) {
-      return insertUrlMap.get(insertKeyChooser.nextValue().intValue());
+      return getURL(insertTrace, insertRecordCount, insertKeyChooser.nextLong());
     } else if (opType == 3) {
-      return deleteUrlMap.get(deleteKeyChooser.nextValue().intValue());
+      return getURL(deleteTrace, deleteRecordCount, deleteKeyChooser.nextLong());
     } else {
-      return updateUrlMap.get(updateKeyChooser.nextValue().intValue());
+      return getURL(updateTrace, updateRecordCount, updateKeyChooser.nextLong());
     }
   }
 
+  /**
+   * Returns the URL on the given line of a trace, or null if the line is past the URLs in use.
+   */
+  private static String getURL(TraceFile trace, int recordCount, long line) {
+    return line >= 0 && line < recordCount ? trace.line(line).trim() : null;
+  }
+
   @Override
   public void doTransactionRead(DB db) {
     HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
@@ -287,7 +307,7 @@ public class RestWorkload extends CoreWorkload {
   public void doTransactionInsert(DB db) {
     HashMap<String, ByteIterator> value = new HashMap<String, ByteIterator>();
     // Create random bytes of insert data with a specific size.
-    value.put("data", new RandomByteIterator(fieldlengthgenerator.nextValue().longValue()));
+    value.put("data", new RandomByteIterator(fieldlengthgenerator.nextLong()));
     db.insert(null, getNextURL(2), value);
   }
 
@@ -299,7 +319,7 @@ public class RestWorkload extends CoreWorkload {
   public void doTransactionUpdate(DB db) {
     HashMap<String, ByteIterator> value = new HashMap<String, ByteIterator>();
     // Create random bytes of update data with a specific size.
-    value.put("data", new RandomByteIterator(fieldlengthgenerator.nextValue().longValue()));
+    value.put("data", new RandomByteIterator(fieldlengthgenerator.nextLong()));
     db.update(null, getNextURL(4), value);
   }
 
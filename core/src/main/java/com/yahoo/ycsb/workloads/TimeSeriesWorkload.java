@@ -451,6 +451,10 @@ public class TimeSeriesWorkload extends Workload {
   
   /** A generator to select what operation to perform during the run phase. */
   protected DiscreteGenerator operationchooser;
+  /**
+   * The operation named by each of the operationchooser's values, indexed by {@link DiscreteGenerator#nextIndex()}.
+   */
+  protected Operation[] operations;
   
   /** The maximum number of interval offsets from the starting timestamp. Calculated
    * based on the number of records configured for the run. */
@@ -553,6 +557,7 @@ public class TimeSeriesWorkload extends Workload {
     timestampKey = p.getProperty(TIMESTAMP_KEY_PROPERTY, TIMESTAMP_KEY_PROPERTY_DEFAULT);
     valueKey = p.getProperty(VALUE_KEY_PROPERTY, VALUE_KEY_PROPERTY_DEFAULT);
     operationchooser = CoreWorkload.createOperationGenerator(properties);
+    operations = Operation.of(operationchooser);
     
     final int maxscanlength =
         Integer.parseInt(p.getProperty(CoreWorkload.MAX_SCAN_LENGTH_PROPERTY, 
@@ -708,20 +713,24 @@ public class TimeSeriesWorkload extends Workload {
     if (threadstate == null) {
       throw new IllegalStateException("Missing thread state.");
     }
-    switch (operationchooser.nextString()) {
-    case "READ":
+    int operation = operationchooser.nextIndex();
+    if (operation < 0) {
+      return false;
+    }
+    switch (operations[operation]) {
+    case READ:
       doTransactionRead(db, threadstate);
       break;
-    case "UPDATE":
+    case UPDATE:
       doTransactionUpdate(db, threadstate);
       break;
-    case "INSERT": 
+    case INSERT:
       doTransactionInsert(db, threadstate);
       break;
-    case "SCAN":
+    case SCAN:
       doTransactionScan(db, threadstate);
       break;
-    case "DELETE":
+    case DELETE:
       doTransactionDelete(db, threadstate);
       break;
     default:
@@ -732,9 +741,9 @@ public class TimeSeriesWorkload extends Workload {
 
   protected void doTransactionRead(final DB db, Object threadstate) {
     final ThreadState state = (ThreadState) threadstate;
-    final String keyname = keys[keychooser.nextValue().intValue()];
+    final String keyname = keys[(int) keychooser.nextLong()];
     final Random random = ThreadLocalRandom.current();
-    int offsets = state.queryOffsetGenerator.nextValue().intValue();
+    int offsets = (int) state.queryOffsetGenerator.nextLong();
     //int offsets = random.nextInt(maxOffsets - 1);
     final long startTimestamp;
     if (offsets > 0) {
@@ -799,7 +808,7 @@ public class TimeSeriesWorkload extends Workload {
     final String keyname = keys[random.nextInt(keys.length)];
     
     // choose a random scan length
-    int len = scanlength.nextValue().intValue();
+    int len = (int) scanlength.nextLong();
     
     int offsets = random.nextInt(maxOffsets - 1);
     final long startTimestamp;
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Workload.Operation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a trace written by {@link TraceWriter}, one record at a time. Not thread safe.
+ */
+public final class TraceReader implements Closeable {
+  private static final Operation[] OPERATIONS = Operation.values();
+
+  private final InputStream in;
+  private final List<String> fieldNames = new ArrayList<>();
+  private long timeMicros;
+
+  public TraceReader(InputStream in) throws IOException {
+    this.in = new BufferedInputStream(in, 1 << 16);
+    byte[] magic = new byte[TraceWriter.MAGIC.length];
+    readFully(magic);
+    if (!Arrays.equals(magic, TraceWriter.MAGIC)) {
+      throw new IOException("Not a YCSB trace");
+    }
+  }
+
+  /**
+   * @return The next record, or null at the end of the trace.
+   */
+  public TraceRecord next() throws IOException {
+    int op = in.read();
+    if (op < 0) {
+      return null;
+    }
+    if (op >= OPERATIONS.length || OPERATIONS[op] == Operation.READMODIFYWRITE) {
+      throw new IOException("Unknown operation " + op + " in trace");
+    }
+    Operation operation = OPERATIONS[op];
+    timeMicros += readVarLong();
+    String key = readString();
+
+    int fieldCount = (int) readVarLong();
+    List<String> fields = null;
+    if (fieldCount > 0 || operation == Operation.UPDATE || operation == Operation.INSERT) {
+      fields = new ArrayList<>(fieldCount);
+      for (int i = 0; i < fieldCount; i++) {
+        int id = (int) readVarLong();
+        if (id == fieldNames.size()) {
+          fieldNames.add(readString());
+        } else if (id > fieldNames.size()) {
+          throw new IOException("Undefined field " + id + " in trace");
+        }
+        fields.add(fieldNames.get(id));
+      }
+    }
+
+    int[] valueSizes = null;
+    int recordCount = 0;
+    if (operation == Operation.SCAN) {
+      recordCount = (int) readVarLong();
+    } else if (operation == Operation.UPDATE || operation == Operation.INSERT) {
+      valueSizes = new int[fieldCount];
+      for (int i = 0; i < fieldCount; i++) {
+        valueSizes[i] = (int) readVarLong();
+      }
+    }
+    return new TraceRecord(timeMicros, operation, key, fields, valueSizes, recordCount);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private String readString() throws IOException {
+    byte[] bytes = new byte[(int) readVarLong()];
+    readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("Truncated trace record");
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in trace");
+  }
+
+  private void readFully(byte[] bytes) throws IOException {
+    int off = 0;
+    while (off < bytes.length) {
+      int n = in.read(bytes, off, bytes.length - off);
+      if (n < 0) {
+        throw new EOFException("Truncated trace");
+      }
+      off += n;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Workload.Operation;
+
+import java.util.List;
+
+/**
+ * One operation of a captured trace: when it was issued, relative to the start of the trace, and what it did.
+ *
+ * @see TraceWriter
+ * @see TraceReplayWorkload
+ */
+public final class TraceRecord {
+  private final long timeMicros;
+  private final Operation operation;
+  private final String key;
+  private final List<String> fields;
+  private final int[] valueSizes;
+  private final int recordCount;
+
+  /**
+   * @param timeMicros When the operation was issued, in microseconds since the start of the trace.
+   * @param operation READ, UPDATE, INSERT, SCAN or DELETE.
+   * @param key The key read, written or deleted, or the first key scanned.
+   * @param fields The fields read or written, or null for all fields.
+   * @param valueSizes The length of each field's value for UPDATE and INSERT, or null.
+   * @param recordCount The number of records scanned for SCAN, otherwise 0.
+   */
+  public TraceRecord(long timeMicros, Operation operation, String key, List<String> fields, int[] valueSizes,
+                     int recordCount) {
+    if (operation == Operation.READMODIFYWRITE) {
+      throw new IllegalArgumentException("A trace records the read and the update of a read-modify-write");
+    }
+    this.timeMicros = timeMicros;
+    this.operation = operation;
+    this.key = key;
+    this.fields = fields;
+    this.valueSizes = valueSizes;
+    this.recordCount = recordCount;
+  }
+
+  public long getTimeMicros() {
+    return timeMicros;
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return The fields read or written, or null for all fields.
+   */
+  public List<String> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return The length of the value of each of {@link #getFields()}, for UPDATE and INSERT.
+   */
+  public int[] getValueSizes() {
+    return valueSizes;
+  }
+
+  /**
+   * @return The number of records scanned, for SCAN.
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+}
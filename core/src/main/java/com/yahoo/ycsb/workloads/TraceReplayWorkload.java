@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a trace of operations captured from a live run by {@link com.yahoo.ycsb.TraceRecorderDB}, instead of
+ * generating them from a synthetic distribution.
+ * <p>
+ * Properties to control the replay:
+ * <UL>
+ * <LI><b>trace.file</b>: the trace to replay (required)
+ * <LI><b>trace.replay</b>: "timed" to issue each operation at its recorded time after the start of the replay,
+ * or "fast" to issue them one after the other as fast as the client threads can (default: timed)
+ * <LI><b>trace.speedup</b>: in timed mode, divide the recorded times by this factor, so that 2 replays the trace
+ * twice as fast and 0.5 half as fast (default: 1)
+ * <LI><b>table</b>: the table to run operations against (default: usertable)
+ * </ul>
+ * <p>
+ * The client threads take the records in order from the shared trace. In timed mode each operation's recorded
+ * time is its intended start time, as with a target throughput: if the threads fall behind, operations start late
+ * and the intended latencies show it. Use enough threads to cover the concurrency of the original run, and set
+ * operationcount to 0 to replay the whole trace. The same records are replayed in the load and the transaction
+ * phase; a record's field values are random bytes of the recorded lengths.
+ */
+public class TraceReplayWorkload extends Workload {
+  public static final String TRACE_FILE_PROPERTY = "trace.file";
+
+  public static final String TRACE_REPLAY_PROPERTY = "trace.replay";
+  public static final String TRACE_REPLAY_PROPERTY_DEFAULT = "timed";
+
+  public static final String TRACE_SPEEDUP_PROPERTY = "trace.speedup";
+  public static final String TRACE_SPEEDUP_PROPERTY_DEFAULT = "1";
+
+  private String table;
+  private boolean timed;
+  private double speedup;
+  private TraceReader reader;
+  private long startNanos;
+  private Measurements measurements;
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    table = p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    String replay = p.getProperty(TRACE_REPLAY_PROPERTY, TRACE_REPLAY_PROPERTY_DEFAULT);
+    if (!"timed".equals(replay) && !"fast".equals(replay)) {
+      throw new WorkloadException("Unknown " + TRACE_REPLAY_PROPERTY + " \"" + replay + "\"");
+    }
+    timed = "timed".equals(replay);
+    speedup = Double.parseDouble(p.getProperty(TRACE_SPEEDUP_PROPERTY, TRACE_SPEEDUP_PROPERTY_DEFAULT));
+    if (!(speedup > 0)) {
+      throw new WorkloadException(TRACE_SPEEDUP_PROPERTY + " must be positive");
+    }
+    String file = p.getProperty(TRACE_FILE_PROPERTY);
+    if (file == null) {
+      throw new WorkloadException("Missing property: " + TRACE_FILE_PROPERTY);
+    }
+    try {
+      reader = new TraceReader(new FileInputStream(file));
+    } catch (IOException e) {
+      throw new WorkloadException("Error opening trace " + file + ": " + e.getMessage(), e);
+    }
+    measurements = Measurements.getMeasurements();
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    return replay(db);
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    return replay(db);
+  }
+
+  @Override
+  public void cleanup() throws WorkloadException {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new WorkloadException(e);
+    }
+  }
+
+  /**
+   * Takes the next record of the trace and issues it, once its time has come in timed mode.
+   *
+   * @return false at the end of the trace.
+   */
+  private boolean replay(DB db) {
+    TraceRecord record;
+    long start;
+    synchronized (this) {
+      try {
+        record = reader.next();
+      } catch (IOException e) {
+        throw new RuntimeException("Error reading trace", e);
+      }
+      if (record == null) {
+        return false;
+      }
+      if (startNanos == 0) {
+        startNanos = System.nanoTime();
+      }
+      start = startNanos;
+    }
+
+    if (timed) {
+      long deadline = start + (long) (record.getTimeMicros() * 1000 / speedup);
+      while (System.nanoTime() < deadline) {
+        LockSupport.parkNanos(deadline - System.nanoTime());
+      }
+      measurements.setIntendedStartTimeNs(deadline);
+    }
+
+    String key = record.getKey();
+    List<String> fields = record.getFields();
+    switch (record.getOperation()) {
+    case READ:
+      db.read(table, key, fieldSet(fields), new HashMap<String, ByteIterator>());
+      break;
+    case SCAN:
+      db.scan(table, key, record.getRecordCount(), fieldSet(fields),
+          new Vector<HashMap<String, ByteIterator>>());
+      break;
+    case UPDATE:
+      db.update(table, key, values(fields, record.getValueSizes()));
+      break;
+    case INSERT:
+      db.insert(table, key, values(fields, record.getValueSizes()));
+      break;
+    default:
+      db.delete(table, key);
+    }
+    return true;
+  }
+
+  private static Set<String> fieldSet(List<String> fields) {
+    return fields == null ? null : new HashSet<>(fields);
+  }
+
+  private static HashMap<String, ByteIterator> values(List<String> fields, int[] sizes) {
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    for (int i = 0; i < fields.size(); i++) {
+      values.put(fields.get(i), new RandomByteIterator(sizes[i]));
+    }
+    return values;
+  }
+}
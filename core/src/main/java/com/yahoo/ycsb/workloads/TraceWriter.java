@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Workload.Operation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a trace of operations in a compact binary format, for {@link TraceReplayWorkload}.
+ * <p>
+ * The file starts with the magic {@link #MAGIC}, followed by one entry per record:
+ * <pre>
+ *   record := operation:byte time:varlong key:string fieldcount:varint field* extra
+ *   field  := id:varint [name:string]
+ *   extra  := recordcount:varint for SCAN, fieldcount size:varint for UPDATE and INSERT, nothing otherwise
+ *   string := length:varint UTF-8 bytes
+ * </pre>
+ * The operation is the ordinal of {@link Operation}. The time is the number of microseconds since the previous
+ * record. Field names are numbered in order of first appearance, and a name follows its id only the first time.
+ * A field count of 0 for READ and SCAN means all fields. Varints are unsigned LEB128.
+ * <p>
+ * Records may be written from several threads. Records that come in slightly out of time order are written
+ * with a zero time difference.
+ */
+public final class TraceWriter implements Closeable {
+  /**
+   * The first bytes of every trace file.
+   */
+  public static final byte[] MAGIC = "YCSBTRC1".getBytes(StandardCharsets.US_ASCII);
+
+  private final OutputStream out;
+  private final Map<String, Integer> fieldIds = new HashMap<>();
+  private long lastTimeMicros;
+
+  public TraceWriter(OutputStream out) throws IOException {
+    this.out = new BufferedOutputStream(out, 1 << 16);
+    this.out.write(MAGIC);
+  }
+
+  public synchronized void write(TraceRecord record) throws IOException {
+    Operation op = record.getOperation();
+    out.write(op.ordinal());
+    writeVarLong(Math.max(0, record.getTimeMicros() - lastTimeMicros));
+    lastTimeMicros = Math.max(lastTimeMicros, record.getTimeMicros());
+    writeString(record.getKey());
+
+    List<String> fields = record.getFields();
+    int fieldCount = fields == null ? 0 : fields.size();
+    writeVarLong(fieldCount);
+    for (int i = 0; i < fieldCount; i++) {
+      String field = fields.get(i);
+      Integer id = fieldIds.get(field);
+      if (id == null) {
+        writeVarLong(fieldIds.size());
+        writeString(field);
+        fieldIds.put(field, fieldIds.size());
+      } else {
+        writeVarLong(id);
+      }
+    }
+
+    if (op == Operation.SCAN) {
+      writeVarLong(record.getRecordCount());
+    } else if (op == Operation.UPDATE || op == Operation.INSERT) {
+      for (int i = 0; i < fieldCount; i++) {
+        writeVarLong(record.getValueSizes()[i]);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    out.close();
+  }
+
+  private void writeString(String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length);
+    out.write(bytes);
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
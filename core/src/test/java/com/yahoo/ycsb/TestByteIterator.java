@@ -20,6 +20,9 @@ package com.yahoo.ycsb;
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public class TestByteIterator {
   @Test
   public void testRandomByteIterator() {
@@ -36,4 +39,81 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testRandomByteIteratorResetWithLength() {
+    RandomByteIterator itor = new RandomByteIterator(100);
+    itor.toArray();
+    itor.reset(10);
+    assertTrue(itor.hasNext());
+    assertEquals(10, itor.bytesLeft());
+    assertEquals(10, itor.toArray().length);
+    assertFalse(itor.hasNext());
+
+    itor.reset(1000);
+    assertEquals(1000, itor.toArray().length);
+    assertEquals(0, itor.bytesLeft());
+  }
+
+  @Test
+  public void testRandomByteIteratorIsPrintableAndReplayable() {
+    RandomByteIterator itor = new RandomByteIterator(1001);
+    byte[] first = itor.toArray();
+    for (byte b : first) {
+      assertTrue(b >= ' ' && b <= '_');
+    }
+
+    // Mix single bytes and odd sized chunks; the value must not depend on how it is read.
+    itor.reset();
+    byte[] second = new byte[first.length];
+    second[0] = itor.nextByte();
+    int off = 1;
+    while (itor.hasNext()) {
+      off = itor.nextBuf(second, off);
+      if (itor.hasNext()) {
+        second[off] = itor.nextByte();
+        off++;
+      }
+      if (itor.hasNext()) {
+        byte[] chunk = new byte[13];
+        int n = itor.nextBuf(chunk, 0);
+        System.arraycopy(chunk, 0, second, off, n);
+        off += n;
+      }
+    }
+    assertEquals(first.length, off);
+    assertTrue(Arrays.equals(first, second));
+
+    itor.reset(1001);
+    assertFalse(Arrays.equals(first, itor.toArray()));
+  }
+
+  @Test
+  public void testRandomByteIteratorToByteBuffer() {
+    RandomByteIterator itor = new RandomByteIterator(4096);
+    byte[] expected = itor.toArray();
+    itor.reset();
+    ByteBuffer buffer = itor.toByteBuffer();
+    assertEquals(4096, buffer.remaining());
+    assertFalse(itor.hasNext());
+    byte[] actual = new byte[buffer.remaining()];
+    buffer.get(actual);
+    assertTrue(Arrays.equals(expected, actual));
+
+    itor.reset(100);
+    assertSame(buffer, itor.toByteBuffer());
+    assertEquals(100, buffer.remaining());
+  }
+
+  @Test
+  public void testByteArrayByteIteratorToByteBuffer() {
+    byte[] bytes = "0123456789".getBytes();
+    ByteIterator itor = new ByteArrayByteIterator(bytes, 2, 5);
+    assertEquals('2', itor.nextByte());
+    ByteBuffer buffer = itor.toByteBuffer();
+    assertSame(bytes, buffer.array());
+    assertEquals(4, buffer.remaining());
+    assertEquals('3', buffer.get());
+    assertFalse(itor.hasNext());
+  }
 }
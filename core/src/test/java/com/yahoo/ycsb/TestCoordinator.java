@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Test class for {@link Coordinator}.
+ */
+public class TestCoordinator {
+
+  @Test
+  public void dividesInsertRange() {
+    Properties props = new Properties();
+    props.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "false");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "20");
+    props.setProperty(Client.INSERT_START_PROPERTY, "10");
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "3");
+    props.setProperty(Client.EXPORT_FILE_PROPERTY, "out.txt");
+
+    long[][] expected = {{10, 4}, {14, 3}, {17, 3}};
+    for (int i = 0; i < 3; i++) {
+      Properties worker = Coordinator.workerProperties(props, i, 3);
+      assertEquals(worker.getProperty(Client.INSERT_START_PROPERTY), String.valueOf(expected[i][0]));
+      assertEquals(worker.getProperty(Client.INSERT_COUNT_PROPERTY), String.valueOf(expected[i][1]));
+      assertEquals(worker.getProperty(Client.RECORD_COUNT_PROPERTY), "20");
+      assertNull(worker.getProperty(Coordinator.WORKERS_PROPERTY));
+      assertNull(worker.getProperty(Client.EXPORT_FILE_PROPERTY));
+    }
+  }
+
+  @Test
+  public void dividesOperationsAndTarget() {
+    Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    props.setProperty(Client.TARGET_PROPERTY, "5");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "7");
+
+    String[] operations = {"4", "3", "3"};
+    String[] targets = {"2", "2", "1"};
+    String[] insertstarts = {"0", "3", "5"};
+    String[] insertcounts = {"3", "2", "2"};
+    for (int i = 0; i < 3; i++) {
+      Properties worker = Coordinator.workerProperties(props, i, 3);
+      assertEquals(worker.getProperty(Client.OPERATION_COUNT_PROPERTY), operations[i]);
+      assertEquals(worker.getProperty(Client.TARGET_PROPERTY), targets[i]);
+      assertEquals(worker.getProperty(Client.INSERT_START_PROPERTY), insertstarts[i]);
+      assertEquals(worker.getProperty(Client.INSERT_COUNT_PROPERTY), insertcounts[i]);
+    }
+  }
+
+  @Test
+  public void rejectsTargetBelowOnePerWorker() {
+    Properties props = new Properties();
+    props.setProperty(Client.TARGET_PROPERTY, "2");
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "3");
+
+    assertEquals(Coordinator.lead(props), 1);
+  }
+
+  @Test(timeOut = 120000)
+  public void mergesSpawnedWorkers() throws Exception {
+    File export = File.createTempFile("coordinator", ".txt");
+    export.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(Client.WORKLOAD_PROPERTY, "com.yahoo.ycsb.workloads.CoreWorkload");
+    props.setProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
+    props.setProperty(BasicDB.VERBOSE, "false");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "1001");
+    props.setProperty(Client.THREAD_COUNT_PROPERTY, "2");
+    props.setProperty(Client.EXPORT_FILE_PROPERTY, export.getPath());
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "2");
+    props.setProperty(Coordinator.SPAWN_PROPERTY, "true");
+
+    assertEquals(Coordinator.lead(props), 0);
+
+    long operations = 0;
+    long ok = 0;
+    int workers = 0;
+    for (String line : Files.readAllLines(export.toPath(), StandardCharsets.UTF_8)) {
+      String[] fields = line.split(", ");
+      if (fields[0].equals("[CLEANUP]")) {
+        continue;
+      }
+      if (fields[1].equals("Operations")) {
+        operations += Long.parseLong(fields[2]);
+      } else if (fields[1].equals("Return=OK")) {
+        ok += Long.parseLong(fields[2]);
+      } else if (fields[0].startsWith("[WORKER-") && fields[1].equals("RunTime(ms)")) {
+        workers++;
+      }
+    }
+    assertEquals(workers, 2);
+    assertEquals(operations, 1001);
+    assertEquals(ok, 1001);
+  }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestDBWrapper {
+  private static final List<String> KEYS = Arrays.asList("a", "b", "c");
+
+  private static List<Map<String, ByteIterator>> values(int count) {
+    List<Map<String, ByteIterator>> values = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Map<String, ByteIterator> value = new HashMap<>();
+      value.put("field0", new StringByteIterator("value" + i));
+      values.add(value);
+    }
+    return values;
+  }
+
+  @Test
+  public void batchesLoopOverTheRecords() {
+    MapDB db = new MapDB();
+    assertEquals(db.batchInsert("t", KEYS, values(3)), Status.OK);
+    assertEquals(db.records.size(), 3);
+
+    List<HashMap<String, ByteIterator>> results = new ArrayList<>();
+    assertEquals(db.batchRead("t", Arrays.asList("c", "missing", "a"), null, results), Status.NOT_FOUND);
+    assertEquals(results.size(), 3);
+    assertEquals(results.get(0).get("field0").toString(), "value2");
+    assertTrue(results.get(1).isEmpty());
+    assertEquals(results.get(2).get("field0").toString(), "value0");
+
+    assertEquals(db.batchUpdate("t", KEYS.subList(0, 2), values(2)), Status.OK);
+    assertEquals(db.batchDelete("t", Arrays.asList("a", "missing", "b")), Status.NOT_FOUND);
+    assertEquals(db.records.keySet(), Collections.singleton("c"));
+  }
+
+  @Test
+  public void measuresEachBatchAndEachRecord() throws IOException {
+    Measurements.setProperties(new Properties());
+    Measurements.getMeasurements().startSection("BATCHES");
+    DB db = new DBWrapper(new MapDB(), new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+
+    db.batchInsert("t", KEYS, values(3));
+    db.batchRead("t", Arrays.asList("a", "missing"), null, new ArrayList<HashMap<String, ByteIterator>>());
+
+    Map<String, String> exported = export();
+    assertEquals(exported.get("[BATCHES-BATCH-INSERT], Operations"), "1");
+    assertEquals(exported.get("[BATCHES-INSERT], Operations"), "3");
+    assertEquals(exported.get("[BATCHES-INSERT], Return=OK"), "3");
+    assertEquals(exported.get("[BATCHES-BATCH-READ-FAILED], Operations"), "1");
+    assertEquals(exported.get("[BATCHES-READ-FAILED], Operations"), "2");
+    assertEquals(exported.get("[BATCHES-READ], Return=NOT_FOUND"), "2");
+  }
+
+  @Test
+  public void dividesTheBatchLatencyBetweenTheRecords() throws IOException {
+    Measurements.setProperties(new Properties());
+    Measurements.getMeasurements().startSection("SLOW");
+    DB db = new DBWrapper(new MapDB() {
+        @Override
+        public Status batchInsert(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+          try {
+            Thread.sleep(30);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return super.batchInsert(table, keys, values);
+        }
+      }, new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+
+    db.batchInsert("t", KEYS, values(3));
+
+    Map<String, String> exported = export();
+    double batch = Double.parseDouble(exported.get("[SLOW-BATCH-INSERT], AverageLatency(us)"));
+    double record = Double.parseDouble(exported.get("[SLOW-INSERT], AverageLatency(us)"));
+    assertTrue(batch >= 30000, String.valueOf(batch));
+    assertEquals(record, batch / 3, batch / 30);
+  }
+
+  @Test
+  public void measuresEachChunkOfABulkLoad() throws IOException {
+    Measurements.setProperties(new Properties());
+    Measurements.getMeasurements().startSection("BULK");
+    MapDB inner = new BulkMapDB();
+    DB db = new BulkLoadableDBWrapper(inner, new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+    assertTrue(db instanceof BulkLoadable);
+
+    assertEquals(((BulkLoadable) db).bulkLoad("t", KEYS, values(3)), Status.OK);
+    assertEquals(inner.records.size(), 3);
+
+    Map<String, String> exported = export();
+    assertEquals(exported.get("[BULK-BULK-INSERT], Operations"), "1");
+    assertEquals(exported.get("[BULK-INSERT], Operations"), "3");
+    assertEquals(exported.get("[BULK-INSERT], Return=OK"), "3");
+  }
+
+  @Test
+  public void keepsBulkLoadingForAnAsyncDB() throws Exception {
+    Measurements.setProperties(new Properties());
+    Measurements.getMeasurements().startSection("ASYNC");
+    DB db = DBFactory.newDB(AsyncBulkMapDB.class.getName(), new Properties(),
+        new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+    assertTrue(db instanceof AsyncDB);
+    assertTrue(db instanceof BulkLoadable);
+
+    assertEquals(((BulkLoadable) db).bulkLoad("t", KEYS, values(3)), Status.OK);
+    assertEquals(((AsyncDB) db).readAsync("t", "b", null, new HashMap<String, ByteIterator>())
+        .toCompletableFuture().get(), Status.OK);
+
+    Map<String, String> exported = export();
+    assertEquals(exported.get("[ASYNC-BULK-INSERT], Operations"), "1");
+    assertEquals(exported.get("[ASYNC-INSERT], Operations"), "3");
+  }
+
+  private static Map<String, String> export() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.getMeasurements().exportMeasurements(exporter);
+    exporter.close();
+
+    Map<String, String> exported = new HashMap<>();
+    for (String line : out.toString().split("\n")) {
+      int comma = line.lastIndexOf(", ");
+      if (comma > 0) {
+        exported.put(line.substring(0, comma), line.substring(comma + 2));
+      }
+    }
+    return exported;
+  }
+
+  /**
+   * A {@link MapDB} that bulk loads by inserting the records one by one.
+   */
+  private static class BulkMapDB extends MapDB implements BulkLoadable {
+    @Override
+    public Status bulkLoad(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+      return batchInsert(table, keys, values);
+    }
+  }
+
+  /**
+   * An {@link AsyncDB} that bulk loads into a {@link BulkMapDB}, for {@link DBFactory} to load by name.
+   */
+  public static class AsyncBulkMapDB extends AsyncDB implements BulkLoadable {
+    private final BulkMapDB records = new BulkMapDB();
+
+    @Override
+    public Status bulkLoad(String table, List<String> keys, List<? extends Map<String, ByteIterator>> values) {
+      return records.bulkLoad(table, keys, values);
+    }
+
+    @Override
+    public CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+                                             Map<String, ByteIterator> result) {
+      return CompletableFuture.completedFuture(records.read(table, key, fields, result));
+    }
+
+    @Override
+    public CompletionStage<Status> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+                                             Vector<HashMap<String, ByteIterator>> result) {
+      return CompletableFuture.completedFuture(records.scan(table, startkey, recordcount, fields, result));
+    }
+
+    @Override
+    public CompletionStage<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(records.update(table, key, values));
+    }
+
+    @Override
+    public CompletionStage<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(records.insert(table, key, values));
+    }
+
+    @Override
+    public CompletionStage<Status> deleteAsync(String table, String key) {
+      return CompletableFuture.completedFuture(records.delete(table, key));
+    }
+  }
+
+  /**
+   * Keeps records in memory, with only the single-record operations.
+   */
+  private static class MapDB extends DB {
+    private final Map<String, Map<String, String>> records = new HashMap<>();
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      Map<String, String> record = records.get(key);
+      if (record == null) {
+        return Status.NOT_FOUND;
+      }
+      StringByteIterator.putAllAsByteIterators(result, record);
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      if (!records.containsKey(key)) {
+        return Status.NOT_FOUND;
+      }
+      return insert(table, key, values);
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      Map<String, String> record = new HashMap<>();
+      StringByteIterator.putAllAsStrings(record, values);
+      records.put(key, record);
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return records.remove(key) == null ? Status.NOT_FOUND : Status.OK;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestPhaseSchedule {
+
+  @Test
+  public void parsesPhasesAndTheirOverrides() {
+    Properties props = new Properties();
+    props.setProperty(PhaseSchedule.PHASES_PROPERTY, "warmup:60s, steady:10m,spike:500ms,cooldown:2");
+    props.setProperty(Client.TARGET_PROPERTY, "1000");
+    props.setProperty("readproportion", "0.5");
+    props.setProperty("phase.spike.target", "8000");
+    props.setProperty("phase.spike.readproportion", "0.9");
+
+    List<PhaseSchedule.Phase> phases = PhaseSchedule.parse(props);
+    assertEquals(phases.size(), 4);
+    assertEquals(phases.get(0).getName(), "warmup");
+    assertEquals(phases.get(0).getDurationNanos(), TimeUnit.SECONDS.toNanos(60));
+    assertEquals(phases.get(1).getName(), "steady");
+    assertEquals(phases.get(1).getDurationNanos(), TimeUnit.MINUTES.toNanos(10));
+    assertEquals(phases.get(2).getDurationNanos(), TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(phases.get(3).getDurationNanos(), TimeUnit.SECONDS.toNanos(2));
+    assertEquals(phases.get(2).getIndex(), 2);
+
+    assertEquals(phases.get(0).getProperties().getProperty("readproportion"), "0.5");
+    assertEquals(phases.get(2).getProperties().getProperty("readproportion"), "0.9");
+    assertEquals(phases.get(0).getTargetPerThreadPerMs(), 1.0);
+    assertEquals(phases.get(2).getTargetPerThreadPerMs(), 8.0);
+  }
+
+  @Test
+  public void noPhases() {
+    assertTrue(PhaseSchedule.parse(new Properties()).isEmpty());
+    assertNull(PhaseSchedule.fromProperties(new Properties(), 1));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsAMissingDuration() {
+    Properties props = new Properties();
+    props.setProperty(PhaseSchedule.PHASES_PROPERTY, "warmup:60s,steady");
+    PhaseSchedule.parse(props);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsARepeatedName() {
+    Properties props = new Properties();
+    props.setProperty(PhaseSchedule.PHASES_PROPERTY, "a:1s,a:2s");
+    PhaseSchedule.parse(props);
+  }
+
+  @Test
+  public void movesTheWorkloadThroughThePhases() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(PhaseSchedule.PHASES_PROPERTY, "first:100ms,second:100ms");
+    props.setProperty("phase.second.target", "500");
+    Measurements.setProperties(props);
+    PhaseSchedule schedule = PhaseSchedule.fromProperties(props, 2);
+    RecordingWorkload workload = new RecordingWorkload();
+
+    schedule.start(workload);
+    assertEquals(schedule.current().getName(), "first");
+    assertEquals(workload.phases, "0");
+    schedule.run(workload, Collections.<ClientThread>emptyList(), new CountDownLatch(1));
+    assertEquals(schedule.current().getName(), "second");
+    assertEquals(workload.phases, "01");
+    assertTrue(workload.isStopRequested());
+    assertEquals(schedule.startNanos(schedule.current()) - schedule.startNanos(schedule.getPhases().get(0)),
+        TimeUnit.MILLISECONDS.toNanos(100));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    schedule.exportMeasurements(exporter);
+    exporter.close();
+    String exported = out.toString();
+    assertTrue(exported.contains("[PHASE-first], RunTime(ms), 100"), exported);
+    assertTrue(exported.contains("[PHASE-second], Target(ops/sec), 500"), exported);
+  }
+
+  /**
+   * Notes the phases it is switched to.
+   */
+  private static class RecordingWorkload extends Workload {
+    private String phases = "";
+
+    @Override
+    public void startPhase(int phase) {
+      phases += phase;
+    }
+
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return false;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link ThroughputSearch}.
+ */
+public class TestThroughputSearch {
+
+  @Test
+  public void onlyWhenAskedFor() {
+    assertNull(ThroughputSearch.fromProperties(new Properties(), 1));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void needsLatencyPercentiles() {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.SEARCH_PROPERTY, "true");
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "raw");
+    ThroughputSearch.fromProperties(props, 1);
+  }
+
+  @Test
+  public void kneeIsWhereLatencyTakesOff() {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.SEARCH_PROPERTY, "true");
+    ThroughputSearch search = ThroughputSearch.fromProperties(props, 1);
+    assertEquals(props.getProperty(Measurements.MEASUREMENT_INTERVAL), "intended");
+
+    List<ThroughputSearch.Step> steps = search.getSteps();
+    steps.add(new ThroughputSearch.Step(1000, 1000, 500, true));
+    steps.add(new ThroughputSearch.Step(2000, 2000, 600, true));
+    steps.add(new ThroughputSearch.Step(4000, 4000, 800, true));
+    steps.add(new ThroughputSearch.Step(8000, 7000, 20000, false));
+    steps.add(new ThroughputSearch.Step(6000, 5500, 9000, true));
+    assertEquals(search.knee(), 4000.0);
+  }
+
+  @Test(timeOut = 60000)
+  public void findsTheCapacityOfASlowDb() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.SEARCH_PROPERTY, "true");
+    props.setProperty(ThroughputSearch.STEP_TIME_PROPERTY, "0.3");
+    props.setProperty(ThroughputSearch.START_PROPERTY, "100");
+    props.setProperty(ThroughputSearch.MAX_LATENCY_PROPERTY, "100000");
+    props.setProperty(ThroughputSearch.PRECISION_PROPERTY, "0.2");
+    props.setProperty(ThroughputSearch.MAX_STEPS_PROPERTY, "8");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "0");
+    props.setProperty(BasicDB.VERBOSE, "false");
+    // every operation takes at least 1ms, so one thread cannot do 1000 ops/sec
+    props.setProperty(BasicDB.SIMULATE_DELAY, "1");
+    props.setProperty(BasicDB.RANDOMIZE_DELAY, "false");
+
+    ThroughputSearch search = ThroughputSearch.fromProperties(props, 1);
+    Measurements.setProperties(props);
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props);
+    DB db = new DBWrapper(new BasicDB(), new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+    db.setProperties(props);
+    ClientThread client = new ClientThread(db, true, workload, props, 0, 0, new CountDownLatch(1));
+    client.setSearch(search);
+    Thread thread = new Thread(client);
+    thread.start();
+    List<ClientThread> clients = new ArrayList<>();
+    clients.add(client);
+    search.run(clients);
+    thread.join();
+
+    boolean passed = false;
+    boolean failed = false;
+    double best = 0;
+    for (ThroughputSearch.Step step : search.getSteps()) {
+      if (step.isPassed()) {
+        passed = true;
+        best = Math.max(best, step.getTarget());
+      } else {
+        failed = true;
+      }
+    }
+    assertTrue(passed);
+    assertTrue(failed);
+    assertTrue(best < 1000, "best " + best);
+  }
+
+  @Test(timeOut = 30000)
+  public void stopsWhenAThreadFailsToInitialize() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.SEARCH_PROPERTY, "true");
+    props.setProperty(ThroughputSearch.STEP_TIME_PROPERTY, "0.3");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    props.setProperty(BasicDB.VERBOSE, "false");
+
+    ThroughputSearch search = ThroughputSearch.fromProperties(props, 2);
+    Measurements.setProperties(props);
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props);
+    List<ClientThread> clients = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    Tracer tracer = new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build();
+    for (int i = 0; i < 2; i++) {
+      DB db = i == 0 ? new DBWrapper(new BasicDB(), tracer) : new DBWrapper(new BasicDB(), tracer) {
+          @Override
+          public void init() throws DBException {
+            throw new DBException("cannot connect");
+          }
+        };
+      db.setProperties(props);
+      ClientThread client = new ClientThread(db, true, workload, props, 0, 0, new CountDownLatch(1));
+      client.setSearch(search);
+      clients.add(client);
+      threads.add(new Thread(client));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    search.run(clients);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertTrue(search.getSteps().isEmpty());
+  }
+}
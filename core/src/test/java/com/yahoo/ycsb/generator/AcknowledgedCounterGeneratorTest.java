@@ -16,12 +16,16 @@
  */
 package com.yahoo.ycsb.generator;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+
 /**
  * Tests for the AcknowledgedCounterGenerator class.
  */
@@ -58,4 +62,71 @@ public class AcknowledgedCounterGeneratorTest {
     }
 
   }
+
+  /**
+   * Test that one value may stay unacknowledged while many windows' worth of later values are acknowledged.
+   */
+  @Test
+  public void testLongOutstandingValue() {
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    long held = generator.nextLong();
+    for (int i = 0; i < AcknowledgedCounterGenerator.WINDOW_SIZE * 20; i++) {
+      generator.acknowledge(generator.nextLong());
+      assertEquals(generator.lastLong(), held - 1);
+    }
+    generator.acknowledge(held);
+    assertEquals(generator.lastLong(), AcknowledgedCounterGenerator.WINDOW_SIZE * 20L);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testAcknowledgeTwice() {
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    generator.nextLong();
+    long value = generator.nextLong();
+    generator.acknowledge(value);
+    generator.acknowledge(value);
+  }
+
+  /**
+   * Test that the limit reaches the last value when many threads acknowledge out of order.
+   */
+  @Test
+  public void testConcurrentAcknowledge() throws InterruptedException {
+    final int threads = 8;
+    final int perThread = 200000;
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(Integer.MAX_VALUE - 1000);
+    List<Thread> workers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      final long seed = t;
+      Thread worker = new Thread() {
+        @Override
+        public void run() {
+          Random rand = new Random(seed);
+          long[] pending = new long[64];
+          for (int i = 0; i < perThread; i++) {
+            int slot = rand.nextInt(pending.length);
+            long value = generator.nextLong();
+            if (i >= pending.length) {
+              generator.acknowledge(pending[slot]);
+            } else {
+              slot = i;
+            }
+            pending[slot] = value;
+            if (generator.lastLong() >= value) {
+              throw new AssertionError("unacknowledged value " + value + " reported");
+            }
+          }
+          for (long value : pending) {
+            generator.acknowledge(value);
+          }
+        }
+      };
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals(generator.lastLong(), Integer.MAX_VALUE - 1000L + (long) threads * perThread - 1);
+  }
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestAliasTable {
+  /**
+   * Draws n evenly spaced uniform numbers, so each index is chosen in exact proportion to its weight.
+   */
+  private static int[] counts(AliasTable table, int n) {
+    int[] counts = new int[table.size()];
+    for (int i = 0; i < n; i++) {
+      counts[table.next((i + 0.5) / n)]++;
+    }
+    return counts;
+  }
+
+  @Test
+  public void choosesInProportionToWeights() {
+    double[] weights = {0.5, 0.3, 0.1, 0.05, 0.05};
+    int[] counts = counts(new AliasTable(weights), 100000);
+    for (int i = 0; i < weights.length; i++) {
+      assertEquals(counts[i], weights[i] * 100000, 5);
+    }
+  }
+
+  @Test
+  public void weightsNeedNotBeNormalized() {
+    int[] counts = counts(new AliasTable(new double[] {3, 0, 1}), 4000);
+    assertEquals(counts[0], 3000, 2);
+    assertEquals(counts[1], 0);
+    assertEquals(counts[2], 1000, 2);
+  }
+
+  @Test
+  public void staysInRange() {
+    AliasTable table = new AliasTable(new double[] {1, 2, 3});
+    assertEquals(table.next(Math.nextDown(1.0)), 2);
+    for (int i = 0; i < 1000; i++) {
+      int index = table.next();
+      assertEquals(index, Math.max(0, Math.min(2, index)));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsNegativeWeights() {
+    new AliasTable(new double[] {1, -1});
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsAllZeroWeights() {
+    new AliasTable(new double[] {0, 0});
+  }
+
+  @Test
+  public void discreteGeneratorIndexesValuesInOrder() {
+    DiscreteGenerator generator = new DiscreteGenerator();
+    assertNull(generator.nextValue());
+    assertEquals(generator.nextIndex(), -1);
+    generator.addValue(0, "NEVER");
+    generator.addValue(1, "ALWAYS");
+    for (int i = 0; i < 100; i++) {
+      assertEquals(generator.nextIndex(), 1);
+      assertEquals(generator.nextValue(), "ALWAYS");
+    }
+    assertEquals(generator.getValue(0), "NEVER");
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestHotspotIntegerGenerator {
+
+  @Test
+  public void hotSetStartsAtTheLowerBound() {
+    HotspotIntegerGenerator generator = new HotspotIntegerGenerator(100, 1099, 0.1, 1.0);
+    for (int i = 0; i < 10000; i++) {
+      long value = generator.nextLong();
+      assertTrue(value >= 100 && value < 200, "value " + value);
+    }
+    assertEquals(generator.mean(), 150.0, 1e-9);
+  }
+
+  @Test
+  public void offsetMovesTheHotSet() {
+    HotspotIntegerGenerator generator = new HotspotIntegerGenerator(100, 1099, 0.1, 1.0, 0.5);
+    assertEquals(generator.getHotsetStart(), 600);
+    for (int i = 0; i < 10000; i++) {
+      long value = generator.nextLong();
+      assertTrue(value >= 600 && value < 700, "value " + value);
+    }
+    assertEquals(generator.mean(), 650.0, 1e-9);
+  }
+
+  @Test
+  public void hotSetWrapsAround() {
+    HotspotIntegerGenerator generator = new HotspotIntegerGenerator(0, 999, 0.2, 1.0, 0.9);
+    long sum = 0;
+    for (int i = 0; i < 100000; i++) {
+      long value = generator.nextLong();
+      assertTrue(value >= 900 || value < 100, "value " + value);
+      sum += value;
+    }
+    assertEquals(generator.mean(), sum / 100000.0, 10);
+
+    HotspotIntegerGenerator cold = new HotspotIntegerGenerator(0, 999, 0.2, 0.0, 0.9);
+    for (int i = 0; i < 10000; i++) {
+      long value = cold.nextLong();
+      assertTrue(value >= 100 && value < 900, "value " + value);
+    }
+    assertEquals(cold.mean(), 500.0, 1e-9);
+  }
+}
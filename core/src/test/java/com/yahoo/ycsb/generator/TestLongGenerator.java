@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestLongGenerator {
+  @Test
+  public void lastLongFollowsNextLong() {
+    NumberGenerator[] generators = {
+        new ZipfianGenerator(1000),
+        new ScrambledZipfianGenerator(1000),
+        new UniformLongGenerator(0, 999),
+        new HotspotIntegerGenerator(0, 999, 0.2, 0.8),
+        new SkewedLatestGenerator(new CounterGenerator(1000)),
+        new ExponentialGenerator(90, 1000),
+    };
+    for (NumberGenerator generator : generators) {
+      for (int i = 0; i < 1000; i++) {
+        long value = generator.nextLong();
+        assertEquals(generator.lastLong(), value, generator.getClass().getSimpleName());
+        assertEquals(generator.lastValue().longValue(), value, generator.getClass().getSimpleName());
+      }
+    }
+  }
+
+  @Test
+  public void countersKeepTheirOwnLastValue() {
+    CounterGenerator counter = new CounterGenerator(5);
+    assertEquals(counter.nextLong(), 5);
+    assertEquals(counter.nextValue().longValue(), 6);
+    assertEquals(counter.lastLong(), 6);
+
+    AcknowledgedCounterGenerator acknowledged = new AcknowledgedCounterGenerator(5);
+    assertEquals(acknowledged.nextLong(), 5);
+    assertEquals(acknowledged.lastLong(), 4);
+    acknowledged.acknowledge(5);
+    assertEquals(acknowledged.lastLong(), 5);
+  }
+
+  @Test
+  public void lastValueIsPerThread() throws InterruptedException {
+    final UniformLongGenerator generator = new UniformLongGenerator(0, Long.MAX_VALUE - 1);
+    final long first = generator.nextLong();
+    final AtomicReference<Number> seen = new AtomicReference<>();
+    final long[] other = new long[1];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        seen.set(generator.lastValue());
+        other[0] = generator.nextLong();
+      }
+    });
+    thread.start();
+    thread.join();
+
+    // A thread that has not generated anything sees the first value.
+    assertEquals(seen.get().longValue(), first);
+    // Values generated by other threads do not change this thread's last value.
+    assertTrue(other[0] != first);
+    assertEquals(generator.lastLong(), first);
+  }
+}
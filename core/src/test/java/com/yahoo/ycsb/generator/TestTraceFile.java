@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestTraceFile {
+  private static File write(String content, boolean gzip) throws IOException {
+    File file = File.createTempFile("trace", gzip ? ".txt.gz" : ".txt");
+    file.deleteOnExit();
+    try (OutputStream out = gzip ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return file;
+  }
+
+  @Test
+  public void readsLines() throws IOException {
+    File file = write("first\r\nsecond\n\nläst", false);
+    try (TraceFile trace = new TraceFile(file.getPath())) {
+      assertEquals(trace.lines(), 4);
+      assertEquals(trace.line(0), "first");
+      assertEquals(trace.line(1), "second");
+      assertEquals(trace.line(2), "");
+      assertEquals(trace.line(3), "läst");
+    }
+  }
+
+  @Test
+  public void concatenatesSegments() throws IOException {
+    File plain = write("a\nb\n", false);
+    File gzipped = write("c\nd\n", true);
+    File empty = write("", false);
+    TraceFile trace = new TraceFile(plain.getPath() + "," + empty.getPath() + ", " + gzipped.getPath());
+    assertEquals(trace.lines(), 4);
+    assertEquals(trace.line(1), "b");
+    assertEquals(trace.line(2), "c");
+    assertEquals(trace.line(3), "d");
+    trace.close();
+  }
+
+  @Test
+  public void splitsWindowsOnLineBoundaries() throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      content.append("line").append(i).append('\n');
+    }
+    File file = write(content.toString(), false);
+    try (TraceFile trace = new TraceFile(file.getPath(), 64)) {
+      assertEquals(trace.lines(), 1000);
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(trace.line(i), "line" + i);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void rejectsLinesLongerThanAWindow() throws IOException {
+    new TraceFile(write("0123456789\nshort\n", false).getPath(), 8);
+  }
+
+  @Test
+  public void fileGeneratorSharesLinesBetweenThreads() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      content.append(i).append('\n');
+    }
+    final FileGenerator generator = new FileGenerator(write(content.toString(), false).getPath());
+    final Set<String> seen = new HashSet<>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Set<String> mine = new HashSet<>();
+          for (String line = generator.nextValue(); line != null; line = generator.nextValue()) {
+            mine.add(line);
+          }
+          synchronized (seen) {
+            seen.addAll(mine);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(seen.size(), 10000);
+    assertNull(generator.nextValue());
+
+    generator.reloadFile();
+    assertEquals(generator.nextValue(), "0");
+  }
+
+  @Test
+  public void fileGeneratorWrapsAround() throws IOException {
+    FileGenerator generator = new FileGenerator(write("x\ny\n", false).getPath(), true);
+    assertEquals(generator.nextValue(), "x");
+    assertEquals(generator.nextValue(), "y");
+    assertEquals(generator.nextValue(), "x");
+    assertEquals(generator.lastValue(), "x");
+  }
+}
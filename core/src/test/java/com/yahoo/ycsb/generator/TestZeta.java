@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestZeta {
+  private static final double[] THETAS = {0.5, 0.99, 1.0, 1.5};
+
+  private static double loop(long st, long n, double theta, double initialsum) {
+    double sum = initialsum;
+    for (long i = st; i < n; i++) {
+      sum += 1 / Math.pow(i + 1, theta);
+    }
+    return sum;
+  }
+
+  @Test
+  public void matchesTheLoop() {
+    for (double theta : THETAS) {
+      for (long n : new long[] {0, 1, 2, 999, 1000, 1001, 1999, 2000, 123457, 5000000}) {
+        double expected = loop(0, n, theta, 0);
+        assertEquals(Zeta.zeta(n, theta), expected, expected * 1e-12, "n=" + n + " theta=" + theta);
+      }
+    }
+  }
+
+  @Test
+  public void incremental() {
+    for (double theta : THETAS) {
+      double sum = Zeta.zeta(10, theta);
+      long st = 10;
+      for (long n : new long[] {11, 500, 1500, 1501, 40000, 40001, 3000000}) {
+        sum = Zeta.zeta(st, n, theta, sum);
+        st = n;
+        double expected = loop(0, n, theta, 0);
+        assertEquals(sum, expected, expected * 1e-12, "n=" + n + " theta=" + theta);
+      }
+    }
+  }
+
+  @Test
+  public void precomputedScrambledZipfianConstant() {
+    double zetan = ZipfianGenerator.zetastatic(ScrambledZipfianGenerator.ITEM_COUNT,
+        ZipfianGenerator.ZIPFIAN_CONSTANT);
+    assertEquals(zetan, ScrambledZipfianGenerator.ZETAN, ScrambledZipfianGenerator.ZETAN * 1e-9);
+  }
+
+  @Test
+  public void growingItemCount() {
+    ZipfianGenerator zipfian = new ZipfianGenerator(0, 9);
+    for (long items = 10; items < 5000; items++) {
+      long value = zipfian.nextLong(items);
+      assertTrue(value >= 0 && value < items, "value " + value + " for " + items + " items");
+    }
+  }
+}
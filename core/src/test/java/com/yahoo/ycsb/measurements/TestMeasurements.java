@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestMeasurements {
+  private static final int THREADS = 8;
+  private static final int OPS_PER_THREAD = 10000;
+
+  @DataProvider(name = "configurations")
+  public Object[][] configurations() {
+    return new Object[][] {
+        {"hdrhistogram", "thread", "Operations"},
+        {"hdrhistogram", "shared", "Operations"},
+        {"histogram", "thread", "Operations"},
+        {"timeseries", "thread", "Operations"},
+        {"raw", "thread", "Total Operations"},
+    };
+  }
+
+  @Test(dataProvider = "configurations")
+  public void mergesShardsFromAllThreads(String type, String shards, String countName) throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    props.setProperty(Measurements.MEASUREMENT_SHARDS_PROPERTY, shards);
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, "/dev/null");
+    final Measurements mm = new Measurements(props);
+    final int readId = mm.getOperationId("READ");
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 1; i <= OPS_PER_THREAD; i++) {
+            mm.measure(readId, i);
+            mm.measureIntended(readId, i + 1);
+            mm.reportStatus(readId, i % 10 == 0 ? Status.ERROR : Status.OK);
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    Map<String, String> exported = export(mm);
+    assertEquals(exported.get("[READ], " + countName), String.valueOf(THREADS * OPS_PER_THREAD));
+    assertEquals(exported.get("[Intended-READ], " + countName), String.valueOf(THREADS * OPS_PER_THREAD));
+    assertEquals(exported.get("[READ], Return=OK"), String.valueOf(THREADS * OPS_PER_THREAD / 10 * 9));
+    assertEquals(exported.get("[READ], Return=ERROR"), String.valueOf(THREADS * OPS_PER_THREAD / 10));
+  }
+
+  @Test
+  public void summaryCoversOnlyTheLastInterval() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    Measurements mm = new Measurements(props);
+
+    mm.measure("UPDATE", 100);
+    mm.measure("UPDATE", 300);
+    assertTrue(mm.getSummary().contains("[UPDATE: Count=2, Max=300, Min=100, Avg=200"));
+    assertTrue(mm.getSummary().contains("[UPDATE: Count=0"));
+  }
+
+  @Test
+  public void operationsNeverMeasuredAreNotExported() throws IOException {
+    Properties props = new Properties();
+    Measurements mm = new Measurements(props);
+    mm.getOperationId("SCAN");
+    mm.measure("INSERT", 10);
+
+    Map<String, String> exported = export(mm);
+    assertTrue(exported.containsKey("[INSERT], Operations"));
+    assertFalse(exported.containsKey("[SCAN], Operations"));
+    assertEquals(mm.getOperationId("SCAN"), 0);
+    assertEquals(mm.getOperationId("INSERT"), 1);
+  }
+
+  @Test
+  public void sectionsAreMeasuredSeparately() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    Measurements mm = new Measurements(props);
+    int readId = mm.getOperationId("READ");
+
+    mm.measure(readId, 10);
+    mm.startSection("PHASE-a");
+    mm.measure(readId, 10);
+    mm.measure(readId, 10);
+    mm.measureIntended(readId, 10);
+    mm.startSection("PHASE-b");
+    mm.measure(readId, 10);
+    mm.measure("UPDATE", 10);
+
+    Map<String, String> exported = export(mm);
+    assertEquals(exported.get("[READ], Operations"), "1");
+    assertEquals(exported.get("[PHASE-a-READ], Operations"), "2");
+    assertEquals(exported.get("[PHASE-a-Intended-READ], Operations"), "1");
+    assertEquals(exported.get("[PHASE-b-READ], Operations"), "1");
+    assertEquals(exported.get("[PHASE-b-UPDATE], Operations"), "1");
+    assertFalse(exported.containsKey("[PHASE-b-Intended-READ], Operations"));
+  }
+
+  @Test
+  public void taggedOperationsAreAlsoMeasuredUnderTheTag() throws IOException {
+    Properties props = new Properties();
+    Measurements mm = new Measurements(props);
+    int readId = mm.getOperationId("READ");
+    int orders = mm.getTagId("orders");
+    assertEquals(mm.getTagId("users"), orders + 1);
+    assertEquals(mm.getTagId("orders"), orders);
+
+    mm.measure(readId, 10);
+    mm.setThreadTag(orders);
+    mm.measure(readId, 10);
+    mm.reportStatus(readId, Status.OK);
+    mm.setThreadTag(mm.getTagId("users"));
+    mm.measure(readId, 10);
+    mm.setThreadTag(Measurements.NO_TAG);
+    mm.measure(readId, 10);
+
+    Map<String, String> exported = export(mm);
+    assertEquals(exported.get("[READ], Operations"), "4");
+    assertEquals(exported.get("[orders-READ], Operations"), "1");
+    assertEquals(exported.get("[orders-READ], Return=OK"), "1");
+    assertEquals(exported.get("[users-READ], Operations"), "1");
+  }
+
+  @DataProvider(name = "intervalLogs")
+  public Object[][] intervalLogs() {
+    return new Object[][] {
+        {"hdrhistogram", "\"p99_us\":"},
+        {"histogram", "\"p99_us\":99000,\"p999_us\":100000,\"max_us\":100000}"},
+        {"raw", "\"mean_us\":50500.0,\"min_us\":1000,\"max_us\":100000}"},
+        {"timeseries", "\"mean_us\":50500.0}"},
+    };
+  }
+
+  @Test(dataProvider = "intervalLogs")
+  public void logsEveryInterval(String type, String expected) throws Exception {
+    File log = File.createTempFile("intervals", ".jsonl");
+    log.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL_LOG_PROPERTY, log.getPath());
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, "/dev/null");
+    Measurements mm = new Measurements(props);
+
+    for (int i = 1; i <= 100; i++) {
+      mm.measure("READ", i * 1000);
+    }
+    mm.getSummary();
+    mm.getSummary();
+
+    List<String> lines = Files.readAllLines(log.toPath(), StandardCharsets.UTF_8);
+    assertEquals(lines.size(), 2);
+    assertTrue(lines.get(0).contains("\"op\":\"READ\",\"count\":100,"), lines.get(0));
+    assertTrue(lines.get(0).contains(expected), lines.get(0));
+    assertTrue(lines.get(1).endsWith("\"op\":\"READ\",\"count\":0,\"ops_per_sec\":0.0}"), lines.get(1));
+  }
+
+  private static Map<String, String> export(Measurements mm) throws IOException {
+    OutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    mm.exportMeasurements(exporter);
+    exporter.close();
+
+    Map<String, String> exported = new HashMap<>();
+    for (String line : out.toString().split("\n")) {
+      int comma = line.lastIndexOf(", ");
+      if (comma > 0) {
+        exported.put(line.substring(0, comma), line.substring(comma + 2));
+      }
+    }
+    return exported;
+  }
+}
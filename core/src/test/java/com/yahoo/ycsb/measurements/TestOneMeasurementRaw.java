@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import org.testng.annotations.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestOneMeasurementRaw {
+  private static final int POINTS = 1000;
+  // more than fits in 16 bits, so both radix passes matter
+  private static final int SCALE = 70001;
+
+  @Test
+  public void exactPercentilesAcrossSegmentsAndThreads() throws Exception {
+    File output = File.createTempFile("raw", ".txt");
+    output.deleteOnExit();
+    final OneMeasurementRaw raw = new OneMeasurementRaw("READ", props(output, "text"));
+    recordFromTwoThreads(raw);
+
+    Map<String, String> exported = export(raw);
+    assertEquals(exported.get("[READ], Total Operations"), String.valueOf(POINTS));
+    assertEquals(exported.get("[READ], Min"), String.valueOf(SCALE));
+    assertEquals(exported.get("[READ], Max"), String.valueOf(POINTS * SCALE));
+    assertEquals(exported.get("[READ], p50"), String.valueOf(501 * SCALE));
+    assertEquals(exported.get("[READ], p99"), String.valueOf(991 * SCALE));
+    assertEquals(exported.get("[READ], p99.99"), String.valueOf(1000 * SCALE));
+  }
+
+  @Test
+  public void binaryOutputIsInTimeOrder() throws Exception {
+    File output = File.createTempFile("raw", ".bin");
+    output.deleteOnExit();
+    OneMeasurementRaw raw = new OneMeasurementRaw("UPDATE", props(output, "binary"));
+    recordFromTwoThreads(raw);
+    export(raw);
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(output)))) {
+      byte[] magic = new byte[OneMeasurementRaw.BINARY_MAGIC.length];
+      in.readFully(magic);
+      assertEquals(magic, OneMeasurementRaw.BINARY_MAGIC);
+      assertEquals(in.readUTF(), "UPDATE");
+      assertEquals(in.readLong(), POINTS);
+      long lastTimestamp = 0;
+      long sum = 0;
+      for (int i = 0; i < POINTS; i++) {
+        long timestamp = in.readLong();
+        assertTrue(timestamp >= lastTimestamp);
+        lastTimestamp = timestamp;
+        sum += in.readInt() / SCALE;
+      }
+      assertEquals(sum, (long) POINTS * (POINTS + 1) / 2);
+      assertEquals(in.read(), -1);
+    }
+  }
+
+  private static Properties props(File output, String format) {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    props.setProperty(OneMeasurementRaw.OUTPUT_FORMAT, format);
+    // ten data points per segment
+    props.setProperty(OneMeasurementRaw.SEGMENT_SIZE, "120");
+    return props;
+  }
+
+  /**
+   * Records the latencies 1..POINTS, times SCALE, in descending order, odd ones from one thread and even ones
+   * from another.
+   */
+  private static void recordFromTwoThreads(final OneMeasurementRaw raw) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 2; t++) {
+      final int parity = t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = POINTS; i > 0; i--) {
+            if (i % 2 == parity) {
+              raw.measure(i * SCALE);
+            }
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+  }
+
+  private static Map<String, String> export(OneMeasurement measurement) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurement.exportMeasurements(exporter);
+    exporter.close();
+
+    Map<String, String> exported = new HashMap<>();
+    for (String line : out.toString().split("\n")) {
+      int comma = line.lastIndexOf(", ");
+      if (comma > 0) {
+        exported.put(line.substring(0, comma), line.substring(comma + 2));
+      }
+    }
+    return exported;
+  }
+}
@@ -16,13 +16,34 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
 
 import org.testng.annotations.Test;
 
+import com.yahoo.ycsb.BulkLoadable;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.PhaseSchedule;
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
 
 public class TestCoreWorkload {
 
@@ -67,4 +88,269 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
+
+  @Test
+  public void reusesThreadBuffers() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "3");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "20");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final Object threadstate = workload.initThread(p, 0, 1);
+    final RecordingDB db = new RecordingDB();
+
+    workload.doInsert(db, threadstate);
+    workload.doInsert(db, threadstate);
+    assertEquals(db.written.size(), 2);
+    assertSame(db.written.get(0), db.written.get(1));
+    assertEquals(db.contents.get(0).size(), 3);
+    assertNotEquals(db.contents.get(0), db.contents.get(1));
+    for (String value : db.contents.get(1).values()) {
+      assertEquals(value.length(), 20);
+    }
+
+    workload.doTransaction(db, threadstate);
+    workload.doTransaction(db, threadstate);
+    assertSame(db.results.get(0), db.results.get(1));
+    assertTrue(db.results.get(1).isEmpty());
+  }
+
+  @Test
+  public void switchesSettingsWithThePhase() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "hotspot");
+    p.setProperty(CoreWorkload.HOTSPOT_DATA_FRACTION, "0.1");
+    p.setProperty(CoreWorkload.HOTSPOT_OPN_FRACTION, "1");
+    p.setProperty(PhaseSchedule.PHASES_PROPERTY, "steady:10s,shift:10s");
+    p.setProperty("phase.shift." + CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty("phase.shift." + CoreWorkload.UPDATE_PROPORTION_PROPERTY, "1");
+    p.setProperty("phase.shift." + CoreWorkload.HOTSPOT_OFFSET_FRACTION, "0.5");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final Object threadstate = workload.initThread(p, 0, 1);
+    final RecordingDB db = new RecordingDB();
+
+    workload.startPhase(0);
+    for (int i = 0; i < 100; i++) {
+      workload.doTransaction(db, threadstate);
+    }
+    assertEquals(db.results.size(), 100);
+    for (String key : db.keys) {
+      long keynum = Long.parseLong(key.substring("user".length()));
+      assertTrue(keynum < 100, key);
+    }
+
+    db.keys.clear();
+    workload.startPhase(1);
+    for (int i = 0; i < 100; i++) {
+      workload.doTransaction(db, threadstate);
+    }
+    assertEquals(db.results.size(), 100);
+    assertEquals(db.written.size(), 100);
+    for (String key : db.keys) {
+      long keynum = Long.parseLong(key.substring("user".length()));
+      assertTrue(keynum >= 500 && keynum < 600, key);
+    }
+  }
+
+  @Test
+  public void batchesReadsUpdatesAndInserts() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "2");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "4");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final Object threadstate = workload.initThread(p, 0, 1);
+    final RecordingDB db = new RecordingDB();
+
+    // the load stops at the end of the records, with a short last batch
+    assertTrue(workload.doInsert(db, threadstate));
+    assertTrue(workload.doInsert(db, threadstate));
+    assertTrue(workload.doInsert(db, threadstate));
+    assertFalse(workload.doInsert(db, threadstate));
+    assertEquals(db.batches, Arrays.asList(4, 4, 2));
+    assertEquals(new HashSet<>(db.keys).size(), 10);
+    // every record of a batch has values of its own
+    assertNotSame(db.written.get(0), db.written.get(1));
+
+    db.batches.clear();
+    workload.doTransaction(db, threadstate);
+    workload.doTransaction(db, threadstate);
+    assertEquals(db.batches, Arrays.asList(4, 4));
+    assertEquals(db.results.size(), 8);
+  }
+
+  @Test
+  public void bulkLoadsSortedChunksOfTheSameRecords() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "2");
+    p.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    Measurements.setProperties(p);
+    final CoreWorkload plain = new CoreWorkload();
+    plain.init(p);
+    final Object plainstate = plain.initThread(p, 0, 1);
+    final RecordingDB expected = new RecordingDB();
+    while (expected.keys.size() < 10) {
+      assertTrue(plain.doInsert(expected, plainstate));
+    }
+
+    p.setProperty(CoreWorkload.BULK_LOAD_PROPERTY, "true");
+    p.setProperty(CoreWorkload.BULK_LOAD_CHUNK_SIZE_PROPERTY, "3");
+    final CoreWorkload bulk = new CoreWorkload();
+    bulk.init(p);
+    final BulkRecordingDB loader = new BulkRecordingDB();
+    final RecordingDB batcher = new RecordingDB();
+    for (int thread = 0; thread < 2; thread++) {
+      final Object threadstate = bulk.initThread(p, thread, 2);
+      final DB db = thread == 0 ? loader : batcher;
+      int chunks = 0;
+      while (bulk.doInsert(db, threadstate)) {
+        chunks++;
+      }
+      assertEquals(chunks, 2);
+    }
+
+    // each thread's half in chunks of three, through bulkLoad where the DB has it and batchInsert otherwise
+    assertEquals(loader.chunks, Arrays.asList(3, 2));
+    assertTrue(((RecordingDB) loader).batches.isEmpty());
+    assertEquals(batcher.batches, Arrays.asList(3, 2));
+
+    // the threads' ranges and chunks follow each other in key order, so none overlap
+    final List<String> all = new ArrayList<>(((RecordingDB) loader).keys);
+    all.addAll(batcher.keys);
+    final List<String> sorted = new ArrayList<>(all);
+    Collections.sort(sorted);
+    assertEquals(all, sorted);
+
+    final Map<String, Map<String, String>> loaded = new HashMap<>();
+    for (RecordingDB db : Arrays.asList(loader, batcher)) {
+      for (int i = 0; i < db.keys.size(); i++) {
+        loaded.put(db.keys.get(i), db.contents.get(i));
+      }
+    }
+    final Map<String, Map<String, String>> inserted = new HashMap<>();
+    for (int i = 0; i < expected.keys.size(); i++) {
+      inserted.put(expected.keys.get(i), expected.contents.get(i));
+    }
+    assertEquals(loaded, inserted);
+  }
+
+  @Test
+  public void bulkLoadsInTheOrderOfTheKeyStrings() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    p.setProperty(CoreWorkload.ZERO_PADDING_PROPERTY, "2");
+    p.setProperty(CoreWorkload.BULK_LOAD_PROPERTY, "true");
+    p.setProperty(CoreWorkload.BULK_LOAD_CHUNK_SIZE_PROPERTY, "100");
+    Measurements.setProperties(p);
+    final CoreWorkload bulk = new CoreWorkload();
+    bulk.init(p);
+    final BulkRecordingDB loader = new BulkRecordingDB();
+    for (int thread = 0; thread < 3; thread++) {
+      final Object threadstate = bulk.initThread(p, thread, 3);
+      while (bulk.doInsert(loader, threadstate)) {
+        // load the thread's share
+      }
+    }
+
+    // "user100" comes before "user11"
+    final List<String> sorted = new ArrayList<>(((RecordingDB) loader).keys);
+    Collections.sort(sorted);
+    assertEquals(((RecordingDB) loader).keys, sorted);
+    assertEquals(new HashSet<>(((RecordingDB) loader).keys).size(), 1000);
+  }
+
+  /**
+   * A {@link RecordingDB} that takes chunks of a bulk load, and records their sizes.
+   */
+  private static class BulkRecordingDB extends RecordingDB implements BulkLoadable {
+    private final List<Integer> chunks = new ArrayList<>();
+
+    @Override
+    public Status bulkLoad(String table, List<String> chunkkeys, List<? extends Map<String, ByteIterator>> values) {
+      chunks.add(chunkkeys.size());
+      for (int i = 0; i < chunkkeys.size(); i++) {
+        insert(table, chunkkeys.get(i), values.get(i));
+      }
+      return Status.OK;
+    }
+  }
+
+  /**
+   * Keeps the containers it is handed, and what the values held during the call.
+   */
+  private static class RecordingDB extends DB {
+    private final List<Map<String, ByteIterator>> written = new ArrayList<>();
+    private final List<Map<String, String>> contents = new ArrayList<>();
+    private final List<Map<String, ByteIterator>> results = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<Integer> batches = new ArrayList<>();
+
+    @Override
+    public Status batchRead(String table, List<String> batchkeys, Set<String> fields,
+                            List<HashMap<String, ByteIterator>> batchresults) {
+      batches.add(batchkeys.size());
+      return super.batchRead(table, batchkeys, fields, batchresults);
+    }
+
+    @Override
+    public Status batchInsert(String table, List<String> batchkeys,
+                              List<? extends Map<String, ByteIterator>> values) {
+      batches.add(batchkeys.size());
+      return super.batchInsert(table, batchkeys, values);
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      assertTrue(result.isEmpty());
+      results.add(result);
+      keys.add(key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return insert(table, key, values);
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      written.add(values);
+      keys.add(key);
+      Map<String, String> copy = new HashMap<>();
+      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        copy.put(entry.getKey(), entry.getValue().toString());
+      }
+      contents.add(copy);
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestMultiTableWorkload {
+
+  private static Properties properties() {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    p.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    p.setProperty(MultiTableWorkload.TABLES_PROPERTY, "orders, users,empty");
+    p.setProperty("table.users.recordcount", "30");
+    p.setProperty("table.users.fieldcount", "2");
+    p.setProperty("table.empty.recordcount", "0");
+    p.setProperty("table.empty.insertcount", "0");
+    p.setProperty("table.orders.readproportion", "0");
+    p.setProperty("table.orders.updateproportion", "1");
+    Measurements.setProperties(p);
+    return p;
+  }
+
+  @Test
+  public void loadsEveryTableInFull() throws WorkloadException {
+    Properties p = properties();
+    MultiTableWorkload workload = new MultiTableWorkload();
+    workload.init(p);
+    assertEquals(p.getProperty(Client.INSERT_COUNT_PROPERTY), "40");
+
+    Object threadstate = workload.initThread(p, 0, 1);
+    CountingDB db = new CountingDB();
+    for (int i = 0; i < 40; i++) {
+      assertTrue(workload.doInsert(db, threadstate));
+    }
+    assertEquals(db.keys.get("orders").size(), 10);
+    assertEquals(db.keys.get("users").size(), 30);
+    assertFalse(db.keys.containsKey("empty"));
+    assertTrue(db.keys.get("users").contains("user29"));
+    assertEquals(db.fieldcounts.get("users").intValue(), 2);
+    assertEquals(db.fieldcounts.get("orders").intValue(), 10);
+  }
+
+  @Test
+  public void choosesTablesByWeight() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(MultiTableWorkload.TENANT_DISTRIBUTION_PROPERTY, "weighted");
+    p.setProperty("table.orders.weight", "3");
+    p.setProperty("table.empty.weight", "0");
+    MultiTableWorkload workload = new MultiTableWorkload();
+    workload.init(p);
+
+    Object threadstate = workload.initThread(p, 0, 1);
+    CountingDB db = new CountingDB();
+    for (int i = 0; i < 4000; i++) {
+      workload.doTransaction(db, threadstate);
+    }
+    // orders only updates, users mostly reads
+    int orders = db.updates.get("orders");
+    int users = db.reads.get("users") + (db.updates.containsKey("users") ? db.updates.get("users") : 0);
+    assertFalse(db.reads.containsKey("orders"));
+    assertEquals(orders + users, 4000);
+    assertEquals(orders / 4000.0, 0.75, 0.05);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsAnUnknownTenantDistribution() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(MultiTableWorkload.TENANT_DISTRIBUTION_PROPERTY, "latest");
+    new MultiTableWorkload().init(p);
+  }
+
+  /**
+   * Counts what is done to each table.
+   */
+  private static class CountingDB extends DB {
+    private final Map<String, Set<String>> keys = new HashMap<>();
+    private final Map<String, Integer> fieldcounts = new HashMap<>();
+    private final Map<String, Integer> reads = new HashMap<>();
+    private final Map<String, Integer> updates = new HashMap<>();
+
+    private static void count(Map<String, Integer> counts, String table) {
+      Integer count = counts.get(table);
+      counts.put(table, count == null ? 1 : count + 1);
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      count(reads, table);
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      count(updates, table);
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      if (!keys.containsKey(table)) {
+        keys.put(table, new HashSet<String>());
+      }
+      keys.get(table).add(key);
+      fieldcounts.put(table, values.size());
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+}
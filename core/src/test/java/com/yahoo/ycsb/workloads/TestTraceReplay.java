@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.TraceRecorderDB;
+import com.yahoo.ycsb.Workload.Operation;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestTraceReplay {
+  /**
+   * Remembers the operations it is given, as "OP key fields sizes".
+   */
+  public static class CapturingDB extends DB {
+    static final List<String> OPS = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      OPS.add("READ " + key + " " + (fields == null ? "all" : new TreeSet<>(fields)));
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      OPS.add("SCAN " + startkey + " " + recordcount);
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      OPS.add("UPDATE " + key + " " + sizes(values));
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      OPS.add("INSERT " + key + " " + sizes(values));
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      OPS.add("DELETE " + key);
+      return Status.OK;
+    }
+
+    private static String sizes(Map<String, ByteIterator> values) {
+      Map<String, Long> sizes = new TreeMap<>();
+      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        sizes.put(entry.getKey(), entry.getValue().bytesLeft());
+      }
+      return sizes.toString();
+    }
+  }
+
+  @BeforeMethod
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+    CapturingDB.OPS.clear();
+  }
+
+  private static File record() throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    Properties p = new Properties();
+    p.setProperty(TraceRecorderDB.DB_PROPERTY, CapturingDB.class.getName());
+    p.setProperty(TraceRecorderDB.FILE_PROPERTY, file.getPath());
+    TraceRecorderDB db = new TraceRecorderDB();
+    db.setProperties(p);
+    db.init();
+
+    Map<String, ByteIterator> values = new LinkedHashMap<>();
+    values.put("field0", new StringByteIterator("0123456789"));
+    values.put("field1", new StringByteIterator("abc"));
+    db.insert("usertable", "user1", values);
+    db.read("usertable", "user1", null, new HashMap<String, ByteIterator>());
+    db.read("usertable", "user1", Collections.singleton("field1"), new HashMap<String, ByteIterator>());
+    db.scan("usertable", "user0", 7, null, new Vector<HashMap<String, ByteIterator>>());
+    values = new HashMap<>();
+    values.put("field1", new StringByteIterator("abcd"));
+    db.update("usertable", "user1", values);
+    db.delete("usertable", "user1");
+    db.cleanup();
+    return file;
+  }
+
+  @Test
+  public void recordsEveryOperation() throws Exception {
+    File file = record();
+    List<String> passedOn = new ArrayList<>(CapturingDB.OPS);
+    assertEquals(passedOn.size(), 6);
+
+    try (TraceReader reader = new TraceReader(new FileInputStream(file))) {
+      TraceRecord insert = reader.next();
+      assertEquals(insert.getOperation(), Operation.INSERT);
+      assertEquals(insert.getKey(), "user1");
+      assertEquals(insert.getFields(), Arrays.asList("field0", "field1"));
+      assertEquals(insert.getValueSizes(), new int[] {10, 3});
+      TraceRecord readAll = reader.next();
+      assertNull(readAll.getFields());
+      assertEquals(reader.next().getFields(), Collections.singletonList("field1"));
+      TraceRecord scan = reader.next();
+      assertEquals(scan.getOperation(), Operation.SCAN);
+      assertEquals(scan.getRecordCount(), 7);
+      assertEquals(reader.next().getValueSizes(), new int[] {4});
+      TraceRecord delete = reader.next();
+      assertEquals(delete.getOperation(), Operation.DELETE);
+      assertTrue(delete.getTimeMicros() >= insert.getTimeMicros());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void replaysTheTrace() throws Exception {
+    File file = record();
+    List<String> recorded = new ArrayList<>(CapturingDB.OPS);
+    CapturingDB.OPS.clear();
+
+    Properties p = new Properties();
+    p.setProperty(TraceReplayWorkload.TRACE_FILE_PROPERTY, file.getPath());
+    p.setProperty(TraceReplayWorkload.TRACE_REPLAY_PROPERTY, "fast");
+    TraceReplayWorkload workload = new TraceReplayWorkload();
+    workload.init(p);
+    DB db = new CapturingDB();
+    while (workload.doTransaction(db, null)) {
+      // replay everything
+    }
+    workload.cleanup();
+    assertEquals(CapturingDB.OPS, recorded);
+  }
+
+  @Test
+  public void keepsScaledInterArrivalTimes() throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    try (TraceWriter writer = new TraceWriter(new FileOutputStream(file))) {
+      writer.write(new TraceRecord(0, Operation.DELETE, "a", null, null, 0));
+      writer.write(new TraceRecord(400000, Operation.DELETE, "b", null, null, 0));
+    }
+
+    Properties p = new Properties();
+    p.setProperty(TraceReplayWorkload.TRACE_FILE_PROPERTY, file.getPath());
+    p.setProperty(TraceReplayWorkload.TRACE_SPEEDUP_PROPERTY, "2");
+    TraceReplayWorkload workload = new TraceReplayWorkload();
+    workload.init(p);
+    DB db = new CapturingDB();
+    long start = System.nanoTime();
+    assertTrue(workload.doTransaction(db, null));
+    assertTrue(workload.doTransaction(db, null));
+    long elapsedMs = (System.nanoTime() - start) / 1000000;
+    workload.cleanup();
+
+    assertEquals(CapturingDB.OPS, Arrays.asList("DELETE a", "DELETE b"));
+    assertTrue(elapsedMs >= 199 && elapsedMs < 390, "replayed in " + elapsedMs + " ms");
+  }
+}
@@ -52,8 +52,8 @@ import com.couchbase.client.java.error.TemporaryFailureException;
 import com.couchbase.client.java.query.*;
 import com.couchbase.client.java.transcoder.JacksonTransformers;
 import com.couchbase.client.java.util.Blocking;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
@@ -66,6 +66,8 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -96,8 +98,11 @@ import java.util.concurrent.locks.LockSupport;
  * <li><b>couchbase.documentExpiry=0</b> Document Expiry is the amount of time until a document expires in
  *      Couchbase.</li>
  * </ul>
+ *
+ * <p> The asynchronous operations used by the open-loop client only go through the async bucket API when
+ * "couchbase.kv=true"; N1QL operations and scans are still performed synchronously.</p>
  */
-public class Couchbase2Client extends DB {
+public class Couchbase2Client extends AsyncDB {
 
   static {
     // No need to send the full encoded_plan for this benchmark workload, less network overhead!
@@ -703,6 +708,122 @@ public class Couchbase2Client extends DB {
     return Status.OK;
   }
 
+  @Override
+  public CompletionStage<Status> readAsync(final String table, final String key, final Set<String> fields,
+                                           final Map<String, ByteIterator> result) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(read(table, key, fields, result));
+    }
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    bucket.async()
+        .get(formatId(table, key), RawJsonDocument.class)
+        .timeout(kvTimeout, TimeUnit.MILLISECONDS)
+        .subscribe(new Subscriber<RawJsonDocument>() {
+          @Override
+          public void onCompleted() {
+            future.complete(Status.NOT_FOUND);
+          }
+
+          @Override
+          public void onError(Throwable e) {
+            future.complete(Status.ERROR);
+          }
+
+          @Override
+          public void onNext(RawJsonDocument document) {
+            try {
+              decode(document.content(), fields, result);
+              future.complete(Status.OK);
+            } catch (RuntimeException e) {
+              e.printStackTrace();
+              future.complete(Status.ERROR);
+            }
+          }
+        });
+    return future;
+  }
+
+  @Override
+  public CompletionStage<Status> scanAsync(final String table, final String startkey, final int recordcount,
+                                           final Set<String> fields,
+                                           final Vector<HashMap<String, ByteIterator>> result) {
+    return CompletableFuture.completedFuture(scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletionStage<Status> updateAsync(final String table, final String key,
+                                             final Map<String, ByteIterator> values) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(update(table, key, values));
+    }
+    RawJsonDocument document = RawJsonDocument.create(formatId(table, key), documentExpiry, encode(values));
+    if (upsert) {
+      return mutationStage(bucket.async().upsert(document, persistTo, replicateTo));
+    }
+    return mutationStage(bucket.async().replace(document, persistTo, replicateTo));
+  }
+
+  /**
+   * Unlike {@link #insert(String, String, Map)}, a TMPFAIL is not retried here but reported as an error,
+   * since backing off would hold up the schedule of the open-loop client.
+   */
+  @Override
+  public CompletionStage<Status> insertAsync(final String table, final String key,
+                                             final Map<String, ByteIterator> values) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    RawJsonDocument document = RawJsonDocument.create(formatId(table, key), documentExpiry, encode(values));
+    if (upsert) {
+      return mutationStage(bucket.async().upsert(document, persistTo, replicateTo));
+    }
+    return mutationStage(bucket.async().insert(document, persistTo, replicateTo));
+  }
+
+  @Override
+  public CompletionStage<Status> deleteAsync(final String table, final String key) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(delete(table, key));
+    }
+    return mutationStage(bucket.async().remove(formatId(table, key), persistTo, replicateTo));
+  }
+
+  /**
+   * Helper method to turn a mutation into a stage that completes with its result.
+   *
+   * With "-p couchbase.syncMutationResponse=false" the stage completes immediately, just like
+   * {@link #waitForMutationResponse(Observable)} does not wait.
+   *
+   * @param input the async input observable.
+   * @return a stage that completes once the mutation has been acknowledged.
+   */
+  private CompletionStage<Status> mutationStage(final Observable<? extends Document<?>> input) {
+    if (!syncMutResponse) {
+      waitForMutationResponse(input);
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    // A subscriber of any document can subscribe to an observable of some kind of document, so no cast is needed.
+    input
+        .timeout(kvTimeout, TimeUnit.MILLISECONDS)
+        .subscribe(new Subscriber<Document<?>>() {
+          @Override
+          public void onCompleted() {
+            future.complete(Status.OK);
+          }
+
+          @Override
+          public void onError(Throwable e) {
+            future.complete(Status.ERROR);
+          }
+
+          @Override
+          public void onNext(Document<?> document) {
+          }
+        });
+    return future;
+  }
+
   /**
    * Helper method to block on the response, depending on the property set.
    *
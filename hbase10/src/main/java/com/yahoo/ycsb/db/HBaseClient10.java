@@ -43,12 +43,15 @@ import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY;
 import static com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT;
@@ -64,6 +67,13 @@ import static com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT;
  */
 public class HBaseClient10 extends com.yahoo.ycsb.DB {
   private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+  /**
+   * Guards creation and teardown of {@link #connection}. A lock rather than a
+   * monitor, so that client threads running as virtual threads do not pin
+   * their carrier while the connection is set up or closed.
+   */
+  private static final ReentrantLock CONNECTION_LOCK = new ReentrantLock();
   
   private Configuration config = HBaseConfiguration.create();
   
@@ -143,7 +153,8 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
     String table = getProperties().getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
     try {
       THREAD_COUNT.getAndIncrement();
-      synchronized (THREAD_COUNT) {
+      CONNECTION_LOCK.lock();
+      try {
         if (connection == null) {
           // Initialize if not set up already.
           connection = ConnectionFactory.createConnection(config);
@@ -154,6 +165,8 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
           final TableName tName = TableName.valueOf(table);
           connection.getTable(tName).getTableDescriptor();
         }
+      } finally {
+        CONNECTION_LOCK.unlock();
       }
     } catch (java.io.IOException e) {
       throw new DBException(e);
@@ -201,11 +214,14 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       int threadCount = THREAD_COUNT.decrementAndGet();
       if (threadCount <= 0) {
         // Means we are done so ok to shut down the Connection.
-        synchronized (THREAD_COUNT) {
+        CONNECTION_LOCK.lock();
+        try {
           if (connection != null) {   
             connection.close();   
             connection = null;    
           }   
+        } finally {
+          CONNECTION_LOCK.unlock();
         }
       }
     } catch (IOException e) {
@@ -258,15 +274,7 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
             .println("Doing read from HBase columnfamily " + columnFamily);
         System.out.println("Doing read for key: " + key);
       }
-      Get g = new Get(Bytes.toBytes(key));
-      if (fields == null) {
-        g.addFamily(columnFamilyBytes);
-      } else {
-        for (String field : fields) {
-          g.addColumn(columnFamilyBytes, Bytes.toBytes(field));
-        }
-      }
-      r = currentTable.get(g);
+      r = currentTable.get(buildGet(key, fields));
     } catch (IOException e) {
       if (debug) {
         System.err.println("Error doing get: " + e);
@@ -281,6 +289,23 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       return Status.NOT_FOUND;
     }
 
+    putCells(r, result);
+    return Status.OK;
+  }
+
+  private Get buildGet(String key, Set<String> fields) {
+    Get g = new Get(Bytes.toBytes(key));
+    if (fields == null) {
+      g.addFamily(columnFamilyBytes);
+    } else {
+      for (String field : fields) {
+        g.addColumn(columnFamilyBytes, Bytes.toBytes(field));
+      }
+    }
+    return g;
+  }
+
+  private void putCells(Result r, Map<String, ByteIterator> result) {
     while (r.advance()) {
       final Cell c = r.current();
       result.put(Bytes.toString(CellUtil.cloneQualifier(c)),
@@ -291,7 +316,6 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
                 + " is: " + Bytes.toString(CellUtil.cloneValue(c)));
       }
     }
-    return Status.OK;
   }
 
   /**
@@ -419,19 +443,7 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       }
     }
 
-    if (debug) {
-      System.out.println("Setting up put for key: " + key);
-    }
-    Put p = new Put(Bytes.toBytes(key));
-    p.setDurability(durability);
-    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-      byte[] value = entry.getValue().toArray();
-      if (debug) {
-        System.out.println("Adding field/value " + entry.getKey() + "/"
-            + Bytes.toStringBinary(value) + " to put request");
-      }
-      p.addColumn(columnFamilyBytes, Bytes.toBytes(entry.getKey()), value);
-    }
+    Put p = buildPut(key, values);
 
     try {
       if (clientSideBuffering) {
@@ -518,6 +530,181 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
     return Status.OK;
   }
 
+  private Put buildPut(String key, Map<String, ByteIterator> values) {
+    if (debug) {
+      System.out.println("Setting up put for key: " + key);
+    }
+    Put p = new Put(Bytes.toBytes(key));
+    p.setDurability(durability);
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      byte[] value = entry.getValue().toArray();
+      if (debug) {
+        System.out.println("Adding field/value " + entry.getKey() + "/"
+            + Bytes.toStringBinary(value) + " to put request");
+      }
+      p.addColumn(columnFamilyBytes, Bytes.toBytes(entry.getKey()), value);
+    }
+    return p;
+  }
+
+  /**
+   * Switches to the table, if it is not the current one already.
+   *
+   * @return false if the table can't be accessed
+   */
+  private boolean useTable(String table) {
+    if (!tableName.equals(table)) {
+      currentTable = null;
+      try {
+        getHTable(table);
+        tableName = table;
+      } catch (IOException e) {
+        System.err.println("Error accessing HBase table: " + e);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read a batch of records from the database with one multi-get.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          A List to add a HashMap of field/value pairs to for each record
+   * @return The result of the operation.
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<HashMap<String, ByteIterator>> results) {
+    if (!useTable(table)) {
+      return Status.ERROR;
+    }
+
+    Result[] rs;
+    try {
+      List<Get> gets = new ArrayList<Get>(keys.size());
+      for (String key : keys) {
+        gets.add(buildGet(key, fields));
+      }
+      rs = currentTable.get(gets);
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error doing multi-get: " + e);
+      }
+      return Status.ERROR;
+    } catch (ConcurrentModificationException e) {
+      return Status.ERROR;
+    }
+
+    Status status = Status.OK;
+    for (Result r : rs) {
+      HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+      if (r.isEmpty()) {
+        status = firstFailure(status, Status.NOT_FOUND);
+      } else {
+        putCells(r, result);
+      }
+      results.add(result);
+    }
+    return status;
+  }
+
+  /**
+   * Update a batch of records in the database with one multi-put, or through
+   * the client-side buffer if there is one.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to write.
+   * @param values
+   *          A HashMap of field/value pairs to update for each of the keys
+   * @return The result of the operation.
+   */
+  @Override
+  public Status batchUpdate(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    if (!useTable(table)) {
+      return Status.ERROR;
+    }
+
+    List<Put> puts = new ArrayList<Put>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      puts.add(buildPut(keys.get(i), values.get(i)));
+    }
+
+    try {
+      if (clientSideBuffering) {
+        bufferedMutator.mutate(puts);
+      } else {
+        currentTable.put(puts);
+      }
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error doing multi-put: " + e);
+      }
+      return Status.ERROR;
+    } catch (ConcurrentModificationException e) {
+      return Status.ERROR;
+    }
+
+    return Status.OK;
+  }
+
+  /**
+   * Insert a batch of records in the database, as {@link #batchUpdate} does.
+   */
+  @Override
+  public Status batchInsert(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    return batchUpdate(table, keys, values);
+  }
+
+  /**
+   * Delete a batch of records from the database with one multi-delete, or
+   * through the client-side buffer if there is one.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to delete.
+   * @return The result of the operation.
+   */
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    if (!useTable(table)) {
+      return Status.ERROR;
+    }
+
+    List<Delete> deletes = new ArrayList<Delete>(keys.size());
+    for (String key : keys) {
+      Delete d = new Delete(Bytes.toBytes(key));
+      d.setDurability(durability);
+      deletes.add(d);
+    }
+
+    try {
+      if (clientSideBuffering) {
+        bufferedMutator.mutate(deletes);
+      } else {
+        currentTable.delete(deletes);
+      }
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error doing multi-delete: " + e);
+      }
+      return Status.ERROR;
+    }
+
+    return Status.OK;
+  }
+
   // Only non-private for testing.
   void setConfiguration(final Configuration newConfig) {
     this.config = newConfig;
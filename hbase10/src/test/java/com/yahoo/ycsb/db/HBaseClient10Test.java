@@ -205,6 +205,33 @@ public class HBaseClient10Test {
     }
   }
 
+  @Test
+  public void testBatch() throws Exception {
+    final List<String> keys = new ArrayList<String>();
+    final List<Map<String, ByteIterator>> values = new ArrayList<Map<String, ByteIterator>>();
+    for (int i = 0; i < 3; i++) {
+      final Map<String, String> input = new HashMap<String, String>();
+      input.put("column1", "value" + i);
+      keys.add("batch" + i);
+      values.add(StringByteIterator.getByteIteratorMap(input));
+    }
+    assertEquals(Status.OK, client.batchInsert(tableName, keys, values));
+
+    final List<HashMap<String, ByteIterator>> results = new ArrayList<HashMap<String, ByteIterator>>();
+    final List<String> readKeys = new ArrayList<String>();
+    readKeys.add("batch2");
+    readKeys.add("Missing row");
+    readKeys.add("batch0");
+    assertEquals(Status.NOT_FOUND, client.batchRead(tableName, readKeys, null, results));
+    assertEquals(3, results.size());
+    assertEquals("value2", results.get(0).get("column1").toString());
+    assertTrue(results.get(1).isEmpty());
+    assertEquals("value0", results.get(2).get("column1").toString());
+
+    assertEquals(Status.OK, client.batchDelete(tableName, keys));
+    assertTrue(this.table.get(new Get(Bytes.toBytes("batch1"))).isEmpty());
+  }
+
   @Test
   @Ignore("Not yet implemented")
   public void testDelete() {
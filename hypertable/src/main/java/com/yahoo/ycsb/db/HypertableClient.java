@@ -32,7 +32,6 @@ import org.hypertable.thriftgen.KeyFlag;
 import org.hypertable.thriftgen.RowInterval;
 import org.hypertable.thriftgen.ScanSpec;
 
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -286,7 +285,7 @@ public class HypertableClient extends com.yahoo.ycsb.DB {
       for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
         writer.add(key, columnFamily, entry.getKey(),
             SerializedCellsFlag.AUTO_ASSIGN,
-            ByteBuffer.wrap(entry.getValue().toArray()));
+            entry.getValue().toByteBuffer());
       }
       connection.mutator_set_cells_serialized(mutator, writer.buffer(), true);
       connection.mutator_close(mutator);
@@ -24,8 +24,8 @@ import com.yahoo.ycsb.StringByteIterator;
 
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import com.yahoo.ycsb.db.flavors.DBFlavor;
 
 /**
@@ -35,7 +35,9 @@ import com.yahoo.ycsb.db.flavors.DBFlavor;
  *
  * <br>
  * Each client will have its own instance of this class. This client is not
- * thread safe.
+ * thread safe. Each instance has its own connection to each shard, unless
+ * db.poolsize is set, in which case all instances share a pool of that many
+ * connections to each shard.
  *
  * <br>
  * This interface expects a schema <key> <field1> <field2> <field3> ... All
@@ -67,6 +69,24 @@ public class JdbcDBClient extends DB {
 
   public static final String JDBC_BATCH_UPDATES = "jdbc.batchupdateapi";
 
+  /**
+   * The number of connections to each shard that all client threads share. Unset, each thread
+   * has a connection of its own.
+   */
+  public static final String CONNECTION_POOL_SIZE = "db.poolsize";
+
+  /** Whether a batch of records is inserted with one multi-row INSERT statement per shard. */
+  public static final String JDBC_MULTI_ROW_INSERT = "jdbc.multirowinsert";
+
+  /** Whether inserts overwrite records that already exist, instead of failing. */
+  public static final String JDBC_UPSERT = "jdbc.upsert";
+
+  /**
+   * Whether scans read their rows through a server-side cursor, in a transaction of their own when
+   * the connection auto-commits, fetching jdbc.fetchsize rows at a time.
+   */
+  public static final String JDBC_SCAN_CURSORS = "jdbc.scancursors";
+
   /** The name of the property for the number of fields in a record. */
   public static final String FIELD_COUNT_PROPERTY = "fieldcount";
 
@@ -82,15 +102,23 @@ public class JdbcDBClient extends DB {
   /** The field name prefix in the table. */
   public static final String COLUMN_PREFIX = "FIELD";
 
-  private List<Connection> conns;
+  // shared by all client threads when CONNECTION_POOL_SIZE is set, guarded by JdbcDBClient.class
+  private static List<BlockingQueue<ShardConnection>> pool;
+  private static int references = 0;
+
+  private List<ShardConnection> conns;
+  private int shardCount;
+  private boolean pooled;
   private boolean initialized = false;
   private Properties props;
   private int jdbcFetchSize;
   private int batchSize;
   private boolean autoCommit;
   private boolean batchUpdates;
+  private boolean multiRowInsert;
+  private boolean upsert;
+  private boolean scanCursors;
   private static final String DEFAULT_PROP = "";
-  private ConcurrentMap<StatementType, PreparedStatement> cachedStatements;
   private long numRowsInBatch = 0;
   /** DB flavor defines DB-specific syntax and behavior for the
    * particular database. Current database flavors are: {default, phoenix} */
@@ -124,27 +152,63 @@ public class JdbcDBClient extends DB {
    * @return Shard index
    */
   private int getShardIndexByKey(String key) {
-    int ret = Math.abs(key.hashCode()) % conns.size();
-    return ret;
+    if (shardCount == 1) {
+      return 0;
+    }
+    // the same as Math.abs(key.hashCode()) % shardCount, except that it can't be negative
+    return Math.abs(key.hashCode() % shardCount);
   }
 
   /**
-   * For the given key, returns Connection object that holds connection to the
-   * shard that contains this key.
+   * Returns a connection to the shard, which is taken from the pool if there is one. It has to be
+   * released when the operation is done with it.
    *
-   * @param key Data key to get information for
-   * @return Connection object
+   * @param shardIndex Shard to connect to
+   * @return Connection to the shard
+   */
+  private ShardConnection getShardConnection(int shardIndex) throws SQLException {
+    if (!pooled) {
+      return conns.get(shardIndex);
+    }
+    try {
+      return pool.get(shardIndex).take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a connection", e);
+    }
+  }
+
+  /**
+   * Gives a connection back to the pool, if it came from one.
    */
-  private Connection getShardConnectionByKey(String key) {
-    return conns.get(getShardIndexByKey(key));
+  private void releaseShardConnection(ShardConnection conn) {
+    if (pooled) {
+      pool.get(conn.getShardIndex()).add(conn);
+    }
   }
 
-  private void cleanupAllConnections() throws SQLException {
-    for (Connection conn : conns) {
+  private List<ShardConnection> openConnections(String[] urls, String user, String passwd) throws SQLException {
+    List<ShardConnection> shardConns = new ArrayList<ShardConnection>(urls.length);
+    for (String url : urls) {
+      Connection conn = DriverManager.getConnection(url, user, passwd);
+
+      // Since there is no explicit commit method in the DB interface, all
+      // operations should auto commit, except when explicitly told not to
+      // (this is necessary in cases such as for PostgreSQL when running a
+      // scan workload with fetchSize)
+      conn.setAutoCommit(autoCommit);
+
+      shardConns.add(new ShardConnection(shardConns.size(), conn));
+    }
+    return shardConns;
+  }
+
+  private void cleanupConnections(Collection<ShardConnection> shardConns) throws SQLException {
+    for (ShardConnection conn : shardConns) {
       if (!autoCommit) {
-        conn.commit();
+        conn.getConnection().commit();
       }
-      conn.close();
+      conn.getConnection().close();
     }
   }
 
@@ -188,33 +252,55 @@ public class JdbcDBClient extends DB {
 
     this.autoCommit = getBoolProperty(props, JDBC_AUTO_COMMIT, true);
     this.batchUpdates = getBoolProperty(props, JDBC_BATCH_UPDATES, false);
+    this.multiRowInsert = getBoolProperty(props, JDBC_MULTI_ROW_INSERT, false);
+    this.upsert = getBoolProperty(props, JDBC_UPSERT, false);
+    this.scanCursors = getBoolProperty(props, JDBC_SCAN_CURSORS, false);
+    int poolSize = getIntProperty(props, CONNECTION_POOL_SIZE);
+    this.pooled = poolSize > 0;
+
+    if (pooled && batchSize > 0) {
+      // the rows would be left in the batch of whichever pooled connection the insert happened to get
+      throw new DBException(DB_BATCH_SIZE + " batches rows across inserts on one connection, so it can't be used with "
+          + CONNECTION_POOL_SIZE + "; use the core batchsize property to batch inserts instead");
+    }
 
     try {
       if (driver != null) {
         Class.forName(driver);
       }
-      int shardCount = 0;
-      conns = new ArrayList<Connection>(3);
       final String[] urlArr = urls.split(",");
       for (String url : urlArr) {
         System.out.println("Adding shard node URL: " + url);
-        Connection conn = DriverManager.getConnection(url, user, passwd);
-
-        // Since there is no explicit commit method in the DB interface, all
-        // operations should auto commit, except when explicitly told not to
-        // (this is necessary in cases such as for PostgreSQL when running a
-        // scan workload with fetchSize)
-        conn.setAutoCommit(autoCommit);
-
-        shardCount++;
-        conns.add(conn);
+      }
+      shardCount = urlArr.length;
+
+      if (pooled) {
+        synchronized (JdbcDBClient.class) {
+          if (references == 0) {
+            pool = new ArrayList<BlockingQueue<ShardConnection>>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+              pool.add(new LinkedBlockingQueue<ShardConnection>());
+            }
+            for (int i = 0; i < poolSize; i++) {
+              for (ShardConnection conn : openConnections(urlArr, user, passwd)) {
+                pool.get(conn.getShardIndex()).add(conn);
+              }
+            }
+          }
+          references++;
+        }
+      } else {
+        conns = openConnections(urlArr, user, passwd);
       }
 
-      System.out.println("Using shards: " + shardCount + ", batchSize:" + batchSize + ", fetchSize: " + jdbcFetchSize);
-
-      cachedStatements = new ConcurrentHashMap<StatementType, PreparedStatement>();
+      System.out.println("Using shards: " + shardCount + ", batchSize:" + batchSize + ", fetchSize: " + jdbcFetchSize
+          + (pooled ? ", poolSize: " + poolSize : ""));
 
       this.dbFlavor = DBFlavor.fromJdbcUrl(urlArr[0]);
+      if (!dbFlavor.supportsMultiRowInsert()) {
+        multiRowInsert = false;
+        upsert = false;
+      }
     } catch (ClassNotFoundException e) {
       System.err.println("Error in initializing the JDBS driver: " + e);
       throw new DBException(e);
@@ -231,12 +317,32 @@ public class JdbcDBClient extends DB {
 
   @Override
   public void cleanup() throws DBException {
+    if (pooled) {
+      synchronized (JdbcDBClient.class) {
+        if (--references == 0) {
+          try {
+            for (BlockingQueue<ShardConnection> shardPool : pool) {
+              cleanupConnections(shardPool);
+            }
+          } catch (SQLException e) {
+            System.err.println("Error in closing the connection. " + e);
+            throw new DBException(e);
+          } finally {
+            pool = null;
+          }
+        }
+      }
+      return;
+    }
+
     if (batchSize > 0) {
       try {
         // commit un-finished batches
-        for (PreparedStatement st : cachedStatements.values()) {
-          if (!st.getConnection().isClosed() && !st.isClosed() && (numRowsInBatch % batchSize != 0)) {
-            st.executeBatch();
+        for (ShardConnection conn : conns) {
+          for (PreparedStatement st : conn.getStatements()) {
+            if (!st.getConnection().isClosed() && !st.isClosed() && (numRowsInBatch % batchSize != 0)) {
+              st.executeBatch();
+            }
           }
         }
       } catch (SQLException e) {
@@ -246,123 +352,139 @@ public class JdbcDBClient extends DB {
     }
 
     try {
-      cleanupAllConnections();
+      cleanupConnections(conns);
     } catch (SQLException e) {
       System.err.println("Error in closing the connection. " + e);
       throw new DBException(e);
     }
   }
 
-  private PreparedStatement createAndCacheInsertStatement(StatementType insertType, String key)
+  private PreparedStatement createAndCacheInsertStatement(ShardConnection conn, StatementType insertType, String key)
       throws SQLException {
-    String insert = dbFlavor.createInsertStatement(insertType, key);
-    PreparedStatement insertStatement = getShardConnectionByKey(key).prepareStatement(insert);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(insertType, insertStatement);
-    if (stmt == null) {
-      return insertStatement;
-    }
-    return stmt;
+    String insert = insertType.getType() == StatementType.Type.INSERT
+        ? dbFlavor.createInsertStatement(insertType, key)
+        : dbFlavor.createMultiRowInsertStatement(insertType, key);
+    PreparedStatement insertStatement = conn.getConnection().prepareStatement(insert);
+    return conn.cacheStatement(insertType, insertStatement);
   }
 
-  private PreparedStatement createAndCacheReadStatement(StatementType readType, String key)
+  private PreparedStatement createAndCacheReadStatement(ShardConnection conn, StatementType readType, String key)
       throws SQLException {
     String read = dbFlavor.createReadStatement(readType, key);
-    PreparedStatement readStatement = getShardConnectionByKey(key).prepareStatement(read);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(readType, readStatement);
-    if (stmt == null) {
-      return readStatement;
-    }
-    return stmt;
+    PreparedStatement readStatement = conn.getConnection().prepareStatement(read);
+    return conn.cacheStatement(readType, readStatement);
   }
 
-  private PreparedStatement createAndCacheDeleteStatement(StatementType deleteType, String key)
+  private PreparedStatement createAndCacheBatchReadStatement(ShardConnection conn, StatementType readType, String key)
+      throws SQLException {
+    String read = dbFlavor.createBatchReadStatement(readType, key);
+    PreparedStatement readStatement = conn.getConnection().prepareStatement(read);
+    return conn.cacheStatement(readType, readStatement);
+  }
+
+  private PreparedStatement createAndCacheDeleteStatement(ShardConnection conn, StatementType deleteType, String key)
       throws SQLException {
     String delete = dbFlavor.createDeleteStatement(deleteType, key);
-    PreparedStatement deleteStatement = getShardConnectionByKey(key).prepareStatement(delete);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(deleteType, deleteStatement);
-    if (stmt == null) {
-      return deleteStatement;
-    }
-    return stmt;
+    PreparedStatement deleteStatement = conn.getConnection().prepareStatement(delete);
+    return conn.cacheStatement(deleteType, deleteStatement);
   }
 
-  private PreparedStatement createAndCacheUpdateStatement(StatementType updateType, String key)
+  private PreparedStatement createAndCacheUpdateStatement(ShardConnection conn, StatementType updateType, String key)
       throws SQLException {
     String update = dbFlavor.createUpdateStatement(updateType, key);
-    PreparedStatement insertStatement = getShardConnectionByKey(key).prepareStatement(update);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(updateType, insertStatement);
-    if (stmt == null) {
-      return insertStatement;
-    }
-    return stmt;
+    PreparedStatement insertStatement = conn.getConnection().prepareStatement(update);
+    return conn.cacheStatement(updateType, insertStatement);
   }
 
-  private PreparedStatement createAndCacheScanStatement(StatementType scanType, String key)
+  private PreparedStatement createAndCacheScanStatement(ShardConnection conn, StatementType scanType, String key)
       throws SQLException {
     String select = dbFlavor.createScanStatement(scanType, key);
-    PreparedStatement scanStatement = getShardConnectionByKey(key).prepareStatement(select);
-    if (this.jdbcFetchSize > 0) {
-      scanStatement.setFetchSize(this.jdbcFetchSize);
-    }
-    PreparedStatement stmt = cachedStatements.putIfAbsent(scanType, scanStatement);
-    if (stmt == null) {
-      return scanStatement;
-    }
-    return stmt;
+    PreparedStatement scanStatement = conn.getConnection().prepareStatement(select,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    return conn.cacheStatement(scanType, scanStatement);
   }
 
   @Override
   public Status read(String tableName, String key, Set<String> fields, Map<String, ByteIterator> result) {
     try {
-      StatementType type = new StatementType(StatementType.Type.READ, tableName, 1, "", getShardIndexByKey(key));
-      PreparedStatement readStatement = cachedStatements.get(type);
-      if (readStatement == null) {
-        readStatement = createAndCacheReadStatement(type, key);
-      }
-      readStatement.setString(1, key);
-      ResultSet resultSet = readStatement.executeQuery();
-      if (!resultSet.next()) {
-        resultSet.close();
-        return Status.NOT_FOUND;
-      }
-      if (result != null && fields != null) {
-        for (String field : fields) {
-          String value = resultSet.getString(field);
-          result.put(field, new StringByteIterator(value));
+      int shardIndex = getShardIndexByKey(key);
+      ShardConnection conn = getShardConnection(shardIndex);
+      try {
+        StatementType type = new StatementType(StatementType.Type.READ, tableName, 1, "", shardIndex);
+        PreparedStatement readStatement = conn.getStatement(type);
+        if (readStatement == null) {
+          readStatement = createAndCacheReadStatement(conn, type, key);
         }
+        readStatement.setString(1, key);
+        ResultSet resultSet = readStatement.executeQuery();
+        if (!resultSet.next()) {
+          resultSet.close();
+          return Status.NOT_FOUND;
+        }
+        if (result != null && fields != null) {
+          for (String field : fields) {
+            String value = resultSet.getString(field);
+            result.put(field, new StringByteIterator(value));
+          }
+        }
+        resultSet.close();
+        return Status.OK;
+      } finally {
+        releaseShardConnection(conn);
       }
-      resultSet.close();
-      return Status.OK;
     } catch (SQLException e) {
       System.err.println("Error in processing read of table " + tableName + ": " + e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * Fetches the rows of a scan in as few round trips as jdbc.fetchsize allows: the driver is asked for at
+   * most recordcount rows at a time, and for all of them if no fetch size is set. With jdbc.scancursors,
+   * the scan is read through a server-side cursor, which some drivers, such as PostgreSQL's, only use
+   * within a transaction.
+   */
   @Override
   public Status scan(String tableName, String startKey, int recordcount, Set<String> fields,
                      Vector<HashMap<String, ByteIterator>> result) {
     try {
-      StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, "", getShardIndexByKey(startKey));
-      PreparedStatement scanStatement = cachedStatements.get(type);
-      if (scanStatement == null) {
-        scanStatement = createAndCacheScanStatement(type, startKey);
-      }
-      scanStatement.setString(1, startKey);
-      scanStatement.setInt(2, recordcount);
-      ResultSet resultSet = scanStatement.executeQuery();
-      for (int i = 0; i < recordcount && resultSet.next(); i++) {
-        if (result != null && fields != null) {
-          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-          for (String field : fields) {
-            String value = resultSet.getString(field);
-            values.put(field, new StringByteIterator(value));
+      int shardIndex = getShardIndexByKey(startKey);
+      ShardConnection conn = getShardConnection(shardIndex);
+      boolean cursorTransaction = scanCursors && autoCommit;
+      try {
+        StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, "", shardIndex);
+        PreparedStatement scanStatement = conn.getStatement(type);
+        if (scanStatement == null) {
+          scanStatement = createAndCacheScanStatement(conn, type, startKey);
+        }
+        scanStatement.setFetchSize(jdbcFetchSize > 0 ? Math.min(jdbcFetchSize, recordcount) : recordcount);
+        scanStatement.setString(1, startKey);
+        scanStatement.setInt(2, recordcount);
+        if (cursorTransaction) {
+          conn.getConnection().setAutoCommit(false);
+        }
+        ResultSet resultSet = scanStatement.executeQuery();
+        for (int i = 0; i < recordcount && resultSet.next(); i++) {
+          if (result != null && fields != null) {
+            HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+            for (String field : fields) {
+              String value = resultSet.getString(field);
+              values.put(field, new StringByteIterator(value));
+            }
+            result.add(values);
           }
-          result.add(values);
         }
+        resultSet.close();
+        if (cursorTransaction) {
+          conn.getConnection().commit();
+        }
+        return Status.OK;
+      } finally {
+        if (cursorTransaction) {
+          conn.getConnection().setAutoCommit(true);
+        }
+        releaseShardConnection(conn);
       }
-      resultSet.close();
-      return Status.OK;
     } catch (SQLException e) {
       System.err.println("Error in processing scan of table: " + tableName + e);
       return Status.ERROR;
@@ -372,24 +494,30 @@ public class JdbcDBClient extends DB {
   @Override
   public Status update(String tableName, String key, Map<String, ByteIterator> values) {
     try {
-      int numFields = values.size();
-      OrderedFieldInfo fieldInfo = getFieldInfo(values);
-      StatementType type = new StatementType(StatementType.Type.UPDATE, tableName,
-          numFields, fieldInfo.getFieldKeys(), getShardIndexByKey(key));
-      PreparedStatement updateStatement = cachedStatements.get(type);
-      if (updateStatement == null) {
-        updateStatement = createAndCacheUpdateStatement(type, key);
-      }
-      int index = 1;
-      for (String value: fieldInfo.getFieldValues()) {
-        updateStatement.setString(index++, value);
-      }
-      updateStatement.setString(index, key);
-      int result = updateStatement.executeUpdate();
-      if (result == 1) {
-        return Status.OK;
+      int shardIndex = getShardIndexByKey(key);
+      ShardConnection conn = getShardConnection(shardIndex);
+      try {
+        int numFields = values.size();
+        OrderedFieldInfo fieldInfo = getFieldInfo(values);
+        StatementType type = new StatementType(StatementType.Type.UPDATE, tableName,
+            numFields, fieldInfo.getFieldKeys(), shardIndex);
+        PreparedStatement updateStatement = conn.getStatement(type);
+        if (updateStatement == null) {
+          updateStatement = createAndCacheUpdateStatement(conn, type, key);
+        }
+        int index = 1;
+        for (String value: fieldInfo.getFieldValues()) {
+          updateStatement.setString(index++, value);
+        }
+        updateStatement.setString(index, key);
+        int result = updateStatement.executeUpdate();
+        if (result == 1) {
+          return Status.OK;
+        }
+        return Status.UNEXPECTED_STATE;
+      } finally {
+        releaseShardConnection(conn);
       }
-      return Status.UNEXPECTED_STATE;
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
       return Status.ERROR;
@@ -399,104 +527,379 @@ public class JdbcDBClient extends DB {
   @Override
   public Status insert(String tableName, String key, Map<String, ByteIterator> values) {
     try {
-      int numFields = values.size();
-      OrderedFieldInfo fieldInfo = getFieldInfo(values);
-      StatementType type = new StatementType(StatementType.Type.INSERT, tableName,
-          numFields, fieldInfo.getFieldKeys(), getShardIndexByKey(key));
-      PreparedStatement insertStatement = cachedStatements.get(type);
-      if (insertStatement == null) {
-        insertStatement = createAndCacheInsertStatement(type, key);
-      }
-      insertStatement.setString(1, key);
-      int index = 2;
-      for (String value: fieldInfo.getFieldValues()) {
-        insertStatement.setString(index++, value);
-      }
-      // Using the batch insert API
-      if (batchUpdates) {
-        insertStatement.addBatch();
-        // Check for a sane batch size
-        if (batchSize > 0) {
-          // Commit the batch after it grows beyond the configured size
-          if (++numRowsInBatch % batchSize == 0) {
-            int[] results = insertStatement.executeBatch();
-            for (int r : results) {
-              // Acceptable values are 1 and SUCCESS_NO_INFO (-2) from reWriteBatchedInserts=true
-              if (r != 1 && r != -2) { 
-                return Status.ERROR;
-              }
-            }
-            // If autoCommit is off, make sure we commit the batch
-            if (!autoCommit) {
-              getShardConnectionByKey(key).commit();
-            }
-            return Status.OK;
-          } // else, the default value of -1 or a nonsense. Treat it as an infinitely large batch.
-        } // else, we let the batch accumulate
-        // Added element to the batch, potentially committing the batch too.
-        return Status.BATCHED_OK;
-      } else {
-        // Normal update
-        int result = insertStatement.executeUpdate();
-        // If we are not autoCommit, we might have to commit now
-        if (!autoCommit) {
-          // Let updates be batcher locally
+      int shardIndex = getShardIndexByKey(key);
+      ShardConnection conn = getShardConnection(shardIndex);
+      try {
+        int numFields = values.size();
+        OrderedFieldInfo fieldInfo = getFieldInfo(values);
+        StatementType type = new StatementType(upsert ? StatementType.Type.MULTI_UPSERT : StatementType.Type.INSERT,
+            tableName, numFields, fieldInfo.getFieldKeys(), shardIndex);
+        PreparedStatement insertStatement = conn.getStatement(type);
+        if (insertStatement == null) {
+          insertStatement = createAndCacheInsertStatement(conn, type, key);
+        }
+        insertStatement.setString(1, key);
+        int index = 2;
+        for (String value: fieldInfo.getFieldValues()) {
+          insertStatement.setString(index++, value);
+        }
+        // Using the batch insert API
+        if (batchUpdates) {
+          insertStatement.addBatch();
+          // Check for a sane batch size
           if (batchSize > 0) {
+            // Commit the batch after it grows beyond the configured size
             if (++numRowsInBatch % batchSize == 0) {
-              // Send the batch of updates
-              getShardConnectionByKey(key).commit();
+              int[] results = insertStatement.executeBatch();
+              for (int r : results) {
+                // Acceptable values are 1 and SUCCESS_NO_INFO (-2) from reWriteBatchedInserts=true
+                if (r != 1 && r != -2 && !upsert) { 
+                  return Status.ERROR;
+                }
+              }
+              // If autoCommit is off, make sure we commit the batch
+              if (!autoCommit) {
+                conn.getConnection().commit();
+              }
+              return Status.OK;
+            } // else, the default value of -1 or a nonsense. Treat it as an infinitely large batch.
+          } // else, we let the batch accumulate
+          // Added element to the batch, potentially committing the batch too.
+          return Status.BATCHED_OK;
+        } else {
+          // Normal update
+          int result = insertStatement.executeUpdate();
+          // If we are not autoCommit, we might have to commit now
+          if (!autoCommit) {
+            // Let updates be batcher locally
+            if (batchSize > 0) {
+              if (++numRowsInBatch % batchSize == 0) {
+                // Send the batch of updates
+                conn.getConnection().commit();
+              }
+              // uhh
+              return Status.OK;
+            } else {
+              // Commit each update
+              conn.getConnection().commit();
             }
-            // uhh
+          }
+          // an upsert counts a record it overwrote as 2 rows on MySQL
+          if (result == 1 || upsert) {
             return Status.OK;
-          } else {
-            // Commit each update
-            getShardConnectionByKey(key).commit();
           }
         }
+        return Status.UNEXPECTED_STATE;
+      } finally {
+        releaseShardConnection(conn);
+      }
+    } catch (SQLException e) {
+      System.err.println("Error in processing insert to table: " + tableName + e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status delete(String tableName, String key) {
+    try {
+      int shardIndex = getShardIndexByKey(key);
+      ShardConnection conn = getShardConnection(shardIndex);
+      try {
+        StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, "", shardIndex);
+        PreparedStatement deleteStatement = conn.getStatement(type);
+        if (deleteStatement == null) {
+          deleteStatement = createAndCacheDeleteStatement(conn, type, key);
+        }
+        deleteStatement.setString(1, key);
+        int result = deleteStatement.executeUpdate();
         if (result == 1) {
           return Status.OK;
         }
+        return Status.UNEXPECTED_STATE;
+      } finally {
+        releaseShardConnection(conn);
       }
-      return Status.UNEXPECTED_STATE;
     } catch (SQLException e) {
-      System.err.println("Error in processing insert to table: " + tableName + e);
+      System.err.println("Error in processing delete to table: " + tableName + e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * Reads the records of each shard with one SELECT ... WHERE key IN (...) statement.
+   */
   @Override
-  public Status delete(String tableName, String key) {
+  public Status batchRead(String tableName, List<String> keys, Set<String> fields,
+                          List<HashMap<String, ByteIterator>> results) {
     try {
-      StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, "", getShardIndexByKey(key));
-      PreparedStatement deleteStatement = cachedStatements.get(type);
-      if (deleteStatement == null) {
-        deleteStatement = createAndCacheDeleteStatement(type, key);
+      Map<String, HashMap<String, ByteIterator>> rows = new HashMap<>();
+      for (Map.Entry<Integer, List<Integer>> shard : getIndexesByShard(keys).entrySet()) {
+        List<Integer> shardIndexes = shard.getValue();
+        String firstKey = keys.get(shardIndexes.get(0));
+        ShardConnection conn = getShardConnection(shard.getKey());
+        try {
+          StatementType type = new StatementType(StatementType.Type.BATCH_READ, tableName, shardIndexes.size(), "",
+              shard.getKey());
+          PreparedStatement readStatement = conn.getStatement(type);
+          if (readStatement == null) {
+            readStatement = createAndCacheBatchReadStatement(conn, type, firstKey);
+          }
+          int index = 1;
+          for (int i : shardIndexes) {
+            readStatement.setString(index++, keys.get(i));
+          }
+          ResultSet resultSet = readStatement.executeQuery();
+          while (resultSet.next()) {
+            HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+            if (fields != null) {
+              for (String field : fields) {
+                String value = resultSet.getString(field);
+                values.put(field, new StringByteIterator(value));
+              }
+            }
+            rows.put(resultSet.getString(PRIMARY_KEY), values);
+          }
+          resultSet.close();
+        } finally {
+          releaseShardConnection(conn);
+        }
       }
-      deleteStatement.setString(1, key);
-      int result = deleteStatement.executeUpdate();
-      if (result == 1) {
-        return Status.OK;
+
+      Status status = Status.OK;
+      for (String key : keys) {
+        HashMap<String, ByteIterator> values = rows.get(key);
+        if (values == null) {
+          status = firstFailure(status, Status.NOT_FOUND);
+          values = new HashMap<String, ByteIterator>();
+        }
+        results.add(values);
       }
-      return Status.UNEXPECTED_STATE;
+      return status;
     } catch (SQLException e) {
-      System.err.println("Error in processing delete to table: " + tableName + e);
+      System.err.println("Error in processing batch read of table " + tableName + ": " + e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Adds the records of each shard to the batches of their statements, and executes each of those once.
+   */
+  @Override
+  public Status batchUpdate(String tableName, List<String> keys,
+                            List<? extends Map<String, ByteIterator>> values) {
+    try {
+      Status status = Status.OK;
+      for (Map.Entry<Integer, List<Integer>> shard : getIndexesByShard(keys).entrySet()) {
+        ShardConnection conn = getShardConnection(shard.getKey());
+        try {
+          Set<PreparedStatement> statements = new LinkedHashSet<>();
+          for (int i : shard.getValue()) {
+            String key = keys.get(i);
+            OrderedFieldInfo fieldInfo = getFieldInfo(values.get(i));
+            StatementType type = new StatementType(StatementType.Type.UPDATE, tableName,
+                values.get(i).size(), fieldInfo.getFieldKeys(), shard.getKey());
+            PreparedStatement updateStatement = conn.getStatement(type);
+            if (updateStatement == null) {
+              updateStatement = createAndCacheUpdateStatement(conn, type, key);
+            }
+            int index = 1;
+            for (String value: fieldInfo.getFieldValues()) {
+              updateStatement.setString(index++, value);
+            }
+            updateStatement.setString(index, key);
+            updateStatement.addBatch();
+            statements.add(updateStatement);
+          }
+          status = firstFailure(status, executeBatches(statements));
+        } finally {
+          releaseShardConnection(conn);
+        }
+      }
+      return status;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch update to table: " + tableName + e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Inserts the records of each shard with one multi-row INSERT statement per set of fields if
+   * jdbc.multirowinsert is set, or else adds them to the batches of their statements, and executes
+   * each of those once.
+   */
+  @Override
+  public Status batchInsert(String tableName, List<String> keys,
+                            List<? extends Map<String, ByteIterator>> values) {
+    try {
+      Status status = Status.OK;
+      for (Map.Entry<Integer, List<Integer>> shard : getIndexesByShard(keys).entrySet()) {
+        ShardConnection conn = getShardConnection(shard.getKey());
+        try {
+          if (multiRowInsert) {
+            status = firstFailure(status, multiRowInsert(conn, tableName, keys, values, shard.getValue()));
+            continue;
+          }
+
+          Set<PreparedStatement> statements = new LinkedHashSet<>();
+          for (int i : shard.getValue()) {
+            String key = keys.get(i);
+            OrderedFieldInfo fieldInfo = getFieldInfo(values.get(i));
+            StatementType type = new StatementType(StatementType.Type.INSERT, tableName,
+                values.get(i).size(), fieldInfo.getFieldKeys(), shard.getKey());
+            PreparedStatement insertStatement = conn.getStatement(type);
+            if (insertStatement == null) {
+              insertStatement = createAndCacheInsertStatement(conn, type, key);
+            }
+            insertStatement.setString(1, key);
+            int index = 2;
+            for (String value: fieldInfo.getFieldValues()) {
+              insertStatement.setString(index++, value);
+            }
+            insertStatement.addBatch();
+            statements.add(insertStatement);
+          }
+          status = firstFailure(status, executeBatches(statements));
+        } finally {
+          releaseShardConnection(conn);
+        }
+      }
+      return status;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch insert to table: " + tableName + e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * Inserts the records at the indexes, which are all on the connection's shard, with one multi-row
+   * INSERT, or upsert, statement for each set of fields they have.
+   */
+  private Status multiRowInsert(ShardConnection conn, String tableName, List<String> keys,
+                                List<? extends Map<String, ByteIterator>> values, List<Integer> indexes)
+      throws SQLException {
+    Map<String, List<OrderedFieldInfo>> rowsByFields = new LinkedHashMap<>();
+    Map<String, List<String>> keysByFields = new HashMap<>();
+    for (int i : indexes) {
+      OrderedFieldInfo fieldInfo = getFieldInfo(values.get(i));
+      List<OrderedFieldInfo> rows = rowsByFields.get(fieldInfo.getFieldKeys());
+      if (rows == null) {
+        rows = new ArrayList<>();
+        rowsByFields.put(fieldInfo.getFieldKeys(), rows);
+        keysByFields.put(fieldInfo.getFieldKeys(), new ArrayList<String>());
+      }
+      rows.add(fieldInfo);
+      keysByFields.get(fieldInfo.getFieldKeys()).add(keys.get(i));
+    }
+
+    Status status = Status.OK;
+    for (Map.Entry<String, List<OrderedFieldInfo>> entry : rowsByFields.entrySet()) {
+      List<OrderedFieldInfo> rows = entry.getValue();
+      List<String> rowKeys = keysByFields.get(entry.getKey());
+      int numFields = rows.get(0).getFieldValues().size();
+      StatementType type = new StatementType(
+          upsert ? StatementType.Type.MULTI_UPSERT : StatementType.Type.MULTI_INSERT,
+          tableName, numFields, entry.getKey(), conn.getShardIndex(), rows.size());
+      PreparedStatement insertStatement = conn.getStatement(type);
+      if (insertStatement == null) {
+        insertStatement = createAndCacheInsertStatement(conn, type, rowKeys.get(0));
+      }
+      int index = 1;
+      for (int row = 0; row < rows.size(); row++) {
+        insertStatement.setString(index++, rowKeys.get(row));
+        for (String value : rows.get(row).getFieldValues()) {
+          insertStatement.setString(index++, value);
+        }
+      }
+      int result = insertStatement.executeUpdate();
+      // an upsert counts a record it overwrote as 2 rows on MySQL
+      if (result != rows.size() && !upsert) {
+        status = firstFailure(status, Status.UNEXPECTED_STATE);
+      }
+      if (!autoCommit) {
+        conn.getConnection().commit();
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Adds the records of each shard to the batch of the shard's delete statement, and executes each of those once.
+   */
+  @Override
+  public Status batchDelete(String tableName, List<String> keys) {
+    try {
+      Status status = Status.OK;
+      for (Map.Entry<Integer, List<Integer>> shard : getIndexesByShard(keys).entrySet()) {
+        ShardConnection conn = getShardConnection(shard.getKey());
+        try {
+          StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, "", shard.getKey());
+          PreparedStatement deleteStatement = conn.getStatement(type);
+          if (deleteStatement == null) {
+            deleteStatement = createAndCacheDeleteStatement(conn, type, keys.get(shard.getValue().get(0)));
+          }
+          for (int i : shard.getValue()) {
+            deleteStatement.setString(1, keys.get(i));
+            deleteStatement.addBatch();
+          }
+          status = firstFailure(status, executeBatches(Collections.singleton(deleteStatement)));
+        } finally {
+          releaseShardConnection(conn);
+        }
+      }
+      return status;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch delete to table: " + tableName + e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Groups the indexes of the keys by the shard that holds them, keeping their order within each shard.
+   */
+  private Map<Integer, List<Integer>> getIndexesByShard(List<String> keys) {
+    Map<Integer, List<Integer>> indexesByShard = new LinkedHashMap<>();
+    for (int i = 0; i < keys.size(); i++) {
+      int shard = getShardIndexByKey(keys.get(i));
+      List<Integer> shardIndexes = indexesByShard.get(shard);
+      if (shardIndexes == null) {
+        shardIndexes = new ArrayList<>();
+        indexesByShard.put(shard, shardIndexes);
+      }
+      shardIndexes.add(i);
+    }
+    return indexesByShard;
+  }
+
+  /**
+   * Executes the batch of each statement, committing it unless the connection auto-commits. Every row has to
+   * have been changed, or reported as SUCCESS_NO_INFO by drivers that rewrite batches.
+   */
+  private Status executeBatches(Set<PreparedStatement> statements) throws SQLException {
+    Status status = Status.OK;
+    for (PreparedStatement statement : statements) {
+      for (int r : statement.executeBatch()) {
+        if (r != 1 && r != Statement.SUCCESS_NO_INFO) {
+          status = firstFailure(status, Status.UNEXPECTED_STATE);
+        }
+      }
+      if (!autoCommit) {
+        statement.getConnection().commit();
+      }
+    }
+    return status;
+  }
+
   private OrderedFieldInfo getFieldInfo(Map<String, ByteIterator> values) {
-    String fieldKeys = "";
-    List<String> fieldValues = new ArrayList<>();
-    int count = 0;
+    StringBuilder fieldKeys = new StringBuilder();
+    List<String> fieldValues = new ArrayList<>(values.size());
     for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-      fieldKeys += entry.getKey();
-      if (count < values.size() - 1) {
-        fieldKeys += ",";
+      if (fieldKeys.length() > 0) {
+        fieldKeys.append(',');
       }
-      fieldValues.add(count, entry.getValue().toString());
-      count++;
+      fieldKeys.append(entry.getKey());
+      fieldValues.add(entry.getValue().toString());
     }
 
-    return new OrderedFieldInfo(fieldKeys, fieldValues);
+    return new OrderedFieldInfo(fieldKeys.toString(), fieldValues);
   }
 }
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection to one shard, with the statements that have been prepared on it. A prepared statement
+ * belongs to the connection it was prepared on, so each connection caches its own. A shard connection
+ * is used by one client thread at a time, whether the thread owns it or borrowed it from a pool.
+ */
+final class ShardConnection {
+  private final int shardIndex;
+  private final Connection connection;
+  private final Map<StatementType, PreparedStatement> statements = new HashMap<StatementType, PreparedStatement>();
+
+  ShardConnection(int shardIndex, Connection connection) {
+    this.shardIndex = shardIndex;
+    this.connection = connection;
+  }
+
+  int getShardIndex() {
+    return shardIndex;
+  }
+
+  Connection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Returns the statement of the type prepared on this connection, or null if there isn't one yet.
+   */
+  PreparedStatement getStatement(StatementType type) {
+    return statements.get(type);
+  }
+
+  /**
+   * Caches a statement prepared on this connection, and returns it.
+   */
+  PreparedStatement cacheStatement(StatementType type, PreparedStatement statement) {
+    statements.put(type, statement);
+    return statement;
+  }
+
+  Collection<PreparedStatement> getStatements() {
+    return statements.values();
+  }
+}
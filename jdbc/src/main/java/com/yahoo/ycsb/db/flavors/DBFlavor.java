@@ -26,7 +26,8 @@ public abstract class DBFlavor {
 
   enum DBName {
     DEFAULT,
-    PHOENIX
+    PHOENIX,
+    MYSQL
   }
 
   private final DBName dbName;
@@ -39,6 +40,9 @@ public abstract class DBFlavor {
     if (url.startsWith("jdbc:phoenix")) {
       return new PhoenixDBFlavor();
     }
+    if (url.startsWith("jdbc:mysql") || url.startsWith("jdbc:mariadb")) {
+      return new MySQLDBFlavor();
+    }
     return new DefaultDBFlavor();
   }
 
@@ -47,11 +51,31 @@ public abstract class DBFlavor {
    */
   public abstract String createInsertStatement(StatementType insertType, String key);
 
+  /**
+   * Create and return a SQL statement for inserting as many records as the statement type has rows, with
+   * one INSERT ... VALUES (...),(...) statement. For a MULTI_UPSERT statement type, records that already
+   * exist are overwritten.
+   */
+  public abstract String createMultiRowInsertStatement(StatementType insertType, String key);
+
+  /**
+   * Returns whether the database can insert several records with one statement. If it can't, the records
+   * of a batch are inserted with the JDBC batch API.
+   */
+  public boolean supportsMultiRowInsert() {
+    return true;
+  }
+
   /**
    * Create and return a SQL statement for reading data.
    */
   public abstract String createReadStatement(StatementType readType, String key);
 
+  /**
+   * Create and return a SQL statement for reading as many records as the statement type has fields.
+   */
+  public abstract String createBatchReadStatement(StatementType readType, String key);
+
   /**
    * Create and return a SQL statement for deleting data.
    */
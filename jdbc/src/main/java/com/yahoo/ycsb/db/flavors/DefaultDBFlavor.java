@@ -43,6 +43,43 @@ public class DefaultDBFlavor extends DBFlavor {
     return insert.toString();
   }
 
+  @Override
+  public String createMultiRowInsertStatement(StatementType insertType, String key) {
+    StringBuilder insert = new StringBuilder("INSERT INTO ");
+    insert.append(insertType.getTableName());
+    insert.append(" (" + JdbcDBClient.PRIMARY_KEY + "," + insertType.getFieldString() + ")");
+    insert.append(" VALUES");
+    for (int row = 0; row < insertType.getNumRows(); row++) {
+      if (row > 0) {
+        insert.append(",");
+      }
+      insert.append("(?");
+      for (int i = 0; i < insertType.getNumFields(); i++) {
+        insert.append(",?");
+      }
+      insert.append(")");
+    }
+    if (insertType.isUpsert()) {
+      appendUpsertClause(insert, insertType.getFieldString().split(","));
+    }
+    return insert.toString();
+  }
+
+  /**
+   * Appends the clause that has a multi-row insert overwrite the fields of the records that already exist.
+   */
+  protected void appendUpsertClause(StringBuilder insert, String[] fieldKeys) {
+    insert.append(" ON CONFLICT (");
+    insert.append(JdbcDBClient.PRIMARY_KEY);
+    insert.append(") DO UPDATE SET ");
+    for (int i = 0; i < fieldKeys.length; i++) {
+      if (i > 0) {
+        insert.append(", ");
+      }
+      insert.append(fieldKeys[i]).append("=EXCLUDED.").append(fieldKeys[i]);
+    }
+  }
+
   @Override
   public String createReadStatement(StatementType readType, String key) {
     StringBuilder read = new StringBuilder("SELECT * FROM ");
@@ -54,6 +91,20 @@ public class DefaultDBFlavor extends DBFlavor {
     return read.toString();
   }
 
+  @Override
+  public String createBatchReadStatement(StatementType readType, String key) {
+    StringBuilder read = new StringBuilder("SELECT * FROM ");
+    read.append(readType.getTableName());
+    read.append(" WHERE ");
+    read.append(JdbcDBClient.PRIMARY_KEY);
+    read.append(" IN (?");
+    for (int i = 1; i < readType.getNumFields(); i++) {
+      read.append(",?");
+    }
+    read.append(")");
+    return read.toString();
+  }
+
   @Override
   public String createDeleteStatement(StatementType deleteType, String key) {
     StringBuilder delete = new StringBuilder("DELETE FROM ");
@@ -41,6 +41,12 @@ public class PhoenixDBFlavor extends DefaultDBFlavor {
     return insert.toString();
   }
 
+  @Override
+  public boolean supportsMultiRowInsert() {
+    // UPSERT VALUES takes a single row
+    return false;
+  }
+
   @Override
   public String createUpdateStatement(StatementType updateType, String key) {
     // Phoenix doesn't have UPDATE semantics, just re-use UPSERT VALUES on the specific columns
@@ -21,11 +21,16 @@ import static org.junit.Assert.*;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.db.flavors.DBFlavor;
 import org.junit.*;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
@@ -52,17 +57,21 @@ public class JdbcDBClientTest {
     }
 
     public static void setupWithBatch(int batchSize, boolean autoCommit) {
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.DB_BATCH_SIZE, Integer.toString(batchSize));
+      p.setProperty(JdbcDBClient.JDBC_BATCH_UPDATES, "true");
+      p.setProperty(JdbcDBClient.JDBC_AUTO_COMMIT, Boolean.toString(autoCommit));
+      setupWithProperties(p);
+    }
+
+    public static void setupWithProperties(Properties p) {
       try {
         jdbcConnection = DriverManager.getConnection(TEST_DB_URL);
         jdbcDBClient = new JdbcDBClient();
 
-        Properties p = new Properties();
         p.setProperty(JdbcDBClient.CONNECTION_URL, TEST_DB_URL);
         p.setProperty(JdbcDBClient.DRIVER_CLASS, TEST_DB_DRIVER);
         p.setProperty(JdbcDBClient.CONNECTION_USER, TEST_DB_USER);
-        p.setProperty(JdbcDBClient.DB_BATCH_SIZE, Integer.toString(batchSize));
-        p.setProperty(JdbcDBClient.JDBC_BATCH_UPDATES, "true");
-        p.setProperty(JdbcDBClient.JDBC_AUTO_COMMIT, Boolean.toString(autoCommit));
 
         jdbcDBClient.setProperties(p);
         jdbcDBClient.init();
@@ -329,6 +338,46 @@ public class JdbcDBClientTest {
         }
     }
 
+    @Test
+    public void batchTest() {
+        List<String> keys = new ArrayList<String>();
+        List<HashMap<String, ByteIterator>> values = new ArrayList<HashMap<String, ByteIterator>>();
+        for (int i = 0; i < 3; i++) {
+            String key = KEY_PREFIX + i;
+            HashMap<String, ByteIterator> insertMap = new HashMap<String, ByteIterator>();
+            for (int j = 0; j < NUM_FIELDS; j++) {
+                insertMap.put(FIELD_PREFIX + j, new StringByteIterator(buildDeterministicValue(key, FIELD_PREFIX + j)));
+            }
+            keys.add(key);
+            values.add(insertMap);
+        }
+        assertEquals(Status.OK, jdbcDBClient.batchInsert(TABLE_NAME, keys, values));
+
+        HashMap<String, ByteIterator> updateMap = new HashMap<String, ByteIterator>();
+        updateMap.put("FIELD1", new StringByteIterator("updated"));
+        assertEquals(Status.OK, jdbcDBClient.batchUpdate(TABLE_NAME, keys.subList(1, 3),
+            Arrays.asList(updateMap, updateMap)));
+
+        Set<String> readFields = new HashSet<String>(Arrays.asList("FIELD0", "FIELD1"));
+        List<HashMap<String, ByteIterator>> results = new ArrayList<HashMap<String, ByteIterator>>();
+        assertEquals(Status.NOT_FOUND, jdbcDBClient.batchRead(TABLE_NAME,
+            Arrays.asList(KEY_PREFIX + 2, "missing", KEY_PREFIX + 0), readFields, results));
+        assertEquals(3, results.size());
+        assertEquals(values.get(2).get("FIELD0").toString(), results.get(0).get("FIELD0").toString());
+        assertEquals("updated", results.get(0).get("FIELD1").toString());
+        assertTrue(results.get(1).isEmpty());
+        assertEquals(values.get(0).get("FIELD1").toString(), results.get(2).get("FIELD1").toString());
+
+        assertEquals(Status.OK, jdbcDBClient.batchDelete(TABLE_NAME, keys.subList(0, 2)));
+        assertEquals(Status.UNEXPECTED_STATE, jdbcDBClient.batchDelete(TABLE_NAME, Arrays.asList("missing")));
+        try {
+            assertNumRows(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            fail("Failed batchTest");
+        }
+    }
+
     @Test
     public void insertBatchTest() throws DBException {
       insertBatchTest(20);
@@ -378,6 +427,69 @@ public class JdbcDBClientTest {
       }
     }
 
+    @Test
+    public void pooledMultiRowInsertTest() throws DBException {
+      teardown();
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.CONNECTION_POOL_SIZE, "2");
+      p.setProperty(JdbcDBClient.JDBC_MULTI_ROW_INSERT, "true");
+      p.setProperty(JdbcDBClient.JDBC_SCAN_CURSORS, "true");
+      p.setProperty(JdbcDBClient.JDBC_FETCH_SIZE, "2");
+      setupWithProperties(p);
+      JdbcDBClient secondClient = new JdbcDBClient();
+      secondClient.setProperties(p);
+      secondClient.init();
+      try {
+        List<String> keys = new ArrayList<String>();
+        List<HashMap<String, ByteIterator>> values = new ArrayList<HashMap<String, ByteIterator>>();
+        for (int i = 0; i < 5; i++) {
+          String key = KEY_PREFIX + i;
+          HashMap<String, ByteIterator> insertMap = new HashMap<String, ByteIterator>();
+          // the last record has fewer fields, so it needs a statement of its own
+          for (int j = 0; j < (i < 4 ? NUM_FIELDS : 1); j++) {
+            insertMap.put(FIELD_PREFIX + j, new StringByteIterator(buildDeterministicValue(key, FIELD_PREFIX + j)));
+          }
+          keys.add(key);
+          values.add(insertMap);
+        }
+        assertEquals(Status.OK, jdbcDBClient.batchInsert(TABLE_NAME, keys.subList(0, 3), values.subList(0, 3)));
+        assertEquals(Status.OK, secondClient.batchInsert(TABLE_NAME, keys.subList(3, 5), values.subList(3, 5)));
+        assertEquals(Status.ERROR, secondClient.batchInsert(TABLE_NAME, keys.subList(0, 1), values.subList(0, 1)));
+        assertNumRows(5);
+
+        Set<String> fieldSet = new HashSet<String>(Arrays.asList("FIELD0"));
+        Vector<HashMap<String, ByteIterator>> resultVector = new Vector<HashMap<String, ByteIterator>>();
+        assertEquals(Status.OK, secondClient.scan(TABLE_NAME, KEY_PREFIX + 1, 3, fieldSet, resultVector));
+        assertEquals(3, resultVector.size());
+        for (int i = 0; i < 3; i++) {
+          assertEquals(values.get(i + 1).get("FIELD0").toString(), resultVector.get(i).get("FIELD0").toString());
+        }
+
+        HashMap<String, ByteIterator> readResultMap = new HashMap<String, ByteIterator>();
+        assertEquals(Status.OK, jdbcDBClient.read(TABLE_NAME, KEY_PREFIX + 4, fieldSet, readResultMap));
+        assertEquals(values.get(4).get("FIELD0").toString(), readResultMap.get("FIELD0").toString());
+      } catch (SQLException e) {
+        e.printStackTrace();
+        fail("Failed pooledMultiRowInsertTest");
+      } finally {
+        secondClient.cleanup();
+        teardown(); // for next tests
+        setup();
+      }
+    }
+
+    @Test
+    public void multiRowUpsertStatementTest() {
+      StatementType type = new StatementType(StatementType.Type.MULTI_UPSERT, TABLE_NAME, 2, "FIELD0,FIELD1", 0, 2);
+      assertEquals("INSERT INTO USERTABLE (YCSB_KEY,FIELD0,FIELD1) VALUES(?,?,?),(?,?,?)"
+          + " ON CONFLICT (YCSB_KEY) DO UPDATE SET FIELD0=EXCLUDED.FIELD0, FIELD1=EXCLUDED.FIELD1",
+          DBFlavor.fromJdbcUrl("jdbc:postgresql://localhost/ycsb").createMultiRowInsertStatement(type, "user0"));
+      assertEquals("INSERT INTO USERTABLE (YCSB_KEY,FIELD0,FIELD1) VALUES(?,?,?),(?,?,?)"
+          + " ON DUPLICATE KEY UPDATE FIELD0=VALUES(FIELD0), FIELD1=VALUES(FIELD1)",
+          DBFlavor.fromJdbcUrl("jdbc:mysql://localhost/ycsb").createMultiRowInsertStatement(type, "user0"));
+      assertFalse(DBFlavor.fromJdbcUrl("jdbc:phoenix:localhost").supportsMultiRowInsert());
+    }
+
     private void assertNumRows(long numRows) throws SQLException {
       ResultSet resultSet = jdbcConnection.prepareStatement(
         String.format("SELECT * FROM %s", TABLE_NAME)
@@ -15,7 +15,6 @@
 
 package com.yahoo.ycsb.db.mapr;
 
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -174,7 +173,7 @@ public class MapRJSONDBClient extends com.yahoo.ycsb.DB {
     DocumentMutation mutation = driver.newMutation();
     for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
       mutation.setOrReplace(entry.getKey(),
-          ByteBuffer.wrap(entry.getValue().toArray()));
+          entry.getValue().toByteBuffer());
     }
     return mutation;
   }
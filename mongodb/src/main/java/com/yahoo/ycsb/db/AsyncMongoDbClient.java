@@ -18,6 +18,7 @@ package com.yahoo.ycsb.db;
 
 import static com.allanbank.mongodb.builder.QueryBuilder.where;
 
+import com.allanbank.mongodb.Callback;
 import com.allanbank.mongodb.Durability;
 import com.allanbank.mongodb.LockType;
 import com.allanbank.mongodb.MongoClient;
@@ -38,6 +39,7 @@ import com.allanbank.mongodb.builder.BatchedWrite;
 import com.allanbank.mongodb.builder.BatchedWriteMode;
 import com.allanbank.mongodb.builder.Find;
 import com.allanbank.mongodb.builder.Sort;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
@@ -49,6 +51,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -58,12 +62,17 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * See the <code>README.md</code> for configuration information.
  * </p>
+ * <p>
+ * The asynchronous operations used by the open-loop client map onto the
+ * driver's callback based methods. Batched inserts
+ * (<code>mongodb.batchsize</code> &gt; 1) are still performed synchronously.
+ * </p>
  *
  * @author rjm
  * @see <a href="http://www.allanbank.com/mongodb-async-driver/">Asynchronous
  *      Java Driver</a>
  */
-public class AsyncMongoDbClient extends DB {
+public class AsyncMongoDbClient extends AsyncDB {
 
   /** Used to include a field in a response. */
   protected static final int INCLUDE = 1;
@@ -469,6 +478,187 @@ public class AsyncMongoDbClient extends DB {
     }
   }
 
+  @Override
+  public final CompletionStage<Status> deleteAsync(final String table,
+      final String key) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final Document q = BuilderFactory.start().add("_id", key).build();
+      collection.deleteAsync(new StatusCallback<Long>(future) {
+        @Override
+        public void callback(final Long res) {
+          if (res == null || res.longValue() == 0) {
+            System.err.println("Nothing deleted for key " + key);
+            future.complete(Status.NOT_FOUND);
+          } else {
+            future.complete(Status.OK);
+          }
+        }
+      }, q, writeConcern);
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  @Override
+  public final CompletionStage<Status> insertAsync(final String table,
+      final String key, final Map<String, ByteIterator> values) {
+    if (batchSize > 1) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      // The document is only encoded once the request is sent, so the
+      // thread local builder cannot be used here.
+      final DocumentBuilder toInsert = BuilderFactory.start().add("_id", key);
+      final Document query = toInsert.build();
+      for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        toInsert.add(entry.getKey(), entry.getValue().toArray());
+      }
+
+      if (useUpsert) {
+        collection.updateAsync(new StatusCallback<Long>(future) {
+          @Override
+          public void callback(final Long result) {
+            future.complete(result != null && result.longValue() == 1
+                ? Status.OK : Status.NOT_FOUND);
+          }
+        }, query, toInsert, /* multi= */false, /* upsert= */true,
+            writeConcern);
+      } else {
+        // Return is not stable pre-SERVER-4381. No exception is success.
+        collection.insertAsync(new StatusCallback<Integer>(future) {
+          @Override
+          public void callback(final Integer result) {
+            future.complete(Status.OK);
+          }
+        }, writeConcern, toInsert);
+      }
+    } catch (final Exception e) {
+      e.printStackTrace();
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  @Override
+  public final CompletionStage<Status> readAsync(final String table,
+      final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final DocumentBuilder query = BuilderFactory.start().add("_id", key);
+
+      final Find.Builder fb = new Find.Builder(query);
+      if (fields != null) {
+        final DocumentBuilder fieldsToReturn = BuilderFactory.start();
+        for (final String field : fields) {
+          fieldsToReturn.add(field, INCLUDE);
+        }
+        fb.projection(fieldsToReturn);
+      }
+      fb.readPreference(readPreference);
+
+      collection.findOneAsync(new StatusCallback<Document>(future) {
+        @Override
+        public void callback(final Document queryResult) {
+          if (queryResult != null) {
+            fillMap(result, queryResult);
+          }
+          future.complete(queryResult != null ? Status.OK : Status.NOT_FOUND);
+        }
+      }, fb.build());
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  @Override
+  public final CompletionStage<Status> scanAsync(final String table,
+      final String startkey, final int recordcount, final Set<String> fields,
+      final Vector<HashMap<String, ByteIterator>> result) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+
+      final Find.Builder find =
+          Find.builder().query(where("_id").greaterThanOrEqualTo(startkey))
+              .limit(recordcount).batchSize(recordcount).sort(Sort.asc("_id"))
+              .readPreference(readPreference);
+
+      if (fields != null) {
+        final DocumentBuilder fieldsDoc = BuilderFactory.start();
+        for (final String field : fields) {
+          fieldsDoc.add(field, INCLUDE);
+        }
+
+        find.projection(fieldsDoc);
+      }
+
+      result.ensureCapacity(recordcount);
+
+      // The limit and batch size are equal, so the whole scan arrives with
+      // the first reply and iterating the cursor does not block.
+      collection.findAsync(new StatusCallback<MongoIterator<Document>>(future) {
+        @Override
+        public void callback(final MongoIterator<Document> cursor) {
+          if (!cursor.hasNext()) {
+            System.err.println("Nothing found in scan for key " + startkey);
+            future.complete(Status.NOT_FOUND);
+            return;
+          }
+          while (cursor.hasNext()) {
+            final HashMap<String, ByteIterator> docAsMap =
+                new HashMap<String, ByteIterator>();
+            fillMap(docAsMap, cursor.next());
+            result.add(docAsMap);
+          }
+          cursor.close();
+          future.complete(Status.OK);
+        }
+      }, find.build());
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  @Override
+  public final CompletionStage<Status> updateAsync(final String table,
+      final String key, final Map<String, ByteIterator> values) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final DocumentBuilder query = BuilderFactory.start().add("_id", key);
+      final DocumentBuilder update = BuilderFactory.start();
+      final DocumentBuilder fieldsToSet = update.push("$set");
+
+      for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        fieldsToSet.add(entry.getKey(), entry.getValue().toArray());
+      }
+      collection.updateAsync(new StatusCallback<Long>(future) {
+        @Override
+        public void callback(final Long res) {
+          future.complete(writeConcern == Durability.NONE
+              || (res != null && res.longValue() == 1)
+              ? Status.OK : Status.NOT_FOUND);
+        }
+      }, query, update, false, false, writeConcern);
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
   /**
    * Fills the map with the ByteIterators from the document.
    * 
@@ -487,6 +677,35 @@ public class AsyncMongoDbClient extends DB {
     }
   }
 
+  /**
+   * StatusCallback completes a future with {@link Status#ERROR} when the
+   * driver reports a failure; subclasses map the successful result.
+   * 
+   * @param <V>
+   *          The type of the driver's result.
+   */
+  private abstract static class StatusCallback<V> implements Callback<V> {
+
+    /** The future to complete. */
+    private final CompletableFuture<Status> future;
+
+    /**
+     * Creates a new StatusCallback.
+     * 
+     * @param future
+     *          The future to complete with the status of the operation.
+     */
+    StatusCallback(final CompletableFuture<Status> future) {
+      this.future = future;
+    }
+
+    @Override
+    public void exception(final Throwable thrown) {
+      System.err.println(thrown.toString());
+      future.complete(Status.ERROR);
+    }
+  }
+
   /**
    * BinaryByteArrayIterator provides an adapter from a {@link BinaryElement} to
    * a {@link ByteIterator}.
@@ -28,6 +28,7 @@ import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
 import com.mongodb.ReadPreference;
 import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
@@ -451,6 +452,189 @@ public class MongoDbClient extends DB {
     }
   }
 
+  /**
+   * Read a batch of records from the database with one query on their ids.
+   * 
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          A List to add a HashMap of field/value pairs to for each record
+   * @return Zero on success, a non-zero error code on error or "not found".
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<HashMap<String, ByteIterator>> results) {
+    MongoCursor<Document> cursor = null;
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      Document query = new Document("_id", new Document("$in", keys));
+
+      FindIterable<Document> findIterable = collection.find(query);
+
+      if (fields != null) {
+        Document projection = new Document();
+        for (String field : fields) {
+          projection.put(field, INCLUDE);
+        }
+        findIterable.projection(projection);
+      }
+
+      Map<Object, HashMap<String, ByteIterator>> found =
+          new HashMap<Object, HashMap<String, ByteIterator>>();
+      cursor = findIterable.iterator();
+      while (cursor.hasNext()) {
+        Document obj = cursor.next();
+        HashMap<String, ByteIterator> resultMap =
+            new HashMap<String, ByteIterator>();
+        fillMap(resultMap, obj);
+        found.put(obj.get("_id"), resultMap);
+      }
+
+      Status status = Status.OK;
+      for (String key : keys) {
+        HashMap<String, ByteIterator> resultMap = found.get(key);
+        if (resultMap == null) {
+          status = firstFailure(status, Status.NOT_FOUND);
+          resultMap = new HashMap<String, ByteIterator>();
+        }
+        results.add(resultMap);
+      }
+      return status;
+    } catch (Exception e) {
+      System.err.println(e.toString());
+      return Status.ERROR;
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
+  /**
+   * Update a batch of records in the database with one bulk write.
+   * 
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to write.
+   * @param values
+   *          A HashMap of field/value pairs to update for each of the keys
+   * @return Zero on success, a non-zero error code on error. See this class's
+   *         description for a discussion of error codes.
+   */
+  @Override
+  public Status batchUpdate(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+
+      List<UpdateOneModel<Document>> updates =
+          new ArrayList<UpdateOneModel<Document>>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        Document fieldsToSet = new Document();
+        for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet()) {
+          fieldsToSet.put(entry.getKey(), entry.getValue().toArray());
+        }
+        updates.add(new UpdateOneModel<Document>(
+            new Document("_id", keys.get(i)),
+            new Document("$set", fieldsToSet)));
+      }
+
+      BulkWriteResult result = collection.bulkWrite(updates);
+      if (result.wasAcknowledged() && result.getMatchedCount() < keys.size()) {
+        System.err.println("Nothing updated for "
+            + (keys.size() - result.getMatchedCount()) + " keys of the batch");
+        return Status.NOT_FOUND;
+      }
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println(e.toString());
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Insert a batch of records in the database with one insertMany, or one
+   * bulk write of upserts.
+   * 
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to insert.
+   * @param values
+   *          A HashMap of field/value pairs to insert for each of the keys
+   * @return Zero on success, a non-zero error code on error. See the {@link DB}
+   *         class's description for a discussion of error codes.
+   */
+  @Override
+  public Status batchInsert(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      List<Document> toInsert = new ArrayList<Document>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        Document doc = new Document("_id", keys.get(i));
+        for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet()) {
+          doc.put(entry.getKey(), entry.getValue().toArray());
+        }
+        toInsert.add(doc);
+      }
+
+      if (useUpsert) {
+        List<UpdateOneModel<Document>> updates =
+            new ArrayList<UpdateOneModel<Document>>(toInsert.size());
+        for (Document doc : toInsert) {
+          updates.add(new UpdateOneModel<Document>(
+              new Document("_id", doc.get("_id")),
+              doc, UPDATE_WITH_UPSERT));
+        }
+        collection.bulkWrite(updates);
+      } else {
+        collection.insertMany(toInsert, INSERT_UNORDERED);
+      }
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println("Exception while trying batch insert with "
+          + keys.size());
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Delete a batch of records from the database with one query on their ids.
+   * 
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to delete.
+   * @return Zero on success, a non-zero error code on error. See the {@link DB}
+   *         class's description for a discussion of error codes.
+   */
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+
+      Document query = new Document("_id", new Document("$in", keys));
+      DeleteResult result =
+          collection.withWriteConcern(writeConcern).deleteMany(query);
+      if (result.wasAcknowledged() && result.getDeletedCount() < keys.size()) {
+        System.err.println("Nothing deleted for "
+            + (keys.size() - result.getDeletedCount()) + " keys of the batch");
+        return Status.NOT_FOUND;
+      }
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println(e.toString());
+      return Status.ERROR;
+    }
+  }
+
   /**
    * Fills the map with the values from the DBObject.
    * 
@@ -35,8 +35,11 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -304,6 +307,55 @@ public abstract class AbstractDBTestCases {
     }
   }
 
+  /**
+   * Test method for {@link DB#batchInsert}, {@link DB#batchRead},
+   * {@link DB#batchUpdate} and {@link DB#batchDelete}.
+   */
+  @Test
+  public void testBatchInsertReadUpdateDelete() {
+    final DB client = getDB();
+
+    final String table = getClass().getSimpleName();
+    final List<String> ids = Arrays.asList("batch0", "batch1", "batch2");
+
+    List<HashMap<String, ByteIterator>> inserted =
+        new ArrayList<HashMap<String, ByteIterator>>();
+    for (int i = 0; i < ids.size(); ++i) {
+      HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+      values.put("a", new ByteArrayByteIterator(new byte[] { (byte) i }));
+      inserted.add(values);
+    }
+    Status result = client.batchInsert(table, ids, inserted);
+    assertThat("Batch insert did not return success (0).", result, is(Status.OK));
+
+    HashMap<String, ByteIterator> updated = new HashMap<String, ByteIterator>();
+    updated.put("a", new ByteArrayByteIterator(new byte[] { 9 }));
+    result = client.batchUpdate(table, Arrays.asList("batch1", "missing"),
+        Arrays.asList(updated, updated));
+    assertThat("Batch update did not return not found (1).", result,
+        is(Status.NOT_FOUND));
+
+    List<HashMap<String, ByteIterator>> read =
+        new ArrayList<HashMap<String, ByteIterator>>();
+    result = client.batchRead(table,
+        Arrays.asList("batch2", "missing", "batch1", "batch0"),
+        Collections.singleton("a"), read);
+    assertThat("Batch read did not return not found (1).", result,
+        is(Status.NOT_FOUND));
+    assertThat(read.size(), is(4));
+    assertThat(read.get(0).get("a").nextByte(), is(Byte.valueOf((byte) 2)));
+    assertThat(read.get(1).size(), is(0));
+    assertThat(read.get(2).get("a").nextByte(), is(Byte.valueOf((byte) 9)));
+    assertThat(read.get(3).get("a").nextByte(), is(Byte.valueOf((byte) 0)));
+
+    result = client.batchDelete(table, ids);
+    assertThat("Batch delete did not return success (0).", result, is(Status.OK));
+
+    result = client.read(table, "batch0", null, new HashMap<String, ByteIterator>());
+    assertThat("Read, after batch delete, did not return not found (1).", result,
+        is(Status.NOT_FOUND));
+  }
+
   /**
    * Gets the test DB.
    * 
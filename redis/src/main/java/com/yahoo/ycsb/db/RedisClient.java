@@ -19,25 +19,30 @@
  * Redis client binding for YCSB.
  *
  * All YCSB records are mapped to a Redis *hash field*.  For scanning
- * operations, all keys are saved (by an arbitrary hash) in a sorted set.
+ * operations, all keys are saved (by an arbitrary hash) in sorted sets.
  */
 
 package com.yahoo.ycsb.db;
 
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
-import redis.clients.jedis.BasicCommands;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
-import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Tuple;
 
-import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.HashSet;
@@ -46,23 +51,67 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 /**
  * YCSB binding for <a href="http://redis.io/">Redis</a>.
  *
+ * Against a single server, each operation is sent as a pipeline of its commands, so that writing a hash and its
+ * index entry takes one round trip. With {@link #PIPELINE_PROPERTY}, the operations a client thread has in flight
+ * are sent together (see {@link RedisPipeline}). A cluster can't pipeline across its nodes, so there each command
+ * is sent on its own.
+ *
  * See {@code redis/README.md} for details.
  */
-public class RedisClient extends DB {
-
-  private JedisCommands jedis;
+public class RedisClient extends AsyncDB {
 
   public static final String HOST_PROPERTY = "redis.host";
   public static final String PORT_PROPERTY = "redis.port";
   public static final String PASSWORD_PROPERTY = "redis.password";
   public static final String CLUSTER_PROPERTY = "redis.cluster";
 
+  /**
+   * The most operations of a client thread to send in one pipeline, or 0 to send each one as it is issued.
+   */
+  public static final String PIPELINE_PROPERTY = "redis.pipeline";
+
+  /**
+   * Whether to write a hash and its index entry in a MULTI/EXEC transaction rather than just a pipeline.
+   */
+  public static final String MULTI_PROPERTY = "redis.multi";
+
+  /**
+   * How many sorted sets to spread the scan index over. Each has its own hash tag, so that in a cluster they land
+   * in different slots rather than making one slot take every insert and delete.
+   */
+  public static final String INDEX_SHARDS_PROPERTY = "redis.indexshards";
+  public static final String INDEX_SHARDS_CLUSTER_DEFAULT = "16";
+
+  /**
+   * How many connections all client threads share, or 0 for each to open its own.
+   */
+  public static final String POOL_SIZE_PROPERTY = "redis.poolsize";
+
   public static final String INDEX_KEY = "_indices";
 
+  private static final int CLUSTER_MAX_ATTEMPTS = 5;
+
+  private static final Comparator<Tuple> BY_SCORE = Comparator.comparingDouble(Tuple::getScore);
+
+  // shared by all client threads when POOL_SIZE_PROPERTY is set, guarded by RedisClient.class
+  private static JedisPool pool;
+  private static JedisCluster sharedCluster;
+  private static int references = 0;
+
+  private boolean pooled;
+  private Jedis jedis;
+  private JedisCluster cluster;
+  private RedisPipeline pipeline;
+  private boolean multi;
+  private String[] indexKeys;
+
   public void init() throws DBException {
     Properties props = getProperties();
     int port;
@@ -74,26 +123,82 @@ public class RedisClient extends DB {
       port = Protocol.DEFAULT_PORT;
     }
     String host = props.getProperty(HOST_PROPERTY);
+    String password = props.getProperty(PASSWORD_PROPERTY);
 
     boolean clusterEnabled = Boolean.parseBoolean(props.getProperty(CLUSTER_PROPERTY));
-    if (clusterEnabled) {
-      Set<HostAndPort> jedisClusterNodes = new HashSet<>();
-      jedisClusterNodes.add(new HostAndPort(host, port));
-      jedis = new JedisCluster(jedisClusterNodes);
+    Set<HostAndPort> jedisClusterNodes = new HashSet<>();
+    jedisClusterNodes.add(new HostAndPort(host, port));
+
+    int poolSize = Integer.parseInt(props.getProperty(POOL_SIZE_PROPERTY, "0"));
+    pooled = poolSize > 0;
+    if (pooled) {
+      synchronized (RedisClient.class) {
+        if (references == 0) {
+          GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+          config.setMaxTotal(poolSize);
+          config.setMaxIdle(poolSize);
+          if (clusterEnabled) {
+            sharedCluster = new JedisCluster(jedisClusterNodes, Protocol.DEFAULT_TIMEOUT, Protocol.DEFAULT_TIMEOUT,
+                CLUSTER_MAX_ATTEMPTS, password, config);
+          } else {
+            pool = new JedisPool(config, host, port, Protocol.DEFAULT_TIMEOUT, password);
+          }
+        }
+        references++;
+        cluster = sharedCluster;
+      }
+    } else if (clusterEnabled) {
+      cluster = new JedisCluster(jedisClusterNodes, Protocol.DEFAULT_TIMEOUT, Protocol.DEFAULT_TIMEOUT,
+          CLUSTER_MAX_ATTEMPTS, password, new GenericObjectPoolConfig());
     } else {
       jedis = new Jedis(host, port);
-      ((Jedis) jedis).connect();
+      jedis.connect();
+      if (password != null) {
+        jedis.auth(password);
+      }
     }
 
-    String password = props.getProperty(PASSWORD_PROPERTY);
-    if (password != null) {
-      ((BasicCommands) jedis).auth(password);
+    multi = Boolean.parseBoolean(props.getProperty(MULTI_PROPERTY));
+
+    int shards = Integer.parseInt(props.getProperty(INDEX_SHARDS_PROPERTY,
+        clusterEnabled ? INDEX_SHARDS_CLUSTER_DEFAULT : "1"));
+    indexKeys = new String[shards];
+    for (int i = 0; i < shards; i++) {
+      indexKeys[i] = shards == 1 ? INDEX_KEY : INDEX_KEY + "{" + i + "}";
+    }
+
+    int depth = Integer.parseInt(props.getProperty(PIPELINE_PROPERTY, "0"));
+    if (depth > 0) {
+      if (clusterEnabled) {
+        throw new DBException(PIPELINE_PROPERTY + " is not supported with " + CLUSTER_PROPERTY);
+      }
+      pipeline = new RedisPipeline(depth, this::borrow, this::release);
     }
   }
 
   public void cleanup() throws DBException {
+    if (pipeline != null) {
+      pipeline.close();
+    }
     try {
-      ((Closeable) jedis).close();
+      if (pooled) {
+        synchronized (RedisClient.class) {
+          if (--references == 0) {
+            if (pool != null) {
+              pool.close();
+              pool = null;
+            }
+            if (sharedCluster != null) {
+              sharedCluster.close();
+              sharedCluster = null;
+            }
+          }
+        }
+      } else if (cluster != null) {
+        cluster.close();
+      } else {
+        jedis.close();
+      }
     } catch (IOException e) {
       throw new DBException("Closing connection failed.");
     }
@@ -109,62 +214,222 @@ public class RedisClient extends DB {
     return key.hashCode();
   }
 
+  /**
+   * @return The sorted set the key is indexed in.
+   */
+  private String indexKey(String key) {
+    return indexKeys[(key.hashCode() & Integer.MAX_VALUE) % indexKeys.length];
+  }
+
+  private Jedis borrow() {
+    return pool != null ? pool.getResource() : jedis;
+  }
+
+  private void release(Jedis connection) {
+    if (connection != jedis) {
+      // returns it to the pool
+      connection.close();
+    }
+  }
+
+  /**
+   * Runs an operation against a single server, and waits for its status.
+   */
+  private Status execute(RedisPipeline.Operation operation) {
+    if (pipeline != null) {
+      return await(pipeline.submit(operation));
+    }
+    Jedis connection = borrow();
+    try {
+      Pipeline commands = connection.pipelined();
+      Supplier<Status> status = operation.queue(commands);
+      commands.sync();
+      return status.get();
+    } finally {
+      release(connection);
+    }
+  }
+
+  /**
+   * Runs an operation against a single server, in the pipeline if there is one.
+   */
+  private CompletableFuture<Status> submit(RedisPipeline.Operation operation) {
+    if (pipeline != null) {
+      return pipeline.submit(operation);
+    }
+    return CompletableFuture.completedFuture(execute(operation));
+  }
+
+  /**
+   * @return An operation made of all the given ones, whose status is the first failure among theirs.
+   */
+  private static RedisPipeline.Operation all(List<RedisPipeline.Operation> operations) {
+    return commands -> {
+      List<Supplier<Status>> statuses = new ArrayList<>(operations.size());
+      for (RedisPipeline.Operation operation : operations) {
+        statuses.add(operation.queue(commands));
+      }
+      return () -> {
+        Status status = Status.OK;
+        for (Supplier<Status> record : statuses) {
+          status = firstFailure(status, record.get());
+        }
+        return status;
+      };
+    };
+  }
+
   // XXX jedis.select(int index) to switch to `table`
 
   @Override
   public Status read(String table, String key, Set<String> fields,
       Map<String, ByteIterator> result) {
+    if (cluster == null) {
+      return execute(readOperation(key, fields, result));
+    }
     if (fields == null) {
-      StringByteIterator.putAllAsByteIterators(result, jedis.hgetAll(key));
+      StringByteIterator.putAllAsByteIterators(result, cluster.hgetAll(key));
     } else {
       String[] fieldArray =
           (String[]) fields.toArray(new String[fields.size()]);
-      List<String> values = jedis.hmget(key, fieldArray);
+      putFields(fields, cluster.hmget(key, fieldArray), result);
+    }
+    return result.isEmpty() ? Status.ERROR : Status.OK;
+  }
 
-      Iterator<String> fieldIterator = fields.iterator();
-      Iterator<String> valueIterator = values.iterator();
+  private static RedisPipeline.Operation readOperation(String key, Set<String> fields,
+      Map<String, ByteIterator> result) {
+    if (fields == null) {
+      return commands -> {
+        Response<Map<String, String>> response = commands.hgetAll(key);
+        return () -> {
+          StringByteIterator.putAllAsByteIterators(result, response.get());
+          return result.isEmpty() ? Status.ERROR : Status.OK;
+        };
+      };
+    }
+    String[] fieldArray = fields.toArray(new String[fields.size()]);
+    return commands -> {
+      Response<List<String>> response = commands.hmget(key, fieldArray);
+      return () -> {
+        putFields(fields, response.get(), result);
+        return result.isEmpty() ? Status.ERROR : Status.OK;
+      };
+    };
+  }
 
-      while (fieldIterator.hasNext() && valueIterator.hasNext()) {
-        result.put(fieldIterator.next(),
-            new StringByteIterator(valueIterator.next()));
+  /**
+   * Puts the values hmget returned for the fields into the result, leaving out the fields the hash
+   * doesn't have.
+   */
+  private static void putFields(Set<String> fields, List<String> values,
+      Map<String, ByteIterator> result) {
+    Iterator<String> fieldIterator = fields.iterator();
+    Iterator<String> valueIterator = values.iterator();
+
+    while (fieldIterator.hasNext() && valueIterator.hasNext()) {
+      String field = fieldIterator.next();
+      String value = valueIterator.next();
+      if (value != null) {
+        result.put(field, new StringByteIterator(value));
       }
-      assert !fieldIterator.hasNext() && !valueIterator.hasNext();
     }
-    return result.isEmpty() ? Status.ERROR : Status.OK;
+    assert !fieldIterator.hasNext() && !valueIterator.hasNext();
   }
 
   @Override
   public Status insert(String table, String key,
       Map<String, ByteIterator> values) {
-    if (jedis.hmset(key, StringByteIterator.getStringMap(values))
+    if (cluster == null) {
+      return execute(insertOperation(key, values));
+    }
+    if (cluster.hmset(key, StringByteIterator.getStringMap(values))
         .equals("OK")) {
-      jedis.zadd(INDEX_KEY, hash(key), key);
+      cluster.zadd(indexKey(key), hash(key), key);
       return Status.OK;
     }
     return Status.ERROR;
   }
 
+  private RedisPipeline.Operation insertOperation(String key, Map<String, ByteIterator> values) {
+    Map<String, String> hashValues = StringByteIterator.getStringMap(values);
+    return commands -> {
+      if (multi) {
+        commands.multi();
+      }
+      Response<String> response = commands.hmset(key, hashValues);
+      commands.zadd(indexKey(key), hash(key), key);
+      if (multi) {
+        commands.exec();
+      }
+      return () -> "OK".equals(response.get()) ? Status.OK : Status.ERROR;
+    };
+  }
+
   @Override
   public Status delete(String table, String key) {
-    return jedis.del(key) == 0 && jedis.zrem(INDEX_KEY, key) == 0 ? Status.ERROR
+    if (cluster == null) {
+      return execute(deleteOperation(key));
+    }
+    return cluster.del(key) == 0 && cluster.zrem(indexKey(key), key) == 0 ? Status.ERROR
         : Status.OK;
   }
 
+  private RedisPipeline.Operation deleteOperation(String key) {
+    return commands -> {
+      if (multi) {
+        commands.multi();
+      }
+      Response<Long> deleted = commands.del(key);
+      Response<Long> removed = commands.zrem(indexKey(key), key);
+      if (multi) {
+        commands.exec();
+      }
+      return () -> deleted.get() == 0 && removed.get() == 0 ? Status.ERROR : Status.OK;
+    };
+  }
+
   @Override
   public Status update(String table, String key,
       Map<String, ByteIterator> values) {
-    return jedis.hmset(key, StringByteIterator.getStringMap(values))
+    if (cluster == null) {
+      return execute(updateOperation(key, values));
+    }
+    return cluster.hmset(key, StringByteIterator.getStringMap(values))
         .equals("OK") ? Status.OK : Status.ERROR;
   }
 
+  private static RedisPipeline.Operation updateOperation(String key, Map<String, ByteIterator> values) {
+    Map<String, String> hashValues = StringByteIterator.getStringMap(values);
+    return commands -> {
+      Response<String> response = commands.hmset(key, hashValues);
+      return () -> "OK".equals(response.get()) ? Status.OK : Status.ERROR;
+    };
+  }
+
+  /**
+   * Looks the keys up in every index shard, takes the recordcount with the lowest hashes, and reads them.
+   */
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
-    Set<String> keys = jedis.zrangeByScore(INDEX_KEY, hash(startkey),
-        Double.POSITIVE_INFINITY, 0, recordcount);
+    if (cluster == null) {
+      List<String> keys = new ArrayList<>(recordcount);
+      execute(indexOperation(startkey, recordcount, keys));
+      List<HashMap<String, ByteIterator>> records = new ArrayList<>(keys.size());
+      execute(all(batchReadOperations(keys, fields, records)));
+      result.addAll(records);
+      return Status.OK;
+    }
+
+    List<Set<Tuple>> shards = new ArrayList<>(indexKeys.length);
+    for (String indexKey : indexKeys) {
+      shards.add(cluster.zrangeByScoreWithScores(indexKey, hash(startkey),
+          Double.POSITIVE_INFINITY, 0, recordcount));
+    }
 
     HashMap<String, ByteIterator> values;
-    for (String key : keys) {
+    for (String key : firstKeys(shards, recordcount)) {
       values = new HashMap<String, ByteIterator>();
       read(table, key, fields, values);
       result.add(values);
@@ -173,4 +438,162 @@ public class RedisClient extends DB {
     return Status.OK;
   }
 
+  private RedisPipeline.Operation indexOperation(String startkey, int recordcount, List<String> keys) {
+    return commands -> {
+      List<Response<Set<Tuple>>> responses = new ArrayList<>(indexKeys.length);
+      for (String indexKey : indexKeys) {
+        responses.add(commands.zrangeByScoreWithScores(indexKey, hash(startkey),
+            Double.POSITIVE_INFINITY, 0, recordcount));
+      }
+      return () -> {
+        List<Set<Tuple>> shards = new ArrayList<>(responses.size());
+        for (Response<Set<Tuple>> response : responses) {
+          shards.add(response.get());
+        }
+        keys.addAll(firstKeys(shards, recordcount));
+        return Status.OK;
+      };
+    };
+  }
+
+  /**
+   * @return The keys of the count entries with the lowest scores across the shards of the index.
+   */
+  private static List<String> firstKeys(Collection<Set<Tuple>> shards, int count) {
+    List<Tuple> entries = new ArrayList<>();
+    for (Set<Tuple> shard : shards) {
+      entries.addAll(shard);
+    }
+    if (shards.size() > 1) {
+      entries.sort(BY_SCORE);
+    }
+    List<String> keys = new ArrayList<>(Math.min(count, entries.size()));
+    for (Tuple entry : entries.subList(0, Math.min(count, entries.size()))) {
+      keys.add(entry.getElement());
+    }
+    return keys;
+  }
+
+  @Override
+  public CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+      Map<String, ByteIterator> result) {
+    if (cluster != null) {
+      return CompletableFuture.completedFuture(read(table, key, fields, result));
+    }
+    return submit(readOperation(key, fields, result));
+  }
+
+  @Override
+  public CompletionStage<Status> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    if (cluster != null) {
+      return CompletableFuture.completedFuture(scan(table, startkey, recordcount, fields, result));
+    }
+    List<String> keys = new ArrayList<>(recordcount);
+    List<HashMap<String, ByteIterator>> records = new ArrayList<>(recordcount);
+    return submit(indexOperation(startkey, recordcount, keys))
+        .thenCompose(found -> submit(all(batchReadOperations(keys, fields, records))))
+        .thenApply(read -> {
+            result.addAll(records);
+            return Status.OK;
+          });
+  }
+
+  @Override
+  public CompletionStage<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
+    if (cluster != null) {
+      return CompletableFuture.completedFuture(update(table, key, values));
+    }
+    return submit(updateOperation(key, values));
+  }
+
+  @Override
+  public CompletionStage<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+    if (cluster != null) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    return submit(insertOperation(key, values));
+  }
+
+  @Override
+  public CompletionStage<Status> deleteAsync(String table, String key) {
+    if (cluster != null) {
+      return CompletableFuture.completedFuture(delete(table, key));
+    }
+    return submit(deleteOperation(key));
+  }
+
+  /**
+   * Reads the records in one pipeline. A cluster can't pipeline across its nodes, so there the records
+   * are read one by one.
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<HashMap<String, ByteIterator>> results) {
+    if (cluster != null) {
+      return super.batchRead(table, keys, fields, results);
+    }
+    return execute(all(batchReadOperations(keys, fields, results)));
+  }
+
+  /**
+   * @return Operations that read the records, into maps they add to the results.
+   */
+  private static List<RedisPipeline.Operation> batchReadOperations(List<String> keys, Set<String> fields,
+      List<HashMap<String, ByteIterator>> results) {
+    List<RedisPipeline.Operation> operations = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      HashMap<String, ByteIterator> result = new HashMap<>();
+      results.add(result);
+      operations.add(readOperation(key, fields, result));
+    }
+    return operations;
+  }
+
+  /**
+   * Writes the hashes and their index entries in one pipeline, or one by one on a cluster.
+   */
+  @Override
+  public Status batchInsert(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    if (cluster != null) {
+      return super.batchInsert(table, keys, values);
+    }
+    List<RedisPipeline.Operation> operations = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      operations.add(insertOperation(keys.get(i), values.get(i)));
+    }
+    return execute(all(operations));
+  }
+
+  /**
+   * Writes the hashes in one pipeline, or one by one on a cluster.
+   */
+  @Override
+  public Status batchUpdate(String table, List<String> keys,
+      List<? extends Map<String, ByteIterator>> values) {
+    if (cluster != null) {
+      return super.batchUpdate(table, keys, values);
+    }
+    List<RedisPipeline.Operation> operations = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      operations.add(updateOperation(keys.get(i), values.get(i)));
+    }
+    return execute(all(operations));
+  }
+
+  /**
+   * Deletes the hashes and their index entries in one pipeline, or one by one on a cluster.
+   */
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    if (cluster != null) {
+      return super.batchDelete(table, keys);
+    }
+    List<RedisPipeline.Operation> operations = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      operations.add(deleteOperation(key));
+    }
+    return execute(all(operations));
+  }
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.Status;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Sends the operations of one client thread to Redis in pipelines. A background thread takes whatever operations
+ * are queued, up to the depth, sends them in one pipeline and completes them when the replies are in. So a thread
+ * with one operation at a time still gets a round trip per operation, and one with many in flight gets up to depth
+ * operations per round trip.
+ */
+final class RedisPipeline implements Closeable {
+
+  /**
+   * An operation made of one or more Redis commands.
+   */
+  interface Operation {
+    /**
+     * Adds the operation's commands to the pipeline.
+     *
+     * @return What tells the operation's status once the pipeline has been synced.
+     */
+    Supplier<Status> queue(Pipeline pipeline);
+  }
+
+  private static final class Queued {
+    private final Operation operation;
+    private final CompletableFuture<Status> future = new CompletableFuture<>();
+
+    private Queued(Operation operation) {
+      this.operation = operation;
+    }
+  }
+
+  private static final Queued STOP = new Queued(null);
+
+  private final BlockingQueue<Queued> queue = new LinkedBlockingQueue<>();
+  private final int depth;
+  private final Supplier<Jedis> borrow;
+  private final Consumer<Jedis> release;
+  private final Thread sender;
+
+  /**
+   * @param depth The most operations to send in one pipeline.
+   * @param borrow Gets a connection to send a pipeline on.
+   * @param release Gives the connection back once the pipeline has been synced.
+   */
+  RedisPipeline(int depth, Supplier<Jedis> borrow, Consumer<Jedis> release) {
+    this.depth = depth;
+    this.borrow = borrow;
+    this.release = release;
+    sender = new Thread(this::run, "Redis pipeline");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Queues an operation for the next pipeline.
+   *
+   * @return A future that completes with the operation's status, or exceptionally if Redis could not be reached.
+   */
+  CompletableFuture<Status> submit(Operation operation) {
+    Queued queued = new Queued(operation);
+    queue.add(queued);
+    return queued.future;
+  }
+
+  private void run() {
+    List<Queued> batch = new ArrayList<>(depth);
+    try {
+      while (true) {
+        batch.add(queue.take());
+        queue.drainTo(batch, depth - 1);
+        // nothing is submitted after close, so STOP can only be last
+        boolean stop = batch.get(batch.size() - 1) == STOP;
+        if (stop) {
+          batch.remove(batch.size() - 1);
+        }
+        if (!batch.isEmpty()) {
+          send(batch);
+        }
+        if (stop) {
+          return;
+        }
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void send(List<Queued> batch) {
+    List<Supplier<Status>> statuses = new ArrayList<>(batch.size());
+    try {
+      Jedis connection = borrow.get();
+      try {
+        Pipeline pipeline = connection.pipelined();
+        for (Queued queued : batch) {
+          statuses.add(queued.operation.queue(pipeline));
+        }
+        pipeline.sync();
+      } finally {
+        release.accept(connection);
+      }
+    } catch (RuntimeException e) {
+      for (Queued queued : batch) {
+        queued.future.completeExceptionally(e);
+      }
+      return;
+    }
+
+    for (int i = 0; i < batch.size(); i++) {
+      try {
+        batch.get(i).future.complete(statuses.get(i).get());
+      } catch (RuntimeException e) {
+        batch.get(i).future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Sends what is still queued, and stops.
+   */
+  @Override
+  public void close() {
+    queue.add(STOP);
+    try {
+      sender.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs {@link RedisClient} against a Redis server started for the test.
+ */
+public class RedisClientTest {
+  private static final String TABLE = "usertable";
+  private static final String FIELD = "field0";
+
+  private static RedisServer server;
+  private static int port;
+  private static Jedis jedis;
+
+  private final List<RedisClient> clients = new ArrayList<>();
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    port = freePort();
+    server = new RedisServer(port);
+    server.start();
+    jedis = new Jedis("localhost", port);
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    if (jedis != null) {
+      jedis.close();
+    }
+    if (server != null) {
+      server.stop();
+    }
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    for (RedisClient client : clients) {
+      client.cleanup();
+    }
+    jedis.flushAll();
+  }
+
+  static int freePort() throws Exception {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /**
+   * @param properties Pairs of property names and values, on top of the host and port.
+   */
+  private RedisClient client(String... properties) throws DBException {
+    Properties p = new Properties();
+    p.setProperty(RedisClient.HOST_PROPERTY, "localhost");
+    p.setProperty(RedisClient.PORT_PROPERTY, Integer.toString(port));
+    for (int i = 0; i < properties.length; i += 2) {
+      p.setProperty(properties[i], properties[i + 1]);
+    }
+    RedisClient client = new RedisClient();
+    client.setProperties(p);
+    client.init();
+    clients.add(client);
+    return client;
+  }
+
+  private static Map<String, ByteIterator> values(String value) {
+    return StringByteIterator.getByteIteratorMap(Collections.singletonMap(FIELD, value));
+  }
+
+  private static String field(Map<String, ByteIterator> record) {
+    return record.get(FIELD).toString();
+  }
+
+  private static String read(RedisClient client, String key) {
+    Map<String, ByteIterator> record = new HashMap<>();
+    assertEquals(Status.OK, client.read(TABLE, key, null, record));
+    return field(record);
+  }
+
+  private static void insertReadUpdateDelete(RedisClient client) {
+    assertEquals(Status.OK, client.insert(TABLE, "user1", values("a")));
+    assertNotNull(jedis.zscore(RedisClient.INDEX_KEY, "user1"));
+    assertEquals("a", read(client, "user1"));
+
+    assertEquals(Status.OK, client.update(TABLE, "user1", values("b")));
+    assertEquals("b", read(client, "user1"));
+
+    assertEquals(Status.OK, client.delete(TABLE, "user1"));
+    assertFalse(jedis.exists("user1"));
+    assertNull(jedis.zscore(RedisClient.INDEX_KEY, "user1"));
+    assertEquals(Status.ERROR, client.read(TABLE, "user1", null, new HashMap<String, ByteIterator>()));
+  }
+
+  @Test
+  public void sendsEachOperationOnItsOwn() throws Exception {
+    insertReadUpdateDelete(client());
+  }
+
+  @Test
+  public void writesTheHashAndItsIndexEntryInATransaction() throws Exception {
+    insertReadUpdateDelete(client(RedisClient.MULTI_PROPERTY, "true"));
+  }
+
+  @Test
+  public void sendsOperationsThroughThePipeline() throws Exception {
+    insertReadUpdateDelete(client(RedisClient.PIPELINE_PROPERTY, "4"));
+  }
+
+  @Test
+  public void completesEachOperationInFlightWithItsOwnReply() throws Exception {
+    RedisClient client = client(RedisClient.PIPELINE_PROPERTY, "8", RedisClient.MULTI_PROPERTY, "true");
+    List<CompletableFuture<Status>> inserts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      inserts.add(client.insertAsync(TABLE, "user" + i, values("value" + i)).toCompletableFuture());
+    }
+    for (CompletableFuture<Status> insert : inserts) {
+      assertEquals(Status.OK, insert.get());
+    }
+
+    List<Map<String, ByteIterator>> records = new ArrayList<>();
+    List<CompletableFuture<Status>> reads = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Map<String, ByteIterator> record = new HashMap<>();
+      records.add(record);
+      reads.add(client.readAsync(TABLE, "user" + i, null, record).toCompletableFuture());
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Status.OK, reads.get(i).get());
+      assertEquals("value" + i, field(records.get(i)));
+    }
+    assertEquals(100L, (long) jedis.zcard(RedisClient.INDEX_KEY));
+  }
+
+  @Test
+  public void batchesKeepTheOrderOfTheKeys() throws Exception {
+    for (RedisClient client : Arrays.asList(client(), client(RedisClient.PIPELINE_PROPERTY, "2"))) {
+      List<String> keys = Arrays.asList("user0", "user1", "user2");
+      assertEquals(Status.OK, client.batchInsert(TABLE, keys,
+          Arrays.asList(values("a"), values("b"), values("c"))));
+      assertEquals(Status.OK, client.batchUpdate(TABLE, keys.subList(1, 2), Arrays.asList(values("B"))));
+
+      List<HashMap<String, ByteIterator>> records = new ArrayList<>();
+      assertEquals(Status.ERROR, client.batchRead(TABLE, Arrays.asList("user2", "missing", "user1", "user0"),
+          null, records));
+      assertEquals(4, records.size());
+      assertEquals("c", field(records.get(0)));
+      assertTrue(records.get(1).isEmpty());
+      assertEquals("B", field(records.get(2)));
+      assertEquals("a", field(records.get(3)));
+
+      assertEquals(Status.OK, client.batchDelete(TABLE, keys));
+      assertEquals(0L, (long) jedis.dbSize());
+    }
+  }
+
+  @Test
+  public void spreadsTheIndexOverHashTaggedShards() throws Exception {
+    RedisClient client = client(RedisClient.INDEX_SHARDS_PROPERTY, "4");
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      keys.add("user" + i);
+      assertEquals(Status.OK, client.insert(TABLE, "user" + i, values("user" + i)));
+    }
+
+    assertFalse(jedis.exists(RedisClient.INDEX_KEY));
+    long indexed = 0;
+    for (int i = 0; i < 4; i++) {
+      long entries = jedis.zcard(RedisClient.INDEX_KEY + "{" + i + "}");
+      assertTrue(entries > 0);
+      indexed += entries;
+    }
+    assertEquals(40, indexed);
+
+    // a scan merges the shards, in the order of the keys' hashes
+    keys.sort(Comparator.comparingInt(String::hashCode));
+    Vector<HashMap<String, ByteIterator>> scanned = new Vector<>();
+    assertEquals(Status.OK, client.scan(TABLE, keys.get(10), 5, null, scanned));
+    assertEquals(5, scanned.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(keys.get(10 + i), field(scanned.get(i)));
+    }
+  }
+
+  @Test
+  public void threadsShareThePool() throws Exception {
+    RedisClient first = client(RedisClient.POOL_SIZE_PROPERTY, "2");
+    RedisClient second = client(RedisClient.POOL_SIZE_PROPERTY, "2", RedisClient.PIPELINE_PROPERTY, "4");
+    assertEquals(Status.OK, first.insert(TABLE, "user1", values("a")));
+    assertEquals("a", read(second, "user1"));
+
+    clients.remove(first);
+    first.cleanup();
+    assertEquals(Status.OK, second.update(TABLE, "user1", values("b")));
+    assertEquals("b", read(second, "user1"));
+  }
+
+  @Test
+  public void failsOnlyTheOperationRedisRejects() throws Exception {
+    RedisClient client = client(RedisClient.PIPELINE_PROPERTY, "8");
+    jedis.set("string", "not a hash");
+
+    CompletableFuture<Status> before = client.insertAsync(TABLE, "user1", values("a")).toCompletableFuture();
+    CompletableFuture<Status> rejected =
+        client.readAsync(TABLE, "string", null, new HashMap<String, ByteIterator>()).toCompletableFuture();
+    CompletableFuture<Status> after = client.insertAsync(TABLE, "user2", values("b")).toCompletableFuture();
+
+    assertEquals(Status.OK, before.get());
+    assertEquals(Status.OK, after.get());
+    assertTrue(rejected.handle((status, e) -> e != null).get());
+    assertEquals(Status.ERROR, client.read(TABLE, "string", null, new HashMap<String, ByteIterator>()));
+  }
+}
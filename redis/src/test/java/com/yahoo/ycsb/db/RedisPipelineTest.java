@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.yahoo.ycsb.Status;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.embedded.RedisServer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@link RedisPipeline} sender against a Redis server started for the test.
+ */
+public class RedisPipelineTest {
+  private static RedisServer server;
+  private static Jedis jedis;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    int port = RedisClientTest.freePort();
+    server = new RedisServer(port);
+    server.start();
+    jedis = new Jedis("localhost", port);
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    if (jedis != null) {
+      jedis.close();
+    }
+    if (server != null) {
+      server.stop();
+    }
+  }
+
+  /**
+   * @return An operation that increments the counter, and is OK if it got the expected count back.
+   */
+  private static RedisPipeline.Operation increment(String counter, long expected,
+                                                   Map<Pipeline, Integer> sizes) {
+    return pipeline -> {
+      synchronized (sizes) {
+        Integer size = sizes.get(pipeline);
+        sizes.put(pipeline, size == null ? 1 : size + 1);
+      }
+      Response<Long> count = pipeline.incr(counter);
+      return () -> count.get() == expected ? Status.OK : Status.UNEXPECTED_STATE;
+    };
+  }
+
+  @Test
+  public void sendsWhatIsQueuedInPipelinesOfAtMostTheDepth() throws Exception {
+    jedis.del("counter");
+    CountDownLatch firstBorrow = new CountDownLatch(1);
+    CountDownLatch queued = new CountDownLatch(1);
+    AtomicInteger borrowed = new AtomicInteger();
+    Map<Pipeline, Integer> sizes = Collections.synchronizedMap(new IdentityHashMap<Pipeline, Integer>());
+
+    List<CompletableFuture<Status>> futures = new ArrayList<>();
+    try (RedisPipeline pipeline = new RedisPipeline(4, () -> {
+        if (borrowed.getAndIncrement() == 0) {
+          firstBorrow.countDown();
+          try {
+            // hold the first pipeline until the rest are queued behind it
+            queued.await();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+        return jedis;
+      }, connection -> { })) {
+      futures.add(pipeline.submit(increment("counter", 1, sizes)));
+      assertTrue(firstBorrow.await(10, TimeUnit.SECONDS));
+      for (int i = 2; i <= 11; i++) {
+        futures.add(pipeline.submit(increment("counter", i, sizes)));
+      }
+      queued.countDown();
+
+      for (CompletableFuture<Status> future : futures) {
+        assertEquals(Status.OK, future.get(10, TimeUnit.SECONDS));
+      }
+    }
+
+    List<Integer> pipelineSizes = new ArrayList<>(sizes.values());
+    Collections.sort(pipelineSizes);
+    assertEquals(4, borrowed.get());
+    assertEquals("[1, 2, 4, 4]", pipelineSizes.toString());
+  }
+
+  @Test
+  public void failsTheWholePipelineWhenTheConnectionFails() throws Exception {
+    JedisConnectionException refused = new JedisConnectionException("refused");
+    List<CompletableFuture<Status>> futures = new ArrayList<>();
+    try (RedisPipeline pipeline = new RedisPipeline(4, () -> {
+        throw refused;
+      }, connection -> fail("nothing was borrowed"))) {
+      for (int i = 0; i < 3; i++) {
+        futures.add(pipeline.submit(p -> () -> Status.OK));
+      }
+    }
+
+    for (CompletableFuture<Status> future : futures) {
+      try {
+        future.get();
+        fail("expected the connection failure");
+      } catch (ExecutionException e) {
+        assertSame(refused, e.getCause());
+      }
+    }
+  }
+
+  @Test
+  public void sendsWhatIsStillQueuedOnClose() throws Exception {
+    jedis.del("closing");
+    Map<Pipeline, Integer> sizes = new IdentityHashMap<>();
+    List<CompletableFuture<Status>> futures = new ArrayList<>();
+    AtomicInteger released = new AtomicInteger();
+    try (RedisPipeline pipeline = new RedisPipeline(16, () -> jedis, connection -> released.incrementAndGet())) {
+      for (int i = 1; i <= 50; i++) {
+        futures.add(pipeline.submit(increment("closing", i, sizes)));
+      }
+    }
+
+    for (CompletableFuture<Status> future : futures) {
+      assertTrue(future.isDone());
+      assertEquals(Status.OK, future.get());
+    }
+    assertEquals(sizes.size(), released.get());
+    assertEquals("50", jedis.get("closing"));
+  }
+}
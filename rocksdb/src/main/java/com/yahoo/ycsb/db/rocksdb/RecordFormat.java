@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The encoding of a record's fields in a RocksDB value.
+ *
+ * A value is one or more segments. A segment is the format version, the number of fields, and for each field its
+ * id, the length of its value and the value, all numbers as unsigned varints. Field ids index a dictionary of field
+ * names, kept under {@link #FIELD_NAMES_KEY} in the default column family, so names are stored once per database
+ * rather than once per record.
+ *
+ * An insert writes a record as one segment. An update merges a segment with just the fields it changes into the
+ * record, through the "stringappend" merge operator, which joins the segments with {@link #MERGE_DELIMITER}. When
+ * a field appears in more than one segment, the last one holds its current value.
+ */
+final class RecordFormat {
+  static final byte VERSION = 1;
+
+  /**
+   * The merge operator that column families holding records are opened with.
+   */
+  static final String MERGE_OPERATOR = "stringappend";
+
+  /**
+   * What the "stringappend" merge operator puts between a value and the operands merged into it.
+   */
+  static final byte MERGE_DELIMITER = ',';
+
+  static final byte[] FIELD_NAMES_KEY = "ycsb.fieldnames".getBytes(UTF_8);
+
+  private final RocksDB rocksDb;
+  private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] names;
+
+  /**
+   * Loads the dictionary of field names from the database.
+   */
+  RecordFormat(final RocksDB rocksDb) throws RocksDBException {
+    this.rocksDb = rocksDb;
+    final byte[] stored = rocksDb.get(FIELD_NAMES_KEY);
+    names = stored == null || stored.length == 0 ? new String[0] : new String(stored, UTF_8).split("\n", -1);
+    for (int i = 0; i < names.length; i++) {
+      ids.put(names[i], i);
+    }
+  }
+
+  /**
+   * Encodes the fields as a segment. Each value is copied straight from its iterator into the segment.
+   */
+  byte[] encode(final Map<String, ByteIterator> values) throws RocksDBException {
+    final int[] fieldIds = new int[values.size()];
+    int size = 1 + varintSize(values.size());
+    int i = 0;
+    for (final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      final int length = valueLength(value.getValue());
+      fieldIds[i] = id(value.getKey());
+      size += varintSize(fieldIds[i]) + varintSize(length) + length;
+      i++;
+    }
+
+    final byte[] segment = new byte[size];
+    segment[0] = VERSION;
+    int offset = writeVarint(segment, 1, values.size());
+    i = 0;
+    for (final ByteIterator value : values.values()) {
+      final int length = valueLength(value);
+      offset = writeVarint(segment, offset, fieldIds[i++]);
+      offset = writeVarint(segment, offset, length);
+      final int end = offset + length;
+      while (offset < end) {
+        offset = value.nextBuf(segment, offset);
+      }
+    }
+    return segment;
+  }
+
+  /**
+   * Decodes the fields of a value into the result, as iterators over the value's own bytes.
+   *
+   * @param fields The fields to decode, or null for all of them.
+   * @return The number of segments in the value, i.e. one more than the updates merged into it.
+   */
+  int decode(final byte[] value, final Set<String> fields, final Map<String, ByteIterator> result)
+      throws IOException {
+    final String[] fieldNames = names;
+    int segments = 0;
+    int offset = 0;
+    while (offset < value.length) {
+      if (segments > 0 && value[offset++] != MERGE_DELIMITER) {
+        throw new IOException("Corrupt record: no delimiter before segment " + segments);
+      }
+      if (value[offset] != VERSION) {
+        throw new IOException("Unsupported record format version " + value[offset]
+            + "; was the database loaded by an older version of this binding?");
+      }
+      offset++;
+      final int count = readVarint(value, offset);
+      offset += varintSize(count);
+      for (int i = 0; i < count; i++) {
+        final int id = readVarint(value, offset);
+        offset += varintSize(id);
+        final int length = readVarint(value, offset);
+        offset += varintSize(length);
+        if (id >= fieldNames.length || offset + length > value.length) {
+          throw new IOException("Corrupt record: field " + id + " of " + length + " bytes at " + offset);
+        }
+        final String name = fieldNames[id];
+        if (fields == null || fields.contains(name)) {
+          result.put(name, new ByteArrayByteIterator(value, offset, length));
+        }
+        offset += length;
+      }
+      segments++;
+    }
+    return segments;
+  }
+
+  /**
+   * Returns the id of a field name, adding it to the dictionary if it is new.
+   */
+  private int id(final String name) throws RocksDBException {
+    final Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+    return addName(name);
+  }
+
+  private synchronized int addName(final String name) throws RocksDBException {
+    final Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+    final String[] added = Arrays.copyOf(names, names.length + 1);
+    added[names.length] = name;
+    // stored before any record can refer to it
+    rocksDb.put(FIELD_NAMES_KEY, String.join("\n", added).getBytes(UTF_8));
+    names = added;
+    ids.put(name, names.length - 1);
+    return names.length - 1;
+  }
+
+  private static int valueLength(final ByteIterator value) {
+    final long length = value.bytesLeft();
+    if (length != (int) length) {
+      throw new ArrayIndexOutOfBoundsException("Too much data to fit in one array!");
+    }
+    return (int) length;
+  }
+
+  static int varintSize(final int value) {
+    int size = 1;
+    for (int v = value >>> 7; v != 0; v >>>= 7) {
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * @return The offset just after the varint.
+   */
+  static int writeVarint(final byte[] buf, final int offset, final int value) {
+    int v = value;
+    int o = offset;
+    while ((v & ~0x7f) != 0) {
+      buf[o++] = (byte) ((v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    buf[o++] = (byte) v;
+    return o;
+  }
+
+  static int readVarint(final byte[] buf, final int offset) throws IOException {
+    int value = 0;
+    for (int shift = 0, o = offset; shift < 32; shift += 7, o++) {
+      if (o >= buf.length) {
+        throw new IOException("Corrupt record: truncated at " + o);
+      }
+      final byte b = buf[o];
+      value |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Corrupt record: varint too long at " + offset);
+  }
+}
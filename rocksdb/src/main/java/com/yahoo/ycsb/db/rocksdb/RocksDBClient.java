@@ -25,13 +25,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -40,17 +41,38 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  *
  * See {@code rocksdb/README.md} for details.
  */
-public class RocksDBClient extends DB {
+public class RocksDBClient extends DB implements BulkLoadable {
 
   static final String PROPERTY_ROCKSDB_DIR = "rocksdb.dir";
+  static final String PROPERTY_ROCKSDB_MAX_MERGES = "rocksdb.maxmerges";
+  private static final String PROPERTY_ROCKSDB_MAX_MERGES_DEFAULT = "8";
+  static final String PROPERTY_ROCKSDB_BLIND_UPDATES = "rocksdb.blindupdates";
+  private static final String PROPERTY_ROCKSDB_BLIND_UPDATES_DEFAULT = "false";
   private static final String COLUMN_FAMILY_NAMES_FILENAME = "CF_NAMES";
+  private static final String BULK_LOAD_FILE_PREFIX = "ycsb-bulk-";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RocksDBClient.class);
 
   @GuardedBy("RocksDBClient.class") private static Path rocksDbDir = null;
-  @GuardedBy("RocksDBClient.class") private static RocksObject dbOptions = null;
+  @GuardedBy("RocksDBClient.class") private static DBOptions dbOptions = null;
   @GuardedBy("RocksDBClient.class") private static RocksDB rocksDb = null;
   @GuardedBy("RocksDBClient.class") private static int references = 0;
+  @GuardedBy("RocksDBClient.class") private static RecordFormat recordFormat = null;
+  @GuardedBy("RocksDBClient.class") private static int maxMerges;
+  @GuardedBy("RocksDBClient.class") private static boolean blindUpdates;
+  @GuardedBy("RocksDBClient.class") private static RocksDBTuning tuning = null;
+  @GuardedBy("RocksDBClient.class") private static StatisticsReporter statisticsReporter = null;
+
+  /**
+   * Writes to a record take the read lock of its stripe, and a read that rewrites the record takes the write lock,
+   * so that no write falls between its get and its put. See {@link #compact}.
+   */
+  private static final ReadWriteLock[] RECORD_LOCKS = new ReadWriteLock[1024];
+  static {
+    for (int i = 0; i < RECORD_LOCKS.length; i++) {
+      RECORD_LOCKS[i] = new ReentrantReadWriteLock();
+    }
+  }
 
   private static final ConcurrentMap<String, ColumnFamily> COLUMN_FAMILIES = new ConcurrentHashMap<>();
   private static final ConcurrentMap<String, Lock> COLUMN_FAMILY_LOCKS = new ConcurrentHashMap<>();
@@ -61,12 +83,24 @@ public class RocksDBClient extends DB {
       if(rocksDb == null) {
         rocksDbDir = Paths.get(getProperties().getProperty(PROPERTY_ROCKSDB_DIR));
         LOGGER.info("RocksDB data dir: " + rocksDbDir);
+        maxMerges = Integer.parseInt(getProperties().getProperty(PROPERTY_ROCKSDB_MAX_MERGES,
+            PROPERTY_ROCKSDB_MAX_MERGES_DEFAULT));
+        blindUpdates = Boolean.parseBoolean(getProperties().getProperty(PROPERTY_ROCKSDB_BLIND_UPDATES,
+            PROPERTY_ROCKSDB_BLIND_UPDATES_DEFAULT));
 
+        tuning = new RocksDBTuning(getProperties());
         try {
           rocksDb = initRocksDB();
+          recordFormat = new RecordFormat(rocksDb);
         } catch (final IOException | RocksDBException e) {
           throw new DBException(e);
         }
+
+        if(tuning.getStatistics() != null) {
+          statisticsReporter = new StatisticsReporter(tuning.getStatistics(),
+              Long.parseLong(getProperties().getProperty(StatisticsReporter.PROPERTY_STATS_INTERVAL,
+                  StatisticsReporter.PROPERTY_STATS_INTERVAL_DEFAULT)));
+        }
       }
 
       references++;
@@ -86,12 +120,14 @@ public class RocksDBClient extends DB {
     }
 
     final List<String> cfNames = loadColumnFamilyNames();
+    if(cfNames.isEmpty()) {
+      cfNames.add(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8));
+    }
     final List<ColumnFamilyOptions> cfOptionss = new ArrayList<>();
     final List<ColumnFamilyDescriptor> cfDescriptors = new ArrayList<>();
 
     for(final String cfName : cfNames) {
-      final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions()
-          .optimizeLevelStyleCompaction();
+      final ColumnFamilyOptions cfOptions = tuning.newColumnFamilyOptions(cfName);
       final ColumnFamilyDescriptor cfDescriptor = new ColumnFamilyDescriptor(
           cfName.getBytes(UTF_8),
           cfOptions
@@ -100,34 +136,15 @@ public class RocksDBClient extends DB {
       cfDescriptors.add(cfDescriptor);
     }
 
-    final int rocksThreads = Runtime.getRuntime().availableProcessors() * 2;
-
-    if(cfDescriptors.isEmpty()) {
-      final Options options = new Options()
-          .optimizeLevelStyleCompaction()
-          .setCreateIfMissing(true)
-          .setCreateMissingColumnFamilies(true)
-          .setIncreaseParallelism(rocksThreads)
-          .setMaxBackgroundCompactions(rocksThreads)
-          .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
-      dbOptions = options;
-      return RocksDB.open(options, rocksDbDir.toAbsolutePath().toString());
-    } else {
-      final DBOptions options = new DBOptions()
-          .setCreateIfMissing(true)
-          .setCreateMissingColumnFamilies(true)
-          .setIncreaseParallelism(rocksThreads)
-          .setMaxBackgroundCompactions(rocksThreads)
-          .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
-      dbOptions = options;
-
-      final List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
-      final RocksDB db = RocksDB.open(options, rocksDbDir.toAbsolutePath().toString(), cfDescriptors, cfHandles);
-      for(int i = 0; i < cfNames.size(); i++) {
-        COLUMN_FAMILIES.put(cfNames.get(i), new ColumnFamily(cfHandles.get(i), cfOptionss.get(i)));
-      }
-      return db;
+    final DBOptions options = tuning.newDBOptions();
+    dbOptions = options;
+
+    final List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
+    final RocksDB db = RocksDB.open(options, rocksDbDir.toAbsolutePath().toString(), cfDescriptors, cfHandles);
+    for(int i = 0; i < cfNames.size(); i++) {
+      COLUMN_FAMILIES.put(cfNames.get(i), new ColumnFamily(cfHandles.get(i), cfOptionss.get(i)));
     }
+    return db;
   }
 
   @Override
@@ -137,12 +154,18 @@ public class RocksDBClient extends DB {
     synchronized (RocksDBClient.class) {
       try {
         if (references == 1) {
+          if (statisticsReporter != null) {
+            statisticsReporter.close();
+            statisticsReporter = null;
+          }
+
           for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
             cf.getHandle().close();
           }
 
           rocksDb.close();
           rocksDb = null;
+          recordFormat = null;
 
           dbOptions.close();
           dbOptions = null;
@@ -153,6 +176,9 @@ public class RocksDBClient extends DB {
           saveColumnFamilyNames();
           COLUMN_FAMILIES.clear();
 
+          tuning.close();
+          tuning = null;
+
           rocksDbDir = null;
         }
 
@@ -173,13 +199,16 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      final byte[] values = rocksDb.get(cf, key.getBytes(UTF_8));
+      final byte[] keyBytes = key.getBytes(UTF_8);
+      final byte[] values = rocksDb.get(cf, keyBytes);
       if(values == null) {
         return Status.NOT_FOUND;
       }
-      deserializeValues(values, fields, result);
+      if(recordFormat.decode(values, fields, result) > maxMerges + 1) {
+        compact(cf, keyBytes);
+      }
       return Status.OK;
-    } catch(final RocksDBException e) {
+    } catch(final RocksDBException | IOException e) {
       LOGGER.error(e.getMessage(), e);
       return Status.ERROR;
     }
@@ -199,45 +228,47 @@ public class RocksDBClient extends DB {
         for (iterator.seek(startkey.getBytes(UTF_8)); iterator.isValid() && iterations < recordcount;
              iterator.next()) {
           final HashMap<String, ByteIterator> values = new HashMap<>();
-          deserializeValues(iterator.value(), fields, values);
+          recordFormat.decode(iterator.value(), fields, values);
           result.add(values);
           iterations++;
         }
       }
 
       return Status.OK;
-    } catch(final RocksDBException e) {
+    } catch(final RocksDBException | IOException e) {
       LOGGER.error(e.getMessage(), e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * Merges the new values into the record, without reading it first. Like other bindings, a missing record is
+   * NOT_FOUND, which takes a lookup (see {@link #exists}); with "rocksdb.blindupdates" the record is not looked up,
+   * and updating a missing record creates it with just the updated fields.
+   */
   @Override
   public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
-    //TODO(AR) consider if this would be faster with merge operator
-
     try {
       if (!COLUMN_FAMILIES.containsKey(table)) {
         createColumnFamily(table);
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      final Map<String, ByteIterator> result = new HashMap<>();
-      final byte[] currentValues = rocksDb.get(cf, key.getBytes(UTF_8));
-      if(currentValues == null) {
+      final byte[] keyBytes = key.getBytes(UTF_8);
+      if (!blindUpdates && !exists(cf, keyBytes)) {
         return Status.NOT_FOUND;
       }
-      deserializeValues(currentValues, null, result);
-
-      //update
-      result.putAll(values);
-
-      //store
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(result));
+      final byte[] segment = recordFormat.encode(values);
+      final Lock lock = lockRecord(keyBytes);
+      try {
+        rocksDb.merge(cf, keyBytes, segment);
+      } finally {
+        lock.unlock();
+      }
 
       return Status.OK;
 
-    } catch(final RocksDBException | IOException e) {
+    } catch(final RocksDBException e) {
       LOGGER.error(e.getMessage(), e);
       return Status.ERROR;
     }
@@ -251,10 +282,17 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(values));
+      final byte[] keyBytes = key.getBytes(UTF_8);
+      final byte[] record = recordFormat.encode(values);
+      final Lock lock = lockRecord(keyBytes);
+      try {
+        rocksDb.put(cf, keyBytes, record);
+      } finally {
+        lock.unlock();
+      }
 
       return Status.OK;
-    } catch(final RocksDBException | IOException e) {
+    } catch(final RocksDBException e) {
       LOGGER.error(e.getMessage(), e);
       return Status.ERROR;
     }
@@ -268,7 +306,13 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.delete(cf, key.getBytes(UTF_8));
+      final byte[] keyBytes = key.getBytes(UTF_8);
+      final Lock lock = lockRecord(keyBytes);
+      try {
+        rocksDb.delete(cf, keyBytes);
+      } finally {
+        lock.unlock();
+      }
 
       return Status.OK;
     } catch(final RocksDBException e) {
@@ -277,84 +321,277 @@ public class RocksDBClient extends DB {
     }
   }
 
-  private void saveColumnFamilyNames() throws IOException {
-    final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
-    try(final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, UTF_8))) {
-      writer.println(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8));
-      for(final String cfName : COLUMN_FAMILIES.keySet()) {
-        writer.println(cfName);
+  /**
+   * Reads the records with one multiGet.
+   */
+  @Override
+  public Status batchRead(final String table, final List<String> keys, final Set<String> fields,
+      final List<HashMap<String, ByteIterator>> results) {
+    try {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<byte[]> keyBytes = keyBytes(keys);
+      final Map<byte[], byte[]> values = rocksDb.multiGet(Collections.nCopies(keyBytes.size(), cf), keyBytes);
+
+      Status status = Status.OK;
+      for(final byte[] key : keyBytes) {
+        final HashMap<String, ByteIterator> result = new HashMap<>();
+        final byte[] value = values.get(key);
+        if(value == null) {
+          status = firstFailure(status, Status.NOT_FOUND);
+        } else if(recordFormat.decode(value, fields, result) > maxMerges + 1) {
+          compact(cf, key);
+        }
+        results.add(result);
       }
+      return status;
+    } catch(final RocksDBException | IOException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
     }
   }
 
-  private List<String> loadColumnFamilyNames() throws IOException {
-    final List<String> cfNames = new ArrayList<>();
-    final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
-    if(Files.exists(file)) {
-      try (final LineNumberReader reader =
-               new LineNumberReader(Files.newBufferedReader(file, UTF_8))) {
-        String line = null;
-        while ((line = reader.readLine()) != null) {
-          cfNames.add(line);
+  /**
+   * Merges the new values into the records in one {@link WriteBatch}, without reading them first, as
+   * {@link #update} does. Unless updates are blind, records that are missing are left out of the batch, and make
+   * the result NOT_FOUND.
+   */
+  @Override
+  public Status batchUpdate(final String table, final List<String> keys,
+      final List<? extends Map<String, ByteIterator>> values) {
+    try (final WriteBatch batch = new WriteBatch()) {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<byte[]> keyBytes = new ArrayList<>(keys.size());
+      Status result = Status.OK;
+      for(int i = 0; i < keys.size(); i++) {
+        final byte[] key = keys.get(i).getBytes(UTF_8);
+        if (!blindUpdates && !exists(cf, key)) {
+          result = Status.NOT_FOUND;
+          continue;
         }
+        keyBytes.add(key);
+        batch.merge(cf, key, recordFormat.encode(values.get(i)));
       }
+      write(batch, keyBytes);
+
+      return result;
+    } catch(final RocksDBException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
     }
-    return cfNames;
   }
 
-  private Map<String, ByteIterator> deserializeValues(final byte[] values, final Set<String> fields,
-      final Map<String, ByteIterator> result) {
-    final ByteBuffer buf = ByteBuffer.allocate(4);
-
-    int offset = 0;
-    while(offset < values.length) {
-      buf.put(values, offset, 4);
-      buf.flip();
-      final int keyLen = buf.getInt();
-      buf.clear();
-      offset += 4;
-
-      final String key = new String(values, offset, keyLen);
-      offset += keyLen;
-
-      buf.put(values, offset, 4);
-      buf.flip();
-      final int valueLen = buf.getInt();
-      buf.clear();
-      offset += 4;
-
-      if(fields == null || fields.contains(key)) {
-        result.put(key, new ByteArrayByteIterator(values, offset, valueLen));
+  /**
+   * Writes the records in one {@link WriteBatch}.
+   */
+  @Override
+  public Status batchInsert(final String table, final List<String> keys,
+      final List<? extends Map<String, ByteIterator>> values) {
+    try (final WriteBatch batch = new WriteBatch()) {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<byte[]> keyBytes = keyBytes(keys);
+      for(int i = 0; i < keyBytes.size(); i++) {
+        batch.put(cf, keyBytes.get(i), recordFormat.encode(values.get(i)));
+      }
+      write(batch, keyBytes);
+
+      return Status.OK;
+    } catch(final RocksDBException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Deletes the records in one {@link WriteBatch}.
+   */
+  @Override
+  public Status batchDelete(final String table, final List<String> keys) {
+    try (final WriteBatch batch = new WriteBatch()) {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<byte[]> keyBytes = keyBytes(keys);
+      for(final byte[] key : keyBytes) {
+        batch.delete(cf, key);
       }
+      write(batch, keyBytes);
+
+      return Status.OK;
+    } catch(final RocksDBException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Writes the records into an SST file with an {@link SstFileWriter}, and ingests the file into the table's
+   * column family. The file is written in the data directory, so that ingesting it moves rather than copies it,
+   * and with the options the column family was opened with, so that it has the same table format and merge
+   * operator as the files the column family writes itself.
+   * Unlike the other writes, this does not keep out of the way of reads that rewrite records (see
+   * {@link #compact}), which a load is not expected to run alongside.
+   */
+  @Override
+  public Status bulkLoad(final String table, final List<String> keys,
+      final List<? extends Map<String, ByteIterator>> values) {
+    Path sstFile = null;
+    try {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamily cf = COLUMN_FAMILIES.get(table);
+      sstFile = Files.createTempFile(rocksDbDir, BULK_LOAD_FILE_PREFIX, ".sst");
+      try (final EnvOptions envOptions = new EnvOptions();
+           final Options options = new Options(dbOptions, cf.getOptions());
+           final SstFileWriter writer = new SstFileWriter(envOptions, options)) {
+        writer.open(sstFile.toString());
+        for(int i = 0; i < keys.size(); i++) {
+          writer.put(keys.get(i).getBytes(UTF_8), recordFormat.encode(values.get(i)));
+        }
+        writer.finish();
+      }
+
+      try (final IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+        ingestOptions.setMoveFiles(true);
+        rocksDb.ingestExternalFile(cf.getHandle(), Collections.singletonList(sstFile.toString()), ingestOptions);
+      }
+
+      return Status.OK;
+    } catch(final RocksDBException | IOException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    } finally {
+      deleteBulkLoadFile(sstFile);
+    }
+  }
+
+  /**
+   * Deletes what is left of an SST file after it was ingested, or failed to be.
+   */
+  private static void deleteBulkLoadFile(final Path sstFile) {
+    if(sstFile == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(sstFile);
+    } catch(final IOException e) {
+      LOGGER.warn("Could not delete " + sstFile, e);
+    }
+  }
 
-      offset += valueLen;
+  private static List<byte[]> keyBytes(final List<String> keys) {
+    final List<byte[]> keyBytes = new ArrayList<>(keys.size());
+    for(final String key : keys) {
+      keyBytes.add(key.getBytes(UTF_8));
     }
+    return keyBytes;
+  }
 
-    return result;
+  /**
+   * Whether the record is there. {@link RocksDB#keyMayExist} answers from the memtables, the caches and the bloom
+   * filters where it can, so the record is only read when they cannot rule it out and do not hold its value.
+   */
+  private static boolean exists(final ColumnFamilyHandle cf, final byte[] key) throws RocksDBException {
+    final StringBuilder value = new StringBuilder();
+    if(!rocksDb.keyMayExist(cf, key, value)) {
+      return false;
+    }
+    return value.length() > 0 || rocksDb.get(cf, key) != null;
   }
 
-  private byte[] serializeValues(final Map<String, ByteIterator> values) throws IOException {
-    try(final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-      final ByteBuffer buf = ByteBuffer.allocate(4);
+  /**
+   * Writes a batch to the records with the given keys.
+   */
+  private static void write(final WriteBatch batch, final List<byte[]> keys) throws RocksDBException {
+    final List<Lock> locks = new ArrayList<>(keys.size());
+    try (final WriteOptions options = new WriteOptions()) {
+      for(final byte[] key : keys) {
+        locks.add(lockRecord(key));
+      }
+      rocksDb.write(options, batch);
+    } finally {
+      for(final Lock lock : locks) {
+        lock.unlock();
+      }
+    }
+  }
 
-      for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
-        final byte[] keyBytes = value.getKey().getBytes(UTF_8);
-        final byte[] valueBytes = value.getValue().toArray();
+  private static ReadWriteLock recordLock(final byte[] key) {
+    return RECORD_LOCKS[(Arrays.hashCode(key) & Integer.MAX_VALUE) % RECORD_LOCKS.length];
+  }
 
-        buf.putInt(keyBytes.length);
-        baos.write(buf.array());
-        baos.write(keyBytes);
+  /**
+   * Takes the lock that writes to the record with the given key share.
+   */
+  private static Lock lockRecord(final byte[] key) {
+    final Lock lock = recordLock(key).readLock();
+    lock.lock();
+    return lock;
+  }
 
-        buf.clear();
+  /**
+   * Rewrites a record that has had many updates merged into it as a single segment, so that it doesn't keep
+   * growing and getting slower to read. The record is read again while writes to it are held off; if another read
+   * is already rewriting it, or a write is in progress, it is left for a later read.
+   */
+  private void compact(final ColumnFamilyHandle cf, final byte[] key) throws RocksDBException, IOException {
+    final Lock lock = recordLock(key).writeLock();
+    if(!lock.tryLock()) {
+      return;
+    }
+    try {
+      final byte[] current = rocksDb.get(cf, key);
+      if(current == null) {
+        return;
+      }
+      final Map<String, ByteIterator> values = new HashMap<>();
+      recordFormat.decode(current, null, values);
+      rocksDb.put(cf, key, recordFormat.encode(values));
+    } finally {
+      lock.unlock();
+    }
+  }
 
-        buf.putInt(valueBytes.length);
-        baos.write(buf.array());
-        baos.write(valueBytes);
+  private void saveColumnFamilyNames() throws IOException {
+    final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
+    try(final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, UTF_8))) {
+      writer.println(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8));
+      for(final String cfName : COLUMN_FAMILIES.keySet()) {
+        if(!Arrays.equals(cfName.getBytes(UTF_8), RocksDB.DEFAULT_COLUMN_FAMILY)) {
+          writer.println(cfName);
+        }
+      }
+    }
+  }
 
-        buf.clear();
+  private List<String> loadColumnFamilyNames() throws IOException {
+    final List<String> cfNames = new ArrayList<>();
+    final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
+    if(Files.exists(file)) {
+      try (final LineNumberReader reader =
+               new LineNumberReader(Files.newBufferedReader(file, UTF_8))) {
+        String line = null;
+        while ((line = reader.readLine()) != null) {
+          cfNames.add(line);
+        }
       }
-      return baos.toByteArray();
     }
+    return cfNames;
   }
 
   private void createColumnFamily(final String name) throws RocksDBException {
@@ -364,7 +601,7 @@ public class RocksDBClient extends DB {
     l.lock();
     try {
       if(!COLUMN_FAMILIES.containsKey(name)) {
-        final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions().optimizeLevelStyleCompaction();
+        final ColumnFamilyOptions cfOptions = tuning.newColumnFamilyOptions(name);
         final ColumnFamilyHandle cfHandle = rocksDb.createColumnFamily(
             new ColumnFamilyDescriptor(name.getBytes(UTF_8), cfOptions)
         );
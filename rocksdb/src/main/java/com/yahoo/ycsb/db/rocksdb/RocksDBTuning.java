@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import com.yahoo.ycsb.DBException;
+import org.rocksdb.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The options the database and its column families are opened with: those of a RocksDB OPTIONS file, if one is
+ * given, or else the binding's defaults, with the {@code rocksdb.*} tuning properties that are set applied over
+ * them. Also holds the objects the options refer to, which have to stay open as long as the database does.
+ *
+ * The cache is handed to the database as its row cache, which all column families share. This version of the
+ * RocksDB Java API can't share one block cache between column families, so each gets a block cache of its own.
+ */
+final class RocksDBTuning implements AutoCloseable {
+  static final String PROPERTY_OPTIONS_FILE = "rocksdb.optionsfile";
+  static final String PROPERTY_CACHE_SIZE = "rocksdb.cachesize";
+  static final String PROPERTY_CACHE_TYPE = "rocksdb.cachetype";
+  static final String PROPERTY_BLOCK_CACHE_SIZE = "rocksdb.blockcachesize";
+  static final String PROPERTY_BLOOM_BITS = "rocksdb.bloombits";
+  static final String PROPERTY_DIRECT_IO = "rocksdb.directio";
+  static final String PROPERTY_RATE_LIMIT = "rocksdb.ratelimit";
+  static final String PROPERTY_COMPACTION_STYLE = "rocksdb.compactionstyle";
+  static final String PROPERTY_BACKGROUND_JOBS = "rocksdb.backgroundjobs";
+  static final String PROPERTY_STATS = "rocksdb.stats";
+
+  private final String optionsFile;
+  private final Long blockCacheSize;
+  private final String directIo;
+  private final CompactionStyle compactionStyle;
+  private final Integer backgroundJobs;
+
+  private final Cache cache;
+  private final Filter filter;
+  private final RateLimiter rateLimiter;
+  private final Statistics statistics;
+
+  RocksDBTuning(final Properties props) throws DBException {
+    RocksDB.loadLibrary();
+
+    optionsFile = props.getProperty(PROPERTY_OPTIONS_FILE);
+    blockCacheSize = parseLong(props.getProperty(PROPERTY_BLOCK_CACHE_SIZE));
+    directIo = props.getProperty(PROPERTY_DIRECT_IO);
+    compactionStyle = parseCompactionStyle(props.getProperty(PROPERTY_COMPACTION_STYLE));
+    final String jobs = props.getProperty(PROPERTY_BACKGROUND_JOBS);
+    backgroundJobs = jobs == null ? null : Integer.valueOf(jobs);
+
+    final Long cacheSize = parseLong(props.getProperty(PROPERTY_CACHE_SIZE));
+    final String cacheType = props.getProperty(PROPERTY_CACHE_TYPE, "lru");
+    if(cacheSize == null) {
+      cache = null;
+    } else if(cacheType.equals("lru")) {
+      cache = new LRUCache(cacheSize);
+    } else if(cacheType.equals("clock")) {
+      cache = new ClockCache(cacheSize);
+    } else {
+      throw new DBException("Unknown " + PROPERTY_CACHE_TYPE + " '" + cacheType + "', expected lru or clock");
+    }
+
+    final String bloomBits = props.getProperty(PROPERTY_BLOOM_BITS);
+    filter = bloomBits == null ? null : new BloomFilter(Integer.parseInt(bloomBits), false);
+
+    final Long rateLimit = parseLong(props.getProperty(PROPERTY_RATE_LIMIT));
+    rateLimiter = rateLimit == null ? null : new RateLimiter(rateLimit);
+
+    statistics = Boolean.parseBoolean(props.getProperty(PROPERTY_STATS, "false")) ? new Statistics() : null;
+  }
+
+  private static Long parseLong(final String value) {
+    return value == null ? null : Long.valueOf(value);
+  }
+
+  private static CompactionStyle parseCompactionStyle(final String style) throws DBException {
+    if(style == null) {
+      return null;
+    }
+    try {
+      return CompactionStyle.valueOf(style.toUpperCase(Locale.ROOT));
+    } catch(final IllegalArgumentException e) {
+      throw new DBException("Unknown " + PROPERTY_COMPACTION_STYLE + " '" + style +
+          "', expected level, universal or fifo");
+    }
+  }
+
+  /**
+   * @return The statistics the database collects, or null if it doesn't collect any.
+   */
+  Statistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * @return New options for opening the database.
+   */
+  DBOptions newDBOptions() throws RocksDBException {
+    final DBOptions options = new DBOptions();
+    if(optionsFile == null) {
+      final int rocksThreads = Runtime.getRuntime().availableProcessors() * 2;
+      options
+          .setIncreaseParallelism(rocksThreads)
+          .setMaxBackgroundCompactions(rocksThreads)
+          .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
+    } else {
+      final List<ColumnFamilyDescriptor> cfDescriptors = new ArrayList<>();
+      OptionsUtil.loadOptionsFromFile(optionsFile, Env.getDefault(), options, cfDescriptors);
+      for(final ColumnFamilyDescriptor cfDescriptor : cfDescriptors) {
+        cfDescriptor.getOptions().close();
+      }
+      // RocksDB writes the directory of the database it came from as the WAL directory, which would have this
+      // database write its log there too
+      final Path fileDir = Paths.get(optionsFile).toAbsolutePath().getParent();
+      if(fileDir != null && fileDir.equals(Paths.get(options.walDir()).toAbsolutePath())) {
+        options.setWalDir("");
+      }
+    }
+
+    options
+        .setCreateIfMissing(true)
+        .setCreateMissingColumnFamilies(true);
+    if(backgroundJobs != null) {
+      options.setMaxBackgroundJobs(backgroundJobs);
+    }
+    if(directIo != null) {
+      final boolean direct = Boolean.parseBoolean(directIo);
+      options
+          .setUseDirectReads(direct)
+          .setUseDirectIoForFlushAndCompaction(direct);
+    }
+    if(cache != null) {
+      options.setRowCache(cache);
+    }
+    if(rateLimiter != null) {
+      options.setRateLimiter(rateLimiter);
+    }
+    if(statistics != null) {
+      options.setStatistics(statistics);
+    }
+    return options;
+  }
+
+  /**
+   * @return New options for opening or creating the named column family. With an OPTIONS file, a column family it
+   *     has no section for is given the options of its default column family.
+   */
+  ColumnFamilyOptions newColumnFamilyOptions(final String name) throws RocksDBException {
+    final ColumnFamilyOptions options;
+    if(optionsFile == null) {
+      options = new ColumnFamilyOptions();
+      if(compactionStyle == CompactionStyle.UNIVERSAL) {
+        options.optimizeUniversalStyleCompaction();
+      } else {
+        options.optimizeLevelStyleCompaction();
+        if(compactionStyle != null) {
+          options.setCompactionStyle(compactionStyle);
+        }
+      }
+    } else {
+      options = loadColumnFamilyOptions(name);
+      if(compactionStyle != null) {
+        options.setCompactionStyle(compactionStyle);
+      }
+    }
+
+    if(blockCacheSize != null || filter != null) {
+      final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+      if(blockCacheSize != null) {
+        tableConfig.setBlockCacheSize(blockCacheSize);
+      }
+      if(filter != null) {
+        tableConfig.setFilter(filter);
+      }
+      options.setTableFormatConfig(tableConfig);
+    }
+    return options.setMergeOperatorName(RecordFormat.MERGE_OPERATOR);
+  }
+
+  private ColumnFamilyOptions loadColumnFamilyOptions(final String name) throws RocksDBException {
+    final List<ColumnFamilyDescriptor> cfDescriptors = new ArrayList<>();
+    try(final DBOptions dbOptions = new DBOptions()) {
+      OptionsUtil.loadOptionsFromFile(optionsFile, Env.getDefault(), dbOptions, cfDescriptors);
+    }
+
+    ColumnFamilyOptions named = null;
+    ColumnFamilyOptions defaults = null;
+    for(final ColumnFamilyDescriptor cfDescriptor : cfDescriptors) {
+      final String cfName = new String(cfDescriptor.getName(), UTF_8);
+      if(cfName.equals(name)) {
+        named = cfDescriptor.getOptions();
+      } else if(cfName.equals(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8))) {
+        defaults = cfDescriptor.getOptions();
+      }
+    }
+
+    ColumnFamilyOptions options = named != null ? named : defaults;
+    if(options == null) {
+      options = new ColumnFamilyOptions();
+    }
+    for(final ColumnFamilyDescriptor cfDescriptor : cfDescriptors) {
+      if(cfDescriptor.getOptions() != options) {
+        cfDescriptor.getOptions().close();
+      }
+    }
+    return options;
+  }
+
+  @Override
+  public void close() {
+    if(cache != null) {
+      cache.close();
+    }
+    if(filter != null) {
+      filter.close();
+    }
+    if(rateLimiter != null) {
+      rateLimiter.close();
+    }
+    if(statistics != null) {
+      statistics.close();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.rocksdb.HistogramData;
+import org.rocksdb.HistogramType;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples what RocksDB's {@link Statistics} counted in each interval into the YCSB measurements, the way the status
+ * thread does for the JVM with {@code measurement.trackjvm}, so that they are exported next to the client's
+ * latencies. Each measurement is named {@code ROCKSDB_...} and gets one value per interval:
+ * <ul>
+ * <li>STALL_MICROS: the time writes were stalled.</li>
+ * <li>BLOCK_CACHE_HIT_PCT and ROW_CACHE_HIT_PCT: the share of lookups the caches answered, if there were any.</li>
+ * <li>COMPACT_READ_KB, COMPACT_WRITE_KB and FLUSH_WRITE_KB: what compactions and flushes read and wrote.</li>
+ * <li>GET_P99_US and WRITE_P99_US: the 99th percentile of RocksDB's own get and write times, if there were any.</li>
+ * </ul>
+ * The statistics are reset after each sample.
+ */
+final class StatisticsReporter implements AutoCloseable {
+  static final String PROPERTY_STATS_INTERVAL = "rocksdb.statsinterval";
+  static final String PROPERTY_STATS_INTERVAL_DEFAULT = "10";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsReporter.class);
+
+  private final Statistics statistics;
+  private final Measurements measurements;
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Starts sampling every intervalSeconds.
+   */
+  StatisticsReporter(final Statistics statistics, final long intervalSeconds) {
+    this.statistics = statistics;
+    this.measurements = Measurements.getMeasurements();
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "RocksDB statistics");
+        thread.setDaemon(true);
+        return thread;
+      });
+    executor.scheduleAtFixedRate(this::sample, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Measures what was counted since the last sample.
+   */
+  synchronized void sample() {
+    measure("ROCKSDB_STALL_MICROS", statistics.getAndResetTickerCount(TickerType.STALL_MICROS));
+    measureHitRate("ROCKSDB_BLOCK_CACHE_HIT_PCT",
+        statistics.getAndResetTickerCount(TickerType.BLOCK_CACHE_HIT),
+        statistics.getAndResetTickerCount(TickerType.BLOCK_CACHE_MISS));
+    measureHitRate("ROCKSDB_ROW_CACHE_HIT_PCT",
+        statistics.getAndResetTickerCount(TickerType.ROW_CACHE_HIT),
+        statistics.getAndResetTickerCount(TickerType.ROW_CACHE_MISS));
+    measure("ROCKSDB_COMPACT_READ_KB", statistics.getAndResetTickerCount(TickerType.COMPACT_READ_BYTES) / 1024);
+    measure("ROCKSDB_COMPACT_WRITE_KB", statistics.getAndResetTickerCount(TickerType.COMPACT_WRITE_BYTES) / 1024);
+    measure("ROCKSDB_FLUSH_WRITE_KB", statistics.getAndResetTickerCount(TickerType.FLUSH_WRITE_BYTES) / 1024);
+    measurePercentile("ROCKSDB_GET_P99_US", statistics.getHistogramData(HistogramType.DB_GET));
+    measurePercentile("ROCKSDB_WRITE_P99_US", statistics.getHistogramData(HistogramType.DB_WRITE));
+
+    // Histograms can only be reset along with everything else, so the tickers are read first.
+    try {
+      statistics.reset();
+    } catch(final RocksDBException e) {
+      LOGGER.warn("Could not reset the RocksDB statistics", e);
+    }
+  }
+
+  private void measure(final String name, final long value) {
+    measurements.measure(name, (int) Math.min(value, Integer.MAX_VALUE));
+  }
+
+  private void measureHitRate(final String name, final long hits, final long misses) {
+    if(hits + misses > 0) {
+      measure(name, hits * 100 / (hits + misses));
+    }
+  }
+
+  private void measurePercentile(final String name, final HistogramData data) {
+    if(data.getAverage() > 0) {
+      measure(name, Math.round(data.getPercentile99()));
+    }
+  }
+
+  /**
+   * Stops sampling, and takes a last sample of what was counted since the one before. Should be called before the
+   * database is closed.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch(final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    sample();
+  }
+}
@@ -20,13 +20,21 @@ package com.yahoo.ycsb.db.rocksdb;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
 import com.yahoo.ycsb.workloads.CoreWorkload;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
+import org.rocksdb.Env;
+import org.rocksdb.OptionsUtil;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class RocksDBClientTest {
 
@@ -120,4 +128,194 @@ public class RocksDBClientTest {
     final Status result = instance.scan(MOCK_TABLE, MOCK_KEY3, NUM_RECORDS, fields, resultParam);
     assertEquals(Status.OK, result);
   }
+
+  @Test
+  public void batchInsertUpdateReadAndDelete() throws Exception {
+    List<String> keys = Arrays.asList("batch0", "batch1", "batch2");
+    final List<Map<String, ByteIterator>> values = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      final Map<String, ByteIterator> value = new HashMap<>();
+      value.put(FIELD_PREFIX + 0, new StringByteIterator("value" + i));
+      value.put(FIELD_PREFIX + 1, new StringByteIterator("other" + i));
+      values.add(value);
+    }
+    assertEquals(Status.OK, instance.batchInsert(MOCK_TABLE, keys, values));
+
+    // a missing record is not found, and left as it is
+    assertEquals(Status.NOT_FOUND, instance.batchUpdate(MOCK_TABLE, Arrays.asList("missing", "batch1"),
+        bulkValues("newvalue", "newvalue")));
+    assertEquals(Status.NOT_FOUND, instance.update(MOCK_TABLE, "missing", bulkValues("newvalue").get(0)));
+
+    final List<HashMap<String, ByteIterator>> results = new ArrayList<>();
+    assertEquals(Status.NOT_FOUND,
+        instance.batchRead(MOCK_TABLE, Arrays.asList("batch2", "missing", "batch1"), null, results));
+    assertEquals(3, results.size());
+    assertEquals("value2", results.get(0).get(FIELD_PREFIX + 0).toString());
+    assertTrue(results.get(1).isEmpty());
+    assertEquals("newvalue", results.get(2).get(FIELD_PREFIX + 0).toString());
+    assertEquals("other1", results.get(2).get(FIELD_PREFIX + 1).toString());
+
+    assertEquals(Status.OK, instance.batchDelete(MOCK_TABLE, keys));
+    results.clear();
+    assertEquals(Status.NOT_FOUND, instance.batchRead(MOCK_TABLE, keys, null, results));
+    for (final Map<String, ByteIterator> result : results) {
+      assertTrue(result.isEmpty());
+    }
+  }
+
+  @Test
+  public void bulkLoadIngestsSortedChunks() throws Exception {
+    assertEquals(Status.OK, instance.bulkLoad(MOCK_TABLE, Arrays.asList("bulk0", "bulk1", "bulk2"),
+        bulkValues("value0", "value1", "value2")));
+    // a later chunk may overlap the earlier ones
+    assertEquals(Status.OK, instance.bulkLoad(MOCK_TABLE, Arrays.asList("bulk1", "bulk3"),
+        bulkValues("newvalue", "value3")));
+
+    final List<HashMap<String, ByteIterator>> results = new ArrayList<>();
+    assertEquals(Status.OK,
+        instance.batchRead(MOCK_TABLE, Arrays.asList("bulk0", "bulk1", "bulk2", "bulk3"), null, results));
+    assertEquals("value0", results.get(0).get(FIELD_PREFIX + 0).toString());
+    assertEquals("newvalue", results.get(1).get(FIELD_PREFIX + 0).toString());
+    assertEquals("value2", results.get(2).get(FIELD_PREFIX + 0).toString());
+    assertEquals("value3", results.get(3).get(FIELD_PREFIX + 0).toString());
+
+    // the files were moved into the database
+    for (final String name : tmpFolder.getRoot().list()) {
+      assertTrue(name, !name.startsWith("ycsb-bulk-"));
+    }
+  }
+
+  private static List<Map<String, ByteIterator>> bulkValues(final String... fieldValues) {
+    final List<Map<String, ByteIterator>> values = new ArrayList<>();
+    for (final String fieldValue : fieldValues) {
+      final Map<String, ByteIterator> value = new HashMap<>();
+      value.put(FIELD_PREFIX + 0, new StringByteIterator(fieldValue));
+      values.add(value);
+    }
+    return values;
+  }
+
+  @Test
+  public void updatesAreMergedAndCompactedByReads() throws Exception {
+    final Map<String, ByteIterator> record = new HashMap<>();
+    record.put(FIELD_PREFIX + 0, new StringByteIterator("value0"));
+    record.put(FIELD_PREFIX + 1, new StringByteIterator("value1"));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY0, record));
+
+    for (int i = 0; i < 20; i++) {
+      final Map<String, ByteIterator> update = new HashMap<>();
+      update.put(FIELD_PREFIX + (i % 2), new StringByteIterator("update" + i));
+      assertEquals(Status.OK, instance.update(MOCK_TABLE, MOCK_KEY0, update));
+    }
+
+    // the read sees the last update of each field, and rewrites the record as one segment
+    for (int i = 0; i < 2; i++) {
+      final Map<String, ByteIterator> result = new HashMap<>();
+      assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY0, null, result));
+      assertEquals(2, result.size());
+      assertEquals("update18", result.get(FIELD_PREFIX + 0).toString());
+      assertEquals("update19", result.get(FIELD_PREFIX + 1).toString());
+    }
+    final Map<String, ByteIterator> single = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY0, Collections.singleton(FIELD_PREFIX + 1), single));
+    assertEquals(Collections.singleton(FIELD_PREFIX + 1), single.keySet());
+  }
+
+  @Test
+  public void fieldNamesSurviveAReopen() throws Exception {
+    final Map<String, ByteIterator> record = new HashMap<>();
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      record.put(FIELD_PREFIX + i, new StringByteIterator("value" + i));
+    }
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY1, record));
+    instance.cleanup();
+    instance.init();
+
+    final Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY1, null, result));
+    assertEquals(record.keySet(), result.keySet());
+    assertEquals("value3", result.get(FIELD_PREFIX + 3).toString());
+  }
+
+  @Test
+  public void blindUpdatesCreateMissingRecords() throws Exception {
+    instance.cleanup();
+    instance.getProperties().setProperty(RocksDBClient.PROPERTY_ROCKSDB_BLIND_UPDATES, "true");
+    instance.init();
+    assertEquals(Status.OK, instance.batchUpdate(MOCK_TABLE, Arrays.asList("created"), bulkValues("newvalue")));
+
+    final Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, "created", null, result));
+    assertEquals(Collections.singleton(FIELD_PREFIX + 0), result.keySet());
+  }
+
+  @Test
+  public void tuningPropertiesAndOptionsFilesAreApplied() throws Exception {
+    instance.cleanup();
+    final Properties properties = instance.getProperties();
+    properties.setProperty(RocksDBTuning.PROPERTY_CACHE_SIZE, "1048576");
+    properties.setProperty(RocksDBTuning.PROPERTY_CACHE_TYPE, "clock");
+    properties.setProperty(RocksDBTuning.PROPERTY_BLOCK_CACHE_SIZE, "1048576");
+    properties.setProperty(RocksDBTuning.PROPERTY_BLOOM_BITS, "10");
+    properties.setProperty(RocksDBTuning.PROPERTY_RATE_LIMIT, "104857600");
+    properties.setProperty(RocksDBTuning.PROPERTY_COMPACTION_STYLE, "universal");
+    properties.setProperty(RocksDBTuning.PROPERTY_BACKGROUND_JOBS, "3");
+    instance.init();
+    insertUpdateAndReadOneRecord();
+    final String options = latestOptions(tmpFolder.getRoot());
+    assertTrue(options.contains("max_background_jobs=3"));
+    assertTrue(options.contains("compaction_style=kCompactionStyleUniversal"));
+    assertTrue(options.contains("filter_policy=rocksdb.BuiltinBloomFilter"));
+    instance.cleanup();
+
+    // a database opened with just the OPTIONS file the last one wrote gets the same options
+    final File optionsFile = new File(tmpFolder.getRoot(),
+        OptionsUtil.getLatestOptionsFileName(tmpFolder.getRoot().getAbsolutePath(), Env.getDefault()));
+    final File dir = tmpFolder.newFolder();
+    final Properties fileProperties = new Properties();
+    fileProperties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, dir.getAbsolutePath());
+    fileProperties.setProperty(RocksDBTuning.PROPERTY_OPTIONS_FILE, optionsFile.getAbsolutePath());
+    instance = new RocksDBClient();
+    instance.setProperties(fileProperties);
+    instance.init();
+    insertUpdateAndReadOneRecord();
+    final String loaded = latestOptions(dir);
+    assertTrue(loaded.contains("max_background_jobs=3"));
+    assertTrue(loaded.contains("compaction_style=kCompactionStyleUniversal"));
+  }
+
+  private void insertUpdateAndReadOneRecord() {
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY0, bulkValues("value").get(0)));
+    assertEquals(Status.OK, instance.update(MOCK_TABLE, MOCK_KEY0, bulkValues("newvalue").get(0)));
+    for (int i = 0; i < 2; i++) {
+      final Map<String, ByteIterator> result = new HashMap<>();
+      assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY0, null, result));
+      assertEquals("newvalue", result.get(FIELD_PREFIX + 0).toString());
+    }
+  }
+
+  private static String latestOptions(final File dir) throws Exception {
+    final String name = OptionsUtil.getLatestOptionsFileName(dir.getAbsolutePath(), Env.getDefault());
+    return new String(Files.readAllBytes(Paths.get(dir.getAbsolutePath(), name)), "UTF-8");
+  }
+
+  @Test
+  public void statisticsAreMeasured() throws Exception {
+    Measurements.setProperties(new Properties());
+    instance.cleanup();
+    instance.getProperties().setProperty(RocksDBTuning.PROPERTY_STATS, "true");
+    instance.init();
+    insertUpdateAndReadOneRecord();
+    // the last sample is taken when the database is closed
+    instance.cleanup();
+    instance.init();
+
+    final Set<String> names = new HashSet<>();
+    for (final OneMeasurement measurement : Measurements.getMeasurements().getOneMeasurements()) {
+      names.add(measurement.getName());
+    }
+    assertTrue(names.toString(), names.contains("ROCKSDB_STALL_MICROS"));
+    assertTrue(names.toString(), names.contains("ROCKSDB_GET_P99_US"));
+    assertTrue(names.toString(), names.contains("ROCKSDB_WRITE_P99_US"));
+  }
 }